@@ -0,0 +1,27 @@
+package com.art.erfassung.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache configuration for the Erfassung application.
+ * <p>
+ * Enables Spring's caching abstraction. The caches are provided by Caffeine; their names, size limits
+ * and expiry are configured via {@code spring.cache.*} in {@code application.properties}. Hit, miss and
+ * eviction counters are published as Micrometer metrics ({@code cache.gets}, {@code cache.evictions}).
+ * </p>
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Name of the cache for per-student statistics, keyed by student id.
+     */
+    public static final String STUDENTENSTATISTIK = "studentenstatistik";
+
+    /**
+     * Name of the cache for bit-packed group months, keyed by group id and month.
+     */
+    public static final String MONATSUEBERSICHT = "monatsuebersicht";
+}
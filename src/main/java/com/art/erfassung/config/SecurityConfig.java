@@ -11,6 +11,11 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 /**
  * Security configuration for the Erfassung application.
@@ -19,6 +24,12 @@ import org.springframework.security.web.SecurityFilterChain;
  * and authorization for the application. It defines user roles and
  * access control for different endpoints.
  * </p>
+ * <p>
+ * The browser UI uses form login. The JSON API under "/api/**" uses HTTP Basic; unauthenticated API
+ * requests receive a 401 response instead of a redirect to the login page. A successful HTTP Basic login is
+ * stored in the session like a form login, so clients that send the session cookie back are not checked
+ * against the password hash again.
+ * </p>
  */
 @Configuration
 @EnableWebSecurity
@@ -37,10 +48,16 @@ public class SecurityConfig {
             .authorizeHttpRequests(authz -> authz
                 // Public endpoints
                 .requestMatchers("/", "/login", "/css/**", "/images/**", "/js/**").permitAll()
+                // Group statistics are also available to teachers
+                .requestMatchers("/gruppen/*/statistik").hasAnyRole("TEACHER", "ADMIN")
                 // Admin endpoints
-                .requestMatchers("/gruppen/**", "/studenten/**", "/statistik/**").hasRole("ADMIN")
+                .requestMatchers("/gruppen/**", "/studenten/**", "/statistik/**", "/admin/**", "/actuator/**").hasRole("ADMIN")
                 // Teacher endpoints
                 .requestMatchers("/anwesenheit/**", "/liste/**").hasAnyRole("TEACHER", "ADMIN")
+                // JSON API for terminals and apps
+                .requestMatchers("/api/v1/erfassungen/**").hasAnyRole("TEACHER", "ADMIN")
+                // Check-in scanners
+                .requestMatchers("/api/v1/checkins/**").hasAnyRole("SCANNER", "ADMIN")
                 // All other requests require authentication
                 .anyRequest().authenticated()
             )
@@ -54,11 +71,23 @@ public class SecurityConfig {
                 .logoutSuccessUrl("/login?logout=true")
                 .permitAll()
             )
+            // Keep the authentication in the session so that clients reusing the session cookie skip the BCrypt check
+            .httpBasic(basic -> basic.securityContextRepository(new DelegatingSecurityContextRepository(
+                new RequestAttributeSecurityContextRepository(), new HttpSessionSecurityContextRepository())))
+            .exceptionHandling(exceptions -> exceptions
+                .defaultAuthenticationEntryPointFor(apiEntryPoint(), new AntPathRequestMatcher("/api/**"))
+            )
             .csrf(csrf -> csrf.disable()); // Disable CSRF for development - enable in production
 
         return http.build();
     }
 
+    private static BasicAuthenticationEntryPoint apiEntryPoint() {
+        BasicAuthenticationEntryPoint entryPoint = new BasicAuthenticationEntryPoint();
+        entryPoint.setRealmName("erfassung");
+        return entryPoint;
+    }
+
     /**
      * Configures the password encoder for secure password storage.
      *
@@ -90,6 +119,12 @@ public class SecurityConfig {
             .roles("TEACHER")
             .build();
 
-        return new InMemoryUserDetailsManager(admin, teacher);
+        UserDetails scanner = User.builder()
+            .username("scanner")
+            .password(passwordEncoder.encode("scanner123"))
+            .roles("SCANNER")
+            .build();
+
+        return new InMemoryUserDetailsManager(admin, teacher, scanner);
     }
 }
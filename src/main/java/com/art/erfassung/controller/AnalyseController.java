@@ -0,0 +1,120 @@
+package com.art.erfassung.controller;
+
+import com.art.erfassung.dto.AnalyseErgebnis;
+import com.art.erfassung.dto.AnalyseFilter;
+import com.art.erfassung.service.ErfassungSpaltenspeicher;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Controller für schulweite Auswertungen der Erfassungen.
+ * <p>
+ * Unter "/admin/analyse" filtern Administratoren alle Erfassungen nach Gruppe, Zeitraum, Wochentag und Status
+ * und erhalten die Anzahlen je Status. Die Auswertung läuft im {@link ErfassungSpaltenspeicher} ohne
+ * Datenbankzugriff; das Ergebnis steht als Seite und als JSON zur Verfügung.
+ * </p>
+ */
+@Controller
+@RequestMapping("/admin/analyse")
+public class AnalyseController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyseController.class);
+
+    // Spaltenspeicher der Erfassungen für die Auswertungen
+    private final ErfassungSpaltenspeicher erfassungSpaltenspeicher;
+
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+
+    public AnalyseController(ErfassungSpaltenspeicher erfassungSpaltenspeicher,
+                             ReferenzdatenRegistry referenzdatenRegistry) {
+        this.erfassungSpaltenspeicher = erfassungSpaltenspeicher;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+    }
+
+    /**
+     * Zeigt das Filterformular und das Ergebnis der Auswertung an.
+     *
+     * @param gruppeId   die ID der Gruppe oder null für alle Gruppen
+     * @param von        das Startdatum des Zeitraums oder null
+     * @param bis        das Enddatum des Zeitraums oder null
+     * @param wochentage die zu berücksichtigenden Wochentage, leer für alle
+     * @param statusIds  die IDs der zu berücksichtigenden Status, leer für alle
+     * @param model      das Model, in das die Daten für die View eingefügt werden
+     * @return den Namen der View "analyse"
+     */
+    @GetMapping
+    public String analyseAnzeigen(@RequestParam(required = false) Integer gruppeId,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate von,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bis,
+                                  @RequestParam(required = false) Set<DayOfWeek> wochentage,
+                                  @RequestParam(required = false) Set<Integer> statusIds,
+                                  Model model) {
+        AnalyseFilter filter = new AnalyseFilter(gruppeId, von, bis, wochentage, statusIds);
+        Map<DayOfWeek, String> wochentagNamen = new LinkedHashMap<>();
+        for (DayOfWeek wochentag : DayOfWeek.values()) {
+            wochentagNamen.put(wochentag, wochentag.getDisplayName(TextStyle.FULL, Locale.GERMANY));
+        }
+        model.addAttribute("pageTitle", "Analyse");
+        model.addAttribute("pageDescription", "Erfassungen aller Gruppen nach Zeitraum, Wochentag und Status auswerten");
+        model.addAttribute("gruppen", referenzdatenRegistry.alleGruppen());
+        model.addAttribute("status", referenzdatenRegistry.alleStatus());
+        model.addAttribute("wochentagNamen", wochentagNamen);
+        model.addAttribute("filter", filter);
+        model.addAttribute("ergebnis", erfassungSpaltenspeicher.auswerten(filter));
+        return "analyse";
+    }
+
+    /**
+     * Liefert das Ergebnis einer Auswertung als JSON.
+     *
+     * @param gruppeId   die ID der Gruppe oder null für alle Gruppen
+     * @param von        das Startdatum des Zeitraums oder null
+     * @param bis        das Enddatum des Zeitraums oder null
+     * @param wochentage die zu berücksichtigenden Wochentage, leer für alle
+     * @param statusIds  die IDs der zu berücksichtigenden Status, leer für alle
+     * @return das {@link AnalyseErgebnis}
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public AnalyseErgebnis auswerten(@RequestParam(required = false) Integer gruppeId,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate von,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bis,
+                                     @RequestParam(required = false) Set<DayOfWeek> wochentage,
+                                     @RequestParam(required = false) Set<Integer> statusIds) {
+        return erfassungSpaltenspeicher.auswerten(new AnalyseFilter(gruppeId, von, bis, wochentage, statusIds));
+    }
+
+    /**
+     * Lädt den Spaltenspeicher neu aus der Datenbank, z.B. nachdem Studenten die Gruppe gewechselt haben.
+     *
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Analyseseite
+     */
+    @PostMapping("/neu-laden")
+    public String neuLaden(RedirectAttributes redirectAttributes) {
+        long zeilen = erfassungSpaltenspeicher.neuLaden();
+        logger.info("Spaltenspeicher über Analyseseite neu geladen: {} Erfassungen", zeilen);
+        redirectAttributes.addFlashAttribute("successMessage", "Spaltenspeicher neu geladen: " + zeilen + " Erfassungen.");
+        return "redirect:/admin/analyse";
+    }
+}
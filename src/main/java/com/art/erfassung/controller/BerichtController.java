@@ -0,0 +1,154 @@
+package com.art.erfassung.controller;
+
+import com.art.erfassung.dto.BerichtStatus;
+import com.art.erfassung.dto.ExportFormat;
+import com.art.erfassung.error.ErfassungAusgelastetException;
+import com.art.erfassung.model.Berichtsauftrag;
+import com.art.erfassung.service.BerichtService;
+import com.art.erfassung.service.BerichtService.Anforderung;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.security.Principal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Controller für Berichte, die im Hintergrund erstellt werden.
+ * <p>
+ * Unter "/admin/berichte" fordern Administratoren Exporte und Statistiken über lange Zeiträume an. Die Seite
+ * listet die Aufträge mit Zustand und Fortschritt und lädt sich neu, solange ein Auftrag wartet oder läuft.
+ * Der Zustand eines Auftrags kann zusätzlich als JSON abgefragt werden; fertige Berichte werden von der
+ * Festplatte heruntergeladen.
+ * </p>
+ */
+@Controller
+@RequestMapping("/admin/berichte")
+public class BerichtController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BerichtController.class);
+
+    // Service zur Erstellung der Berichte im Hintergrund
+    private final BerichtService berichtService;
+
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+
+    public BerichtController(BerichtService berichtService, ReferenzdatenRegistry referenzdatenRegistry) {
+        this.berichtService = berichtService;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+    }
+
+    /**
+     * Zeigt das Formular zum Anfordern und die Liste der Aufträge an.
+     *
+     * @param model das Model, in das die Daten für die View eingefügt werden
+     * @return den Namen der View "berichte"
+     */
+    @GetMapping
+    public String berichteAnzeigen(Model model) {
+        List<Berichtsauftrag> auftraege = berichtService.auftraege();
+        model.addAttribute("pageTitle", "Berichte");
+        model.addAttribute("pageDescription", "Exporte und Statistiken über lange Zeiträume im Hintergrund erstellen");
+        model.addAttribute("gruppen", referenzdatenRegistry.alleGruppen());
+        model.addAttribute("auftraege", auftraege);
+        model.addAttribute("aktiv", auftraege.stream().anyMatch(a -> a.getZustand() == Berichtsauftrag.Zustand.WARTEND
+                || a.getZustand() == Berichtsauftrag.Zustand.LAEUFT));
+        return "berichte";
+    }
+
+    /**
+     * Fordert einen Bericht an. Ein gleicher wartender, laufender oder fertiger Bericht wird wiederverwendet.
+     *
+     * @param art                die Art des Berichts ("export" oder "statistik")
+     * @param format             das Dateiformat ("csv" oder "xlsx")
+     * @param von                das erste Datum des Zeitraums
+     * @param bis                das letzte Datum des Zeitraums
+     * @param gruppeId           die ID der Gruppe oder null für alle Gruppen
+     * @param principal          der angemeldete Benutzer
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Berichtsseite
+     */
+    @PostMapping
+    public String anfordern(@RequestParam String art,
+                            @RequestParam(defaultValue = "csv") String format,
+                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate von,
+                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bis,
+                            @RequestParam(required = false) Integer gruppeId,
+                            Principal principal,
+                            RedirectAttributes redirectAttributes) {
+        Berichtsauftrag.Art berichtsart;
+        ExportFormat exportFormat;
+        try {
+            berichtsart = Berichtsauftrag.Art.valueOf(art.toUpperCase(Locale.ROOT));
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unbekannte Berichtsart oder unbekanntes Format: " + art + ", " + format);
+        }
+        try {
+            Anforderung anforderung = berichtService.anfordern(berichtsart, exportFormat, von, bis, gruppeId,
+                    principal.getName());
+            Berichtsauftrag auftrag = anforderung.auftrag();
+            redirectAttributes.addFlashAttribute("successMessage", anforderung.neu()
+                    ? "Bericht " + auftrag.getId() + " wird erstellt."
+                    : auftrag.getZustand() == Berichtsauftrag.Zustand.FERTIG
+                    ? "Bericht " + auftrag.getId() + " mit denselben Angaben liegt bereits vor."
+                    : "Bericht " + auftrag.getId() + " mit denselben Angaben wird bereits erstellt.");
+        } catch (ErfassungAusgelastetException e) {
+            logger.warn("Bericht abgelehnt: {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("warningMessage",
+                    "Es werden bereits zu viele Berichte erstellt. Bitte später erneut anfordern.");
+        }
+        return "redirect:/admin/berichte";
+    }
+
+    /**
+     * Liefert den Zustand eines Auftrags als JSON.
+     *
+     * @param id die ID des Auftrags
+     * @return Zustand, Fortschritt und nach Abschluss der Download-Pfad
+     */
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public BerichtStatus status(@PathVariable Long id) {
+        Berichtsauftrag auftrag = berichtService.auftrag(id);
+        return new BerichtStatus(auftrag.getId(), auftrag.getZustand().name(), auftrag.getFortschritt(),
+                auftrag.getFehler(), auftrag.getZustand() == Berichtsauftrag.Zustand.FERTIG
+                ? "/admin/berichte/" + auftrag.getId() + "/datei" : null);
+    }
+
+    /**
+     * Lädt einen fertigen Bericht herunter.
+     *
+     * @param id die ID des Auftrags
+     * @return die Datei des Berichts
+     */
+    @GetMapping("/{id}/datei")
+    public ResponseEntity<FileSystemResource> herunterladen(@PathVariable Long id) {
+        Berichtsauftrag auftrag = berichtService.auftrag(id);
+        FileSystemResource datei = new FileSystemResource(berichtService.datei(auftrag));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(auftrag.getFormat().getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(auftrag.dateiname())
+                        .build().toString())
+                .body(datei);
+    }
+}
@@ -0,0 +1,51 @@
+package com.art.erfassung.controller;
+
+import com.art.erfassung.dto.CheckinAnfrage;
+import com.art.erfassung.dto.CheckinAntwort;
+import com.art.erfassung.service.CheckinPipeline;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * JSON-Schnittstelle für Check-in-Terminals mit Ausweis- oder QR-Code-Scannern.
+ * <p>
+ * Die Terminals senden die gesammelten Scans unter "/api/v1/checkins" per HTTP Basic mit der Rolle SCANNER.
+ * Die Scans werden angenommen und kurz darauf von der {@link CheckinPipeline} als Erfassungen gespeichert; die
+ * Antwort lautet daher 202 Accepted.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/v1/checkins")
+public class CheckinApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckinApiController.class);
+
+    // Verarbeitung der Scans
+    private final CheckinPipeline checkinPipeline;
+
+    public CheckinApiController(CheckinPipeline checkinPipeline) {
+        this.checkinPipeline = checkinPipeline;
+    }
+
+    /**
+     * Nimmt die Scans eines Terminals an.
+     *
+     * @param anfrage die Scans
+     * @return die Anzahl angenommener, doppelter und abgelehnter Scans
+     */
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CheckinAntwort annehmen(@Valid @RequestBody CheckinAnfrage anfrage) {
+        CheckinAntwort antwort = checkinPipeline.annehmen(anfrage.scans());
+        logger.debug("Check-in: {} Scans angenommen, {} doppelt, {} abgelehnt", antwort.angenommen(), antwort.doppelt(),
+                antwort.abgelehnt());
+        return antwort;
+    }
+}
@@ -0,0 +1,106 @@
+package com.art.erfassung.controller;
+
+import com.art.erfassung.dto.ErfassungBatchAnfrage;
+import com.art.erfassung.dto.ErfassungBatchAntwort;
+import com.art.erfassung.dto.ErfassungStand;
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.service.ErfassungBatchService;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.ErfassungsTagesIndex;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * JSON-Schnittstelle zur Anwesenheitserfassung für Terminals und Apps.
+ * <p>
+ * Alle Methoden verarbeiten Anfragen unter "/api/v1/erfassungen" und sind für Lehrkräfte und Administratoren per
+ * HTTP Basic zugänglich. Eine Anfrage kann Erfassungen für mehrere Gruppen und Tage enthalten; die Antwort
+ * enthält das Ergebnis jedes Eintrags. Fehler der Anfrage selbst werden als Problem Details (RFC 9457) gemeldet.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/v1/erfassungen")
+public class ErfassungApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungApiController.class);
+
+    // Service zur Verarbeitung der Batches
+    private final ErfassungBatchService erfassungBatchService;
+    // Service zur Verwaltung der Erfassungen
+    private final ErfassungService erfassungService;
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    // Tagesindex der Erfassungen je Student und Gruppe
+    private final ErfassungsTagesIndex erfassungsTagesIndex;
+
+    public ErfassungApiController(ErfassungBatchService erfassungBatchService, ErfassungService erfassungService,
+                                  ReferenzdatenRegistry referenzdatenRegistry,
+                                  ErfassungsTagesIndex erfassungsTagesIndex) {
+        this.erfassungBatchService = erfassungBatchService;
+        this.erfassungService = erfassungService;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.erfassungsTagesIndex = erfassungsTagesIndex;
+    }
+
+    /**
+     * Liefert den gespeicherten Stand der Erfassungen einer Gruppe an einem Tag.
+     * <p>
+     * Die enthaltenen Versionen können beim Speichern mitgesendet werden, um zwischenzeitliche Änderungen zu
+     * erkennen.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param datum    das Datum im Format JJJJ-MM-TT; ohne Angabe das heutige Datum
+     * @return die Erfassungen des Tages
+     */
+    @GetMapping
+    public List<ErfassungStand> stand(@RequestParam Integer gruppeId,
+                                      @RequestParam(required = false)
+                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate datum) {
+        referenzdatenRegistry.gruppe(gruppeId);
+        return erfassungService.findStandByGruppeUndDatum(gruppeId, datum != null ? datum : LocalDate.now());
+    }
+
+    /**
+     * Liefert die Studenten einer Gruppe, die heute noch nicht erfasst sind.
+     * <p>
+     * Die Antwort kommt ohne Datenbankzugriff aus dem {@link ErfassungsTagesIndex}; Erfassungen, die auf anderen
+     * Instanzen gespeichert wurden, sind darin erst nach dem nächsten Abgleich enthalten.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return die nicht erfassten Studenten in der Reihenfolge der Studentenliste
+     */
+    @GetMapping("/offen")
+    public List<RosterEintrag> offen(@RequestParam Integer gruppeId) {
+        referenzdatenRegistry.gruppe(gruppeId);
+        return erfassungsTagesIndex.studentenOhneErfassung(gruppeId, LocalDate.now());
+    }
+
+    /**
+     * Speichert die Erfassungen aller Batches der Anfrage.
+     *
+     * @param anfrage die Batches je Gruppe und Tag
+     * @return das Ergebnis je Eintrag sowie die Anzahl je Ergebnis
+     */
+    @PostMapping
+    public ErfassungBatchAntwort speichern(@Valid @RequestBody ErfassungBatchAnfrage anfrage) {
+        ErfassungBatchAntwort antwort = ErfassungBatchAntwort.aus(erfassungBatchService.verarbeiten(anfrage.batches()));
+        logger.info("Erfassungs-API: {} Batches, {} gespeichert, {} Konflikte, {} ungültig, {} Fehler",
+                anfrage.batches().size(), antwort.gespeichert(), antwort.konflikte(), antwort.ungueltig(),
+                antwort.fehler());
+        return antwort;
+    }
+}
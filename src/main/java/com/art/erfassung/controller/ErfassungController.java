@@ -2,23 +2,35 @@ package com.art.erfassung.controller;
 
 import com.art.erfassung.dto.ErfassungDTO;
 import com.art.erfassung.dto.ErfassungForm;
+import com.art.erfassung.dto.ErfassungStand;
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.error.ErfassungAusgelastetException;
+import com.art.erfassung.error.ErfassungKonfliktException;
 import com.art.erfassung.model.Gruppe;
-import com.art.erfassung.model.Studenten;
 import com.art.erfassung.service.ErfassungService;
 import com.art.erfassung.service.GruppeService;
 import com.art.erfassung.service.StatusService;
 import com.art.erfassung.service.StudentenService;
+import com.art.erfassung.service.WriteBehindErfassung;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.util.HtmlUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Controller zur Verwaltung der Anwesenheitserfassung.
@@ -40,15 +52,23 @@ public class ErfassungController{
     private final StatusService statusService;
     // Service zur Verwaltung der Gruppen
     private final GruppeService gruppeService;
+    // Verzögerte Speicherung über das Erfassungsjournal; nur vorhanden, wenn der Write-Behind-Modus aktiv ist
+    private final ObjectProvider<WriteBehindErfassung> writeBehindErfassung;
 
     private static final Logger logger = LoggerFactory.getLogger(ErfassungController.class);
 
+    // Status-ID von "Anwesend" (siehe Radio-Buttons im Template "anwesenheit")
+    private static final int STATUS_ANWESEND = 1;
+    private static final DateTimeFormatter ZEIT_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
     public ErfassungController(StudentenService studentenService, ErfassungService erfassungService,
-                               StatusService statusService, GruppeService gruppeService) {
+                               StatusService statusService, GruppeService gruppeService,
+                               ObjectProvider<WriteBehindErfassung> writeBehindErfassung) {
         this.studentenService = studentenService;
         this.erfassungService = erfassungService;
         this.statusService = statusService;
         this.gruppeService = gruppeService;
+        this.writeBehindErfassung = writeBehindErfassung;
     }
 
     /**
@@ -59,9 +79,12 @@ public class ErfassungController{
      *   <li>Die Gruppe wird anhand der übergebenen Gruppen-ID abgefragt. Falls die Gruppe
      *       nicht existiert, wird eine Exception geworfen.</li>
      *   <li>Die Liste der Studenten, die der Gruppe zugeordnet sind, wird ermittelt.</li>
+     *   <li>Gruppe, Studentenliste und Status kommen aus dem Speicher.</li>
      *   <li>Ein {@code AnwesenheitsForm}-Objekt wird erstellt und für jeden Studenten ein
      *       {@code AnwesenheitsDTO} initialisiert. Dabei wird zumindest die Studenten-ID und
-     *       optional der Name gesetzt.</li>
+     *       optional der Name gesetzt. Liegt für den Studenten heute bereits eine Erfassung vor, wird die Zeile
+     *       mit Status, Ankunftszeit, Kommentar und Version vorbelegt; die Erfassungen des Tages werden mit
+     *       einer Abfrage geladen.</li>
      *   <li>Die benötigten Model-Attribute (Formular, Gruppe, Studentenliste und Statusliste)
      *       werden dem Model hinzugefügt.</li>
      *   <li>Die Methode gibt den View-Namen "anwesenheit" zurück, sodass das entsprechende
@@ -77,10 +100,15 @@ public class ErfassungController{
     public String showAnwesenheitForm(@PathVariable Integer gruppeId, Model model) {
         // Gruppe anhand der ID laden, wobei findOrThrow() eine Exception wirft, falls die Gruppe nicht vorhanden ist.
         Gruppe gruppe = gruppeService.findOrThrow(gruppeId);
-        // Alle Studenten der Gruppe abrufen.
-        List<Studenten> studentenListe = studentenService.findByGruppeId(gruppeId);
+        // Alle Studenten der Gruppe aus dem Roster-Cache abrufen.
+        List<RosterEintrag> studentenListe = studentenService.findRosterByGruppeId(gruppeId);
         // Erstelle ein neues Formularobjekt, das die Erfassungsdaten kapselt.
-        ErfassungForm form = getErfassungForm(studentenListe);
+        // Bereits gespeicherte Erfassungen des Tages für die Vorbelegung laden.
+        Map<Integer, ErfassungStand> standByStudent = erfassungService
+                .findStandByGruppeUndDatum(gruppeId, LocalDate.now()).stream()
+                .collect(Collectors.toMap(ErfassungStand::studentenId, stand -> stand, (a, b) -> a, HashMap::new));
+        ErfassungForm form = getErfassungForm(studentenListe, standByStudent);
+        form.setGruppeId(gruppeId);
 
         // Füge alle nötigen Model-Attribute hinzu
         model.addAttribute("anwesenheitForm", form);
@@ -90,16 +118,28 @@ public class ErfassungController{
         return "anwesenheit";
     }
 
-    private static ErfassungForm getErfassungForm(List<Studenten> studentenListe) {
+    private static ErfassungForm getErfassungForm(List<RosterEintrag> studentenListe,
+                                                  Map<Integer, ErfassungStand> standByStudent) {
         ErfassungForm form = new ErfassungForm();
         // Initialisiere die Liste der Einträge
         List<ErfassungDTO> eintraege = new ArrayList<>();
         // Für jeden Studenten wird ein entsprechendes DTO angelegt, in dem die Studenten-ID (und optional der Name) gesetzt wird.
-        for (Studenten student : studentenListe) {
+        for (RosterEintrag student : studentenListe) {
             ErfassungDTO dto = new ErfassungDTO();
-            dto.setStudentenId(student.getId());
+            dto.setStudentenId(student.studentenId());
             // Optional: Setze den Studentennamen für die Anzeige, falls diese Information benötigt wird.
-            dto.setStudentenName(student.getVorname() + " " + student.getName());
+            dto.setStudentenName(student.anzeigeName());
+            // Vorbelegung aus der heutigen Erfassung; die Version dient beim Speichern der Konflikterkennung.
+            ErfassungStand stand = standByStudent.get(student.studentenId());
+            if (stand != null) {
+                dto.setStatusId(stand.statusId());
+                dto.setAnkunftszeit(stand.ankunftszeit() == null ? null : stand.ankunftszeit().format(ZEIT_FORMAT));
+                dto.setKommentar(stand.kommentar());
+                dto.setVersion(stand.version());
+            } else {
+                dto.setStatusId(STATUS_ANWESEND);
+                dto.setVersion(ErfassungDTO.KEINE_ERFASSUNG);
+            }
             // Weitere Felder (z. B. Ankunftszeit, Kommentar etc.) werden leer gelassen und im Formular ausgefüllt.
             eintraege.add(dto);
         }
@@ -114,7 +154,13 @@ public class ErfassungController{
      * Diese Methode validiert die über das Formular empfangenen Daten. Falls Validierungsfehler vorliegen,
      * wird der Benutzer zurück zur Eingabeseite (View "anwesenheit") geleitet, und es wird eine Fehlermeldung im Model abgelegt.
      * Andernfalls werden die Anwesenheitsdaten aus dem Formular an den Service delegiert, der die Geschäftslogik
-     * (zum Beispiel Verspätungsberechnung und Speicherung der Erfassungen) umsetzt. Nach erfolgreicher Verarbeitung
+     * (zum Beispiel Verspätungsberechnung und Speicherung der Erfassungen) umsetzt. Ist der Write-Behind-Modus aktiv,
+     * wird das Formular nur geprüft und in das Erfassungsjournal geschrieben; gespeichert wird es im Hintergrund.
+     * Das Formular sendet nur neue und geänderte Zeilen. Wurden Zeilen seit dem Laden von jemand anderem geändert,
+     * wird nichts gespeichert und das Formular mit dem aktuellen Stand und einem Hinweis neu geladen. Im
+     * Write-Behind-Modus entfällt diese Prüfung, da vor dem Speichern bestätigt wird; dort gewinnt die zuletzt
+     * gespeicherte Einreichung.
+     * Nach erfolgreicher Verarbeitung
      * erfolgt eine Weiterleitung auf den entsprechenden View, basierend auf der ermittelten Gruppen-ID.
      * </p>
      *
@@ -148,7 +194,10 @@ public class ErfassungController{
         
         try {
             // Delegiere die Verarbeitung der Anwesenheitsdaten an die Service-Schicht.
-            Integer gruppeId = erfassungService.erfassenAnwesenheiten(form.getEintraege());
+            WriteBehindErfassung writeBehind = writeBehindErfassung.getIfAvailable();
+            Integer gruppeId = (writeBehind != null)
+                    ? writeBehind.einreichen(form.getGruppeId(), form.getEintraege())
+                    : erfassungService.erfassenAnwesenheiten(form.getEintraege());
             
             // Logge den erfolgreichen Abschluss der Verarbeitung.
             logger.info("Anwesenheit für Gruppe {} wurde erfolgreich verarbeitet.", gruppeId);
@@ -159,6 +208,19 @@ public class ErfassungController{
             
             return (gruppeId != null) ? "redirect:/anwesenheit/" + gruppeId : "redirect:/gruppen";
             
+        } catch (ErfassungKonfliktException e) {
+            logger.info("Konflikt beim Speichern der Anwesenheit für Gruppe {}: {}", form.getGruppeId(), e.getMessage());
+            return konfliktMelden(form.getGruppeId(), e.getStudentenIds(), redirectAttributes);
+        } catch (OptimisticLockingFailureException e) {
+            // Änderung zwischen Laden und Schreiben innerhalb der Speicherung
+            logger.info("Gleichzeitige Änderung beim Speichern der Anwesenheit für Gruppe {}", form.getGruppeId());
+            return konfliktMelden(form.getGruppeId(), List.of(), redirectAttributes);
+        } catch (ErfassungAusgelastetException e) {
+            // Warteschlange des Write-Behind-Modus voll: Formular kann nach kurzer Zeit erneut gesendet werden.
+            logger.warn("Anwesenheitsdaten abgelehnt: {}", e.getMessage());
+            model.addAttribute("errorMessage", "Der Server ist ausgelastet. Bitte speichern Sie in einigen Sekunden erneut.");
+            model.addAttribute("errorType", "database");
+            return "anwesenheit";
         } catch (Exception e) {
             logger.error("Fehler beim Speichern der Anwesenheitsdaten: {}", e.getMessage(), e);
             model.addAttribute("errorMessage", "Fehler beim Speichern der Daten. Bitte versuchen Sie es erneut.");
@@ -166,4 +228,21 @@ public class ErfassungController{
             return "anwesenheit";
         }
     }
+
+    private String konfliktMelden(Integer gruppeId, List<Integer> studentenIds, RedirectAttributes redirectAttributes) {
+        if (gruppeId == null) {
+            redirectAttributes.addFlashAttribute("errorMessage",
+                    "Die Anwesenheit wurde zwischenzeitlich geändert. Bitte erfassen Sie sie erneut.");
+            return "redirect:/gruppen";
+        }
+        String namen = studentenService.findRosterByGruppeId(gruppeId).stream()
+                .filter(eintrag -> studentenIds.contains(eintrag.studentenId()))
+                .map(RosterEintrag::anzeigeName)
+                .collect(Collectors.joining(", "));
+        redirectAttributes.addFlashAttribute("errorMessage",
+                "Die Anwesenheit wurde zwischenzeitlich von jemand anderem geändert"
+                        + (namen.isEmpty() ? "" : " (" + HtmlUtils.htmlEscape(namen) + ")")
+                        + ". Es wurde nichts gespeichert; das Formular zeigt den aktuellen Stand.");
+        return "redirect:/anwesenheit/" + gruppeId;
+    }
 }
@@ -0,0 +1,82 @@
+package com.art.erfassung.controller;
+
+import com.art.erfassung.dto.ExportFormat;
+import com.art.erfassung.service.ErfassungExportService;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Controller für den Export der Erfassungen als Datei.
+ * <p>
+ * Der Export unter "/admin/export" ist nur für Administratoren zugänglich. Die Datei wird ohne
+ * Content-Length direkt in die Antwort geschrieben und damit in Teilen (chunked) übertragen, während die
+ * Erfassungen noch aus der Datenbank gelesen werden.
+ * </p>
+ */
+@Controller
+@RequestMapping("/admin/export")
+public class ExportController {
+
+    // Service für den Export der Erfassungen
+    private final ErfassungExportService erfassungExportService;
+
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+
+    public ExportController(ErfassungExportService erfassungExportService,
+                            ReferenzdatenRegistry referenzdatenRegistry) {
+        this.erfassungExportService = erfassungExportService;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+    }
+
+    /**
+     * Exportiert die Erfassungen eines Zeitraums als CSV- oder XLSX-Datei.
+     *
+     * @param von      das erste Datum des Zeitraums
+     * @param bis      das letzte Datum des Zeitraums
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @param format   das Dateiformat ("csv" oder "xlsx")
+     * @param response die HTTP-Antwort, in die die Datei geschrieben wird
+     * @throws IOException wenn die Antwort nicht geschrieben werden kann
+     */
+    @GetMapping
+    public void exportieren(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate von,
+                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bis,
+                            @RequestParam(required = false) Integer gruppeId,
+                            @RequestParam(defaultValue = "csv") String format,
+                            HttpServletResponse response) throws IOException {
+        if (bis.isBefore(von)) {
+            throw new IllegalArgumentException("Das Enddatum " + bis + " liegt vor dem Startdatum " + von);
+        }
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unbekanntes Exportformat: " + format);
+        }
+        String dateiname = "erfassungen_" + von + "_" + bis;
+        if (gruppeId != null) {
+            // Unbekannte Gruppen führen zur 404-Fehlerseite, bevor die Antwort begonnen wird
+            referenzdatenRegistry.gruppe(gruppeId);
+            dateiname += "_gruppe" + gruppeId;
+        }
+
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(dateiname + "." + exportFormat.getEndung())
+                .build().toString());
+        erfassungExportService.exportieren(von, bis, gruppeId, exportFormat, response.getOutputStream());
+        response.flushBuffer();
+    }
+}
@@ -1,20 +1,34 @@
 package com.art.erfassung.controller;
 
 import com.art.erfassung.dto.GruppeDTO;
+import com.art.erfassung.dto.GruppenMonat;
+import com.art.erfassung.dto.StatistikDTO;
 import com.art.erfassung.mapper.GruppeMapper;
+import com.art.erfassung.mapper.StatistikMapper;
 import com.art.erfassung.service.GruppeService;
+import com.art.erfassung.service.MonatsuebersichtService;
+import com.art.erfassung.service.StatistikService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Controller zur Verwaltung des Gruppen-Dashboards.
  * <p>
- * Alle Methoden in dieser Klasse betreffen das Dashboard, das unter "/dashboard" erreichbar ist.
+ * Alle Methoden in dieser Klasse betreffen das Dashboard, das unter "/dashboard" erreichbar ist,
+ * sowie die Statistikübersicht einer Gruppe.
  * </p>
  */
 @Controller
@@ -27,10 +41,24 @@ public class GruppeController {
     // Mapper zur Konvertierung zwischen Gruppe-Entitäten und DTOs.
     private final GruppeMapper gruppeMapper;
 
+    // Service zur Berechnung der Anwesenheitsstatistik.
+    private final StatistikService statistikService;
+
+    // Mapper zur Konvertierung zwischen StatistikErgebnis und StatistikDTO.
+    private final StatistikMapper statistikMapper;
+
+    // Service für die kodierten Erfassungen einer Gruppe je Monat.
+    private final MonatsuebersichtService monatsuebersichtService;
+
     @Autowired
-    public GruppeController(GruppeService gruppeService, GruppeMapper gruppeMapper) {
+    public GruppeController(GruppeService gruppeService, GruppeMapper gruppeMapper,
+                            StatistikService statistikService, StatistikMapper statistikMapper,
+                            MonatsuebersichtService monatsuebersichtService) {
         this.gruppeService = gruppeService;
         this.gruppeMapper = gruppeMapper;
+        this.statistikService = statistikService;
+        this.statistikMapper = statistikMapper;
+        this.monatsuebersichtService = monatsuebersichtService;
     }
 
     /**
@@ -55,4 +83,61 @@ public class GruppeController {
         // Rückgabe des View-Namens "gruppen"
         return "gruppen";
     }
+
+    /**
+     * Zeigt die Anwesenheitsstatistik aller Studenten einer Gruppe an.
+     * <p>
+     * Diese Methode verarbeitet GET-Anfragen an "/gruppen/{id}/statistik". Optional kann der Zeitraum
+     * über die Parameter "von" und "bis" eingeschränkt werden. Die Statistiken aller Studenten werden
+     * gemeinsam berechnet und absteigend nach Anwesenheitsquote sortiert dargestellt. Umfasst der Zeitraum
+     * genau einen Kalendermonat, wird die Statistik aus dem zwischengespeicherten {@link GruppenMonat} berechnet,
+     * andere Zeiträume werden in der Datenbank gezählt. Die im Speicher gehaltenen Präfixsummen je Student werden
+     * hier nicht verwendet, da sie nur die Schreibvorgänge der eigenen Instanz fortschreiben.
+     * </p>
+     * <p>
+     * Die Seite ist auch für Lehrkräfte zugänglich. Nur Administratoren erhalten Links auf die Statistik der
+     * einzelnen Studenten und auf die Gruppenübersicht; Lehrkräfte werden zur Anwesenheitserfassung der Gruppe
+     * zurückgeführt.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param von      das optionale Startdatum des Zeitraums
+     * @param bis      das optionale Enddatum des Zeitraums
+     * @param model    das Model, das die Daten für die View enthält
+     * @return den Namen der View "gruppen-statistik"
+     */
+    @GetMapping("/gruppen/{id}/statistik")
+    public String showGruppenstatistik(@PathVariable("id") Integer gruppeId,
+                                       @RequestParam(value = "von", required = false)
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate von,
+                                       @RequestParam(value = "bis", required = false)
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bis,
+                                       Model model) {
+        GruppeDTO gruppe = gruppeMapper.toDTO(gruppeService.findOrThrow(gruppeId));
+        Optional<GruppenMonat> gruppenMonat = ganzerMonat(von, bis)
+                ? monatsuebersichtService.gruppenMonat(gruppeId, YearMonth.from(von))
+                : Optional.empty();
+        List<StatistikDTO> statistiken = statistikMapper.toDTOList(gruppenMonat.isPresent()
+                ? statistikService.berechneGruppenstatistik(gruppeId, gruppenMonat.get())
+                : statistikService.berechneGruppenstatistik(gruppeId, von, bis));
+        model.addAttribute("gruppe", gruppe);
+        model.addAttribute("statistiken", statistiken);
+        model.addAttribute("von", von);
+        model.addAttribute("bis", bis);
+        model.addAttribute("isAdmin", istAdmin());
+        model.addAttribute("pageTitle", "Gruppenstatistik");
+        model.addAttribute("pageDescription", "Anwesenheitsstatistik aller Studenten der Gruppe " + gruppe.getBezeichnung());
+        return "gruppen-statistik";
+    }
+
+    private static boolean istAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(auth -> auth.getAuthority().equals("ROLE_ADMIN"));
+    }
+
+    private static boolean ganzerMonat(LocalDate von, LocalDate bis) {
+        return von != null && bis != null && von.getDayOfMonth() == 1
+                && bis.equals(YearMonth.from(von).atEndOfMonth());
+    }
 }
@@ -1,22 +1,27 @@
 package com.art.erfassung.controller;
 
-import com.art.erfassung.dto.ErfassungListeDTO;
 import com.art.erfassung.dto.GruppeDTO;
+import com.art.erfassung.dto.GruppenMonat;
+import com.art.erfassung.dto.RosterEintrag;
 import com.art.erfassung.dto.StudentenDTO;
 import com.art.erfassung.mapper.ErfassungListeMapper;
 import com.art.erfassung.mapper.GruppeMapper;
+import com.art.erfassung.mapper.MonatsMatrixMapper;
 import com.art.erfassung.mapper.StudentenMapper;
 import com.art.erfassung.model.Erfassung;
 import com.art.erfassung.model.Gruppe;
 import com.art.erfassung.model.Studenten;
 import com.art.erfassung.service.ErfassungService;
 import com.art.erfassung.service.GruppeService;
+import com.art.erfassung.service.MonatsuebersichtService;
 import com.art.erfassung.service.StudentenService;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Controller zur Anzeige und Aktualisierung der Anwesenheitslisten.
@@ -36,12 +41,19 @@ public class ListeController {
     private final StudentenService studentenService;
     // Service zur Verwaltung der Anwesenheitsdaten (Erfassungen)
     private final ErfassungService erfassungService;
+    // Mapper zum Aufbau der Monatsmatrix aus Studenten und Erfassungen
+    private final MonatsMatrixMapper monatsMatrixMapper;
+    // Service für die kodierten Erfassungen einer Gruppe je Monat
+    private final MonatsuebersichtService monatsuebersichtService;
 
     public ListeController(GruppeService gruppeService, StudentenService studentenService,
-                           ErfassungService erfassungService) {
+                           ErfassungService erfassungService, MonatsMatrixMapper monatsMatrixMapper,
+                           MonatsuebersichtService monatsuebersichtService) {
         this.gruppeService = gruppeService;
         this.studentenService = studentenService;
         this.erfassungService = erfassungService;
+        this.monatsMatrixMapper = monatsMatrixMapper;
+        this.monatsuebersichtService = monatsuebersichtService;
     }
 
     /**
@@ -50,7 +62,9 @@ public class ListeController {
      * Diese Methode verarbeitet GET-Anfragen an "/liste/{gruppenId}".
      * Es werden die Gruppe, ihre Studenten sowie die Anwesenheitsdaten innerhalb eines bestimmten Monats geladen.
      * Falls der Parameter "monat" nicht angegeben wird, wird der aktuelle Monat verwendet.
-     * Die geladenen Daten werden dem Model hinzugefügt und an die View "anwesenheitsliste" übergeben.
+     * Die Erfassungen werden als kodierter {@link GruppenMonat} gelesen und zwischengespeichert; daraus wird
+     * serverseitig eine {@link com.art.erfassung.dto.MonatsMatrix} aufgebaut,
+     * die dem Model hinzugefügt und an die View "anwesenheitsliste" übergeben wird.
      * </p>
      *
      * @param gruppenId die ID der anzuzeigenden Gruppe
@@ -66,20 +80,25 @@ public class ListeController {
 
         // Laden der Gruppe; löst eine Exception aus, falls die Gruppe nicht existiert
         Gruppe gruppe = gruppeService.findOrThrow(gruppenId);
-        // Abrufen der Studenten, die der Gruppe zugeordnet sind
-        List<Studenten> studenten = studentenService.findByGruppeId(gruppe.getId());
+        // Abrufen der Studenten, die der Gruppe zugeordnet sind, aus dem Roster-Cache
+        List<RosterEintrag> studenten = studentenService.findRosterByGruppeId(gruppe.getId());
         // Ermitteln des Startdatums des Monats:
         // Falls der Parameter "monat" angegeben ist, wird dieser als erster Tag des Monats interpretiert.
         // Andernfalls wird der erste Tag des aktuellen Monats verwendet.
         LocalDate monatStart = (monat != null) ? LocalDate.parse(monat + "-01") : LocalDate.now().withDayOfMonth(1);
         // Ermitteln des Enddatums des Monats
         LocalDate monatEnde = monatStart.withDayOfMonth(monatStart.lengthOfMonth());
-        // Abrufen der Anwesenheitsdaten (Erfassungen) für die Gruppe innerhalb des angegebenen Zeitraums
-        List<Erfassung> erfassungen = erfassungService.findByGruppeUndMonat(gruppe.getId(), monatStart, monatEnde);
+        // Abrufen der kodierten Anwesenheitsdaten (zwei long-Werte je Student) aus dem Monats-Cache
+        Optional<GruppenMonat> gruppenMonat = monatsuebersichtService.gruppenMonat(gruppe.getId(), YearMonth.from(monatStart));
         // Hinzufügen der geladenen Daten zum Model, damit sie in der View verfügbar sind
         model.addAttribute("gruppe", gruppe);
-        model.addAttribute("studenten", studenten);
-        model.addAttribute("erfassungen", erfassungen);
+        // Studenten × Tage-Matrix aus dem kodierten Monat aufbauen; passen die Status nicht in die Kodierung,
+        // werden die Erfassungen als Liste gelesen und in einem Durchlauf einsortiert
+        model.addAttribute("matrix", gruppenMonat.isPresent()
+                ? monatsMatrixMapper.toMatrix(studenten, gruppenMonat.get())
+                : monatsMatrixMapper.toMatrix(studenten,
+                        erfassungService.findListeByGruppeUndMonat(gruppe.getId(), monatStart, monatEnde),
+                        YearMonth.from(monatStart)));
         // Formatierter Monat (YYYY-MM)
         model.addAttribute("monat", monatStart.toString().substring(0, 7));
         // Anzahl der Tage im Monat
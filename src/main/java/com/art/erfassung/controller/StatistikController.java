@@ -0,0 +1,84 @@
+package com.art.erfassung.controller;
+
+import com.art.erfassung.dto.StatistikUebersicht;
+import com.art.erfassung.service.AnwesenheitWuerfelService;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.time.YearMonth;
+
+/**
+ * Controller für die Übersicht der Anwesenheit aller Gruppen.
+ * <p>
+ * Unter "/statistik" sehen Administratoren die Erfassungen je Gruppe und je Wochentag für einen Zeitraum ganzer
+ * Monate, standardmäßig die letzten zwölf Monate. Die Zahlen stammen aus dem vorberechneten Anwesenheitswürfel;
+ * die Antwortzeit hängt daher nicht von der Zahl der Erfassungen ab. Das Ergebnis steht als Seite und als JSON
+ * zur Verfügung.
+ * </p>
+ */
+@Controller
+@RequestMapping("/statistik")
+public class StatistikController {
+
+    // Standardzeitraum der Übersicht in Monaten
+    private static final int STANDARD_MONATE = 12;
+
+    // Service zur Auswertung des Anwesenheitswürfels
+    private final AnwesenheitWuerfelService anwesenheitWuerfelService;
+
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+
+    public StatistikController(AnwesenheitWuerfelService anwesenheitWuerfelService,
+                               ReferenzdatenRegistry referenzdatenRegistry) {
+        this.anwesenheitWuerfelService = anwesenheitWuerfelService;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+    }
+
+    /**
+     * Zeigt die Übersicht eines Zeitraums an.
+     *
+     * @param von      der erste Monat (Format yyyy-MM) oder null für elf Monate vor "bis"
+     * @param bis      der letzte Monat (Format yyyy-MM) oder null für den aktuellen Monat
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @param model    das Model, in das die Daten für die View eingefügt werden
+     * @return den Namen der View "statistik-uebersicht"
+     */
+    @GetMapping
+    public String uebersichtAnzeigen(@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth von,
+                                     @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth bis,
+                                     @RequestParam(required = false) Integer gruppeId,
+                                     Model model) {
+        model.addAttribute("pageTitle", "Statistik");
+        model.addAttribute("pageDescription", "Anwesenheit aller Gruppen nach Gruppe und Wochentag");
+        model.addAttribute("gruppen", referenzdatenRegistry.alleGruppen());
+        model.addAttribute("status", referenzdatenRegistry.alleStatus());
+        model.addAttribute("uebersicht", uebersicht(von, bis, gruppeId));
+        return "statistik-uebersicht";
+    }
+
+    /**
+     * Liefert die Übersicht eines Zeitraums als JSON.
+     *
+     * @param von      der erste Monat (Format yyyy-MM) oder null für elf Monate vor "bis"
+     * @param bis      der letzte Monat (Format yyyy-MM) oder null für den aktuellen Monat
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @return die {@link StatistikUebersicht}
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public StatistikUebersicht uebersicht(@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth von,
+                                         @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth bis,
+                                         @RequestParam(required = false) Integer gruppeId) {
+        YearMonth letzterMonat = bis != null ? bis : YearMonth.now();
+        YearMonth ersterMonat = von != null ? von : letzterMonat.minusMonths(STANDARD_MONATE - 1);
+        return anwesenheitWuerfelService.uebersicht(ersterMonat, letzterMonat, gruppeId);
+    }
+}
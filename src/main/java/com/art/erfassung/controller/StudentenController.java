@@ -1,14 +1,26 @@
 package com.art.erfassung.controller;
 
 import com.art.erfassung.dto.StatistikDTO;
+import com.art.erfassung.dto.StatistikZeitraum;
+import com.art.erfassung.dto.StudentenVerlauf;
 import com.art.erfassung.mapper.StatistikMapper;
+import com.art.erfassung.model.Studenten;
 import com.art.erfassung.service.StatistikService;
+import com.art.erfassung.service.StudentenVerlaufIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Controller zur Anzeige der Anwesenheitsstatistik eines Studenten.
@@ -28,10 +40,15 @@ public class StudentenController {
     // Mapper zur Konvertierung zwischen StatistikErgebnis und StatistikDTO.
     private final StatistikMapper statistikMapper;
 
+    // Präfixsummen der Erfassungen je Student für beliebige Zeiträume.
+    private final StudentenVerlaufIndex studentenVerlaufIndex;
+
     @Autowired
-    public StudentenController(StatistikService statistikService, StatistikMapper statistikMapper) {
+    public StudentenController(StatistikService statistikService, StatistikMapper statistikMapper,
+                               StudentenVerlaufIndex studentenVerlaufIndex) {
         this.statistikService = statistikService;
         this.statistikMapper = statistikMapper;
+        this.studentenVerlaufIndex = studentenVerlaufIndex;
     }
 
     /**
@@ -41,18 +58,36 @@ public class StudentenController {
      * für den Studenten mit der übergebenen ID berechnet. Falls keine Erfassung für den Studenten
      * vorhanden ist, erfolgt eine Weiterleitung zur Seite "/anwesenheit" als Fallback.
      * </p>
+     * <p>
+     * Optional kann der Zeitraum über die Parameter "von" und "bis" eingeschränkt werden. Zusätzlich werden
+     * Gesamt, dieses Halbjahr, die letzten 30 Tage, dieser Monat und gegebenenfalls der gewählte Zeitraum
+     * nebeneinander dargestellt. Die Statistik und alle Zeiträume werden aus einem einzigen Verlauf berechnet,
+     * den {@link StudentenVerlaufIndex#auffrischen(Integer)} für diesen Studenten neu aus der Datenbank liest.
+     * Sie stimmen daher überein und enthalten auch das Speichern auf anderen Instanzen.
+     * </p>
      *
      * @param studentId die ID des Studenten, dessen Statistik angezeigt werden soll
+     * @param von       das optionale Startdatum des Zeitraums
+     * @param bis       das optionale Enddatum des Zeitraums
      * @param model     das Model, in das die Statistikdaten für die View eingefügt werden
      * @return den Namen der View "statistik", die die ermittelte Statistik darstellt,
      *         oder eine Weiterleitung zur Anwesenheitsseite, falls keine Erfassung vorhanden ist
      */
     @GetMapping("/{id}")
-    public String getStatistik(@PathVariable("id") Integer studentId, Model model) {
-        // Berechnet die Statistik für den angegebenen Studenten
-        var statistikErgebnis = statistikService.berechneStudentenstatistik(studentId);
+    public String getStatistik(@PathVariable("id") Integer studentId,
+                               @RequestParam(value = "von", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate von,
+                               @RequestParam(value = "bis", required = false)
+                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bis,
+                               Model model) {
+        boolean mitZeitraum = von != null || bis != null;
+        // Liest den Verlauf des Studenten neu, damit Statistik und Zeiträume denselben Stand zeigen
+        StudentenVerlauf verlauf = studentenVerlaufIndex.auffrischen(studentId);
+        // Berechnet die Statistik für den angegebenen Studenten im gewählten Zeitraum, ohne Zeitraum gesamt
+        var statistikErgebnis = statistikService.berechneStudentenstatistik(studentId,
+                verlauf.statusAnzahlen(von, bis));
         // Falls keine Erfassung für den Studenten gefunden wurde, wird eine Weiterleitung initiiert
-        if (statistikErgebnis.student() == null) {
+        if (statistikErgebnis.student() == null || (!mitZeitraum && verlauf.tage() == 0)) {
             // Fallback, wenn keine Erfassung vorhanden ist
             return "redirect:/anwesenheit";
         }
@@ -60,9 +95,45 @@ public class StudentenController {
         StatistikDTO statistikDTO = statistikMapper.toDTO(statistikErgebnis);
         // Fügt die ermittelte Statistik dem Model hinzu, damit sie in der View verwendet werden kann
         model.addAttribute("statistik", statistikDTO);
+        model.addAttribute("zeitraeume", zeitraeume(statistikErgebnis.student(), verlauf, von, bis,
+                LocalDate.now()));
+        model.addAttribute("von", von);
+        model.addAttribute("bis", bis);
         model.addAttribute("pageTitle", "Statistik");
         model.addAttribute("pageDescription", "Übersicht über die Anwesenheitsdaten und Fehlzeiten");
         // Rückgabe des View-Namens "statistik"
         return "statistik";
     }
+
+    /**
+     * Berechnet die nebeneinander dargestellten Zeiträume eines Studenten aus einem einzigen Verlauf.
+     * <p>
+     * Das erste Halbjahr reicht vom 1. August bis zum 31. Januar, das zweite vom 1. Februar bis zum 31. Juli.
+     * </p>
+     */
+    private List<StatistikZeitraum> zeitraeume(Studenten student, StudentenVerlauf verlauf, LocalDate von,
+                                               LocalDate bis, LocalDate heute) {
+        LocalDate halbjahrBeginn = heute.getMonthValue() >= Month.AUGUST.getValue()
+                ? LocalDate.of(heute.getYear(), Month.AUGUST, 1)
+                : heute.getMonthValue() >= Month.FEBRUARY.getValue()
+                ? LocalDate.of(heute.getYear(), Month.FEBRUARY, 1)
+                : LocalDate.of(heute.getYear() - 1, Month.AUGUST, 1);
+        List<StatistikZeitraum> zeitraeume = new ArrayList<>(5);
+        zeitraeume.add(zeitraum(student, verlauf, "Gesamt", null, null));
+        zeitraeume.add(zeitraum(student, verlauf, "Dieses Halbjahr", halbjahrBeginn,
+                halbjahrBeginn.plusMonths(6).minusDays(1)));
+        zeitraeume.add(zeitraum(student, verlauf, "Letzte 30 Tage", heute.minusDays(29), heute));
+        zeitraeume.add(zeitraum(student, verlauf, "Dieser Monat", heute.withDayOfMonth(1),
+                YearMonth.from(heute).atEndOfMonth()));
+        if (von != null || bis != null) {
+            zeitraeume.add(zeitraum(student, verlauf, "Gewählter Zeitraum", von, bis));
+        }
+        return zeitraeume;
+    }
+
+    private StatistikZeitraum zeitraum(Studenten student, StudentenVerlauf verlauf, String bezeichnung,
+                                       LocalDate von, LocalDate bis) {
+        return new StatistikZeitraum(bezeichnung, von, bis, statistikMapper.toDTO(
+                statistikService.berechneStudentenstatistik(student, verlauf.statusAnzahlen(von, bis))));
+    }
 }
@@ -0,0 +1,267 @@
+package com.art.erfassung.controller;
+
+import com.art.erfassung.service.AnwesenheitWuerfelService;
+import com.art.erfassung.service.AnwesenheitWuerfelService.AufbauErgebnis;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.AnwesenheitZaehlerService.NeuaufbauErgebnis;
+import com.art.erfassung.service.ErfassungImportService;
+import com.art.erfassung.service.ErfassungImportService.ImportErgebnis;
+import com.art.erfassung.service.ErfassungsTagesIndex;
+import com.art.erfassung.service.ErfassungsTagesIndex.PruefErgebnis;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.RosterCache;
+import com.art.erfassung.service.SparsameSpeicherungService;
+import com.art.erfassung.service.SparsameSpeicherungService.UmstellungErgebnis;
+import com.art.erfassung.service.StudentenVerlaufIndex;
+import com.art.erfassung.service.StudentenVerlaufIndex.LadeErgebnis;
+import com.art.erfassung.service.VerspaetungNachtragService;
+import com.art.erfassung.service.VerspaetungNachtragService.NachtragErgebnis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Controller für administrative Wartungsaufgaben.
+ * <p>
+ * Alle Methoden in dieser Klasse verarbeiten Anfragen unter "/admin/wartung" und sind nur für
+ * Administratoren zugänglich. Wartungsaufgaben werden per POST gestartet; das Ergebnis wird als
+ * Flash-Meldung auf der Wartungsseite angezeigt.
+ * </p>
+ */
+@Controller
+@RequestMapping("/admin/wartung")
+public class WartungController {
+
+    // Service zum Nachtragen der strukturierten Verspätungsspalten
+    private final VerspaetungNachtragService verspaetungNachtragService;
+
+    // Service zur Pflege der Anwesenheitszähler
+    private final AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    // Service zur Pflege des Anwesenheitswürfels
+    private final AnwesenheitWuerfelService anwesenheitWuerfelService;
+
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    // Zwischengespeicherte Studentenlisten der Gruppen
+    private final RosterCache rosterCache;
+
+    // Service für den Massenimport von Studenten und Erfassungen
+    private final ErfassungImportService erfassungImportService;
+
+    // Service zur Umstellung vorhandener Erfassungen auf die sparsame Speicherung
+    private final SparsameSpeicherungService sparsameSpeicherungService;
+
+    // Tagesindex der Erfassungen je Student und Gruppe
+    private final ErfassungsTagesIndex erfassungsTagesIndex;
+
+    // Präfixsummen der Erfassungen je Student
+    private final StudentenVerlaufIndex studentenVerlaufIndex;
+
+    private static final Logger logger = LoggerFactory.getLogger(WartungController.class);
+
+    public WartungController(VerspaetungNachtragService verspaetungNachtragService,
+                             AnwesenheitZaehlerService anwesenheitZaehlerService,
+                             AnwesenheitWuerfelService anwesenheitWuerfelService,
+                             ReferenzdatenRegistry referenzdatenRegistry,
+                             RosterCache rosterCache,
+                             ErfassungImportService erfassungImportService,
+                             SparsameSpeicherungService sparsameSpeicherungService,
+                             ErfassungsTagesIndex erfassungsTagesIndex,
+                             StudentenVerlaufIndex studentenVerlaufIndex) {
+        this.verspaetungNachtragService = verspaetungNachtragService;
+        this.anwesenheitZaehlerService = anwesenheitZaehlerService;
+        this.anwesenheitWuerfelService = anwesenheitWuerfelService;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.rosterCache = rosterCache;
+        this.erfassungImportService = erfassungImportService;
+        this.sparsameSpeicherungService = sparsameSpeicherungService;
+        this.erfassungsTagesIndex = erfassungsTagesIndex;
+        this.studentenVerlaufIndex = studentenVerlaufIndex;
+    }
+
+    /**
+     * Zeigt die Übersicht der verfügbaren Wartungsaufgaben an.
+     *
+     * @param model das Model, in das die Daten für die View eingefügt werden
+     * @return den Namen der View "wartung"
+     */
+    @GetMapping
+    public String wartungAnzeigen(Model model) {
+        model.addAttribute("pageTitle", "Wartung");
+        model.addAttribute("pageDescription", "Administrative Aufgaben zur Pflege der Anwesenheitsdaten");
+        model.addAttribute("gruppen", referenzdatenRegistry.alleGruppen());
+        return "wartung";
+    }
+
+    /**
+     * Überträgt Verspätungen, die bei älteren Erfassungen nur im Kommentar stehen, in die strukturierten Spalten.
+     *
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Wartungsseite
+     */
+    @PostMapping("/verspaetungen")
+    public String verspaetungenNachtragen(RedirectAttributes redirectAttributes) {
+        NachtragErgebnis ergebnis = verspaetungNachtragService.nachtragen();
+        logger.info("Verspätungsnachtrag über Wartungsseite ausgeführt: {}", ergebnis);
+        redirectAttributes.addFlashAttribute("successMessage",
+                "Verspätungsnachtrag abgeschlossen: " + ergebnis.uebernommen() + " von "
+                        + ergebnis.geprueft() + " Erfassungen übernommen.");
+        return "redirect:/admin/wartung";
+    }
+
+    /**
+     * Prüft die Anwesenheitszähler gegen die Erfassungen und baut sie neu auf.
+     *
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Wartungsseite
+     */
+    @PostMapping("/zaehler")
+    public String zaehlerNeuAufbauen(RedirectAttributes redirectAttributes) {
+        NeuaufbauErgebnis ergebnis = anwesenheitZaehlerService.neuAufbauen();
+        logger.info("Neuaufbau der Anwesenheitszähler über Wartungsseite ausgeführt: {}", ergebnis);
+        redirectAttributes.addFlashAttribute("successMessage",
+                "Anwesenheitszähler neu aufgebaut: " + ergebnis.zeilen() + " Zähler, "
+                        + ergebnis.abweichungen() + " Abweichungen korrigiert.");
+        return "redirect:/admin/wartung";
+    }
+
+    /**
+     * Prüft den Anwesenheitswürfel gruppenweise gegen die Erfassungen und baut abweichende Gruppen neu auf.
+     *
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Wartungsseite
+     */
+    @PostMapping("/wuerfel")
+    public String wuerfelNeuAufbauen(RedirectAttributes redirectAttributes) {
+        AufbauErgebnis ergebnis = anwesenheitWuerfelService.neuAufbauen();
+        logger.info("Neuaufbau des Anwesenheitswürfels über Wartungsseite ausgeführt: {}", ergebnis);
+        redirectAttributes.addFlashAttribute("successMessage",
+                "Anwesenheitswürfel neu aufgebaut: " + ergebnis.gruppen() + " Gruppen, " + ergebnis.zellen()
+                        + " Zellen, " + ergebnis.abweichungen() + " Abweichungen korrigiert.");
+        return "redirect:/admin/wartung";
+    }
+
+    /**
+     * Lädt die im Speicher gehaltenen Status, Gruppen und Studentenlisten neu aus der Datenbank.
+     *
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Wartungsseite
+     */
+    @PostMapping("/referenzdaten")
+    public String referenzdatenNeuLaden(RedirectAttributes redirectAttributes) {
+        ReferenzdatenRegistry.Stand stand = referenzdatenRegistry.neuLaden();
+        int studenten = rosterCache.vorwaermen();
+        logger.info("Referenzdaten über Wartungsseite neu geladen: {} Status, {} Gruppen, {} Studenten",
+                stand.statusById().size(), stand.gruppeById().size(), studenten);
+        redirectAttributes.addFlashAttribute("successMessage",
+                "Referenzdaten neu geladen: " + stand.statusById().size() + " Status, "
+                        + stand.gruppeById().size() + " Gruppen, " + studenten + " Studenten.");
+        return "redirect:/admin/wartung";
+    }
+
+    /**
+     * Importiert Studenten und Erfassungen aus einer CSV-Datei im Format des Exports.
+     * <p>
+     * Das Ergebnis wird als Flash-Meldung angezeigt; Fehlermeldungen enthalten Inhalte der Datei und werden
+     * deshalb nur als Text ausgegeben.
+     * </p>
+     *
+     * @param datei              die hochgeladene CSV-Datei
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Wartungsseite
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     */
+    @PostMapping("/import")
+    public String importieren(@RequestParam("datei") MultipartFile datei, RedirectAttributes redirectAttributes)
+            throws IOException {
+        if (datei.isEmpty()) {
+            throw new IllegalArgumentException("Es wurde keine Datei ausgewählt");
+        }
+        ImportErgebnis ergebnis;
+        try (InputStream in = datei.getInputStream()) {
+            ergebnis = erfassungImportService.importieren(in);
+        }
+        logger.info("Import von {} über Wartungsseite ausgeführt: {}", datei.getOriginalFilename(), ergebnis);
+        redirectAttributes.addFlashAttribute("successMessage",
+                "Import " + (ergebnis.abgebrochen() ? "nach Zeile " + ergebnis.gespeichertBisZeile() + " abgebrochen"
+                        : "abgeschlossen") + ": " + ergebnis.zeilen() + " Zeilen, "
+                        + ergebnis.gruppenAngelegt() + " Gruppen, " + ergebnis.studentenAngelegt() + " Studenten und "
+                        + ergebnis.erfassungenAngelegt() + " Erfassungen angelegt, " + ergebnis.uebersprungen()
+                        + " vorhandene Erfassungen übersprungen (" + ergebnis.zeilenJeSekunde() + " Zeilen/s).");
+        if (ergebnis.fehlerhaft() > 0 || ergebnis.abgebrochen()) {
+            redirectAttributes.addFlashAttribute("warningMessage",
+                    ergebnis.fehlerhaft() + " fehlerhafte Zeilen: " + String.join(" | ", ergebnis.fehler())
+                            + (ergebnis.abgebrochen() ? " Dieselbe Datei erneut importieren, um fortzusetzen." : ""));
+        }
+        return "redirect:/admin/wartung";
+    }
+
+    /**
+     * Stellt vorhandene Erfassungen auf die sparsame Speicherung um und meldet die entfernten Erfassungen
+     * samt geschätzter Platzersparnis.
+     *
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Wartungsseite
+     */
+    @PostMapping("/sparsam")
+    public String sparsamUmstellen(RedirectAttributes redirectAttributes) {
+        UmstellungErgebnis ergebnis = sparsameSpeicherungService.umstellen();
+        logger.info("Umstellung auf sparsame Speicherung über Wartungsseite ausgeführt: {}", ergebnis);
+        redirectAttributes.addFlashAttribute("successMessage",
+                "Umstellung auf sparsame Speicherung abgeschlossen: " + ergebnis.tageMarkiert() + " Tage in "
+                        + ergebnis.gruppen() + " Gruppen markiert, " + ergebnis.entfernt() + " von "
+                        + ergebnis.erfassungenVorher() + " Erfassungen entfernt ("
+                        + String.format(Locale.GERMANY, "%.1f", ergebnis.anteilEntferntProzent()) + " %)"
+                        + (ergebnis.bytesEingespart() != null
+                        ? ", geschätzt " + String.format(Locale.GERMANY, "%.1f", ergebnis.bytesEingespart() / 1_048_576.0)
+                        + " MB eingespart." : "."));
+        return "redirect:/admin/wartung";
+    }
+
+    /**
+     * Gleicht den Tagesindex der Erfassungen mit der Datenbank ab und baut ihn neu auf.
+     *
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Wartungsseite
+     */
+    @PostMapping("/tagesindex")
+    public String tagesindexPruefen(RedirectAttributes redirectAttributes) {
+        PruefErgebnis ergebnis = erfassungsTagesIndex.pruefen();
+        logger.info("Abgleich des Tagesindex über Wartungsseite ausgeführt: {}", ergebnis);
+        redirectAttributes.addFlashAttribute("successMessage",
+                "Tagesindex abgeglichen: " + ergebnis.studenten() + " Studenten, " + ergebnis.eintraege()
+                        + " erfasste Tage in " + ergebnis.bitmaps() + " Bitmaps ("
+                        + String.format(Locale.GERMANY, "%.1f", ergebnis.bytes() / 1024.0) + " KB), "
+                        + ergebnis.abweichungen() + " Abweichungen korrigiert.");
+        return "redirect:/admin/wartung";
+    }
+
+    /**
+     * Baut die Präfixsummen der Erfassungen je Student neu aus der Datenbank auf.
+     *
+     * @param redirectAttributes Redirect-Attribute für die Ergebnismeldung
+     * @return eine Weiterleitung zur Wartungsseite
+     */
+    @PostMapping("/verlauf")
+    public String verlaufNeuLaden(RedirectAttributes redirectAttributes) {
+        LadeErgebnis ergebnis = studentenVerlaufIndex.neuLaden();
+        logger.info("Präfixsummen über Wartungsseite neu aufgebaut: {}", ergebnis);
+        redirectAttributes.addFlashAttribute("successMessage",
+                "Präfixsummen neu aufgebaut: " + ergebnis.studenten() + " Studenten, " + ergebnis.tage()
+                        + " erfasste Tage ("
+                        + String.format(Locale.GERMANY, "%.1f", ergebnis.bytes() / 1024.0) + " KB).");
+        return "redirect:/admin/wartung";
+    }
+}
@@ -0,0 +1,16 @@
+package com.art.erfassung.dto;
+
+import java.util.List;
+
+/**
+ * Ergebnis einer Auswertung im Spaltenspeicher der Erfassungen.
+ *
+ * @param erfassungen        die Anzahl der Erfassungen, die dem Filter entsprechen
+ * @param statusAnzahlen     je vorkommendem Status die Anzahl, Verspätungen und Verspätungsminuten, sortiert nach
+ *                           Status-ID
+ * @param zeilenGeprueft     die Anzahl der gelesenen Zeilen nach Eingrenzung über Gruppe und Datum
+ * @param dauerMikrosekunden die Dauer der Auswertung
+ */
+public record AnalyseErgebnis(long erfassungen, List<StatusAnzahl> statusAnzahlen, long zeilenGeprueft,
+                              long dauerMikrosekunden) {
+}
@@ -0,0 +1,21 @@
+package com.art.erfassung.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Filter einer Auswertung im Spaltenspeicher der Erfassungen.
+ * <p>
+ * Nicht gesetzte Kriterien (null oder leer) schränken nicht ein.
+ * </p>
+ *
+ * @param gruppeId   die ID der Gruppe oder null für alle Gruppen
+ * @param von        das Startdatum des Zeitraums (inklusive) oder null
+ * @param bis        das Enddatum des Zeitraums (inklusive) oder null
+ * @param wochentage die zu berücksichtigenden Wochentage
+ * @param statusIds  die IDs der zu berücksichtigenden Status
+ */
+public record AnalyseFilter(Integer gruppeId, LocalDate von, LocalDate bis, Set<DayOfWeek> wochentage,
+                            Set<Integer> statusIds) {
+}
@@ -0,0 +1,13 @@
+package com.art.erfassung.dto;
+
+/**
+ * Zustand eines Berichtsauftrags für die Abfrage per JSON, z.B. zum wiederholten Abfragen bis zum Abschluss.
+ *
+ * @param id          die ID des Auftrags
+ * @param zustand     WARTEND, LAEUFT, FERTIG oder FEHLER
+ * @param fortschritt die Anzahl der bisher geschriebenen Zeilen
+ * @param fehler      die Fehlermeldung eines fehlgeschlagenen Auftrags, sonst null
+ * @param download    der Pfad zum Herunterladen des fertigen Berichts, sonst null
+ */
+public record BerichtStatus(Long id, String zustand, long fortschritt, String fehler, String download) {
+}
@@ -0,0 +1,24 @@
+package com.art.erfassung.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Anfrage eines Check-in-Terminals mit den seit der letzten Übertragung gesammelten Scans.
+ *
+ * @param scans die Scans in der Reihenfolge, in der sie am Terminal erfasst wurden
+ */
+public record CheckinAnfrage(
+        @NotEmpty(message = "Es müssen mindestens Scans vorhanden sein.")
+        @Size(max = CheckinAnfrage.MAX_SCANS, message = "Eine Anfrage darf höchstens "
+                + CheckinAnfrage.MAX_SCANS + " Scans enthalten")
+        @Valid List<CheckinScan> scans) {
+
+    /**
+     * Höchstzahl der Scans je Anfrage.
+     */
+    public static final int MAX_SCANS = 1000;
+}
@@ -0,0 +1,16 @@
+package com.art.erfassung.dto;
+
+/**
+ * Antwort der Check-in-Schnittstelle.
+ * <p>
+ * Angenommene Scans werden kurz darauf gespeichert; doppelte Scans eines Studenten am selben Tag werden
+ * ohne Fehler ignoriert. Abgelehnt werden Scans, deren Zeitpunkt nicht auf den heutigen Tag fällt; sie sollten
+ * nicht erneut gesendet werden.
+ * </p>
+ *
+ * @param angenommen Anzahl der zur Speicherung angenommenen Scans
+ * @param doppelt    Anzahl der Scans von Studenten, die an diesem Tag bereits eingecheckt waren
+ * @param abgelehnt  Anzahl der Scans mit einem Zeitpunkt außerhalb des heutigen Tages
+ */
+public record CheckinAntwort(int angenommen, int doppelt, int abgelehnt) {
+}
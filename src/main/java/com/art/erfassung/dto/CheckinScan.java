@@ -0,0 +1,16 @@
+package com.art.erfassung.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ein einzelner Scan eines Ausweises oder QR-Codes an einem Check-in-Terminal.
+ *
+ * @param studentenId die ID des gescannten Studenten
+ * @param zeitpunkt   der Zeitpunkt des Scans laut Terminal; ohne Angabe gilt der Empfangszeitpunkt
+ */
+public record CheckinScan(
+        @NotNull(message = "Studenten-ID ist erforderlich") Integer studentenId,
+        LocalDateTime zeitpunkt) {
+}
@@ -0,0 +1,31 @@
+package com.art.erfassung.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Erfassungen einer Gruppe an einem Tag innerhalb einer Anfrage an die Erfassungs-API.
+ * <p>
+ * Die Einträge werden einzeln geprüft; ungültige Einträge verhindern nicht das Speichern der übrigen.
+ * </p>
+ *
+ * @param gruppeId  die ID der Gruppe, zu der alle Studenten des Batches gehören müssen
+ * @param datum     das Datum, für das die Anwesenheit erfasst wird
+ * @param eintraege die Anwesenheitsdaten je Student
+ */
+public record ErfassungBatch(
+        @NotNull(message = "Gruppen-ID ist erforderlich") Integer gruppeId,
+        @NotNull(message = "Datum ist erforderlich") LocalDate datum,
+        @NotEmpty(message = "Es müssen mindestens Einträge vorhanden sein.")
+        @Size(max = ErfassungBatch.MAX_EINTRAEGE, message = "Ein Batch darf höchstens "
+                + ErfassungBatch.MAX_EINTRAEGE + " Einträge enthalten") List<ErfassungDTO> eintraege) {
+
+    /**
+     * Höchstzahl der Einträge je Batch.
+     */
+    public static final int MAX_EINTRAEGE = 500;
+}
@@ -0,0 +1,24 @@
+package com.art.erfassung.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Anfrage an die Erfassungs-API mit Erfassungen für beliebig viele Gruppen und Tage.
+ *
+ * @param batches die Erfassungen je Gruppe und Tag; jeder Batch wird in einer eigenen Transaktion gespeichert
+ */
+public record ErfassungBatchAnfrage(
+        @NotEmpty(message = "Es muss mindestens ein Batch vorhanden sein.")
+        @Size(max = ErfassungBatchAnfrage.MAX_BATCHES, message = "Eine Anfrage darf höchstens "
+                + ErfassungBatchAnfrage.MAX_BATCHES + " Batches enthalten")
+        @Valid List<ErfassungBatch> batches) {
+
+    /**
+     * Höchstzahl der Batches je Anfrage.
+     */
+    public static final int MAX_BATCHES = 100;
+}
@@ -0,0 +1,33 @@
+package com.art.erfassung.dto;
+
+import com.art.erfassung.dto.ErfassungZeilenErgebnis.Ergebnis;
+
+import java.util.List;
+
+/**
+ * Antwort der Erfassungs-API mit dem Ergebnis jedes Eintrags.
+ *
+ * @param gespeichert Anzahl der gespeicherten Einträge
+ * @param konflikte   Anzahl der Einträge mit veralteter Version
+ * @param ungueltig   Anzahl der ungültigen Einträge
+ * @param fehler      Anzahl der Einträge, deren Batch nicht gespeichert werden konnte
+ * @param zeilen      das Ergebnis je Eintrag in der Reihenfolge der Anfrage
+ */
+public record ErfassungBatchAntwort(int gespeichert, int konflikte, int ungueltig, int fehler,
+                                    List<ErfassungZeilenErgebnis> zeilen) {
+
+    /**
+     * Erstellt die Antwort und zählt die Ergebnisse.
+     *
+     * @param zeilen das Ergebnis je Eintrag
+     * @return die Antwort
+     */
+    public static ErfassungBatchAntwort aus(List<ErfassungZeilenErgebnis> zeilen) {
+        int[] anzahl = new int[Ergebnis.values().length];
+        for (ErfassungZeilenErgebnis zeile : zeilen) {
+            anzahl[zeile.ergebnis().ordinal()]++;
+        }
+        return new ErfassungBatchAntwort(anzahl[Ergebnis.GESPEICHERT.ordinal()], anzahl[Ergebnis.KONFLIKT.ordinal()],
+                anzahl[Ergebnis.UNGUELTIG.ordinal()], anzahl[Ergebnis.FEHLER.ordinal()], zeilen);
+    }
+}
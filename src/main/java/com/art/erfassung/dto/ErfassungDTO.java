@@ -6,6 +6,11 @@ import jakarta.validation.constraints.Size;
 
 public class ErfassungDTO {
 
+    /**
+     * Version für Zeilen, zu denen beim Laden des Formulars noch keine Erfassung existierte.
+     */
+    public static final int KEINE_ERFASSUNG = -1;
+
     @NotNull(message = "Studenten-ID ist erforderlich")
     private Integer studentenId;
 
@@ -25,6 +30,9 @@ public class ErfassungDTO {
     @Size(max = 500, message = "Kommentar darf maximal 500 Zeichen lang sein")
     private String kommentar;
 
+    // Version der Erfassung beim Laden des Formulars; null bedeutet keine Konfliktprüfung
+    private Integer version;
+
     public Integer getStudentenId() {
         return studentenId;
     }
@@ -71,4 +79,12 @@ public class ErfassungDTO {
     public void setKommentar(String kommentar) {
         this.kommentar = kommentar;
     }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,26 @@
+package com.art.erfassung.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Eine Zeile des Anwesenheitsexports.
+ * <p>
+ * Wird direkt per Konstruktorausdruck aus der Abfrage erzeugt, sodass beim Export keine Entitäten im
+ * Persistenzkontext verbleiben.
+ * </p>
+ *
+ * @param datum              das Datum der Erfassung
+ * @param gruppe             die Bezeichnung der Gruppe des Studenten
+ * @param studentenId        die ID des Studenten
+ * @param name               der Nachname des Studenten
+ * @param vorname            der Vorname des Studenten
+ * @param status             die Bezeichnung des Status
+ * @param ankunftszeit       die Ankunftszeit oder null
+ * @param verspaetungMinuten die Verspätung in Minuten oder null
+ * @param kommentar          der Kommentar oder null
+ */
+public record ErfassungExportZeile(LocalDate datum, String gruppe, Integer studentenId, String name, String vorname,
+                                   String status, LocalTime ankunftszeit, Integer verspaetungMinuten,
+                                   String kommentar) {
+}
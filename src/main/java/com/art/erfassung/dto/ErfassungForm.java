@@ -6,10 +6,21 @@ import java.util.List;
 
 public class ErfassungForm {
 
+    // Gruppe des Formulars; erlaubt die Prüfung der Studenten gegen die zwischengespeicherte Studentenliste
+    private Integer gruppeId;
+
     @NotEmpty(message = "Es müssen mindestens Einträge vorhanden sein.")
     @Valid
     private List<ErfassungDTO> eintraege;
 
+    public Integer getGruppeId() {
+        return gruppeId;
+    }
+
+    public void setGruppeId(Integer gruppeId) {
+        this.gruppeId = gruppeId;
+    }
+
     public List<ErfassungDTO> getEintraege() {
         return eintraege;
     }
@@ -0,0 +1,20 @@
+package com.art.erfassung.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Projektion einer Erfassung auf die Werte, die in den Präfixsummen je Student, im Tagesindex und im
+ * Spaltenspeicher der Erfassungen gehalten werden.
+ * <p>
+ * Wird direkt aus einer JPQL-Konstruktorabfrage befüllt, ohne Erfassung, Student oder Status als Entität zu laden.
+ * </p>
+ *
+ * @param studentenId        die ID des Studenten
+ * @param gruppeId           die ID der aktuellen Gruppe des Studenten
+ * @param datum              das Datum der Erfassung
+ * @param statusId           die ID des Status
+ * @param verspaetungMinuten die Verspätung in Minuten oder null, falls keine erfasst ist
+ */
+public record ErfassungIndexEintrag(Integer studentenId, Integer gruppeId, LocalDate datum, Integer statusId,
+                                    Integer verspaetungMinuten) {
+}
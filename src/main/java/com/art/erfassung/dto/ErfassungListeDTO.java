@@ -21,6 +21,30 @@ public class ErfassungListeDTO {
     private String statusBezeichnung;
     private String kommentar;
 
+    public ErfassungListeDTO() {}
+
+    /**
+     * Erstellt ein vollständig befülltes DTO; wird von JPQL-Konstruktorabfragen verwendet.
+     *
+     * @param id                die ID der Erfassung
+     * @param studentenId       die ID des Studenten
+     * @param studentenName     Vorname und Name des Studenten
+     * @param datum             das Datum der Erfassung
+     * @param statusId          die ID des Status
+     * @param statusBezeichnung die Bezeichnung des Status
+     * @param kommentar         der Kommentar zur Erfassung
+     */
+    public ErfassungListeDTO(Integer id, Integer studentenId, String studentenName, LocalDate datum,
+                             Integer statusId, String statusBezeichnung, String kommentar) {
+        this.id = id;
+        this.studentenId = studentenId;
+        this.studentenName = studentenName;
+        this.datum = datum;
+        this.statusId = statusId;
+        this.statusBezeichnung = statusBezeichnung;
+        this.kommentar = kommentar;
+    }
+
     /**
      * Gibt die ID der Erfassung zurück.
      *
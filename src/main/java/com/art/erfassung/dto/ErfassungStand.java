@@ -0,0 +1,19 @@
+package com.art.erfassung.dto;
+
+import java.time.LocalTime;
+
+/**
+ * Gespeicherter Stand einer Erfassung zur Vorbelegung des Anwesenheitsformulars.
+ * <p>
+ * Wird per JPQL-Konstruktorabfrage für alle Erfassungen einer Gruppe an einem Tag in einem Statement gelesen.
+ * </p>
+ *
+ * @param studentenId  die ID des Studenten
+ * @param statusId     die ID des gespeicherten Status
+ * @param ankunftszeit die gespeicherte Ankunftszeit oder null
+ * @param kommentar    der gespeicherte Kommentar oder null
+ * @param version      die Version der Erfassung für die optimistische Konfliktprüfung
+ */
+public record ErfassungStand(Integer studentenId, Integer statusId, LocalTime ankunftszeit, String kommentar,
+                             Integer version) {
+}
@@ -0,0 +1,19 @@
+package com.art.erfassung.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Projektion einer Erfassung auf die Werte, die in einem {@link GruppenMonat} kodiert werden.
+ * <p>
+ * Wird direkt aus einer JPQL-Konstruktorabfrage befüllt, ohne Erfassung, Student oder Status als Entität zu laden.
+ * </p>
+ *
+ * @param studentenId        die ID des Studenten
+ * @param datum              das Datum der Erfassung
+ * @param statusId           die ID des Status
+ * @param statusBezeichnung  die Bezeichnung des Status
+ * @param verspaetungMinuten die Verspätung in Minuten oder null, falls keine erfasst ist
+ */
+public record ErfassungTageswert(Integer studentenId, LocalDate datum, Integer statusId, String statusBezeichnung,
+                                 Integer verspaetungMinuten) {
+}
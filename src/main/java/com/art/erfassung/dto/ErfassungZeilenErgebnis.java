@@ -0,0 +1,33 @@
+package com.art.erfassung.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Ergebnis eines einzelnen Eintrags einer Anfrage an die Erfassungs-API.
+ *
+ * @param batch       die Position des Batches in der Anfrage (ab 0)
+ * @param zeile       die Position des Eintrags im Batch (ab 0)
+ * @param studentenId die ID des Studenten
+ * @param ergebnis    das Ergebnis der Verarbeitung
+ * @param version     die Version der gespeicherten Erfassung für spätere Änderungen; nur bei
+ *                    {@link Ergebnis#GESPEICHERT}
+ * @param meldung     der Grund, falls der Eintrag nicht gespeichert wurde
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ErfassungZeilenErgebnis(int batch, int zeile, Integer studentenId, Ergebnis ergebnis,
+                                      Integer version, String meldung) {
+
+    /**
+     * Mögliche Ergebnisse eines Eintrags.
+     */
+    public enum Ergebnis {
+        /** Gespeichert oder bereits mit demselben Inhalt vorhanden. */
+        GESPEICHERT,
+        /** Die übermittelte Version entspricht nicht mehr dem gespeicherten Stand. */
+        KONFLIKT,
+        /** Der Eintrag ist ungültig, z. B. unbekannter Status oder Student einer anderen Gruppe. */
+        UNGUELTIG,
+        /** Der Batch konnte wegen eines Datenbankfehlers nicht gespeichert werden. */
+        FEHLER
+    }
+}
@@ -0,0 +1,33 @@
+package com.art.erfassung.dto;
+
+/**
+ * Dateiformate des Anwesenheitsexports.
+ */
+public enum ExportFormat {
+
+    /**
+     * Semikolongetrennte Werte in UTF-8 mit Byte Order Mark, damit Excel Umlaute korrekt anzeigt.
+     */
+    CSV("text/csv;charset=UTF-8", "csv"),
+
+    /**
+     * Excel-Arbeitsmappe; bei mehr Zeilen als ein Tabellenblatt fasst, wird auf weitere Blätter verteilt.
+     */
+    XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+    private final String contentType;
+    private final String endung;
+
+    ExportFormat(String contentType, String endung) {
+        this.contentType = contentType;
+        this.endung = endung;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getEndung() {
+        return endung;
+    }
+}
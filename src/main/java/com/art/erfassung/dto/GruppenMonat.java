@@ -0,0 +1,213 @@
+package com.art.erfassung.dto;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Kompakte, unveränderliche Darstellung der Erfassungen einer Gruppe in einem Monat.
+ * <p>
+ * Statt einer Erfassung je Student und Tag hält die Klasse je Student zwei {@code long} Werte mit einem
+ * 3-Bit-Statuscode und einem Verspätungsbit pro Tag (siehe {@link MonatsKodierung}) sowie die Summe der
+ * Verspätungsminuten je Status. Die Statuscodes werden beim Kodieren in der Reihenfolge des ersten Auftretens
+ * vergeben; die zugehörigen Status-IDs und Bezeichnungen sind im Objekt gespeichert, sodass es unabhängig von
+ * späteren Änderungen der Referenzdaten gelesen werden kann. Eine Gruppe mit 30 Studenten belegt so etwa
+ * 1 KB statt mehrerer hundert Entitäten.
+ * </p>
+ */
+public class GruppenMonat {
+
+    private final YearMonth monat;
+    // Studenten-IDs aufsteigend sortiert; der Index ist die Zeile des Studenten
+    private final int[] studentenIds;
+    // Kodierte Tage, MonatsKodierung.LONGS_JE_MONAT Werte je Zeile
+    private final long[] tage;
+    // Summe der Verspätungsminuten je Zeile und Statuscode (Index zeile * Anzahl der Codes + code - 1)
+    private final int[] verspaetungMinuten;
+    // Status-ID und Bezeichnung je Statuscode; Index 0 steht für Tage ohne Erfassung
+    private final int[] statusIds;
+    private final String[] statusBezeichnungen;
+
+    private GruppenMonat(YearMonth monat, int[] studentenIds, long[] tage, int[] verspaetungMinuten,
+                         int[] statusIds, String[] statusBezeichnungen) {
+        this.monat = monat;
+        this.studentenIds = studentenIds;
+        this.tage = tage;
+        this.verspaetungMinuten = verspaetungMinuten;
+        this.statusIds = statusIds;
+        this.statusBezeichnungen = statusBezeichnungen;
+    }
+
+    /**
+     * Kodiert die Erfassungen einer Gruppe in einem Monat.
+     * <p>
+     * Werte außerhalb des Monats werden ignoriert. Kommen im Monat mehr als
+     * {@value MonatsKodierung#MAX_STATUS_CODE} verschiedene Status vor, ist keine Kodierung möglich.
+     * </p>
+     *
+     * @param monat der Monat
+     * @param werte die Erfassungen der Gruppe im Monat
+     * @return der kodierte Monat oder leer, falls die Status nicht in 3 Bit passen
+     */
+    public static Optional<GruppenMonat> kodieren(YearMonth monat, List<ErfassungTageswert> werte) {
+        // Status-ID und Bezeichnung je Code; die Suche über höchstens sieben Einträge kommt ohne Map aus
+        int[] statusIds = new int[MonatsKodierung.MAX_STATUS_CODE + 1];
+        String[] statusBezeichnungen = new String[MonatsKodierung.MAX_STATUS_CODE + 1];
+        statusIds[0] = MonatsMatrix.KEIN_EINTRAG;
+        int codes = 0;
+        int[] codeJeWert = new int[werte.size()];
+        int[] ids = new int[werte.size()];
+        int anzahl = 0;
+        for (int i = 0; i < werte.size(); i++) {
+            ErfassungTageswert wert = werte.get(i);
+            if (!imMonat(wert, monat)) {
+                continue;
+            }
+            int code = code(statusIds, codes, wert.statusId());
+            if (code == 0) {
+                if (codes == MonatsKodierung.MAX_STATUS_CODE) {
+                    return Optional.empty();
+                }
+                code = ++codes;
+                statusIds[code] = wert.statusId();
+                statusBezeichnungen[code] = wert.statusBezeichnung();
+            }
+            codeJeWert[i] = code;
+            ids[anzahl++] = wert.studentenId();
+        }
+
+        Arrays.sort(ids, 0, anzahl);
+        int studenten = 0;
+        for (int i = 0; i < anzahl; i++) {
+            if (studenten == 0 || ids[studenten - 1] != ids[i]) {
+                ids[studenten++] = ids[i];
+            }
+        }
+        int[] studentenIds = Arrays.copyOf(ids, studenten);
+        long[] tage = new long[studenten * MonatsKodierung.LONGS_JE_MONAT];
+        int[] verspaetungMinuten = new int[studenten * codes];
+        for (int i = 0; i < werte.size(); i++) {
+            int code = codeJeWert[i];
+            if (code == 0) {
+                continue;
+            }
+            ErfassungTageswert wert = werte.get(i);
+            int zeile = Arrays.binarySearch(studentenIds, wert.studentenId());
+            int minuten = wert.verspaetungMinuten() != null ? wert.verspaetungMinuten() : 0;
+            MonatsKodierung.setzen(tage, zeile * MonatsKodierung.LONGS_JE_MONAT, wert.datum().getDayOfMonth(),
+                    MonatsKodierung.tag(code, minuten > 0));
+            if (minuten > 0) {
+                verspaetungMinuten[zeile * codes + code - 1] += minuten;
+            }
+        }
+        return Optional.of(new GruppenMonat(monat, studentenIds, tage, verspaetungMinuten,
+                Arrays.copyOf(statusIds, codes + 1), Arrays.copyOf(statusBezeichnungen, codes + 1)));
+    }
+
+    private static boolean imMonat(ErfassungTageswert wert, YearMonth monat) {
+        return wert.datum().getYear() == monat.getYear() && wert.datum().getMonthValue() == monat.getMonthValue();
+    }
+
+    private static int code(int[] statusIds, int codes, int statusId) {
+        for (int code = 1; code <= codes; code++) {
+            if (statusIds[code] == statusId) {
+                return code;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gibt den kodierten Monat zurück.
+     *
+     * @return der Monat
+     */
+    public YearMonth getMonat() {
+        return monat;
+    }
+
+    /**
+     * Liefert die Zeile eines Studenten.
+     *
+     * @param studentenId die ID des Studenten
+     * @return die Zeile oder -1, falls der Student im Monat keine Erfassung besitzt
+     */
+    public int zeile(Integer studentenId) {
+        int zeile = Arrays.binarySearch(studentenIds, studentenId);
+        return zeile >= 0 ? zeile : -1;
+    }
+
+    /**
+     * Liefert die Status-ID eines Tages.
+     *
+     * @param zeile      die Zeile des Studenten, siehe {@link #zeile(Integer)}
+     * @param tagImMonat der Tag im Monat, beginnend bei 1
+     * @return die Status-ID oder {@link MonatsMatrix#KEIN_EINTRAG}, falls keine Erfassung vorliegt
+     */
+    public int statusId(int zeile, int tagImMonat) {
+        return statusIds[MonatsKodierung.statusCode(tag(zeile, tagImMonat))];
+    }
+
+    /**
+     * Gibt an, ob an einem Tag eine Verspätung erfasst ist.
+     *
+     * @param zeile      die Zeile des Studenten, siehe {@link #zeile(Integer)}
+     * @param tagImMonat der Tag im Monat, beginnend bei 1
+     * @return {@code true}, falls die Verspätung größer 0 ist
+     */
+    public boolean verspaetet(int zeile, int tagImMonat) {
+        return MonatsKodierung.verspaetet(tag(zeile, tagImMonat));
+    }
+
+    /**
+     * Liefert die Bezeichnungen aller im Monat vorkommenden Status.
+     *
+     * @return die Bezeichnung je Status-ID
+     */
+    public Map<Integer, String> statusBezeichnungen() {
+        Map<Integer, String> bezeichnungen = new LinkedHashMap<>();
+        for (int code = 1; code < statusIds.length; code++) {
+            bezeichnungen.put(statusIds[code], statusBezeichnungen[code]);
+        }
+        return bezeichnungen;
+    }
+
+    /**
+     * Zählt die Erfassungen eines Studenten je Status als Grundlage der Anwesenheitsstatistik.
+     *
+     * @param zeile die Zeile des Studenten, siehe {@link #zeile(Integer)}; bei -1 ist das Ergebnis leer
+     * @return je vorkommendem Status eine {@link StatusAnzahl}
+     */
+    public List<StatusAnzahl> statusAnzahlen(int zeile) {
+        if (zeile < 0) {
+            return List.of();
+        }
+        int codes = statusIds.length - 1;
+        long[] anzahl = new long[codes + 1];
+        long[] verspaetungen = new long[codes + 1];
+        for (int tag = 1; tag <= monat.lengthOfMonth(); tag++) {
+            int wert = tag(zeile, tag);
+            int code = MonatsKodierung.statusCode(wert);
+            anzahl[code]++;
+            if (MonatsKodierung.verspaetet(wert)) {
+                verspaetungen[code]++;
+            }
+        }
+        List<StatusAnzahl> statusAnzahlen = new ArrayList<>();
+        for (int code = 1; code <= codes; code++) {
+            if (anzahl[code] > 0) {
+                statusAnzahlen.add(new StatusAnzahl(statusBezeichnungen[code], anzahl[code], verspaetungen[code],
+                        verspaetungMinuten[zeile * codes + code - 1]));
+            }
+        }
+        return statusAnzahlen;
+    }
+
+    private int tag(int zeile, int tagImMonat) {
+        return MonatsKodierung.lesen(tage, zeile * MonatsKodierung.LONGS_JE_MONAT, tagImMonat);
+    }
+}
@@ -0,0 +1,97 @@
+package com.art.erfassung.dto;
+
+/**
+ * Hilfsmethoden zur bitweisen Kodierung der Erfassungen eines Studenten in einem Monat.
+ * <p>
+ * Jeder Tag belegt 4 Bit: die unteren 3 Bit enthalten einen Statuscode von 1 bis {@value #MAX_STATUS_CODE}
+ * (0 für Tage ohne Erfassung), das oberste Bit kennzeichnet eine Verspätung. 16 Tage passen in ein
+ * {@code long}, ein ganzer Monat mit bis zu 31 Tagen damit in {@value #LONGS_JE_MONAT} aufeinanderfolgende
+ * Werte eines {@code long[]}. Welche Status-ID sich hinter einem Statuscode verbirgt, legt der Besitzer des
+ * Arrays fest (siehe {@link GruppenMonat}).
+ * </p>
+ */
+public final class MonatsKodierung {
+
+    /**
+     * Anzahl der {@code long} Werte je Student und Monat.
+     */
+    public static final int LONGS_JE_MONAT = 2;
+
+    /**
+     * Größter Statuscode, der in 3 Bit dargestellt werden kann.
+     */
+    public static final int MAX_STATUS_CODE = 7;
+
+    private static final int BITS_JE_TAG = 4;
+    private static final int TAGE_JE_LONG = Long.SIZE / BITS_JE_TAG;
+    private static final int STATUS_MASKE = 0b0111;
+    private static final int VERSPAETET = 0b1000;
+    private static final int TAG_MASKE = 0b1111;
+
+    private MonatsKodierung() {
+    }
+
+    /**
+     * Kodiert Statuscode und Verspätung eines Tages in einen 4-Bit-Wert.
+     *
+     * @param statusCode der Statuscode von 0 bis {@value #MAX_STATUS_CODE}
+     * @param verspaetet ob an diesem Tag eine Verspätung vorliegt
+     * @return der kodierte Tag
+     * @throws IllegalArgumentException wenn der Statuscode nicht in 3 Bit passt
+     */
+    public static int tag(int statusCode, boolean verspaetet) {
+        if (statusCode < 0 || statusCode > MAX_STATUS_CODE) {
+            throw new IllegalArgumentException("Statuscode außerhalb von 0.." + MAX_STATUS_CODE + ": " + statusCode);
+        }
+        return statusCode | (verspaetet ? VERSPAETET : 0);
+    }
+
+    /**
+     * Liefert den Statuscode eines kodierten Tages.
+     *
+     * @param tag der kodierte Tag
+     * @return der Statuscode, 0 falls keine Erfassung vorliegt
+     */
+    public static int statusCode(int tag) {
+        return tag & STATUS_MASKE;
+    }
+
+    /**
+     * Gibt an, ob ein kodierter Tag eine Verspätung enthält.
+     *
+     * @param tag der kodierte Tag
+     * @return {@code true}, falls das Verspätungsbit gesetzt ist
+     */
+    public static boolean verspaetet(int tag) {
+        return (tag & VERSPAETET) != 0;
+    }
+
+    /**
+     * Schreibt einen kodierten Tag in einen Monat.
+     *
+     * @param monate    das Array mit den kodierten Monaten
+     * @param offset    der Index des ersten {@code long} des Monats
+     * @param tagImMonat der Tag im Monat, beginnend bei 1
+     * @param tag       der kodierte Tag, siehe {@link #tag(int, boolean)}
+     */
+    public static void setzen(long[] monate, int offset, int tagImMonat, int tag) {
+        int index = offset + (tagImMonat - 1) / TAGE_JE_LONG;
+        int verschiebung = ((tagImMonat - 1) % TAGE_JE_LONG) * BITS_JE_TAG;
+        monate[index] = (monate[index] & ~((long) TAG_MASKE << verschiebung))
+                | ((long) (tag & TAG_MASKE) << verschiebung);
+    }
+
+    /**
+     * Liest einen kodierten Tag aus einem Monat.
+     *
+     * @param monate    das Array mit den kodierten Monaten
+     * @param offset    der Index des ersten {@code long} des Monats
+     * @param tagImMonat der Tag im Monat, beginnend bei 1
+     * @return der kodierte Tag
+     */
+    public static int lesen(long[] monate, int offset, int tagImMonat) {
+        int index = offset + (tagImMonat - 1) / TAGE_JE_LONG;
+        int verschiebung = ((tagImMonat - 1) % TAGE_JE_LONG) * BITS_JE_TAG;
+        return (int) (monate[index] >>> verschiebung) & TAG_MASKE;
+    }
+}
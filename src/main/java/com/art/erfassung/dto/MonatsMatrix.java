@@ -0,0 +1,112 @@
+package com.art.erfassung.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vorberechnete Monatsübersicht einer Gruppe als Matrix aus Studenten und Tagen.
+ * <p>
+ * Jede Zeile enthält für einen Studenten ein Array mit einem Statuscode pro Tag des Monats
+ * (die Status-ID, oder {@link #KEIN_EINTRAG} falls an diesem Tag keine Erfassung vorliegt).
+ * Die View kann die Matrix damit in O(Studenten × Tage) darstellen, ohne für jede Zelle
+ * alle Erfassungen des Monats zu durchsuchen.
+ * </p>
+ */
+public class MonatsMatrix {
+
+    /**
+     * Statuscode für Tage ohne Erfassung.
+     */
+    public static final int KEIN_EINTRAG = 0;
+
+    private final YearMonth monat;
+    private final List<Zeile> zeilen;
+    private final Map<Integer, String> statusKlassen;
+
+    public MonatsMatrix(YearMonth monat, List<Zeile> zeilen, Map<Integer, String> statusKlassen) {
+        this.monat = monat;
+        this.zeilen = zeilen;
+        this.statusKlassen = statusKlassen;
+    }
+
+    /**
+     * Gibt den dargestellten Monat zurück.
+     *
+     * @return der Monat der Matrix
+     */
+    public YearMonth getMonat() {
+        return monat;
+    }
+
+    /**
+     * Gibt die Anzahl der Tage im dargestellten Monat zurück.
+     *
+     * @return die Anzahl der Tage
+     */
+    public int getTageImMonat() {
+        return monat.lengthOfMonth();
+    }
+
+    /**
+     * Gibt die Zeilen der Matrix in der Reihenfolge der Studentenliste zurück.
+     *
+     * @return die Zeilen der Matrix
+     */
+    public List<Zeile> getZeilen() {
+        return zeilen;
+    }
+
+    /**
+     * Liefert die CSS-Klasse für einen Statuscode.
+     *
+     * @param statusId der Statuscode einer Zelle
+     * @return die CSS-Klasse des Status oder ein leerer String, falls keine Klasse hinterlegt ist
+     */
+    public String klasse(int statusId) {
+        return statusKlassen.getOrDefault(statusId, "");
+    }
+
+    /**
+     * Eine Zeile der Monatsmatrix mit den Statuscodes eines Studenten.
+     */
+    public static class Zeile {
+
+        private final Integer studentenId;
+        private final String studentenName;
+        private final int[] statusIds;
+
+        public Zeile(Integer studentenId, String studentenName, int[] statusIds) {
+            this.studentenId = studentenId;
+            this.studentenName = studentenName;
+            this.statusIds = statusIds;
+        }
+
+        /**
+         * Gibt die ID des Studenten zurück.
+         *
+         * @return die ID des Studenten
+         */
+        public Integer getStudentenId() {
+            return studentenId;
+        }
+
+        /**
+         * Gibt den Anzeigenamen des Studenten zurück.
+         *
+         * @return Vorname und Name des Studenten
+         */
+        public String getStudentenName() {
+            return studentenName;
+        }
+
+        /**
+         * Gibt die Statuscodes pro Tag zurück; Index 0 entspricht dem ersten Tag des Monats.
+         *
+         * @return die Statuscodes des Monats
+         */
+        public int[] getStatusIds() {
+            return statusIds;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.art.erfassung.dto;
+
+/**
+ * Unveränderlicher Eintrag der Studentenliste einer Gruppe.
+ * <p>
+ * Enthält nur die Daten, die Formular und Monatsliste zur Anzeige eines Studenten benötigen. Die Einträge
+ * werden per JPQL-Konstruktorabfrage ohne Laden der Gruppe befüllt und im {@link com.art.erfassung.service.RosterCache}
+ * gehalten.
+ * </p>
+ *
+ * @param studentenId die ID des Studenten
+ * @param gruppeId    die ID der Gruppe des Studenten
+ * @param anzeigeName Vorname und Name des Studenten
+ */
+public record RosterEintrag(Integer studentenId, Integer gruppeId, String anzeigeName) {
+}
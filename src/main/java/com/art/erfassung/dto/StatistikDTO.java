@@ -16,6 +16,8 @@ public class StatistikDTO {
     private long unentschuldigt;
     private long krank;
     private long verspaetungen;
+    private long verspaetungMinuten;
+    private double verspaetungMinutenDurchschnitt;
 
     /**
      * Gibt die Studentendaten zurück.
@@ -124,4 +126,40 @@ public class StatistikDTO {
     public void setVerspaetungen(long verspaetungen) {
         this.verspaetungen = verspaetungen;
     }
+
+    /**
+     * Gibt die Summe der Verspätungsminuten zurück.
+     *
+     * @return die Summe der Verspätungsminuten
+     */
+    public long getVerspaetungMinuten() {
+        return verspaetungMinuten;
+    }
+
+    /**
+     * Setzt die Summe der Verspätungsminuten.
+     *
+     * @param verspaetungMinuten die zu setzende Summe
+     */
+    public void setVerspaetungMinuten(long verspaetungMinuten) {
+        this.verspaetungMinuten = verspaetungMinuten;
+    }
+
+    /**
+     * Gibt die durchschnittliche Verspätung in Minuten zurück.
+     *
+     * @return die durchschnittliche Verspätung in Minuten
+     */
+    public double getVerspaetungMinutenDurchschnitt() {
+        return verspaetungMinutenDurchschnitt;
+    }
+
+    /**
+     * Setzt die durchschnittliche Verspätung in Minuten.
+     *
+     * @param verspaetungMinutenDurchschnitt der zu setzende Durchschnitt
+     */
+    public void setVerspaetungMinutenDurchschnitt(double verspaetungMinutenDurchschnitt) {
+        this.verspaetungMinutenDurchschnitt = verspaetungMinutenDurchschnitt;
+    }
 }
\ No newline at end of file
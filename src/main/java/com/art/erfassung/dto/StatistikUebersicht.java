@@ -0,0 +1,37 @@
+package com.art.erfassung.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Übersicht der Anwesenheit aller Gruppen in einem Zeitraum ganzer Monate.
+ * <p>
+ * Wird aus den Zellen des Anwesenheitswürfels berechnet und enthält je Gruppe und je Wochentag eine
+ * {@link Zeile} mit den Anzahlen je Status sowie eine Gesamtzeile.
+ * </p>
+ *
+ * @param von                der erste Monat des Zeitraums
+ * @param bis                der letzte Monat des Zeitraums
+ * @param gruppeId           die ID der ausgewählten Gruppe oder null für alle Gruppen
+ * @param gruppen            eine Zeile je Gruppe mit Erfassungen, nach Gruppen-ID sortiert
+ * @param wochentage         eine Zeile je Wochentag mit Erfassungen, beginnend mit Montag
+ * @param gesamt             die Summe aller Gruppen
+ * @param dauerMikrosekunden die Dauer der Berechnung in Mikrosekunden
+ */
+public record StatistikUebersicht(YearMonth von, YearMonth bis, Integer gruppeId, List<Zeile> gruppen,
+                                  List<Zeile> wochentage, Zeile gesamt, long dauerMikrosekunden) {
+
+    /**
+     * Eine Zeile der Übersicht.
+     *
+     * @param bezeichnung        die Bezeichnung der Gruppe bzw. des Wochentags
+     * @param jeStatus           die Anzahlen je Status-ID
+     * @param anzahl             die Anzahl aller Erfassungen der Zeile
+     * @param verspaetungen      die Anzahl der Erfassungen mit einer Verspätung größer 0
+     * @param verspaetungMinuten die Summe der Verspätungsminuten
+     */
+    public record Zeile(String bezeichnung, Map<Integer, StatusAnzahl> jeStatus, long anzahl, long verspaetungen,
+                        long verspaetungMinuten) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.art.erfassung.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Anwesenheitsstatistik eines Studenten in einem benannten Zeitraum.
+ * <p>
+ * Wird auf der Statistikseite eines Studenten verwendet, um mehrere Zeiträume wie "Dieses Halbjahr" oder
+ * "Letzte 30 Tage" nebeneinander darzustellen.
+ * </p>
+ *
+ * @param bezeichnung die Bezeichnung des Zeitraums
+ * @param von         das Startdatum (inklusive) oder null für unbegrenzt
+ * @param bis         das Enddatum (inklusive) oder null für unbegrenzt
+ * @param statistik   die Statistik des Studenten im Zeitraum
+ */
+public record StatistikZeitraum(String bezeichnung, LocalDate von, LocalDate bis, StatistikDTO statistik) {
+}
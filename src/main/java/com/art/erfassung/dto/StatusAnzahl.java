@@ -0,0 +1,33 @@
+package com.art.erfassung.dto;
+
+/**
+ * Projektion der Erfassungen eines Studenten je Status.
+ * <p>
+ * Wird direkt aus einer JPQL-Konstruktorabfrage befüllt, entweder aus den vorberechneten
+ * Anwesenheitszählern oder per {@code group by} aus der Tabelle "erfassung". Pro Status wird so nur
+ * eine Zeile statt aller einzelnen Erfassungen übertragen.
+ * </p>
+ *
+ * @param bezeichnung        die Bezeichnung des Status
+ * @param anzahl             die Anzahl der Erfassungen mit diesem Status
+ * @param verspaetungen      die Anzahl dieser Erfassungen mit einer Verspätung größer 0
+ * @param verspaetungMinuten die Summe der Verspätungsminuten dieser Erfassungen
+ */
+public record StatusAnzahl(String bezeichnung, long anzahl, long verspaetungen, long verspaetungMinuten) {
+
+    /**
+     * Konstruktor für JPQL-Konstruktorausdrücke, deren Aggregate je nach Datenbank als
+     * unterschiedliche {@link Number}-Typen oder null geliefert werden.
+     *
+     * @param bezeichnung        die Bezeichnung des Status
+     * @param anzahl             die Anzahl der Erfassungen
+     * @param verspaetungen      die Anzahl der Verspätungen
+     * @param verspaetungMinuten die Summe der Verspätungsminuten, null falls keine vorhanden
+     */
+    public StatusAnzahl(String bezeichnung, Number anzahl, Number verspaetungen, Number verspaetungMinuten) {
+        this(bezeichnung,
+                anzahl == null ? 0L : anzahl.longValue(),
+                verspaetungen == null ? 0L : verspaetungen.longValue(),
+                verspaetungMinuten == null ? 0L : verspaetungMinuten.longValue());
+    }
+}
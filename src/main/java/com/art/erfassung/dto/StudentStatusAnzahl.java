@@ -0,0 +1,45 @@
+package com.art.erfassung.dto;
+
+/**
+ * Projektion der Erfassungen eines Studenten je Status für die Statistik einer ganzen Gruppe.
+ * <p>
+ * Entspricht {@link StatusAnzahl}, enthält aber zusätzlich die ID des Studenten, damit die Zeilen aller
+ * Studenten einer Gruppe mit einer einzigen Abfrage gelesen und anschließend zugeordnet werden können.
+ * </p>
+ *
+ * @param studentenId        die ID des Studenten
+ * @param bezeichnung        die Bezeichnung des Status
+ * @param anzahl             die Anzahl der Erfassungen mit diesem Status
+ * @param verspaetungen      die Anzahl dieser Erfassungen mit einer Verspätung größer 0
+ * @param verspaetungMinuten die Summe der Verspätungsminuten dieser Erfassungen
+ */
+public record StudentStatusAnzahl(Integer studentenId, String bezeichnung, long anzahl, long verspaetungen,
+                                  long verspaetungMinuten) {
+
+    /**
+     * Konstruktor für JPQL-Konstruktorausdrücke, deren Aggregate je nach Datenbank als
+     * unterschiedliche {@link Number}-Typen oder null geliefert werden.
+     *
+     * @param studentenId        die ID des Studenten
+     * @param bezeichnung        die Bezeichnung des Status
+     * @param anzahl             die Anzahl der Erfassungen
+     * @param verspaetungen      die Anzahl der Verspätungen
+     * @param verspaetungMinuten die Summe der Verspätungsminuten, null falls keine vorhanden
+     */
+    public StudentStatusAnzahl(Integer studentenId, String bezeichnung, Number anzahl, Number verspaetungen,
+                               Number verspaetungMinuten) {
+        this(studentenId, bezeichnung,
+                anzahl == null ? 0L : anzahl.longValue(),
+                verspaetungen == null ? 0L : verspaetungen.longValue(),
+                verspaetungMinuten == null ? 0L : verspaetungMinuten.longValue());
+    }
+
+    /**
+     * Liefert die Zeile ohne Studentenbezug als {@link StatusAnzahl}.
+     *
+     * @return die entsprechende {@link StatusAnzahl}
+     */
+    public StatusAnzahl toStatusAnzahl() {
+        return new StatusAnzahl(bezeichnung, anzahl, verspaetungen, verspaetungMinuten);
+    }
+}
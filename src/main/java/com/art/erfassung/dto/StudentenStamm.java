@@ -0,0 +1,16 @@
+package com.art.erfassung.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Stammdaten eines Studenten, über die der Import Studenten ohne ID wiedererkennt.
+ *
+ * @param studentenId die ID des Studenten
+ * @param gruppeId    die ID der Gruppe des Studenten
+ * @param name        der Nachname
+ * @param vorname     der Vorname
+ * @param gruppeSeit  der Beginn der Zugehörigkeit zur Gruppe oder null für "seit jeher"
+ */
+public record StudentenStamm(Integer studentenId, Integer gruppeId, String name, String vorname,
+                             LocalDate gruppeSeit) {
+}
@@ -0,0 +1,231 @@
+package com.art.erfassung.dto;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Unveränderliche Präfixsummen der Erfassungen eines Studenten über seine erfassten Tage.
+ * <p>
+ * Die Tage sind aufsteigend als Epochentage gespeichert. Zeile {@code i} der Summen enthält je Status die Anzahl
+ * der Erfassungen an den ersten {@code i} Tagen; für Status, bei denen Verspätungen vorkommen, zusätzlich die
+ * Anzahl der Verspätungen und die Summe der Verspätungsminuten. Die Werte eines beliebigen Zeitraums ergeben sich
+ * aus zwei binären Suchen nach den Grenzen und der Differenz zweier Zeilen, unabhängig von der Länge des
+ * Zeitraums. Ein Schuljahr mit drei Status ohne Verspätungen belegt etwa 3 KB.
+ * </p>
+ * <p>
+ * Änderungen erzeugen über {@link #mitTagen} ein neues Objekt; bestehende Objekte können deshalb ohne Sperre
+ * gelesen werden.
+ * </p>
+ */
+public final class StudentenVerlauf {
+
+    /**
+     * Verlauf eines Studenten ohne Erfassungen.
+     */
+    public static final StudentenVerlauf LEER = new StudentenVerlauf(new int[0], new int[0], new String[0],
+            new int[0], 0, new int[0]);
+
+    // Erfasste Tage als Epochentage, aufsteigend
+    private final int[] tage;
+    // Status-ID und Bezeichnung je Statuscode, nach Status-ID sortiert
+    private final int[] statusIds;
+    private final String[] bezeichnungen;
+    // Spalte der Verspätungen je Statuscode oder -1; die Minuten stehen in der folgenden Spalte
+    private final int[] verspaetungSpalte;
+    // Anzahl der Spalten je Zeile
+    private final int breite;
+    // Präfixsummen, (tage.length + 1) Zeilen zu je breite Spalten; Zeile 0 ist leer
+    private final int[] summen;
+
+    private StudentenVerlauf(int[] tage, int[] statusIds, String[] bezeichnungen, int[] verspaetungSpalte,
+                             int breite, int[] summen) {
+        this.tage = tage;
+        this.statusIds = statusIds;
+        this.bezeichnungen = bezeichnungen;
+        this.verspaetungSpalte = verspaetungSpalte;
+        this.breite = breite;
+        this.summen = summen;
+    }
+
+    /**
+     * Berechnet die Präfixsummen aus den Erfassungen eines Studenten in beliebiger Reihenfolge.
+     * <p>
+     * Kommt ein Tag mehrfach vor, gilt der letzte Eintrag.
+     * </p>
+     *
+     * @param tage          die Tage als Epochentage
+     * @param statusIds     die Status-ID je Tag
+     * @param minuten       die Verspätung in Minuten je Tag, 0 falls keine
+     * @param anzahl        die Anzahl der gültigen Einträge in den Arrays
+     * @param bezeichnungen liefert die Bezeichnung zu einer Status-ID
+     * @return der berechnete Verlauf
+     */
+    public static StudentenVerlauf aufbauen(int[] tage, int[] statusIds, int[] minuten, int anzahl,
+                                            IntFunction<String> bezeichnungen) {
+        if (anzahl == 0) {
+            return LEER;
+        }
+        // Nach Tag sortieren; bei gleichem Tag bleibt die Reihenfolge der Einträge erhalten
+        Integer[] reihenfolge = new Integer[anzahl];
+        for (int i = 0; i < anzahl; i++) {
+            reihenfolge[i] = i;
+        }
+        Arrays.sort(reihenfolge, (a, b) -> Integer.compare(tage[a], tage[b]));
+        int[] sortierteTage = new int[anzahl];
+        int[] eintragJeTag = new int[anzahl];
+        int n = 0;
+        for (int i = 0; i < anzahl; i++) {
+            int eintrag = reihenfolge[i];
+            if (n > 0 && sortierteTage[n - 1] == tage[eintrag]) {
+                eintragJeTag[n - 1] = eintrag;
+            } else {
+                sortierteTage[n] = tage[eintrag];
+                eintragJeTag[n++] = eintrag;
+            }
+        }
+
+        int[] codes = new int[n];
+        int[] vorkommendeStatus = new int[n];
+        for (int i = 0; i < n; i++) {
+            vorkommendeStatus[i] = statusIds[eintragJeTag[i]];
+        }
+        int[] ids = Arrays.stream(vorkommendeStatus).distinct().sorted().toArray();
+        boolean[] mitVerspaetung = new boolean[ids.length];
+        for (int i = 0; i < n; i++) {
+            codes[i] = Arrays.binarySearch(ids, vorkommendeStatus[i]);
+            if (minuten[eintragJeTag[i]] > 0) {
+                mitVerspaetung[codes[i]] = true;
+            }
+        }
+        int[] verspaetungSpalte = new int[ids.length];
+        int breite = ids.length;
+        for (int code = 0; code < ids.length; code++) {
+            verspaetungSpalte[code] = mitVerspaetung[code] ? breite : -1;
+            breite += mitVerspaetung[code] ? 2 : 0;
+        }
+        String[] namen = new String[ids.length];
+        for (int code = 0; code < ids.length; code++) {
+            namen[code] = bezeichnungen.apply(ids[code]);
+        }
+
+        int[] summen = new int[(n + 1) * breite];
+        for (int i = 0; i < n; i++) {
+            int zeile = (i + 1) * breite;
+            System.arraycopy(summen, i * breite, summen, zeile, breite);
+            summen[zeile + codes[i]]++;
+            int spalte = verspaetungSpalte[codes[i]];
+            int verspaetung = minuten[eintragJeTag[i]];
+            if (spalte >= 0 && verspaetung > 0) {
+                summen[zeile + spalte]++;
+                summen[zeile + spalte + 1] += verspaetung;
+            }
+        }
+        return new StudentenVerlauf(Arrays.copyOf(sortierteTage, n), ids, namen, verspaetungSpalte, breite, summen);
+    }
+
+    /**
+     * Liefert einen Verlauf, in dem die angegebenen Tage den angegebenen Status und die angegebene Verspätung haben.
+     * <p>
+     * Die Präfixsummen werden neu berechnet; der Aufwand ist linear in der Zahl der Tage und wird je Schreibvorgang
+     * einmal für alle Tage des Studenten aufgebracht.
+     * </p>
+     *
+     * @param neueTage      die Tage als Epochentage
+     * @param neueStatusIds die ID des neuen Status je Tag
+     * @param neueMinuten   die Verspätung in Minuten je Tag, 0 falls keine
+     * @param anzahl        die Anzahl der gültigen Einträge in den Arrays
+     * @param bezeichnungen liefert die Bezeichnung zu einer neuen Status-ID
+     * @return der geänderte Verlauf
+     */
+    public StudentenVerlauf mitTagen(int[] neueTage, int[] neueStatusIds, int[] neueMinuten, int anzahl,
+                                     IntFunction<String> bezeichnungen) {
+        int n = tage.length;
+        int[] alleTage = Arrays.copyOf(tage, n + anzahl);
+        int[] alleStatusIds = new int[n + anzahl];
+        int[] alleMinuten = new int[n + anzahl];
+        for (int i = 0; i < n; i++) {
+            int code = code(i);
+            alleStatusIds[i] = statusIds[code];
+            int spalte = verspaetungSpalte[code];
+            alleMinuten[i] = spalte < 0 ? 0 : summen[(i + 1) * breite + spalte + 1] - summen[i * breite + spalte + 1];
+        }
+        // Die neuen Einträge stehen zuletzt und ersetzen beim Aufbau vorhandene Einträge derselben Tage.
+        System.arraycopy(neueTage, 0, alleTage, n, anzahl);
+        System.arraycopy(neueStatusIds, 0, alleStatusIds, n, anzahl);
+        System.arraycopy(neueMinuten, 0, alleMinuten, n, anzahl);
+        return aufbauen(alleTage, alleStatusIds, alleMinuten, n + anzahl, id -> {
+            int code = Arrays.binarySearch(statusIds, id);
+            return code >= 0 ? this.bezeichnungen[code] : bezeichnungen.apply(id);
+        });
+    }
+
+    private int code(int tag) {
+        int zeile = (tag + 1) * breite;
+        for (int code = 0; code < statusIds.length; code++) {
+            if (summen[zeile + code] != summen[zeile - breite + code]) {
+                return code;
+            }
+        }
+        throw new IllegalStateException("Tag " + tag + " ohne Status");
+    }
+
+    /**
+     * Zählt die Erfassungen eines Zeitraums je Status.
+     *
+     * @param von das Startdatum (inklusive) oder null für unbegrenzt
+     * @param bis das Enddatum (inklusive) oder null für unbegrenzt
+     * @return je im Zeitraum vorkommendem Status eine {@link StatusAnzahl}, nach Status-ID sortiert
+     */
+    public List<StatusAnzahl> statusAnzahlen(LocalDate von, LocalDate bis) {
+        int erster = von == null ? 0 : grenze(Math.toIntExact(von.toEpochDay()));
+        int ende = bis == null ? tage.length : grenze(Math.toIntExact(bis.toEpochDay()) + 1);
+        if (erster >= ende) {
+            return List.of();
+        }
+        int a = erster * breite;
+        int b = ende * breite;
+        List<StatusAnzahl> statusAnzahlen = new ArrayList<>(statusIds.length);
+        for (int code = 0; code < statusIds.length; code++) {
+            int anzahl = summen[b + code] - summen[a + code];
+            if (anzahl == 0) {
+                continue;
+            }
+            int spalte = verspaetungSpalte[code];
+            statusAnzahlen.add(spalte < 0
+                    ? new StatusAnzahl(bezeichnungen[code], anzahl, 0, 0)
+                    : new StatusAnzahl(bezeichnungen[code], anzahl, summen[b + spalte] - summen[a + spalte],
+                    summen[b + spalte + 1] - summen[a + spalte + 1]));
+        }
+        return statusAnzahlen;
+    }
+
+    /**
+     * Liefert den Index des ersten Tages, der nicht vor dem angegebenen Tag liegt.
+     */
+    private int grenze(int tag) {
+        int index = Arrays.binarySearch(tage, tag);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Gibt die Anzahl der erfassten Tage zurück.
+     *
+     * @return die Anzahl der Tage
+     */
+    public int tage() {
+        return tage.length;
+    }
+
+    /**
+     * Schätzt den Speicherbedarf des Verlaufs.
+     *
+     * @return der geschätzte Speicherbedarf in Bytes ohne die geteilten Bezeichnungen
+     */
+    public long speicherBytes() {
+        return 40 + 16 + 4L * tage.length + 16 + 4L * summen.length + 2 * (16 + 4L * statusIds.length)
+                + 16 + 8L * bezeichnungen.length;
+    }
+}
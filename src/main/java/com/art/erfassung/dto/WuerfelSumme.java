@@ -0,0 +1,38 @@
+package com.art.erfassung.dto;
+
+/**
+ * Projektion der Zellen des Anwesenheitswürfels, summiert über die Monate eines Zeitraums.
+ * <p>
+ * Wird direkt aus einer JPQL-Konstruktorabfrage befüllt; je Gruppe, Wochentag und Status wird eine Zeile
+ * übertragen, unabhängig davon, wie viele Erfassungen der Zeitraum enthält.
+ * </p>
+ *
+ * @param gruppeId           die ID der Gruppe
+ * @param wochentag          der ISO-Wochentag (1 = Montag)
+ * @param statusId           die ID des Status
+ * @param anzahl             die Anzahl der Erfassungen
+ * @param verspaetungen      die Anzahl dieser Erfassungen mit einer Verspätung größer 0
+ * @param verspaetungMinuten die Summe der Verspätungsminuten dieser Erfassungen
+ */
+public record WuerfelSumme(Integer gruppeId, Integer wochentag, Integer statusId, long anzahl, long verspaetungen,
+                           long verspaetungMinuten) {
+
+    /**
+     * Konstruktor für JPQL-Konstruktorausdrücke, deren Summen je nach Datenbank als unterschiedliche
+     * {@link Number}-Typen geliefert werden.
+     *
+     * @param gruppeId           die ID der Gruppe
+     * @param wochentag          der ISO-Wochentag
+     * @param statusId           die ID des Status
+     * @param anzahl             die Anzahl der Erfassungen
+     * @param verspaetungen      die Anzahl der Verspätungen
+     * @param verspaetungMinuten die Summe der Verspätungsminuten
+     */
+    public WuerfelSumme(Integer gruppeId, Integer wochentag, Integer statusId, Number anzahl, Number verspaetungen,
+                        Number verspaetungMinuten) {
+        this(gruppeId, wochentag, statusId,
+                anzahl == null ? 0L : anzahl.longValue(),
+                verspaetungen == null ? 0L : verspaetungen.longValue(),
+                verspaetungMinuten == null ? 0L : verspaetungMinuten.longValue());
+    }
+}
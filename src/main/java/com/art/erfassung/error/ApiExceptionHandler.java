@@ -0,0 +1,123 @@
+package com.art.erfassung.error;
+
+import com.art.erfassung.controller.CheckinApiController;
+import com.art.erfassung.controller.ErfassungApiController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Exception Handler für die JSON-Schnittstellen.
+ * <p>
+ * Beantwortet Fehler der REST-Controller als Problem Details (RFC 9457) statt mit der Fehlerseite des
+ * {@link GlobalExceptionHandler}. Er hat daher Vorrang vor diesem und gilt nur für die REST-Controller.
+ * </p>
+ */
+@RestControllerAdvice(assignableTypes = {ErfassungApiController.class, CheckinApiController.class})
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ApiExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+    /**
+     * Behandelt ungültige Anfragen, deren Inhalt die Bean Validation nicht besteht.
+     *
+     * @param ex die ausgelöste MethodArgumentNotValidException
+     * @return Problem Details mit den fehlerhaften Feldern unter "fehler"
+     */
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ProblemDetail handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        List<String> fehler = ex.getBindingResult().getFieldErrors().stream()
+                .map(ApiExceptionHandler::beschreiben)
+                .toList();
+        logger.warn("Ungültige API-Anfrage: {}", fehler);
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "Die Anfrage ist ungültig.");
+        problem.setProperty("fehler", fehler);
+        return problem;
+    }
+
+    private static String beschreiben(FieldError fehler) {
+        return fehler.getField() + ": " + fehler.getDefaultMessage();
+    }
+
+    /**
+     * Behandelt Anfragen mit fehlerhaftem JSON, fehlenden oder ungültigen Parametern.
+     *
+     * @param ex die ausgelöste Exception
+     * @return Problem Details mit Status 400
+     */
+    @ExceptionHandler({HttpMessageNotReadableException.class, MissingServletRequestParameterException.class,
+            MethodArgumentTypeMismatchException.class})
+    public ProblemDetail handleUnlesbareAnfrage(Exception ex) {
+        logger.warn("Nicht lesbare API-Anfrage: {}", ex.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, "Die Anfrage konnte nicht gelesen werden.");
+    }
+
+    /**
+     * Behandelt NoSuchElementException - gesuchte Ressourcen nicht gefunden.
+     *
+     * @param ex die ausgelöste NoSuchElementException
+     * @return Problem Details mit Status 404
+     */
+    @ExceptionHandler(NoSuchElementException.class)
+    public ProblemDetail handleNoSuchElementException(NoSuchElementException ex) {
+        logger.warn("Ressource nicht gefunden: {}", ex.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
+    /**
+     * Behandelt ErfassungAusgelastetException - die Anfrage kann derzeit nicht angenommen werden.
+     *
+     * @param ex die ausgelöste ErfassungAusgelastetException
+     * @return Problem Details mit Status 503 und dem Header Retry-After
+     */
+    @ExceptionHandler(ErfassungAusgelastetException.class)
+    public ResponseEntity<ProblemDetail> handleErfassungAusgelastetException(ErfassungAusgelastetException ex) {
+        logger.warn("API-Anfrage abgelehnt: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage()));
+    }
+
+    /**
+     * Behandelt DataAccessException - Datenbankfehler.
+     *
+     * @param ex die ausgelöste DataAccessException
+     * @return Problem Details mit Status 503
+     */
+    @ExceptionHandler(DataAccessException.class)
+    public ProblemDetail handleDataAccessException(DataAccessException ex) {
+        logger.error("Datenbankfehler: {}", ex.getMessage(), ex);
+        return ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE,
+                "Ein Datenbankfehler ist aufgetreten. Bitte versuchen Sie es später erneut.");
+    }
+
+    /**
+     * Behandelt alle weiteren, unerwarteten Exceptions.
+     *
+     * @param ex die ausgelöste Exception
+     * @return Problem Details mit Status 500
+     */
+    @ExceptionHandler(Exception.class)
+    public ProblemDetail handleException(Exception ex) {
+        logger.error("Ein unerwarteter Fehler ist aufgetreten: {}", ex.getMessage(), ex);
+        return ProblemDetail.forStatusAndDetail(HttpStatus.INTERNAL_SERVER_ERROR,
+                "Ein unerwarteter Fehler ist aufgetreten. Bitte kontaktieren Sie den Administrator.");
+    }
+}
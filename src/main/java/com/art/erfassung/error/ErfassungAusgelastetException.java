@@ -0,0 +1,14 @@
+package com.art.erfassung.error;
+
+/**
+ * Wird ausgelöst, wenn eine Einreichung wegen einer vollen Warteschlange nicht angenommen werden kann.
+ * <p>
+ * Der Benutzer kann das Formular nach kurzer Zeit erneut senden.
+ * </p>
+ */
+public class ErfassungAusgelastetException extends IllegalStateException {
+
+    public ErfassungAusgelastetException(String message) {
+        super(message);
+    }
+}
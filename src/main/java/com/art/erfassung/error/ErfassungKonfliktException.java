@@ -0,0 +1,24 @@
+package com.art.erfassung.error;
+
+import java.util.List;
+
+/**
+ * Wird ausgelöst, wenn Erfassungen seit dem Laden des Formulars von jemand anderem geändert wurden.
+ * <p>
+ * Enthält die IDs der betroffenen Studenten, damit sie dem Benutzer angezeigt werden können. Es wurde
+ * keine Erfassung des Formulars gespeichert.
+ * </p>
+ */
+public class ErfassungKonfliktException extends RuntimeException {
+
+    private final List<Integer> studentenIds;
+
+    public ErfassungKonfliktException(List<Integer> studentenIds) {
+        super("Erfassungen wurden zwischenzeitlich geändert (Studenten-IDs " + studentenIds + ")");
+        this.studentenIds = List.copyOf(studentenIds);
+    }
+
+    public List<Integer> getStudentenIds() {
+        return studentenIds;
+    }
+}
@@ -10,7 +10,6 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
-import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.format.DateTimeParseException;
 import java.util.NoSuchElementException;
@@ -143,18 +142,4 @@ public class GlobalExceptionHandler {
         model.addAttribute("errorType", "internal");
         return "error";
     }
-
-    /**
-     * Behandelt Exceptions in Redirect-Szenarien (z.B. nach Formular-Submission).
-     *
-     * @param ex die ausgelöste Exception
-     * @param redirectAttributes Redirect-Attribute für Flash-Messages
-     * @return Redirect-String zur vorherigen Seite
-     */
-    @ExceptionHandler({IllegalArgumentException.class, DateTimeParseException.class})
-    public String handleRedirectExceptions(Exception ex, RedirectAttributes redirectAttributes) {
-        logger.warn("Fehler bei Redirect: {}", ex.getMessage());
-        redirectAttributes.addFlashAttribute("errorMessage", "Fehler: " + ex.getMessage());
-        return "redirect:/gruppen";
-    }
 }
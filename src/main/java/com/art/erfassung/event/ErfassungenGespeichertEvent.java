@@ -0,0 +1,15 @@
+package com.art.erfassung.event;
+
+import java.util.List;
+
+/**
+ * Ereignis, das nach dem Speichern von Erfassungen innerhalb derselben Transaktion veröffentlicht wird.
+ * <p>
+ * Listener, die mit {@code @EventListener} registriert sind, laufen synchron in der Transaktion des
+ * Schreibvorgangs; ihre Änderungen werden also gemeinsam mit den Erfassungen festgeschrieben oder verworfen.
+ * </p>
+ *
+ * @param aenderungen die Änderungen aller gespeicherten Erfassungen
+ */
+public record ErfassungenGespeichertEvent(List<ErfassungsAenderung> aenderungen) {
+}
@@ -0,0 +1,40 @@
+package com.art.erfassung.event;
+
+import java.time.LocalDate;
+
+/**
+ * Beschreibt die Änderung einer einzelnen Erfassung durch einen Schreibvorgang.
+ * <p>
+ * Enthält den Zustand vor und nach dem Speichern, damit abgeleitete Daten wie die Anwesenheitszähler
+ * inkrementell angepasst werden können, ohne die Historie eines Studenten erneut zu lesen.
+ * Für neu angelegte Erfassungen ist {@code alterStatusId} null. An erfassten Tagen der sparsamen Speicherung
+ * ({@link com.art.erfassung.model.ErfassungsTag}) gilt für Studenten ohne Zeile der Zustand "Anwesend"; er
+ * erscheint als alter bzw. neuer Zustand, wenn eine Zeile angelegt bzw. gelöscht wird.
+ * </p>
+ *
+ * @param studentenId            die ID des Studenten
+ * @param gruppeId               die ID der Gruppe des Studenten
+ * @param datum                  das Datum der Erfassung
+ * @param alterStatusId          die Status-ID vor der Änderung oder null bei einer neuen Erfassung
+ * @param alteVerspaetungMinuten die Verspätung in Minuten vor der Änderung (0 falls keine)
+ * @param neuerStatusId          die Status-ID nach der Änderung
+ * @param neueVerspaetungMinuten die Verspätung in Minuten nach der Änderung (0 falls keine)
+ */
+public record ErfassungsAenderung(
+        Integer studentenId,
+        Integer gruppeId,
+        LocalDate datum,
+        Integer alterStatusId,
+        int alteVerspaetungMinuten,
+        Integer neuerStatusId,
+        int neueVerspaetungMinuten) {
+
+    /**
+     * Gibt an, ob die Erfassung durch die Änderung neu angelegt wurde.
+     *
+     * @return {@code true}, falls vorher keine Erfassung existierte
+     */
+    public boolean istNeu() {
+        return alterStatusId == null;
+    }
+}
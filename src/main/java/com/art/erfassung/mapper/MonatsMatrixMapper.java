@@ -0,0 +1,116 @@
+package com.art.erfassung.mapper;
+
+import com.art.erfassung.dto.ErfassungListeDTO;
+import com.art.erfassung.dto.GruppenMonat;
+import com.art.erfassung.dto.MonatsMatrix;
+import com.art.erfassung.dto.RosterEintrag;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapper-Klasse zum Aufbau einer {@link MonatsMatrix} aus Studenten und Erfassungen.
+ * <p>
+ * Die Erfassungen werden in einem einzigen Durchlauf über einen Index von Studenten-ID auf
+ * Zeilennummer in die Matrix einsortiert. Der Aufwand beträgt damit O(Erfassungen + Studenten × Tage).
+ * </p>
+ */
+@Component
+public class MonatsMatrixMapper {
+
+    /**
+     * Baut die Monatsmatrix für die übergebenen Studenten auf.
+     * <p>
+     * Erfassungen außerhalb des Monats oder von Studenten, die nicht in der Liste enthalten sind,
+     * werden ignoriert.
+     * </p>
+     *
+     * @param studenten   die Studenten der Gruppe in der gewünschten Anzeigereihenfolge
+     * @param erfassungen die Erfassungen der Gruppe im Monat
+     * @param monat       der darzustellende Monat
+     * @return die aufgebaute {@link MonatsMatrix}
+     */
+    public MonatsMatrix toMatrix(List<RosterEintrag> studenten, List<ErfassungListeDTO> erfassungen, YearMonth monat) {
+        int tage = monat.lengthOfMonth();
+        Map<Integer, Integer> zeileByStudent = new HashMap<>();
+        int[][] statusIds = new int[studenten.size()][tage];
+        for (int i = 0; i < studenten.size(); i++) {
+            zeileByStudent.put(studenten.get(i).studentenId(), i);
+        }
+
+        Map<Integer, String> statusKlassen = new HashMap<>();
+        for (ErfassungListeDTO erfassung : erfassungen) {
+            Integer zeile = zeileByStudent.get(erfassung.getStudentenId());
+            if (zeile == null || !YearMonth.from(erfassung.getDatum()).equals(monat)) {
+                continue;
+            }
+            int statusId = erfassung.getStatusId();
+            statusIds[zeile][erfassung.getDatum().getDayOfMonth() - 1] = statusId;
+            if (!statusKlassen.containsKey(statusId)) {
+                statusKlassen.put(statusId, klasse(erfassung.getStatusBezeichnung()));
+            }
+        }
+
+        List<MonatsMatrix.Zeile> zeilen = new ArrayList<>(studenten.size());
+        for (int i = 0; i < studenten.size(); i++) {
+            RosterEintrag student = studenten.get(i);
+            zeilen.add(new MonatsMatrix.Zeile(student.studentenId(), student.anzeigeName(), statusIds[i]));
+        }
+        return new MonatsMatrix(monat, zeilen, statusKlassen);
+    }
+
+    /**
+     * Baut die Monatsmatrix für die übergebenen Studenten aus einem kodierten {@link GruppenMonat} auf.
+     * <p>
+     * Studenten ohne Erfassung im Monat erhalten eine leere Zeile. Der Aufwand beträgt O(Studenten × Tage)
+     * ohne Zugriff auf einzelne Erfassungen.
+     * </p>
+     *
+     * @param studenten    die Studenten der Gruppe in der gewünschten Anzeigereihenfolge
+     * @param gruppenMonat die kodierten Erfassungen der Gruppe im Monat
+     * @return die aufgebaute {@link MonatsMatrix}
+     */
+    public MonatsMatrix toMatrix(List<RosterEintrag> studenten, GruppenMonat gruppenMonat) {
+        YearMonth monat = gruppenMonat.getMonat();
+        int tage = monat.lengthOfMonth();
+        List<MonatsMatrix.Zeile> zeilen = new ArrayList<>(studenten.size());
+        for (RosterEintrag student : studenten) {
+            int[] statusIds = new int[tage];
+            int zeile = gruppenMonat.zeile(student.studentenId());
+            if (zeile >= 0) {
+                for (int tag = 1; tag <= tage; tag++) {
+                    statusIds[tag - 1] = gruppenMonat.statusId(zeile, tag);
+                }
+            }
+            zeilen.add(new MonatsMatrix.Zeile(student.studentenId(), student.anzeigeName(), statusIds));
+        }
+
+        Map<Integer, String> statusKlassen = new HashMap<>();
+        gruppenMonat.statusBezeichnungen().forEach((statusId, bezeichnung) ->
+                statusKlassen.put(statusId, klasse(bezeichnung)));
+        return new MonatsMatrix(monat, zeilen, statusKlassen);
+    }
+
+    /**
+     * Ermittelt die CSS-Klasse für eine Statusbezeichnung.
+     *
+     * @param bezeichnung die Bezeichnung des Status
+     * @return die CSS-Klasse für die Statusanzeige
+     */
+    static String klasse(String bezeichnung) {
+        if (bezeichnung == null) {
+            return "";
+        }
+        return switch (bezeichnung) {
+            case "Anwesend" -> "status-anwesend";
+            case "Entschuldigt" -> "status-entschuldigt";
+            case "Unentschuldigt" -> "status-unentschuldigt";
+            case "Krank", "Krankmeldung" -> "status-krank";
+            default -> "";
+        };
+    }
+}
@@ -4,6 +4,9 @@ import com.art.erfassung.dto.StatistikDTO;
 import com.art.erfassung.service.StatistikService.StatistikErgebnis;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * Mapper-Klasse zur Konvertierung zwischen StatistikErgebnis-Records und StatistikDTO-Objekten.
  * <p>
@@ -44,7 +47,24 @@ public class StatistikMapper {
         dto.setUnentschuldigt(ergebnis.unentschuldigt());
         dto.setKrank(ergebnis.krank());
         dto.setVerspaetungen(ergebnis.verspaetungen());
+        dto.setVerspaetungMinuten(ergebnis.verspaetungMinuten());
+        dto.setVerspaetungMinutenDurchschnitt(ergebnis.verspaetungMinutenDurchschnitt());
         
         return dto;
     }
-}
\ No newline at end of file
+
+    /**
+     * Konvertiert eine Liste von StatistikErgebnis-Records in eine Liste von StatistikDTO-Objekten.
+     *
+     * @param ergebnisse die Liste der zu konvertierenden StatistikErgebnis-Records
+     * @return die Liste der resultierenden StatistikDTO-Objekte
+     */
+    public List<StatistikDTO> toDTOList(List<StatistikErgebnis> ergebnisse) {
+        if (ergebnisse == null) {
+            return null;
+        }
+        return ergebnisse.stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,116 @@
+package com.art.erfassung.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDate;
+
+/**
+ * Entität zur Darstellung einer Zelle des Anwesenheitswürfels.
+ * <p>
+ * Diese Klasse bildet die Tabelle "anwesenheit_wuerfel" in der Datenbank ab. Pro Gruppe, Monat, Wochentag und
+ * Status wird die Anzahl der Erfassungen sowie die Anzahl und Summe der Verspätungen geführt. Die Übersicht
+ * unter "/statistik" summiert nur diese Zellen; ihr Aufwand hängt so von der Zahl der Gruppen und Monate im
+ * gewählten Zeitraum ab, nicht von der Zahl der Erfassungen. Die Zellen werden beim Speichern von Erfassungen
+ * in derselben Transaktion fortgeschrieben und können jederzeit aus der Tabelle "erfassung" neu aufgebaut werden.
+ * </p>
+ * <p>
+ * Wie beim {@link AnwesenheitZaehler} meldet die Entität über {@link Persistable#isNew()} selbst, ob sie neu ist.
+ * </p>
+ */
+@Entity
+@Table(name = "anwesenheit_wuerfel", indexes = {
+        @Index(name = "idx_anwesenheit_wuerfel_monat", columnList = "monat")
+})
+public class AnwesenheitWuerfel implements Persistable<AnwesenheitWuerfelId> {
+
+    @EmbeddedId
+    private AnwesenheitWuerfelId id;
+
+    @Column(name = "anzahl", nullable = false)
+    private long anzahl;
+
+    @Column(name = "verspaetungen", nullable = false)
+    private long verspaetungen;
+
+    @Column(name = "verspaetung_minuten", nullable = false)
+    private long verspaetungMinuten;
+
+    @Transient
+    private boolean neu;
+
+    public AnwesenheitWuerfel() {}
+
+    public AnwesenheitWuerfel(AnwesenheitWuerfelId id) {
+        this.id = id;
+        this.neu = true;
+    }
+
+    /**
+     * Konstruktor für JPQL-Konstruktorausdrücke, die die Erfassungen einer Gruppe je Tag und Status zählen.
+     * Monat und Wochentag werden aus dem Datum gebildet.
+     *
+     * @param gruppeId           die ID der Gruppe
+     * @param datum              das Datum der Erfassungen
+     * @param statusId           die ID des Status
+     * @param anzahl             Ergebnis von {@code count}
+     * @param verspaetungen      Anzahl der Erfassungen mit Verspätung
+     * @param verspaetungMinuten Summe der Verspätungsminuten, null falls keine vorhanden
+     */
+    public AnwesenheitWuerfel(Integer gruppeId, LocalDate datum, Integer statusId, Number anzahl,
+                              Number verspaetungen, Number verspaetungMinuten) {
+        this(AnwesenheitWuerfelId.fuerTag(gruppeId, datum, statusId));
+        this.anzahl = anzahl == null ? 0L : anzahl.longValue();
+        this.verspaetungen = verspaetungen == null ? 0L : verspaetungen.longValue();
+        this.verspaetungMinuten = verspaetungMinuten == null ? 0L : verspaetungMinuten.longValue();
+    }
+
+    @Override
+    public AnwesenheitWuerfelId getId() {return id;}
+    public long getAnzahl() {return anzahl;}
+    public long getVerspaetungen() {return verspaetungen;}
+    public long getVerspaetungMinuten() {return verspaetungMinuten;}
+
+    @Override
+    public boolean isNew() {return neu;}
+
+    @PostLoad
+    @PrePersist
+    void alsGespeichertMarkieren() {
+        this.neu = false;
+    }
+
+    /**
+     * Gibt an, ob die Zelle mit dem Stand einer anderen Zelle übereinstimmt.
+     *
+     * @param andere die zu vergleichende Zelle
+     * @return {@code true}, falls Anzahl, Verspätungen und Verspätungsminuten gleich sind
+     */
+    public boolean gleicherStand(AnwesenheitWuerfel andere) {
+        return anzahl == andere.anzahl
+                && verspaetungen == andere.verspaetungen
+                && verspaetungMinuten == andere.verspaetungMinuten;
+    }
+
+    /**
+     * Gibt an, ob alle Werte der Zelle 0 sind.
+     *
+     * @return {@code true}, falls die Zelle keine Erfassung mehr zählt
+     */
+    public boolean istLeer() {
+        return anzahl == 0 && verspaetungen == 0 && verspaetungMinuten == 0;
+    }
+
+    /**
+     * Addiert die Differenzen einer oder mehrerer Erfassungsänderungen auf die Werte der Zelle.
+     *
+     * @param anzahl             Differenz der Anzahl der Erfassungen
+     * @param verspaetungen      Differenz der Anzahl der Verspätungen
+     * @param verspaetungMinuten Differenz der Verspätungsminuten
+     */
+    public void addieren(long anzahl, long verspaetungen, long verspaetungMinuten) {
+        this.anzahl += anzahl;
+        this.verspaetungen += verspaetungen;
+        this.verspaetungMinuten += verspaetungMinuten;
+    }
+}
@@ -0,0 +1,69 @@
+package com.art.erfassung.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Zusammengesetzter Schlüssel einer {@link AnwesenheitWuerfel} Zelle aus Gruppe, Monat, Wochentag und Status.
+ * <p>
+ * Der Monat wird als Erster des Monats gespeichert, der Wochentag als ISO-Wochentag (1 = Montag bis 7 = Sonntag).
+ * </p>
+ */
+@Embeddable
+public class AnwesenheitWuerfelId implements Serializable {
+
+    @Column(name = "gruppe_id", nullable = false)
+    private Integer gruppeId;
+
+    @Column(name = "monat", nullable = false)
+    private LocalDate monat;
+
+    @Column(name = "wochentag", nullable = false)
+    private Integer wochentag;
+
+    @Column(name = "status_id", nullable = false)
+    private Integer statusId;
+
+    public AnwesenheitWuerfelId() {}
+
+    public AnwesenheitWuerfelId(Integer gruppeId, LocalDate monat, Integer wochentag, Integer statusId) {
+        this.gruppeId = gruppeId;
+        this.monat = monat;
+        this.wochentag = wochentag;
+        this.statusId = statusId;
+    }
+
+    /**
+     * Bildet den Schlüssel der Zelle, in die eine Erfassung an einem Tag fällt.
+     *
+     * @param gruppeId die ID der Gruppe des Studenten
+     * @param datum    das Datum der Erfassung
+     * @param statusId die ID des Status
+     * @return der Schlüssel mit Monat und Wochentag des Datums
+     */
+    public static AnwesenheitWuerfelId fuerTag(Integer gruppeId, LocalDate datum, Integer statusId) {
+        return new AnwesenheitWuerfelId(gruppeId, datum.withDayOfMonth(1), datum.getDayOfWeek().getValue(), statusId);
+    }
+
+    public Integer getGruppeId() {return gruppeId;}
+    public LocalDate getMonat() {return monat;}
+    public Integer getWochentag() {return wochentag;}
+    public Integer getStatusId() {return statusId;}
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AnwesenheitWuerfelId that)) return false;
+        return Objects.equals(gruppeId, that.gruppeId) && Objects.equals(monat, that.monat)
+                && Objects.equals(wochentag, that.wochentag) && Objects.equals(statusId, that.statusId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gruppeId, monat, wochentag, statusId);
+    }
+}
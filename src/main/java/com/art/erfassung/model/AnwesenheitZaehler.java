@@ -0,0 +1,114 @@
+package com.art.erfassung.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Entität zur Darstellung eines Anwesenheitszählers.
+ * <p>
+ * Diese Klasse bildet die Tabelle "anwesenheit_zaehler" in der Datenbank ab. Pro Student und Status
+ * wird die Anzahl der Erfassungen sowie die Anzahl und Summe der Verspätungen geführt. Die Zähler werden
+ * beim Speichern von Erfassungen in derselben Transaktion fortgeschrieben und können jederzeit aus der
+ * Tabelle "erfassung" neu aufgebaut werden.
+ * </p>
+ * <p>
+ * Da der Schlüssel fachlich vergeben wird, meldet die Entität über {@link Persistable#isNew()} selbst,
+ * ob sie neu ist. So werden neue Zähler direkt eingefügt, ohne vorher per {@code merge} gelesen zu werden.
+ * </p>
+ */
+@Entity
+@Table(name = "anwesenheit_zaehler")
+public class AnwesenheitZaehler implements Persistable<AnwesenheitZaehlerId> {
+
+    @EmbeddedId
+    private AnwesenheitZaehlerId id;
+
+    @Column(name = "anzahl", nullable = false)
+    private long anzahl;
+
+    @Column(name = "verspaetungen", nullable = false)
+    private long verspaetungen;
+
+    @Column(name = "verspaetung_minuten", nullable = false)
+    private long verspaetungMinuten;
+
+    @Transient
+    private boolean neu;
+
+    public AnwesenheitZaehler() {}
+
+    public AnwesenheitZaehler(AnwesenheitZaehlerId id) {
+        this.id = id;
+        this.neu = true;
+    }
+
+    /**
+     * Konstruktor für JPQL-Konstruktorausdrücke, die Zählerstände aus der Tabelle "erfassung" berechnen.
+     *
+     * @param studentenId        die ID des Studenten
+     * @param statusId           die ID des Status
+     * @param anzahl             Ergebnis von {@code count}
+     * @param verspaetungen      Anzahl der Erfassungen mit Verspätung
+     * @param verspaetungMinuten Summe der Verspätungsminuten, null falls keine vorhanden
+     */
+    public AnwesenheitZaehler(Integer studentenId, Integer statusId, Number anzahl, Number verspaetungen,
+                              Number verspaetungMinuten) {
+        this(new AnwesenheitZaehlerId(studentenId, statusId));
+        this.anzahl = anzahl == null ? 0L : anzahl.longValue();
+        this.verspaetungen = verspaetungen == null ? 0L : verspaetungen.longValue();
+        this.verspaetungMinuten = verspaetungMinuten == null ? 0L : verspaetungMinuten.longValue();
+    }
+
+    @Override
+    public AnwesenheitZaehlerId getId() {return id;}
+    public long getAnzahl() {return anzahl;}
+    public long getVerspaetungen() {return verspaetungen;}
+    public long getVerspaetungMinuten() {return verspaetungMinuten;}
+
+    public void setAnzahl(long anzahl) {this.anzahl = anzahl;}
+    public void setVerspaetungen(long verspaetungen) {this.verspaetungen = verspaetungen;}
+    public void setVerspaetungMinuten(long verspaetungMinuten) {this.verspaetungMinuten = verspaetungMinuten;}
+
+    @Override
+    public boolean isNew() {return neu;}
+
+    @PostLoad
+    @PrePersist
+    void alsGespeichertMarkieren() {
+        this.neu = false;
+    }
+
+    /**
+     * Gibt an, ob der Zähler mit dem Stand eines anderen Zählers übereinstimmt.
+     *
+     * @param anderer der zu vergleichende Zähler
+     * @return {@code true}, falls Anzahl, Verspätungen und Verspätungsminuten gleich sind
+     */
+    public boolean gleicherStand(AnwesenheitZaehler anderer) {
+        return anzahl == anderer.anzahl
+                && verspaetungen == anderer.verspaetungen
+                && verspaetungMinuten == anderer.verspaetungMinuten;
+    }
+
+    /**
+     * Gibt an, ob alle Zählerstände 0 sind.
+     *
+     * @return {@code true}, falls der Zähler keine Erfassung mehr zählt
+     */
+    public boolean istLeer() {
+        return anzahl == 0 && verspaetungen == 0 && verspaetungMinuten == 0;
+    }
+
+    /**
+     * Addiert die Differenzen einer oder mehrerer Erfassungsänderungen auf die Zählerstände.
+     *
+     * @param anzahl             Differenz der Anzahl der Erfassungen
+     * @param verspaetungen      Differenz der Anzahl der Verspätungen
+     * @param verspaetungMinuten Differenz der Verspätungsminuten
+     */
+    public void addieren(long anzahl, long verspaetungen, long verspaetungMinuten) {
+        this.anzahl += anzahl;
+        this.verspaetungen += verspaetungen;
+        this.verspaetungMinuten += verspaetungMinuten;
+    }
+}
@@ -0,0 +1,42 @@
+package com.art.erfassung.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Zusammengesetzter Schlüssel eines {@link AnwesenheitZaehler} aus Student und Status.
+ */
+@Embeddable
+public class AnwesenheitZaehlerId implements Serializable {
+
+    @Column(name = "studenten_id", nullable = false)
+    private Integer studentenId;
+
+    @Column(name = "status_id", nullable = false)
+    private Integer statusId;
+
+    public AnwesenheitZaehlerId() {}
+
+    public AnwesenheitZaehlerId(Integer studentenId, Integer statusId) {
+        this.studentenId = studentenId;
+        this.statusId = statusId;
+    }
+
+    public Integer getStudentenId() {return studentenId;}
+    public Integer getStatusId() {return statusId;}
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AnwesenheitZaehlerId that)) return false;
+        return Objects.equals(studentenId, that.studentenId) && Objects.equals(statusId, that.statusId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(studentenId, statusId);
+    }
+}
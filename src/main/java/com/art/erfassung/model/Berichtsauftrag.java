@@ -0,0 +1,165 @@
+package com.art.erfassung.model;
+
+import com.art.erfassung.dto.ExportFormat;
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entität zur Darstellung eines Berichtsauftrags.
+ * <p>
+ * Diese Klasse bildet die Tabelle "berichtsauftrag" in der Datenbank ab. Ein Auftrag beschreibt einen
+ * aufwendigen Bericht, z.B. einen Export über mehrere Monate, der im Hintergrund erstellt wird. Gespeichert
+ * werden die Parameter, der Zustand mit Fortschritt und nach Abschluss der Pfad der Ergebnisdatei samt Ablaufzeit.
+ * </p>
+ * <p>
+ * Der Schlüssel fasst Art und Parameter zusammen. Gleiche Anforderungen werden darüber einem laufenden oder
+ * noch nicht abgelaufenen Auftrag zugeordnet, statt den Bericht erneut zu erstellen.
+ * </p>
+ */
+@Entity
+@Table(name = "berichtsauftrag", indexes = {
+        @Index(name = "idx_berichtsauftrag_schluessel", columnList = "schluessel")
+})
+public class Berichtsauftrag {
+
+    /**
+     * Art des Berichts.
+     */
+    public enum Art {
+        /** Alle Erfassungen des Zeitraums, wie unter "/admin/export". */
+        EXPORT,
+        /** Anwesenheitsstatistik aller Studenten je Gruppe im Zeitraum. */
+        STATISTIK
+    }
+
+    /**
+     * Zustand eines Auftrags.
+     */
+    public enum Zustand {
+        WARTEND, LAEUFT, FERTIG, FEHLER
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "art", nullable = false, length = 20)
+    private Art art;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format", nullable = false, length = 10)
+    private ExportFormat format;
+
+    @Column(name = "von", nullable = false)
+    private LocalDate von;
+
+    @Column(name = "bis", nullable = false)
+    private LocalDate bis;
+
+    @Column(name = "gruppe_id")
+    private Integer gruppeId;
+
+    @Column(name = "schluessel", nullable = false, length = 100)
+    private String schluessel;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "zustand", nullable = false, length = 10)
+    private Zustand zustand;
+
+    @Column(name = "fortschritt", nullable = false)
+    private long fortschritt;
+
+    @Column(name = "datei", length = 500)
+    private String datei;
+
+    @Column(name = "groesse")
+    private Long groesse;
+
+    @Column(name = "fehler", length = 1000)
+    private String fehler;
+
+    @Column(name = "beantragt_von", length = 100)
+    private String beantragtVon;
+
+    @Column(name = "angelegt", nullable = false)
+    private LocalDateTime angelegt;
+
+    @Column(name = "gestartet")
+    private LocalDateTime gestartet;
+
+    @Column(name = "beendet")
+    private LocalDateTime beendet;
+
+    @Column(name = "ablauf")
+    private LocalDateTime ablauf;
+
+    public Berichtsauftrag() {}
+
+    public Berichtsauftrag(Art art, ExportFormat format, LocalDate von, LocalDate bis, Integer gruppeId,
+                           String beantragtVon) {
+        this.art = art;
+        this.format = format;
+        this.von = von;
+        this.bis = bis;
+        this.gruppeId = gruppeId;
+        this.schluessel = schluessel(art, format, von, bis, gruppeId);
+        this.beantragtVon = beantragtVon;
+        this.zustand = Zustand.WARTEND;
+        this.angelegt = LocalDateTime.now();
+    }
+
+    /**
+     * Bildet den Schlüssel, über den gleiche Anforderungen zusammengefasst werden.
+     *
+     * @param art      die Art des Berichts
+     * @param format   das Dateiformat
+     * @param von      das erste Datum des Zeitraums
+     * @param bis      das letzte Datum des Zeitraums
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @return der Schlüssel, z.B. "EXPORT:CSV:2025-01-01:2025-06-30:alle"
+     */
+    public static String schluessel(Art art, ExportFormat format, LocalDate von, LocalDate bis, Integer gruppeId) {
+        return art + ":" + format + ":" + von + ":" + bis + ":" + (gruppeId != null ? gruppeId : "alle");
+    }
+
+    /**
+     * Liefert den Dateinamen für den Download, z.B. "statistik_2025-01-01_2025-06-30.csv".
+     *
+     * @return der Dateiname
+     */
+    public String dateiname() {
+        return (art == Art.EXPORT ? "erfassungen_" : "statistik_") + von + "_" + bis
+                + (gruppeId != null ? "_gruppe" + gruppeId : "") + "." + format.getEndung();
+    }
+
+    public Long getId() { return id; }
+    public Art getArt() { return art; }
+    public ExportFormat getFormat() { return format; }
+    public LocalDate getVon() { return von; }
+    public LocalDate getBis() { return bis; }
+    public Integer getGruppeId() { return gruppeId; }
+    public String getSchluessel() { return schluessel; }
+    public Zustand getZustand() { return zustand; }
+    public long getFortschritt() { return fortschritt; }
+    public String getDatei() { return datei; }
+    public Long getGroesse() { return groesse; }
+    public String getFehler() { return fehler; }
+    public String getBeantragtVon() { return beantragtVon; }
+    public LocalDateTime getAngelegt() { return angelegt; }
+    public LocalDateTime getGestartet() { return gestartet; }
+    public LocalDateTime getBeendet() { return beendet; }
+    public LocalDateTime getAblauf() { return ablauf; }
+
+    public void setZustand(Zustand zustand) { this.zustand = zustand; }
+    public void setFortschritt(long fortschritt) { this.fortschritt = fortschritt; }
+    public void setDatei(String datei) { this.datei = datei; }
+    public void setGroesse(Long groesse) { this.groesse = groesse; }
+    public void setFehler(String fehler) { this.fehler = fehler; }
+    public void setGestartet(LocalDateTime gestartet) { this.gestartet = gestartet; }
+    public void setBeendet(LocalDateTime beendet) { this.beendet = beendet; }
+    public void setAblauf(LocalDateTime ablauf) { this.ablauf = ablauf; }
+}
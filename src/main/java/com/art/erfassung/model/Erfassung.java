@@ -2,21 +2,39 @@ package com.art.erfassung.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDate;
+import java.time.LocalTime;
 
 /**
  * Entität zur Darstellung einer Erfassung.
  * <p>
  * Diese Klasse bildet die Tabelle "erfassung" in der Datenbank ab. Sie speichert Informationen
  * zu einer Erfassung, die einem Studenten an einem bestimmten Datum zugeordnet ist und einen
- * bestimmten Status sowie einen optionalen Kommentar beinhaltet.
+ * bestimmten Status sowie einen optionalen Kommentar beinhaltet. Ankunftszeit und Verspätung in Minuten
+ * werden als eigene Spalten geführt, damit Verspätungsstatistiken in der Datenbank berechnet werden können.
+ * </p>
+ * <p>
+ * Die Spalte "version" dient der optimistischen Sperre: Hibernate erhöht sie bei jeder Änderung, und das
+ * Anwesenheitsformular erkennt daran zwischenzeitliche Änderungen anderer Benutzer.
+ * </p>
+ * <p>
+ * Je Student und Datum gibt es höchstens eine Erfassung; der eindeutige Schlüssel
+ * "uk_erfassung_studenten_datum" verhindert doppelte Zeilen auch bei gleichzeitigem Speichern.
+ * Der Index "idx_erfassung_datum_studenten" dient Abfragen nach einem Datum, etwa beim Massenimport.
  * </p>
  */
 @Entity
-@Table(name = "erfassung")
+@Table(name = "erfassung", indexes = {
+        @Index(name = "idx_erfassung_studenten_verspaetung", columnList = "studenten_id, verspaetung_minuten"),
+        @Index(name = "idx_erfassung_datum_studenten", columnList = "datum, studenten_id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_erfassung_studenten_datum", columnNames = {"studenten_id", "datum"})
+})
 public class Erfassung {
 
+    // Sequenz mit Pooled-Optimizer statt IDENTITY, damit Hibernate Inserts per JDBC-Batch senden kann.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "erfassung_seq")
+    @SequenceGenerator(name = "erfassung_seq", sequenceName = "erfassung_seq", allocationSize = 50)
     @Column(name = "id", nullable = false)
     private Integer id;
 
@@ -34,6 +52,23 @@ public class Erfassung {
     @Column(name = "kommentar")
     private String kommentar;
 
+    @Column(name = "ankunftszeit")
+    private LocalTime ankunftszeit;
+
+    @Column(name = "verspaetung_minuten")
+    private Integer verspaetungMinuten;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
+    // Zuletzt gespeicherter Zustand, aus dem beim Speichern die Änderung für abgeleitete Daten bestimmt wird
+    @Transient
+    private Status gespeicherterStatus;
+
+    @Transient
+    private Integer gespeicherteVerspaetungMinuten;
+
     public Erfassung() {}
 
     public Erfassung(Studenten student, LocalDate datum, Status status, String kommentar) {
@@ -48,10 +83,30 @@ public class Erfassung {
     public Status getStatus() {return status;}
     public LocalDate getDatum() {return datum;}
     public String getKommentar() {return kommentar;}
+    public LocalTime getAnkunftszeit() {return ankunftszeit;}
+    public Integer getVerspaetungMinuten() {return verspaetungMinuten;}
+    public Integer getVersion() {return version;}
+    public Status getGespeicherterStatus() {return gespeicherterStatus;}
+    public Integer getGespeicherteVerspaetungMinuten() {return gespeicherteVerspaetungMinuten;}
 
     public void setStudenten(Studenten studenten) {this.studenten = studenten;}
     public void setDatum(LocalDate datum) {this.datum = datum;}
     public void setStatus(Status status) {this.status = status;}
     public void setKommentar(String kommentar) {this.kommentar = kommentar;}
+    public void setAnkunftszeit(LocalTime ankunftszeit) {this.ankunftszeit = ankunftszeit;}
+    public void setVerspaetungMinuten(Integer verspaetungMinuten) {this.verspaetungMinuten = verspaetungMinuten;}
+
+    /**
+     * Merkt sich Status und Verspätung als zuletzt gespeicherten Zustand.
+     * <p>
+     * Wird beim Laden aus der Datenbank sowie nach jedem Speichern über den ErfassungService aufgerufen.
+     * Eine Erfassung ohne gespeicherten Status ist neu.
+     * </p>
+     */
+    @PostLoad
+    public void gespeichertenZustandMerken() {
+        this.gespeicherterStatus = status;
+        this.gespeicherteVerspaetungMinuten = verspaetungMinuten;
+    }
 
 }
@@ -0,0 +1,56 @@
+package com.art.erfassung.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entität zur Darstellung eines erfassten Tages einer Gruppe.
+ * <p>
+ * Diese Klasse bildet die Tabelle "erfassungstag" in der Datenbank ab. Ein Eintrag markiert, dass die
+ * Anwesenheit einer Gruppe an einem Tag abgegeben wurde. In der sparsamen Speicherung
+ * ("erfassung.speicherung.sparsam") werden nur Abweichungen als {@link Erfassung} gespeichert; für jeden
+ * Studenten der Gruppe ohne Erfassung an einem markierten Tag gilt "Anwesend" ohne Kommentar und ohne
+ * Ankunftszeit.
+ * </p>
+ * <p>
+ * Da der Schlüssel fachlich vergeben wird, meldet die Entität über {@link Persistable#isNew()} selbst,
+ * ob sie neu ist. So werden neue Tage direkt eingefügt, ohne vorher per {@code merge} gelesen zu werden.
+ * </p>
+ */
+@Entity
+@Table(name = "erfassungstag")
+public class ErfassungsTag implements Persistable<ErfassungsTagId> {
+
+    @EmbeddedId
+    private ErfassungsTagId id;
+
+    @Column(name = "abgegeben", nullable = false)
+    private LocalDateTime abgegeben;
+
+    @Transient
+    private boolean neu;
+
+    public ErfassungsTag() {}
+
+    public ErfassungsTag(Integer gruppeId, LocalDate datum) {
+        this.id = new ErfassungsTagId(gruppeId, datum);
+        this.abgegeben = LocalDateTime.now();
+        this.neu = true;
+    }
+
+    @Override
+    public ErfassungsTagId getId() {return id;}
+    public LocalDateTime getAbgegeben() {return abgegeben;}
+
+    @Override
+    public boolean isNew() {return neu;}
+
+    @PostLoad
+    @PrePersist
+    void alsGespeichertMarkieren() {
+        this.neu = false;
+    }
+}
@@ -0,0 +1,43 @@
+package com.art.erfassung.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Zusammengesetzter Schlüssel eines {@link ErfassungsTag} aus Gruppe und Datum.
+ */
+@Embeddable
+public class ErfassungsTagId implements Serializable {
+
+    @Column(name = "gruppe_id", nullable = false)
+    private Integer gruppeId;
+
+    @Column(name = "datum", nullable = false)
+    private LocalDate datum;
+
+    public ErfassungsTagId() {}
+
+    public ErfassungsTagId(Integer gruppeId, LocalDate datum) {
+        this.gruppeId = gruppeId;
+        this.datum = datum;
+    }
+
+    public Integer getGruppeId() {return gruppeId;}
+    public LocalDate getDatum() {return datum;}
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ErfassungsTagId that)) return false;
+        return Objects.equals(gruppeId, that.gruppeId) && Objects.equals(datum, that.datum);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(gruppeId, datum);
+    }
+}
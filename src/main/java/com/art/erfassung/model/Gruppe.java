@@ -1,5 +1,6 @@
 package com.art.erfassung.model;
 
+import com.art.erfassung.service.ReferenzdatenListener;
 import jakarta.persistence.*;
 
 /**
@@ -9,9 +10,14 @@ import jakarta.persistence.*;
  * eindeutigen Identifikator und eine Bezeichnung verfügt. Sie wird mittels JPA
  * zur Persistierung der Gruppendaten verwendet.
  * </p>
+ * <p>
+ * Als Referenzdaten wird die Entität von der {@link com.art.erfassung.service.ReferenzdatenRegistry}
+ * im Speicher gehalten; Änderungen markieren deren Stand über den {@link ReferenzdatenListener} als veraltet.
+ * </p>
  */
 @Entity
 @Table(name="gruppe")
+@EntityListeners(ReferenzdatenListener.class)
 public class Gruppe {
 
     @Id
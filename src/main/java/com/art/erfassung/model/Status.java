@@ -1,5 +1,6 @@
 package com.art.erfassung.model;
 
+import com.art.erfassung.service.ReferenzdatenListener;
 import jakarta.persistence.*;
 
 /**
@@ -8,11 +9,22 @@ import jakarta.persistence.*;
  * Diese Klasse bildet die Tabelle "status" in der Datenbank ab. Ein Status kann
  * verschiedene Zustände repräsentieren, beispielsweise "Anwesend", "Krank" oder "Entschuldigt".
  * </p>
+ * <p>
+ * Als Referenzdaten wird die Entität von der {@link com.art.erfassung.service.ReferenzdatenRegistry}
+ * im Speicher gehalten; Änderungen markieren deren Stand über den {@link ReferenzdatenListener} als veraltet.
+ * </p>
  */
 @Entity
 @Table(name="status")
+@EntityListeners(ReferenzdatenListener.class)
 public class Status {
 
+    /**
+     * Bezeichnung des Status, der in der sparsamen Speicherung für Studenten ohne Erfassung an einem
+     * erfassten Tag gilt (siehe {@link ErfassungsTag}).
+     */
+    public static final String ANWESEND = "Anwesend";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id")
@@ -27,9 +39,9 @@ public class Status {
         this.bezeichnung = bezeichnung;
     }
 
-    public int getId() {return id;}
+    public Integer getId() {return id;}
     public String getBezeichnung() {return bezeichnung;}
 
-    public void setId(int id) {this.id = id;}
+    public void setId(Integer id) {this.id = id;}
     public void setBezeichnung(String bezeichnung) {this.bezeichnung = bezeichnung;}
 }
@@ -1,19 +1,34 @@
 package com.art.erfassung.model;
 
+import com.art.erfassung.service.RosterListener;
 import jakarta.persistence.*;
 
+import java.time.LocalDate;
+
 /**
  * Entität zur Darstellung eines Studenten.
  * <p>
  * Diese Klasse bildet die Tabelle "studenten" in der Datenbank ab und speichert
  * grundlegende Informationen über einen Studenten, wie Name, Vorname und die zugehörige Gruppe.
  * </p>
+ * <p>
+ * Änderungen verwerfen über den {@link RosterListener} die zwischengespeicherten Studentenlisten der
+ * bisherigen und der neuen Gruppe.
+ * </p>
+ * <p>
+ * Das Feld {@code gruppeSeit} hält den Beginn der Zugehörigkeit zur aktuellen Gruppe. An markierten Tagen der
+ * sparsamen Speicherung gilt ein Student ohne Erfassung nur dann als anwesend, wenn er an diesem Tag bereits
+ * Mitglied der Gruppe war; null bedeutet "seit jeher" und gilt für vor der Einführung angelegte Studenten.
+ * </p>
  */
 @Entity
 @Table(name="studenten")
+@EntityListeners(RosterListener.class)
 public class Studenten {
+    // Sequenz mit Pooled-Optimizer statt IDENTITY, damit Hibernate Inserts per JDBC-Batch senden kann.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "studenten_seq")
+    @SequenceGenerator(name = "studenten_seq", sequenceName = "studenten_seq", allocationSize = 50)
     @Column(name ="id")
     private Integer id;
 
@@ -27,23 +42,63 @@ public class Studenten {
     @JoinColumn(name = "gruppe_id", nullable = false)
     private Gruppe gruppe;
 
+    // Beginn der Zugehörigkeit zur aktuellen Gruppe, null für "seit jeher"
+    @Column(name = "gruppe_seit")
+    private LocalDate gruppeSeit;
+
+    // Zuletzt gespeicherte Gruppe, damit beim Wechsel auch die Liste der bisherigen Gruppe verworfen wird
+    @Transient
+    private Integer gespeicherteGruppeId;
+
     public Studenten() {}
 
     public Studenten(String name, String vorname, Gruppe gruppe) {
         this.name = name;
         this.vorname = vorname;
         this.gruppe = gruppe;
+        this.gruppeSeit = LocalDate.now();
     }
 
     public int getId() {return id;}
     public String getName() {return name;}
     public String getVorname() {return vorname;}
     public Gruppe getGruppe() {return gruppe;}
+    public LocalDate getGruppeSeit() {return gruppeSeit;}
+    public Integer getGespeicherteGruppeId() {return gespeicherteGruppeId;}
 
     public void setId(int id) {this.id = id;}
     public void setName(String name) {this.name = name;}
     public void setVorname(String vorname) {this.vorname = vorname;}
     public void setGruppe(Gruppe gruppeId) {this.gruppe = gruppeId;}
+    public void setGruppeSeit(LocalDate gruppeSeit) {this.gruppeSeit = gruppeSeit;}
 
+    /**
+     * Prüft, ob der Student an einem Tag bereits Mitglied seiner aktuellen Gruppe war.
+     *
+     * @param datum das Datum
+     * @return true, wenn die Zugehörigkeit spätestens an diesem Tag begonnen hat
+     */
+    public boolean istMitgliedAm(LocalDate datum) {
+        return gruppeSeit == null || !gruppeSeit.isAfter(datum);
+    }
 
+    /**
+     * Setzt den Beginn der Zugehörigkeit bei einem Gruppenwechsel auf heute.
+     */
+    @PreUpdate
+    public void gruppeSeitSetzen() {
+        if (gespeicherteGruppeId != null && gruppe != null && !gespeicherteGruppeId.equals(gruppe.getId())) {
+            gruppeSeit = LocalDate.now();
+        }
+    }
+
+    /**
+     * Merkt sich die Gruppe als zuletzt gespeicherte Gruppe des Studenten.
+     */
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    public void gespeicherteGruppeMerken() {
+        this.gespeicherteGruppeId = gruppe == null ? null : gruppe.getId();
+    }
 }
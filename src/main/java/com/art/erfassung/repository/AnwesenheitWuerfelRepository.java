@@ -0,0 +1,112 @@
+package com.art.erfassung.repository;
+
+import com.art.erfassung.dto.WuerfelSumme;
+import com.art.erfassung.model.AnwesenheitWuerfel;
+import com.art.erfassung.model.AnwesenheitWuerfelId;
+import com.art.erfassung.model.Status;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository zur Verwaltung der Zellen des Anwesenheitswürfels.
+ * <p>
+ * Neben der Summenabfrage für die Übersicht stellt dieses Repository die Abfragen bereit, mit denen die Zellen
+ * fortgeschrieben sowie je Gruppe aus der Tabelle "erfassung" geprüft und neu aufgebaut werden.
+ * </p>
+ */
+@Repository
+public interface AnwesenheitWuerfelRepository extends JpaRepository<AnwesenheitWuerfel, AnwesenheitWuerfelId> {
+
+    /**
+     * Summiert die Zellen eines Zeitraums je Gruppe, Wochentag und Status.
+     *
+     * @param von      der Erste des ersten Monats
+     * @param bis      der Erste des letzten Monats
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @return eine Zeile je Gruppe, Wochentag und Status mit mindestens einer Erfassung
+     */
+    @Query("select new com.art.erfassung.dto.WuerfelSumme(w.id.gruppeId, w.id.wochentag, w.id.statusId, " +
+            "sum(w.anzahl), sum(w.verspaetungen), sum(w.verspaetungMinuten)) " +
+            "from AnwesenheitWuerfel w " +
+            "where w.id.monat between :von and :bis and (:gruppeId is null or w.id.gruppeId = :gruppeId) " +
+            "and w.anzahl > 0 " +
+            "group by w.id.gruppeId, w.id.wochentag, w.id.statusId")
+    List<WuerfelSumme> summieren(@Param("von") LocalDate von, @Param("bis") LocalDate bis,
+                                 @Param("gruppeId") Integer gruppeId);
+
+    /**
+     * Lädt alle Zellen der angegebenen Gruppen und Monate und sperrt sie bis zum Ende der Transaktion,
+     * damit gleichzeitige Erfassungen ihre Differenzen nacheinander anwenden.
+     *
+     * @param gruppeIds die IDs der Gruppen
+     * @param monate    die Monate, jeweils als Erster des Monats
+     * @return die vorhandenen Zellen
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from AnwesenheitWuerfel w where w.id.gruppeId in :gruppeIds and w.id.monat in :monate")
+    List<AnwesenheitWuerfel> findAllZumAktualisieren(@Param("gruppeIds") Collection<Integer> gruppeIds,
+                                                      @Param("monate") Collection<LocalDate> monate);
+
+    /**
+     * Lädt alle Zellen einer Gruppe und sperrt sie bis zum Ende der Transaktion.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return die vorhandenen Zellen der Gruppe
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from AnwesenheitWuerfel w where w.id.gruppeId = :gruppeId")
+    List<AnwesenheitWuerfel> findAllByGruppeZumAktualisieren(@Param("gruppeId") Integer gruppeId);
+
+    /**
+     * Liefert die IDs aller Gruppen, für die Zellen vorhanden sind.
+     *
+     * @return die IDs der Gruppen
+     */
+    @Query("select distinct w.id.gruppeId from AnwesenheitWuerfel w")
+    List<Integer> findGruppeIds();
+
+    /**
+     * Zählt die Erfassungen einer Gruppe je Tag und Status aus der Tabelle "erfassung".
+     * <p>
+     * An erfassten Tagen (Tabelle "erfassungstag") zählen Mitglieder der Gruppe ohne Erfassung als "Anwesend"; diese werden
+     * als eigene Zeile je Tag geliefert, sodass für "Anwesend" zwei Zeilen derselben Zelle entstehen können.
+     * Maßgeblich ist die aktuelle Gruppe des Studenten.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return nicht verwaltete Zellen mit den Werten je Tag und Status
+     */
+    @Query("select new com.art.erfassung.model.AnwesenheitWuerfel(s.gruppe.id, e.datum, e.status.id, count(e), " +
+            "sum(case when e.verspaetungMinuten > 0 then 1 else 0 end), " +
+            "sum(case when e.verspaetungMinuten > 0 then e.verspaetungMinuten else 0 end)) " +
+            "from Erfassung e join e.studenten s where s.gruppe.id = :gruppeId " +
+            "group by s.gruppe.id, e.datum, e.status.id " +
+            "union all " +
+            "select new com.art.erfassung.model.AnwesenheitWuerfel(t.id.gruppeId, t.id.datum, st.id, count(s), 0, 0) " +
+            "from ErfassungsTag t join Studenten s on s.gruppe.id = t.id.gruppeId " +
+            "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) " +
+            "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' " +
+            "where t.id.gruppeId = :gruppeId " +
+            "and not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum) " +
+            "group by t.id.gruppeId, t.id.datum, st.id")
+    List<AnwesenheitWuerfel> berechneTageDerGruppe(@Param("gruppeId") Integer gruppeId);
+
+    /**
+     * Löscht alle Zellen einer Gruppe.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return die Anzahl der gelöschten Zellen
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from AnwesenheitWuerfel w where w.id.gruppeId = :gruppeId")
+    int loescheGruppe(@Param("gruppeId") Integer gruppeId);
+}
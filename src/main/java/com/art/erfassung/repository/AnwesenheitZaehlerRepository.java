@@ -0,0 +1,117 @@
+package com.art.erfassung.repository;
+
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.dto.StudentStatusAnzahl;
+import com.art.erfassung.model.AnwesenheitZaehler;
+import com.art.erfassung.model.AnwesenheitZaehlerId;
+import com.art.erfassung.model.Status;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository zur Verwaltung der Anwesenheitszähler.
+ * <p>
+ * Neben dem Lesen der Zählerstände eines Studenten stellt dieses Repository die Abfragen bereit, mit denen
+ * die Zähler fortgeschrieben sowie aus der Tabelle "erfassung" geprüft und neu aufgebaut werden.
+ * </p>
+ */
+@Repository
+public interface AnwesenheitZaehlerRepository extends JpaRepository<AnwesenheitZaehler, AnwesenheitZaehlerId> {
+
+    /**
+     * Liefert die Zählerstände eines Studenten je Status-Bezeichnung.
+     *
+     * @param studentId die ID des Studenten
+     * @return eine Zeile je Status, für den der Student mindestens eine Erfassung besitzt
+     */
+    @Query("select new com.art.erfassung.dto.StatusAnzahl(st.bezeichnung, z.anzahl, z.verspaetungen, z.verspaetungMinuten) " +
+            "from AnwesenheitZaehler z join Status st on st.id = z.id.statusId " +
+            "where z.id.studentenId = :studentId and z.anzahl > 0")
+    List<StatusAnzahl> findStandByStudentId(@Param("studentId") Integer studentId);
+
+    /**
+     * Liefert die Zählerstände aller Studenten einer Gruppe je Status-Bezeichnung.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return eine Zeile je Student und Status, für den der Student mindestens eine Erfassung besitzt
+     */
+    @Query("select new com.art.erfassung.dto.StudentStatusAnzahl(z.id.studentenId, st.bezeichnung, z.anzahl, " +
+            "z.verspaetungen, z.verspaetungMinuten) " +
+            "from AnwesenheitZaehler z join Status st on st.id = z.id.statusId " +
+            "join Studenten s on s.id = z.id.studentenId " +
+            "where s.gruppe.id = :gruppeId and z.anzahl > 0")
+    List<StudentStatusAnzahl> findStandByGruppeId(@Param("gruppeId") Integer gruppeId);
+
+    /**
+     * Lädt alle Zähler der angegebenen Studenten und sperrt sie bis zum Ende der Transaktion,
+     * damit gleichzeitige Erfassungen ihre Differenzen nacheinander anwenden.
+     *
+     * @param studentenIds die IDs der Studenten
+     * @return die vorhandenen Zähler dieser Studenten
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select z from AnwesenheitZaehler z where z.id.studentenId in :studentenIds")
+    List<AnwesenheitZaehler> findAllZumAktualisieren(@Param("studentenIds") Collection<Integer> studentenIds);
+
+    /**
+     * Berechnet die Soll-Zählerstände aller Studenten aus der Tabelle "erfassung".
+     * <p>
+     * An erfassten Tagen (Tabelle "erfassungstag") zählen Mitglieder der Gruppe ohne Erfassung als "Anwesend"; diese
+     * werden als eigener Zähler je Student geliefert, sodass für "Anwesend" zwei Zähler entstehen können.
+     * </p>
+     *
+     * @return mindestens ein nicht verwalteter Zähler je Student und Status
+     */
+    @Query("select new com.art.erfassung.model.AnwesenheitZaehler(e.studenten.id, e.status.id, count(e), " +
+            "sum(case when e.verspaetungMinuten > 0 then 1 else 0 end), " +
+            "sum(case when e.verspaetungMinuten > 0 then e.verspaetungMinuten else 0 end)) " +
+            "from Erfassung e group by e.studenten.id, e.status.id " +
+            "union all " +
+            "select new com.art.erfassung.model.AnwesenheitZaehler(s.id, st.id, count(t), 0, 0) " +
+            "from ErfassungsTag t join Studenten s on s.gruppe.id = t.id.gruppeId " +
+            "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) " +
+            "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' " +
+            "where not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum) " +
+            "group by s.id, st.id")
+    List<AnwesenheitZaehler> berechneAusErfassungen();
+
+    /**
+     * Löscht alle Zähler.
+     *
+     * @return die Anzahl der gelöschten Zeilen
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "delete from anwesenheit_zaehler", nativeQuery = true)
+    int alleLoeschen();
+
+    /**
+     * Baut alle Zähler mit einer einzigen Anweisung aus der Tabelle "erfassung" auf.
+     * <p>
+     * Studenten ohne Erfassung an erfassten Tagen (Tabelle "erfassungstag"), die an diesem Tag bereits Mitglied
+     * der Gruppe waren, werden als "Anwesend" ohne Verspätung mitgezählt.
+     * </p>
+     *
+     * @return die Anzahl der angelegten Zähler
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "insert into anwesenheit_zaehler (studenten_id, status_id, anzahl, verspaetungen, verspaetung_minuten) " +
+            "select studenten_id, status_id, count(*), " +
+            "sum(case when verspaetung_minuten > 0 then 1 else 0 end), " +
+            "sum(case when verspaetung_minuten > 0 then verspaetung_minuten else 0 end) " +
+            "from (select studenten_id, status_id, verspaetung_minuten from erfassung " +
+            "union all " +
+            "select s.id, st.id, 0 from erfassungstag t join studenten s on s.gruppe_id = t.gruppe_id " +
+            "and (s.gruppe_seit is null or s.gruppe_seit <= t.datum) " +
+            "join status st on st.bezeichnung = '" + Status.ANWESEND + "' " +
+            "where not exists (select 1 from erfassung e where e.studenten_id = s.id and e.datum = t.datum)) z " +
+            "group by studenten_id, status_id", nativeQuery = true)
+    int ausErfassungenAufbauen();
+}
@@ -0,0 +1,70 @@
+package com.art.erfassung.repository;
+
+import com.art.erfassung.model.Berichtsauftrag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository zur Verwaltung der Berichtsaufträge.
+ */
+@Repository
+public interface BerichtsauftragRepository extends JpaRepository<Berichtsauftrag, Long> {
+
+    /**
+     * Sucht einen Auftrag mit demselben Schlüssel, der noch wartet, läuft oder dessen Ergebnis noch nicht
+     * abgelaufen ist.
+     *
+     * @param schluessel der Schlüssel aus Art und Parametern
+     * @param jetzt      der aktuelle Zeitpunkt
+     * @return der jüngste passende Auftrag, falls vorhanden
+     */
+    @Query("select b from Berichtsauftrag b where b.schluessel = :schluessel and (b.zustand in "
+            + "(com.art.erfassung.model.Berichtsauftrag.Zustand.WARTEND, "
+            + "com.art.erfassung.model.Berichtsauftrag.Zustand.LAEUFT) "
+            + "or (b.zustand = com.art.erfassung.model.Berichtsauftrag.Zustand.FERTIG and b.ablauf > :jetzt)) "
+            + "order by b.id desc limit 1")
+    Optional<Berichtsauftrag> findVerwendbar(@Param("schluessel") String schluessel,
+                                             @Param("jetzt") LocalDateTime jetzt);
+
+    /**
+     * Liefert die zuletzt angelegten Aufträge.
+     *
+     * @return höchstens 50 Aufträge, der jüngste zuerst
+     */
+    List<Berichtsauftrag> findTop50ByOrderByIdDesc();
+
+    /**
+     * Liefert alle Aufträge in einem der angegebenen Zustände.
+     *
+     * @param zustaende die gesuchten Zustände
+     * @return die Aufträge
+     */
+    List<Berichtsauftrag> findByZustandIn(Collection<Berichtsauftrag.Zustand> zustaende);
+
+    /**
+     * Liefert alle Aufträge, deren Ergebnis vor dem angegebenen Zeitpunkt abgelaufen ist.
+     *
+     * @param zeitpunkt der Zeitpunkt
+     * @return die abgelaufenen Aufträge
+     */
+    List<Berichtsauftrag> findByAblaufBefore(LocalDateTime zeitpunkt);
+
+    /**
+     * Schreibt den Fortschritt eines laufenden Auftrags, ohne die übrigen Spalten zu laden.
+     *
+     * @param id          die ID des Auftrags
+     * @param fortschritt die Anzahl der bisher verarbeiteten Zeilen bzw. Gruppen
+     * @return die Anzahl der geänderten Zeilen
+     */
+    @Modifying
+    @Query("update Berichtsauftrag b set b.fortschritt = :fortschritt where b.id = :id")
+    int fortschrittSetzen(@Param("id") Long id, @Param("fortschritt") long fortschritt);
+}
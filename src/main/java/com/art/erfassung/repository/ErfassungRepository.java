@@ -1,11 +1,29 @@
 package com.art.erfassung.repository;
 
+import com.art.erfassung.dto.ErfassungExportZeile;
+import com.art.erfassung.dto.ErfassungIndexEintrag;
+import com.art.erfassung.dto.ErfassungListeDTO;
+import com.art.erfassung.dto.ErfassungStand;
+import com.art.erfassung.dto.ErfassungTageswert;
+import com.art.erfassung.dto.StudentStatusAnzahl;
 import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.ErfassungsTag;
+import com.art.erfassung.model.Status;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository zur Verwaltung von Erfassungen.
@@ -14,6 +32,12 @@ import java.util.Optional;
  * Standard-CRUD-Operationen benutzerdefinierte Methoden zur Abfrage von Erfassungsdaten
  * zur Verfügung. Die Methoden basieren auf Namenskonventionen und ermöglichen es, Erfassungen
  * anhand von Studenten- und Gruppeninformationen sowie Datumseinschränkungen zu filtern.
+ * </p>
+ * <p>
+ * Wo an markierten Tagen ({@link ErfassungsTag}) Studenten ohne Erfassung als "Anwesend" ergänzt werden, gilt das
+ * nur für Studenten, die an diesem Tag bereits Mitglied der Gruppe waren ({@code gruppeSeit} leer oder nicht
+ * später als der Tag).
+ * </p>
  */
 @Repository
 public interface ErfassungRepository extends JpaRepository<Erfassung, Integer> {
@@ -37,6 +61,202 @@ public interface ErfassungRepository extends JpaRepository<Erfassung, Integer> {
      */
     List<Erfassung> findByStudenten_GruppeIdAndDatumBetween(Integer studenten_gruppe_id, LocalDate datum, LocalDate datum2);
 
+    /**
+     * Liefert die Erfassungen einer Gruppe in einem Zeitraum direkt als {@link ErfassungListeDTO}.
+     * <p>
+     * Student und Status werden per Join im selben Statement gelesen, sodass beim Rendern der
+     * Listenansicht keine Lazy-Loading-Abfragen entstehen. An erfassten Tagen ({@link ErfassungsTag}) wird
+     * für jedes Mitglied der Gruppe ohne Erfassung ein Eintrag "Anwesend" ohne ID ergänzt, sodass die
+     * sparsame Speicherung dieselbe Liste liefert wie die vollständige.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param von      das Startdatum des Zeitraums (inklusive)
+     * @param bis      das Enddatum des Zeitraums (inklusive)
+     * @return eine Liste von {@link ErfassungListeDTO} Objekten, die den Kriterien entsprechen
+     */
+    @Query("select new com.art.erfassung.dto.ErfassungListeDTO(e.id, s.id, concat(s.vorname, ' ', s.name), " +
+            "e.datum, st.id, st.bezeichnung, e.kommentar) " +
+            "from Erfassung e join e.studenten s join e.status st " +
+            "where s.gruppe.id = :gruppeId and e.datum between :von and :bis " +
+            "union all " +
+            "select new com.art.erfassung.dto.ErfassungListeDTO(cast(null as Integer), s.id, " +
+            "concat(s.vorname, ' ', s.name), t.id.datum, st.id, st.bezeichnung, cast(null as String)) " +
+            "from ErfassungsTag t join Studenten s on s.gruppe.id = t.id.gruppeId " +
+            "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) " +
+            "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' " +
+            "where t.id.gruppeId = :gruppeId and t.id.datum between :von and :bis " +
+            "and not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum)")
+    List<ErfassungListeDTO> findListeByGruppeUndZeitraum(@Param("gruppeId") Integer gruppeId,
+                                                         @Param("von") LocalDate von,
+                                                         @Param("bis") LocalDate bis);
+
+    /**
+     * Liefert die Erfassungen einer Gruppe in einem Zeitraum als {@link ErfassungTageswert} zur Kodierung
+     * in einem {@link com.art.erfassung.dto.GruppenMonat}.
+     * <p>
+     * Wie {@link #findListeByGruppeUndZeitraum(Integer, LocalDate, LocalDate)} werden an erfassten Tagen
+     * Studenten ohne Erfassung als "Anwesend" ergänzt; Namen und Kommentare werden nicht gelesen.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param von      das Startdatum des Zeitraums (inklusive)
+     * @param bis      das Enddatum des Zeitraums (inklusive)
+     * @return eine Liste von {@link ErfassungTageswert} Objekten, die den Kriterien entsprechen
+     */
+    @Query("select new com.art.erfassung.dto.ErfassungTageswert(s.id, e.datum, st.id, st.bezeichnung, " +
+            "e.verspaetungMinuten) " +
+            "from Erfassung e join e.studenten s join e.status st " +
+            "where s.gruppe.id = :gruppeId and e.datum between :von and :bis " +
+            "union all " +
+            "select new com.art.erfassung.dto.ErfassungTageswert(s.id, t.id.datum, st.id, st.bezeichnung, " +
+            "cast(null as Integer)) " +
+            "from ErfassungsTag t join Studenten s on s.gruppe.id = t.id.gruppeId " +
+            "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) " +
+            "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' " +
+            "where t.id.gruppeId = :gruppeId and t.id.datum between :von and :bis " +
+            "and not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum)")
+    List<ErfassungTageswert> findTageswerteByGruppeUndZeitraum(@Param("gruppeId") Integer gruppeId,
+                                                               @Param("von") LocalDate von,
+                                                               @Param("bis") LocalDate bis);
+
+    /**
+     * Liefert den gespeicherten Stand aller Erfassungen einer Gruppe an einem Tag als {@link ErfassungStand}
+     * Projektion in einem Statement.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param datum    das Datum
+     * @return die Erfassungen des Tages mit Status, Ankunftszeit, Kommentar und Version
+     */
+    @Query("select new com.art.erfassung.dto.ErfassungStand(e.studenten.id, e.status.id, e.ankunftszeit, "
+            + "e.kommentar, e.version) from Erfassung e where e.studenten.gruppe.id = :gruppeId and e.datum = :datum")
+    List<ErfassungStand> findStandByGruppeUndDatum(@Param("gruppeId") Integer gruppeId,
+                                                   @Param("datum") LocalDate datum);
+
+    /**
+     * Liefert alle Erfassungen eines Zeitraums als {@link ErfassungExportZeile} für den Export, sortiert nach Datum,
+     * Gruppe und Name.
+     * <p>
+     * An markierten Tagen ({@link ErfassungsTag}) erhalten Studenten ohne Erfassung eine Zeile mit dem Status
+     * "Anwesend" ohne Ankunftszeit und Kommentar.
+     * </p>
+     * <p>
+     * Die Zeilen werden über einen vorwärts gerichteten Cursor in Blöcken der Fetch Size gelesen und nicht als Liste
+     * geladen. Der Stream muss innerhalb einer Transaktion verarbeitet und anschließend geschlossen werden.
+     * </p>
+     *
+     * @param von      das erste Datum des Zeitraums
+     * @param bis      das letzte Datum des Zeitraums
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @return die Exportzeilen
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.art.erfassung.dto.ErfassungExportZeile(z.datum, z.gruppe, z.studentenId, z.name, "
+            + "z.vorname, z.status, z.ankunftszeit, z.verspaetungMinuten, z.kommentar) from ("
+            + "select e.datum as datum, g.bezeichnung as gruppe, s.id as studentenId, s.name as name, "
+            + "s.vorname as vorname, st.bezeichnung as status, e.ankunftszeit as ankunftszeit, "
+            + "e.verspaetungMinuten as verspaetungMinuten, e.kommentar as kommentar "
+            + "from Erfassung e join e.studenten s join s.gruppe g join e.status st "
+            + "where e.datum between :von and :bis and (:gruppeId is null or g.id = :gruppeId) "
+            + "union all "
+            + "select t.id.datum, g.bezeichnung, s.id, s.name, s.vorname, st.bezeichnung, "
+            + "cast(null as LocalTime), cast(null as Integer), cast(null as String) "
+            + "from ErfassungsTag t join Gruppe g on g.id = t.id.gruppeId join Studenten s on s.gruppe.id = g.id "
+            + "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) "
+            + "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' "
+            + "where t.id.datum between :von and :bis and (:gruppeId is null or g.id = :gruppeId) "
+            + "and not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum)) z "
+            + "order by z.datum, z.gruppe, z.name, z.vorname, z.studentenId")
+    Stream<ErfassungExportZeile> streamExport(@Param("von") LocalDate von, @Param("bis") LocalDate bis,
+                                              @Param("gruppeId") Integer gruppeId);
+
+    /**
+     * Liefert alle Erfassungen als {@link ErfassungIndexEintrag} zum Aufbau der Präfixsummen je Student und des
+     * Tagesindex.
+     * <p>
+     * An markierten Tagen ({@link ErfassungsTag}) erhalten Studenten ohne Erfassung einen Eintrag mit dem Status
+     * "Anwesend". Die Einträge werden wie beim Export über einen Cursor in Blöcken der Fetch Size gelesen; der
+     * Stream muss innerhalb einer Transaktion verarbeitet und anschließend geschlossen werden.
+     * </p>
+     *
+     * @return die Einträge aller Erfassungen
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.art.erfassung.dto.ErfassungIndexEintrag(s.id, s.gruppe.id, e.datum, e.status.id, "
+            + "e.verspaetungMinuten) "
+            + "from Erfassung e join e.studenten s "
+            + "union all "
+            + "select new com.art.erfassung.dto.ErfassungIndexEintrag(s.id, s.gruppe.id, t.id.datum, st.id, "
+            + "cast(null as Integer)) "
+            + "from ErfassungsTag t join Studenten s on s.gruppe.id = t.id.gruppeId " +
+            "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) "
+            + "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' "
+            + "where not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum)")
+    Stream<ErfassungIndexEintrag> streamIndexEintraege();
+
+    /**
+     * Liefert die Erfassungen eines Studenten als {@link ErfassungIndexEintrag}, wie
+     * {@link #streamIndexEintraege()} einschließlich der markierten Tage ohne Erfassung.
+     *
+     * @param studentenId die ID des Studenten
+     * @return die Einträge des Studenten in beliebiger Reihenfolge
+     */
+    @Query("select new com.art.erfassung.dto.ErfassungIndexEintrag(s.id, s.gruppe.id, e.datum, e.status.id, "
+            + "e.verspaetungMinuten) "
+            + "from Erfassung e join e.studenten s where s.id = :studentenId "
+            + "union all "
+            + "select new com.art.erfassung.dto.ErfassungIndexEintrag(s.id, s.gruppe.id, t.id.datum, st.id, "
+            + "cast(null as Integer)) "
+            + "from ErfassungsTag t join Studenten s on s.gruppe.id = t.id.gruppeId "
+            + "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) "
+            + "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' "
+            + "where s.id = :studentenId "
+            + "and not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum)")
+    List<ErfassungIndexEintrag> findIndexEintraegeByStudentenId(@Param("studentenId") Integer studentenId);
+
+    /**
+     * Liefert alle Erfassungen als {@link ErfassungIndexEintrag} zum Aufbau des Spaltenspeichers, sortiert nach
+     * Gruppe, Datum und Student.
+     * <p>
+     * Wie {@link #streamIndexEintraege()} einschließlich der Studenten ohne Erfassung an markierten Tagen und über
+     * einen Cursor gelesen.
+     * </p>
+     *
+     * @return die sortierten Einträge aller Erfassungen
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.art.erfassung.dto.ErfassungIndexEintrag(z.studentenId, z.gruppeId, z.datum, z.statusId, "
+            + "z.verspaetungMinuten) from ("
+            + "select s.id as studentenId, s.gruppe.id as gruppeId, e.datum as datum, e.status.id as statusId, "
+            + "e.verspaetungMinuten as verspaetungMinuten "
+            + "from Erfassung e join e.studenten s "
+            + "union all "
+            + "select s.id, s.gruppe.id, t.id.datum, st.id, cast(null as Integer) "
+            + "from ErfassungsTag t join Studenten s on s.gruppe.id = t.id.gruppeId " +
+            "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) "
+            + "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' "
+            + "where not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum)) z "
+            + "order by z.gruppeId, z.datum, z.studentenId")
+    Stream<ErfassungIndexEintrag> streamSpaltenEintraege();
+
+    /**
+     * Liefert die IDs aller Studenten, für die an einem Tag bereits eine Erfassung existiert.
+     *
+     * @param datum das Datum
+     * @return die IDs der erfassten Studenten
+     */
+    @Query("select e.studenten.id from Erfassung e where e.datum = :datum")
+    List<Integer> findStudentenIdsByDatum(@Param("datum") LocalDate datum);
+
     /**
      * Sucht eine Erfassung für einen bestimmten Studenten an einem gegebenen Datum.
      *
@@ -47,4 +267,84 @@ public interface ErfassungRepository extends JpaRepository<Erfassung, Integer> {
      */
     Optional<Erfassung> findByStudenten_IdAndDatum(Integer studentId, LocalDate datum);
 
+    /**
+     * Sucht alle Erfassungen mehrerer Studenten an einem gegebenen Datum in einer einzigen Abfrage.
+     *
+     * @param studentIds die IDs der Studenten, deren Erfassungen gesucht werden
+     * @param datum      das Datum, für das die Erfassungen gesucht werden
+     * @return eine Liste von {@link Erfassung} Objekten, die den Kriterien entsprechen; der bisherige Status
+     *         ist bereits geladen
+     */
+    @EntityGraph(attributePaths = "status")
+    List<Erfassung> findByStudenten_IdInAndDatum(Collection<Integer> studentIds, LocalDate datum);
+
+    /**
+     * Zählt die Erfassungen aller Studenten einer Gruppe je Status in einem optionalen Zeitraum.
+     * <p>
+     * Die Aggregation erfolgt vollständig in der Datenbank. An erfassten Tagen ({@link ErfassungsTag}) zählen
+     * Studenten ohne Erfassung als "Anwesend"; diese werden in einer eigenen Zeile je Student geliefert, sodass
+     * für "Anwesend" zwei Zeilen entstehen können.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param von      das Startdatum des Zeitraums (inklusive) oder null für unbegrenzt
+     * @param bis      das Enddatum des Zeitraums (inklusive) oder null für unbegrenzt
+     * @return mindestens eine Zeile je Student und Status, für den der Student im Zeitraum Erfassungen besitzt
+     */
+    @Query("select new com.art.erfassung.dto.StudentStatusAnzahl(s.id, st.bezeichnung, count(e), " +
+            "sum(case when e.verspaetungMinuten > 0 then 1 else 0 end), " +
+            "sum(case when e.verspaetungMinuten > 0 then e.verspaetungMinuten else 0 end)) " +
+            "from Erfassung e join e.studenten s join e.status st " +
+            "where s.gruppe.id = :gruppeId " +
+            "and (:von is null or e.datum >= :von) and (:bis is null or e.datum <= :bis) " +
+            "group by s.id, st.bezeichnung " +
+            "union all " +
+            "select new com.art.erfassung.dto.StudentStatusAnzahl(s.id, st.bezeichnung, count(t), 0, 0) " +
+            "from ErfassungsTag t join Studenten s on s.gruppe.id = t.id.gruppeId " +
+            "and (s.gruppeSeit is null or s.gruppeSeit <= t.id.datum) " +
+            "join Status st on st.bezeichnung = '" + Status.ANWESEND + "' " +
+            "where t.id.gruppeId = :gruppeId " +
+            "and (:von is null or t.id.datum >= :von) and (:bis is null or t.id.datum <= :bis) " +
+            "and not exists (select 1 from Erfassung e where e.studenten.id = s.id and e.datum = t.id.datum) " +
+            "group by s.id, st.bezeichnung")
+    List<StudentStatusAnzahl> zaehleNachStudentUndStatus(@Param("gruppeId") Integer gruppeId,
+                                                         @Param("von") LocalDate von,
+                                                         @Param("bis") LocalDate bis);
+
+    /**
+     * Liefert den nächsten Abschnitt von Erfassungen, deren Verspätung noch nur im Kommentar steht.
+     * <p>
+     * Die Abschnitte werden per Keyset über die ID gebildet, damit jeder Abschnitt unabhängig von
+     * bereits verarbeiteten Zeilen gleich schnell gelesen wird. Der Student wird mitgeladen, da der Nachtrag
+     * für jede Erfassung eine {@link com.art.erfassung.event.ErfassungsAenderung} veröffentlicht.
+     * </p>
+     *
+     * @param letzteId die höchste ID des vorherigen Abschnitts (0 für den ersten Abschnitt)
+     * @param pageable die Abschnittsgröße
+     * @return die Erfassungen des Abschnitts, aufsteigend nach ID sortiert
+     */
+    @Query("select e from Erfassung e join fetch e.studenten where e.id > :letzteId and e.verspaetungMinuten is null " +
+            "and e.kommentar like '%Verspätung:%' order by e.id")
+    List<Erfassung> findVerspaetungNachtragKandidaten(@Param("letzteId") Integer letzteId, Pageable pageable);
+
+    /**
+     * Löscht an den erfassten Tagen einer Gruppe alle Erfassungen, die der Annahme der sparsamen Speicherung
+     * entsprechen: Status "Anwesend", ohne Kommentar, ohne Ankunftszeit und ohne Verspätung.
+     * <p>
+     * Gelöscht werden nur Erfassungen von Studenten, die am jeweiligen Tag bereits Mitglied der Gruppe waren;
+     * sie gelten danach weiterhin als "Anwesend", die Anwesenheitszähler bleiben unverändert.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return die Anzahl der gelöschten Erfassungen
+     */
+    @Modifying
+    @Query("delete from Erfassung e where e.ankunftszeit is null " +
+            "and (e.verspaetungMinuten is null or e.verspaetungMinuten = 0) " +
+            "and (e.kommentar is null or trim(e.kommentar) = '') " +
+            "and e.status.id in (select st.id from Status st where st.bezeichnung = '" + Status.ANWESEND + "') " +
+            "and e.studenten.id in (select s.id from Studenten s where s.gruppe.id = :gruppeId " +
+            "and (s.gruppeSeit is null or s.gruppeSeit <= e.datum)) " +
+            "and e.datum in (select t.id.datum from ErfassungsTag t where t.id.gruppeId = :gruppeId)")
+    int loescheAnwesendAnErfasstenTagen(@Param("gruppeId") Integer gruppeId);
 }
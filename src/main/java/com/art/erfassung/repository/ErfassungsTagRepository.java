@@ -0,0 +1,71 @@
+package com.art.erfassung.repository;
+
+import com.art.erfassung.model.ErfassungsTag;
+import com.art.erfassung.model.ErfassungsTagId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository zur Verwaltung der erfassten Tage je Gruppe.
+ * <p>
+ * Neben dem Lesen der markierten Tage beim Speichern stellt dieses Repository die Abfrage bereit, mit der
+ * vorhandene Erfassungen auf die sparsame Speicherung umgestellt werden.
+ * </p>
+ */
+@Repository
+public interface ErfassungsTagRepository extends JpaRepository<ErfassungsTag, ErfassungsTagId> {
+
+    /**
+     * Liefert die Gruppen, deren Anwesenheit an einem Tag bereits als erfasst markiert ist.
+     *
+     * @param gruppeIds die IDs der Gruppen
+     * @param datum     das Datum
+     * @return die IDs der markierten Gruppen
+     */
+    @Query("select t.id.gruppeId from ErfassungsTag t where t.id.gruppeId in :gruppeIds and t.id.datum = :datum")
+    List<Integer> findGruppeIdsByDatum(@Param("gruppeIds") Collection<Integer> gruppeIds,
+                                       @Param("datum") LocalDate datum);
+
+    /**
+     * Liefert die Paare aus Gruppe und Datum, die unter den angegebenen Gruppen und Tagen als erfasst markiert
+     * sind.
+     * <p>
+     * Der Import liest damit einmal je Abschnitt, an welchen Tagen Studenten ohne Erfassung bislang als
+     * "Anwesend" galten.
+     * </p>
+     *
+     * @param gruppeIds die IDs der Gruppen
+     * @param daten     die Tage
+     * @return die markierten Paare; Paare aus nicht angefragten Kombinationen sind möglich
+     */
+    @Query("select t.id from ErfassungsTag t where t.id.gruppeId in :gruppeIds and t.id.datum in :daten")
+    List<ErfassungsTagId> findMarkierungen(@Param("gruppeIds") Collection<Integer> gruppeIds,
+                                          @Param("daten") Collection<LocalDate> daten);
+
+    /**
+     * Liefert die noch nicht markierten Tage einer Gruppe, an denen jeder Student, der an diesem Tag bereits
+     * Mitglied der Gruppe war, eine Erfassung besitzt.
+     * <p>
+     * Nur an solchen Tagen ändert die Markierung keine Auswertung: Studenten ohne Erfassung an einem markierten
+     * Tag gelten als anwesend, sofern sie an diesem Tag bereits Mitglied waren. Erfassungen von Studenten, die
+     * erst später in die Gruppe gekommen sind, werden nicht mitgezählt.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return die vollständig erfassten Tage, aufsteigend sortiert
+     */
+    @Query("select e.datum from Erfassung e where e.studenten.gruppe.id = :gruppeId "
+            + "and (e.studenten.gruppeSeit is null or e.studenten.gruppeSeit <= e.datum) "
+            + "and not exists (select 1 from ErfassungsTag t where t.id.gruppeId = :gruppeId and t.id.datum = e.datum) "
+            + "group by e.datum "
+            + "having count(e) = (select count(s) from Studenten s where s.gruppe.id = :gruppeId "
+            + "and (s.gruppeSeit is null or s.gruppeSeit <= e.datum)) "
+            + "order by e.datum")
+    List<LocalDate> findVollstaendigeTageOhneMarkierung(@Param("gruppeId") Integer gruppeId);
+}
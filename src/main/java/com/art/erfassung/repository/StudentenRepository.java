@@ -1,8 +1,14 @@
 package com.art.erfassung.repository;
 
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.dto.StudentenStamm;
 import com.art.erfassung.model.Studenten;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -21,4 +27,71 @@ public interface StudentenRepository extends JpaRepository<Studenten, Integer> {
      * @return eine Liste von {@link Studenten} Objekten, die der angegebenen Gruppe angehören
      */
     List<Studenten> findByGruppeId(Integer gruppe_id);
+
+    /**
+     * Sucht alle Studenten mit den angegebenen IDs und lädt die zugehörige Gruppe im selben Statement.
+     *
+     * @param ids die IDs der gesuchten Studenten
+     * @return eine Liste der gefundenen {@link Studenten} Objekte; fehlende IDs werden ausgelassen
+     */
+    @Query("select s from Studenten s join fetch s.gruppe where s.id in :ids")
+    List<Studenten> findAllMitGruppeByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Liefert von den angegebenen IDs diejenigen, zu denen ein Student existiert.
+     *
+     * @param ids die zu prüfenden IDs
+     * @return die IDs der vorhandenen Studenten
+     */
+    @Query("select s.id from Studenten s where s.id in :ids")
+    List<Integer> findVorhandeneIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Sucht alle Studenten einer Gruppe und lädt die Gruppe im selben Statement.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return eine Liste der {@link Studenten} Objekte der Gruppe
+     */
+    @Query("select s from Studenten s join fetch s.gruppe g where g.id = :gruppeId")
+    List<Studenten> findAllMitGruppeByGruppeId(@Param("gruppeId") Integer gruppeId);
+
+    /**
+     * Liefert die Studentenliste einer Gruppe als {@link RosterEintrag} Projektion, ohne die Gruppe zu laden.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return die Einträge der Gruppe, sortiert nach Studenten-ID
+     */
+    @Query("select new com.art.erfassung.dto.RosterEintrag(s.id, s.gruppe.id, concat(s.vorname, ' ', s.name)) "
+            + "from Studenten s where s.gruppe.id = :gruppeId order by s.id")
+    List<RosterEintrag> findRosterByGruppeId(@Param("gruppeId") Integer gruppeId);
+
+    /**
+     * Liefert die IDs der Studenten einer Gruppe, die an einem Tag bereits Mitglied der Gruppe waren.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param datum    das Datum
+     * @return die IDs der Studenten, sortiert nach Studenten-ID
+     */
+    @Query("select s.id from Studenten s where s.gruppe.id = :gruppeId "
+            + "and (s.gruppeSeit is null or s.gruppeSeit <= :datum) order by s.id")
+    List<Integer> findMitgliederIdsAm(@Param("gruppeId") Integer gruppeId, @Param("datum") LocalDate datum);
+
+    /**
+     * Liefert die Studentenlisten aller Gruppen als {@link RosterEintrag} Projektion in einem Statement.
+     *
+     * @return alle Einträge, sortiert nach Gruppen-ID und Studenten-ID
+     */
+    @Query("select new com.art.erfassung.dto.RosterEintrag(s.id, s.gruppe.id, concat(s.vorname, ' ', s.name)) "
+            + "from Studenten s order by s.gruppe.id, s.id")
+    List<RosterEintrag> findAllRoster();
+
+    /**
+     * Liefert Gruppe, Name, Vorname und Beginn der Gruppenzugehörigkeit aller Studenten als {@link StudentenStamm}
+     * Projektion in einem Statement.
+     *
+     * @return die Stammdaten aller Studenten
+     */
+    @Query("select new com.art.erfassung.dto.StudentenStamm(s.id, s.gruppe.id, s.name, s.vorname, s.gruppeSeit) "
+            + "from Studenten s")
+    List<StudentenStamm> findAllStamm();
 }
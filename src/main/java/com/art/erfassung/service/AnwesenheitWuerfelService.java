@@ -0,0 +1,270 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.StatistikUebersicht;
+import com.art.erfassung.dto.StatistikUebersicht.Zeile;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.dto.WuerfelSumme;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
+import com.art.erfassung.model.AnwesenheitWuerfel;
+import com.art.erfassung.model.AnwesenheitWuerfelId;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.repository.AnwesenheitWuerfelRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Serviceklasse zur Pflege und Auswertung des Anwesenheitswürfels.
+ * <p>
+ * Der Würfel zählt die Erfassungen je Gruppe, Monat, Wochentag und Status (siehe {@link AnwesenheitWuerfel}).
+ * Wie die Anwesenheitszähler wird er inkrementell fortgeschrieben: Der Listener läuft synchron in der
+ * Transaktion des Schreibvorgangs und wendet die Differenzen aus dem {@link ErfassungenGespeichertEvent} an.
+ * Maßgeblich ist die Gruppe des Studenten beim Speichern; nach einem Gruppenwechsel weicht der Würfel bis zum
+ * nächsten Neuaufbau ab.
+ * </p>
+ * <p>
+ * Der Neuaufbau arbeitet in Abschnitten: Jede Gruppe wird unter ihrer {@link GruppenSperren Gruppensperre} in einer
+ * eigenen Transaktion geprüft und nur bei Abweichungen neu geschrieben, sodass er bei laufendem Betrieb gestartet
+ * und jederzeit wiederholt werden kann.
+ * </p>
+ */
+@Service
+public class AnwesenheitWuerfelService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnwesenheitWuerfelService.class);
+
+    // Repository zur Verwaltung der Würfelzellen
+    private final AnwesenheitWuerfelRepository wuerfelRepository;
+
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+
+    // Sperren je Gruppe, unter denen auch Erfassungen gespeichert werden
+    private final GruppenSperren gruppenSperren;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public AnwesenheitWuerfelService(AnwesenheitWuerfelRepository wuerfelRepository,
+                                     ReferenzdatenRegistry referenzdatenRegistry,
+                                     GruppenSperren gruppenSperren,
+                                     TransactionTemplate transactionTemplate) {
+        this.wuerfelRepository = wuerfelRepository;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.gruppenSperren = gruppenSperren;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Schreibt die Würfelzellen anhand der gespeicherten Erfassungen fort.
+     * <p>
+     * Bei einer geänderten Erfassung wird der alte Zustand von seiner Zelle abgezogen und der neue addiert.
+     * Die betroffenen Zellen werden mit einer Abfrage gesperrt geladen und gemeinsam gespeichert.
+     * </p>
+     *
+     * @param event das Ereignis mit den Änderungen der gespeicherten Erfassungen
+     */
+    @EventListener
+    public void erfassungenGespeichert(ErfassungenGespeichertEvent event) {
+        Map<AnwesenheitWuerfelId, long[]> differenzen = new LinkedHashMap<>();
+        for (ErfassungsAenderung aenderung : event.aenderungen()) {
+            if (!aenderung.istNeu()) {
+                addieren(differenzen, AnwesenheitWuerfelId.fuerTag(aenderung.gruppeId(), aenderung.datum(),
+                        aenderung.alterStatusId()), -1, aenderung.alteVerspaetungMinuten());
+            }
+            addieren(differenzen, AnwesenheitWuerfelId.fuerTag(aenderung.gruppeId(), aenderung.datum(),
+                    aenderung.neuerStatusId()), 1, aenderung.neueVerspaetungMinuten());
+        }
+        differenzen.values().removeIf(d -> d[0] == 0 && d[1] == 0 && d[2] == 0);
+        if (differenzen.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> gruppeIds = new HashSet<>();
+        Set<LocalDate> monate = new HashSet<>();
+        for (AnwesenheitWuerfelId id : differenzen.keySet()) {
+            gruppeIds.add(id.getGruppeId());
+            monate.add(id.getMonat());
+        }
+        Map<AnwesenheitWuerfelId, AnwesenheitWuerfel> vorhandene = new HashMap<>();
+        for (AnwesenheitWuerfel zelle : wuerfelRepository.findAllZumAktualisieren(gruppeIds, monate)) {
+            vorhandene.put(zelle.getId(), zelle);
+        }
+        List<AnwesenheitWuerfel> zuSpeichern = new ArrayList<>(differenzen.size());
+        for (Map.Entry<AnwesenheitWuerfelId, long[]> eintrag : differenzen.entrySet()) {
+            AnwesenheitWuerfel zelle = vorhandene.computeIfAbsent(eintrag.getKey(), AnwesenheitWuerfel::new);
+            long[] d = eintrag.getValue();
+            zelle.addieren(d[0], d[1], d[2]);
+            zuSpeichern.add(zelle);
+        }
+        wuerfelRepository.saveAll(zuSpeichern);
+    }
+
+    private static void addieren(Map<AnwesenheitWuerfelId, long[]> differenzen, AnwesenheitWuerfelId id,
+                                 int vorzeichen, int verspaetungMinuten) {
+        long[] d = differenzen.computeIfAbsent(id, schluessel -> new long[3]);
+        d[0] += vorzeichen;
+        if (verspaetungMinuten > 0) {
+            d[1] += vorzeichen;
+            d[2] += (long) vorzeichen * verspaetungMinuten;
+        }
+    }
+
+    /**
+     * Berechnet die Übersicht eines Zeitraums aus den Würfelzellen.
+     * <p>
+     * Gelesen wird je Gruppe, Wochentag und Status eine über die Monate summierte Zeile. Zellen von Gruppen, die
+     * nicht mehr existieren, werden nicht berücksichtigt.
+     * </p>
+     *
+     * @param von      der erste Monat
+     * @param bis      der letzte Monat
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @return die {@link StatistikUebersicht}
+     * @throws IllegalArgumentException wenn der erste Monat nach dem letzten liegt
+     */
+    public StatistikUebersicht uebersicht(YearMonth von, YearMonth bis, Integer gruppeId) {
+        if (von.isAfter(bis)) {
+            throw new IllegalArgumentException("Der Monat 'von' darf nicht nach 'bis' liegen");
+        }
+        long beginn = System.nanoTime();
+        Map<Integer, Gruppe> gruppen = new HashMap<>();
+        for (Gruppe gruppe : referenzdatenRegistry.alleGruppen()) {
+            gruppen.put(gruppe.getId(), gruppe);
+        }
+        Map<Integer, String> statusBezeichnungen = new HashMap<>();
+        for (Status status : referenzdatenRegistry.alleStatus()) {
+            statusBezeichnungen.put(status.getId(), status.getBezeichnung());
+        }
+
+        Map<Integer, List<WuerfelSumme>> jeGruppe = new TreeMap<>();
+        Map<Integer, List<WuerfelSumme>> jeWochentag = new TreeMap<>();
+        List<WuerfelSumme> alle = new ArrayList<>();
+        for (WuerfelSumme summe : wuerfelRepository.summieren(von.atDay(1), bis.atDay(1), gruppeId)) {
+            if (!gruppen.containsKey(summe.gruppeId())) {
+                continue;
+            }
+            jeGruppe.computeIfAbsent(summe.gruppeId(), id -> new ArrayList<>()).add(summe);
+            jeWochentag.computeIfAbsent(summe.wochentag(), w -> new ArrayList<>()).add(summe);
+            alle.add(summe);
+        }
+        List<Zeile> gruppenZeilen = new ArrayList<>(jeGruppe.size());
+        jeGruppe.forEach((id, summen) ->
+                gruppenZeilen.add(zeile(gruppen.get(id).getBezeichnung(), summen, statusBezeichnungen)));
+        List<Zeile> wochentagZeilen = new ArrayList<>(jeWochentag.size());
+        jeWochentag.forEach((wochentag, summen) -> wochentagZeilen.add(zeile(
+                DayOfWeek.of(wochentag).getDisplayName(TextStyle.FULL, Locale.GERMANY), summen, statusBezeichnungen)));
+        Zeile gesamt = zeile("Gesamt", alle, statusBezeichnungen);
+        return new StatistikUebersicht(von, bis, gruppeId, gruppenZeilen, wochentagZeilen, gesamt,
+                (System.nanoTime() - beginn) / 1_000);
+    }
+
+    private static Zeile zeile(String bezeichnung, List<WuerfelSumme> summen, Map<Integer, String> statusBezeichnungen) {
+        Map<Integer, long[]> jeStatus = new TreeMap<>();
+        long[] gesamt = new long[3];
+        for (WuerfelSumme summe : summen) {
+            long[] werte = jeStatus.computeIfAbsent(summe.statusId(), id -> new long[3]);
+            werte[0] += summe.anzahl();
+            werte[1] += summe.verspaetungen();
+            werte[2] += summe.verspaetungMinuten();
+            gesamt[0] += summe.anzahl();
+            gesamt[1] += summe.verspaetungen();
+            gesamt[2] += summe.verspaetungMinuten();
+        }
+        Map<Integer, StatusAnzahl> anzahlen = new LinkedHashMap<>();
+        jeStatus.forEach((statusId, werte) -> anzahlen.put(statusId, new StatusAnzahl(
+                statusBezeichnungen.getOrDefault(statusId, "Status " + statusId), werte[0], werte[1], werte[2])));
+        return new Zeile(bezeichnung, anzahlen, gesamt[0], gesamt[1], gesamt[2]);
+    }
+
+    /**
+     * Prüft die Würfelzellen gruppenweise gegen die Tabelle "erfassung" und baut abweichende Gruppen neu auf.
+     * <p>
+     * Jede Gruppe, auch eine gelöschte mit verbliebenen Zellen, wird in einer eigenen Transaktion unter ihrer
+     * Gruppensperre bearbeitet; gleichzeitige Erfassungen der Gruppe warten so auf den Abschnitt. Zellen mit dem
+     * Stand 0 gelten als gleichwertig zu fehlenden Zellen.
+     * </p>
+     *
+     * @return ein {@link AufbauErgebnis} mit der Anzahl der Gruppen, Zellen und Abweichungen
+     */
+    public AufbauErgebnis neuAufbauen() {
+        Set<Integer> gruppeIds = new TreeSet<>(wuerfelRepository.findGruppeIds());
+        for (Gruppe gruppe : referenzdatenRegistry.alleGruppen()) {
+            gruppeIds.add(gruppe.getId());
+        }
+        long zellen = 0;
+        long abweichungen = 0;
+        for (Integer gruppeId : gruppeIds) {
+            long[] ergebnis = transactionTemplate.execute(status -> gruppeNeuAufbauen(gruppeId));
+            if (ergebnis != null) {
+                zellen += ergebnis[0];
+                abweichungen += ergebnis[1];
+            }
+        }
+        AufbauErgebnis ergebnis = new AufbauErgebnis(gruppeIds.size(), zellen, abweichungen);
+        logger.info("Anwesenheitswürfel neu aufgebaut: {}", ergebnis);
+        return ergebnis;
+    }
+
+    private long[] gruppeNeuAufbauen(Integer gruppeId) {
+        gruppenSperren.sperrenBisTransaktionsende(Set.of(gruppeId));
+        List<AnwesenheitWuerfel> ist = wuerfelRepository.findAllByGruppeZumAktualisieren(gruppeId);
+        Map<AnwesenheitWuerfelId, AnwesenheitWuerfel> soll = new HashMap<>();
+        for (AnwesenheitWuerfel tag : wuerfelRepository.berechneTageDerGruppe(gruppeId)) {
+            soll.merge(tag.getId(), tag, (a, b) -> {
+                a.addieren(b.getAnzahl(), b.getVerspaetungen(), b.getVerspaetungMinuten());
+                return a;
+            });
+        }
+        long abweichungen = 0;
+        Set<AnwesenheitWuerfelId> geprueft = new HashSet<>();
+        for (AnwesenheitWuerfel zelle : ist) {
+            AnwesenheitWuerfel sollZelle = soll.get(zelle.getId());
+            geprueft.add(zelle.getId());
+            if (sollZelle == null ? !zelle.istLeer() : !zelle.gleicherStand(sollZelle)) {
+                abweichungen++;
+            }
+        }
+        // Soll-Zellen ohne Gegenstück fehlen in der Tabelle.
+        for (AnwesenheitWuerfelId id : soll.keySet()) {
+            if (!geprueft.contains(id)) {
+                abweichungen++;
+            }
+        }
+        if (abweichungen > 0) {
+            wuerfelRepository.loescheGruppe(gruppeId);
+            wuerfelRepository.saveAll(soll.values());
+            logger.debug("Anwesenheitswürfel der Gruppe {} neu aufgebaut: {} Zellen, {} Abweichungen",
+                    gruppeId, soll.size(), abweichungen);
+        }
+        return new long[]{soll.size(), abweichungen};
+    }
+
+    /**
+     * Ergebnis eines Neuaufbaus des Anwesenheitswürfels.
+     *
+     * @param gruppen      Anzahl der geprüften Gruppen
+     * @param zellen       Anzahl der Zellen nach dem Neuaufbau
+     * @param abweichungen Anzahl der Zellen, die vor dem Neuaufbau vom Soll-Stand abwichen
+     */
+    public record AufbauErgebnis(long gruppen, long zellen, long abweichungen) {
+    }
+}
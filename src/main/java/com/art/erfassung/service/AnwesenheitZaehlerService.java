@@ -0,0 +1,147 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.config.CacheConfig;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
+import com.art.erfassung.model.AnwesenheitZaehler;
+import com.art.erfassung.model.AnwesenheitZaehlerId;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serviceklasse zur Pflege der Anwesenheitszähler.
+ * <p>
+ * Die Zähler werden inkrementell fortgeschrieben: Jede gespeicherte Erfassung liefert über ein
+ * {@link ErfassungenGespeichertEvent} ihren alten und neuen Zustand, aus dem die Differenzen je Student und
+ * Status gebildet werden. Der Listener läuft synchron in der Transaktion des Schreibvorgangs. Zur Reparatur
+ * und Kontrolle können alle Zähler aus der Tabelle "erfassung" neu aufgebaut werden; an erfassten Tagen der
+ * sparsamen Speicherung zählen Studenten ohne Erfassung dabei als "Anwesend".
+ * </p>
+ */
+@Service
+public class AnwesenheitZaehlerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnwesenheitZaehlerService.class);
+
+    // Repository zur Verwaltung der Anwesenheitszähler
+    private final AnwesenheitZaehlerRepository zaehlerRepository;
+
+    public AnwesenheitZaehlerService(AnwesenheitZaehlerRepository zaehlerRepository) {
+        this.zaehlerRepository = zaehlerRepository;
+    }
+
+    /**
+     * Schreibt die Zähler anhand der gespeicherten Erfassungen fort.
+     * <p>
+     * Bei einer neuen Erfassung wird der Zähler des neuen Status erhöht. Bei einer geänderten Erfassung wird
+     * zusätzlich der alte Zustand abgezogen, sodass ein Statuswechsel und eine geänderte Verspätung korrekt
+     * berücksichtigt werden. Die betroffenen Zähler werden mit einer Abfrage gesperrt geladen und gemeinsam
+     * gespeichert.
+     * </p>
+     *
+     * @param event das Ereignis mit den Änderungen der gespeicherten Erfassungen
+     */
+    @EventListener
+    public void erfassungenGespeichert(ErfassungenGespeichertEvent event) {
+        Map<AnwesenheitZaehlerId, long[]> differenzen = new LinkedHashMap<>();
+        for (ErfassungsAenderung aenderung : event.aenderungen()) {
+            if (!aenderung.istNeu()) {
+                addieren(differenzen, aenderung.studentenId(), aenderung.alterStatusId(), -1,
+                        aenderung.alteVerspaetungMinuten());
+            }
+            addieren(differenzen, aenderung.studentenId(), aenderung.neuerStatusId(), 1,
+                    aenderung.neueVerspaetungMinuten());
+        }
+        differenzen.values().removeIf(d -> d[0] == 0 && d[1] == 0 && d[2] == 0);
+        if (differenzen.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> studentenIds = new HashSet<>();
+        for (AnwesenheitZaehlerId id : differenzen.keySet()) {
+            studentenIds.add(id.getStudentenId());
+        }
+        Map<AnwesenheitZaehlerId, AnwesenheitZaehler> vorhandene = new HashMap<>();
+        for (AnwesenheitZaehler zaehler : zaehlerRepository.findAllZumAktualisieren(studentenIds)) {
+            vorhandene.put(zaehler.getId(), zaehler);
+        }
+        List<AnwesenheitZaehler> zuSpeichern = new ArrayList<>(differenzen.size());
+        for (Map.Entry<AnwesenheitZaehlerId, long[]> eintrag : differenzen.entrySet()) {
+            AnwesenheitZaehler zaehler = vorhandene.computeIfAbsent(eintrag.getKey(), AnwesenheitZaehler::new);
+            long[] d = eintrag.getValue();
+            zaehler.addieren(d[0], d[1], d[2]);
+            zuSpeichern.add(zaehler);
+        }
+        zaehlerRepository.saveAll(zuSpeichern);
+    }
+
+    private static void addieren(Map<AnwesenheitZaehlerId, long[]> differenzen, Integer studentenId,
+                                 Integer statusId, int vorzeichen, int verspaetungMinuten) {
+        long[] d = differenzen.computeIfAbsent(new AnwesenheitZaehlerId(studentenId, statusId), id -> new long[3]);
+        d[0] += vorzeichen;
+        if (verspaetungMinuten > 0) {
+            d[1] += vorzeichen;
+            d[2] += (long) vorzeichen * verspaetungMinuten;
+        }
+    }
+
+    /**
+     * Prüft alle Zähler gegen die Tabelle "erfassung" und baut sie anschließend neu auf.
+     * <p>
+     * Zähler mit dem Stand 0 gelten als gleichwertig zu fehlenden Zählern. Die Anzahl der Abweichungen
+     * zeigt, ob die inkrementelle Fortschreibung korrekt gearbeitet hat; nach dem Neuaufbau sind die
+     * Zähler in jedem Fall konsistent. Alle zwischengespeicherten Studentenstatistiken werden verworfen.
+     * </p>
+     *
+     * @return ein {@link NeuaufbauErgebnis} mit der Anzahl der Abweichungen und der neu aufgebauten Zähler
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.STUDENTENSTATISTIK, allEntries = true)
+    public NeuaufbauErgebnis neuAufbauen() {
+        Map<AnwesenheitZaehlerId, AnwesenheitZaehler> soll = new HashMap<>();
+        for (AnwesenheitZaehler zaehler : zaehlerRepository.berechneAusErfassungen()) {
+            // "Anwesend" kann zusätzlich für Studenten ohne Erfassung an erfassten Tagen geliefert werden.
+            soll.merge(zaehler.getId(), zaehler, (a, b) -> {
+                a.addieren(b.getAnzahl(), b.getVerspaetungen(), b.getVerspaetungMinuten());
+                return a;
+            });
+        }
+        long abweichungen = 0;
+        for (AnwesenheitZaehler ist : zaehlerRepository.findAll()) {
+            AnwesenheitZaehler sollZaehler = soll.remove(ist.getId());
+            boolean abweichend = sollZaehler == null ? !ist.istLeer() : !ist.gleicherStand(sollZaehler);
+            if (abweichend) {
+                abweichungen++;
+            }
+        }
+        // Verbleibende Soll-Zähler fehlen in der Tabelle.
+        abweichungen += soll.size();
+
+        zaehlerRepository.alleLoeschen();
+        long zeilen = zaehlerRepository.ausErfassungenAufbauen();
+        logger.info("Anwesenheitszähler neu aufgebaut: {} Zähler, {} Abweichungen", zeilen, abweichungen);
+        return new NeuaufbauErgebnis(zeilen, abweichungen);
+    }
+
+    /**
+     * Ergebnis eines Neuaufbaus der Anwesenheitszähler.
+     *
+     * @param zeilen       Anzahl der neu aufgebauten Zähler
+     * @param abweichungen Anzahl der Zähler, die vor dem Neuaufbau vom Soll-Stand abwichen
+     */
+    public record NeuaufbauErgebnis(long zeilen, long abweichungen) {
+    }
+}
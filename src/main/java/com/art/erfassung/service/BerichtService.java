@@ -0,0 +1,408 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.ExportFormat;
+import com.art.erfassung.error.ErfassungAusgelastetException;
+import com.art.erfassung.model.Berichtsauftrag;
+import com.art.erfassung.model.Berichtsauftrag.Art;
+import com.art.erfassung.model.Berichtsauftrag.Zustand;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.repository.BerichtsauftragRepository;
+import com.art.erfassung.service.StatistikService.StatistikErgebnis;
+import jakarta.annotation.PreDestroy;
+import org.dhatim.fastexcel.Workbook;
+import org.dhatim.fastexcel.Worksheet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Erstellt aufwendige Berichte im Hintergrund.
+ * <p>
+ * Exporte über mehrere Monate oder die Statistik aller Gruppen dauern länger, als eine Anfrage offen bleiben
+ * sollte. Sie werden deshalb als {@link Berichtsauftrag} gespeichert und von höchstens
+ * {@code erfassung.berichte.threads} Threads abgearbeitet; bis zu {@code erfassung.berichte.warteschlange}
+ * weitere Aufträge warten, darüber hinaus werden Anforderungen abgelehnt. Zustand und Fortschritt stehen in der
+ * Datenbank, die Ergebnisdatei im Verzeichnis {@code erfassung.berichte.verzeichnis}.
+ * </p>
+ * <ul>
+ *     <li>Eine Anforderung mit denselben Parametern wie ein wartender oder laufender Auftrag erhält diesen
+ *         Auftrag; es wird nur ein Bericht erstellt.</li>
+ *     <li>Ein fertiger Bericht wird {@code erfassung.berichte.aufbewahrung-stunden} lang aufbewahrt; gleiche
+ *         Anforderungen in dieser Zeit erhalten sofort die vorhandene Datei.</li>
+ *     <li>Abgelaufene Aufträge werden samt Datei beim nächsten Zugriff auf die Auftragsliste entfernt.</li>
+ *     <li>Aufträge, die bei einem Neustart der Anwendung noch warteten oder liefen, gelten als fehlgeschlagen
+ *         und können erneut angefordert werden.</li>
+ * </ul>
+ * <p>
+ * Die Zusammenfassung gleicher Anforderungen gilt für eine Instanz der Anwendung.
+ * </p>
+ */
+@Service
+public class BerichtService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BerichtService.class);
+
+    private static final String[] STATISTIK_SPALTEN = {"Gruppe", "Studenten-ID", "Name", "Vorname",
+            "Anwesenheit (%)", "Entschuldigt", "Unentschuldigt", "Krank", "Verspätungen", "Verspätung (Minuten)",
+            "Verspätung Durchschnitt (Minuten)"};
+
+    // Repository zur Verwaltung der Berichtsaufträge
+    private final BerichtsauftragRepository berichtsauftragRepository;
+    // Service für den Export der Erfassungen
+    private final ErfassungExportService erfassungExportService;
+    // Service zur Berechnung der Gruppenstatistik
+    private final StatistikService statistikService;
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    // Eigene Transaktion für den Fortschritt, der während der lesenden Transaktion des Exports geschrieben wird
+    private final TransactionTemplate eigeneTransaktion;
+
+    private final Path verzeichnis;
+    private final Duration aufbewahrung;
+    private final ThreadPoolExecutor ausfuehrung;
+
+    /**
+     * Ergebnis einer Anforderung.
+     *
+     * @param auftrag der neu angelegte oder der vorhandene Auftrag
+     * @param neu     ob der Auftrag neu angelegt wurde
+     */
+    public record Anforderung(Berichtsauftrag auftrag, boolean neu) {
+    }
+
+    public BerichtService(BerichtsauftragRepository berichtsauftragRepository,
+                          ErfassungExportService erfassungExportService,
+                          StatistikService statistikService,
+                          ReferenzdatenRegistry referenzdatenRegistry,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${erfassung.berichte.verzeichnis:berichte}") String verzeichnis,
+                          @Value("${erfassung.berichte.threads:2}") int threads,
+                          @Value("${erfassung.berichte.warteschlange:20}") int warteschlange,
+                          @Value("${erfassung.berichte.aufbewahrung-stunden:24}") long aufbewahrungStunden) {
+        this.berichtsauftragRepository = berichtsauftragRepository;
+        this.erfassungExportService = erfassungExportService;
+        this.statistikService = statistikService;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.eigeneTransaktion = new TransactionTemplate(transactionManager);
+        this.eigeneTransaktion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.verzeichnis = Path.of(verzeichnis);
+        this.aufbewahrung = Duration.ofHours(aufbewahrungStunden);
+        AtomicInteger nummer = new AtomicInteger();
+        this.ausfuehrung = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(warteschlange), aufgabe -> {
+                    Thread thread = new Thread(aufgabe, "erfassung-bericht-" + nummer.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Fordert einen Bericht an.
+     * <p>
+     * Gibt es bereits einen wartenden, laufenden oder noch nicht abgelaufenen fertigen Auftrag mit denselben
+     * Parametern, wird dieser geliefert. Andernfalls wird ein neuer Auftrag angelegt und eingereiht.
+     * </p>
+     *
+     * @param art      die Art des Berichts
+     * @param format   das Dateiformat
+     * @param von      das erste Datum des Zeitraums
+     * @param bis      das letzte Datum des Zeitraums
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @param benutzer der anfordernde Benutzer
+     * @return der Auftrag und ob er neu angelegt wurde
+     * @throws IllegalArgumentException      wenn das Enddatum vor dem Startdatum liegt
+     * @throws NoSuchElementException        wenn die Gruppe nicht existiert
+     * @throws ErfassungAusgelastetException wenn bereits zu viele Aufträge warten
+     */
+    public synchronized Anforderung anfordern(Art art, ExportFormat format, LocalDate von, LocalDate bis,
+                                              Integer gruppeId, String benutzer) {
+        if (bis.isBefore(von)) {
+            throw new IllegalArgumentException("Das Enddatum " + bis + " liegt vor dem Startdatum " + von);
+        }
+        if (gruppeId != null) {
+            referenzdatenRegistry.gruppe(gruppeId);
+        }
+        Berichtsauftrag vorhanden = berichtsauftragRepository.findVerwendbar(
+                Berichtsauftrag.schluessel(art, format, von, bis, gruppeId), LocalDateTime.now()).orElse(null);
+        if (vorhanden != null) {
+            logger.info("Bericht {} angefordert von {}: vorhandener Auftrag {} ({})", vorhanden.getSchluessel(),
+                    benutzer, vorhanden.getId(), vorhanden.getZustand());
+            return new Anforderung(vorhanden, false);
+        }
+        Berichtsauftrag auftrag = berichtsauftragRepository.save(
+                new Berichtsauftrag(art, format, von, bis, gruppeId, benutzer));
+        try {
+            ausfuehrung.execute(() -> ausfuehren(auftrag.getId()));
+        } catch (RejectedExecutionException e) {
+            berichtsauftragRepository.delete(auftrag);
+            throw new ErfassungAusgelastetException("Es warten bereits " + ausfuehrung.getQueue().size()
+                    + " Berichte");
+        }
+        logger.info("Bericht {} angefordert von {}: Auftrag {} eingereiht", auftrag.getSchluessel(), benutzer,
+                auftrag.getId());
+        return new Anforderung(auftrag, true);
+    }
+
+    /**
+     * Liefert einen Auftrag.
+     *
+     * @param id die ID des Auftrags
+     * @return der Auftrag
+     * @throws NoSuchElementException wenn der Auftrag nicht existiert
+     */
+    public Berichtsauftrag auftrag(Long id) {
+        return berichtsauftragRepository.findById(id)
+                .orElseThrow(() -> new NoSuchElementException("Berichtsauftrag " + id + " nicht gefunden"));
+    }
+
+    /**
+     * Entfernt abgelaufene Aufträge und liefert die zuletzt angelegten.
+     *
+     * @return höchstens 50 Aufträge, der jüngste zuerst
+     */
+    public List<Berichtsauftrag> auftraege() {
+        aufraeumen();
+        return berichtsauftragRepository.findTop50ByOrderByIdDesc();
+    }
+
+    /**
+     * Liefert die Ergebnisdatei eines fertigen, nicht abgelaufenen Auftrags.
+     *
+     * @param auftrag der Auftrag
+     * @return der Pfad der Datei
+     * @throws NoSuchElementException wenn der Auftrag nicht fertig, abgelaufen oder die Datei nicht vorhanden ist
+     */
+    public Path datei(Berichtsauftrag auftrag) {
+        if (auftrag.getZustand() != Zustand.FERTIG || !auftrag.getAblauf().isAfter(LocalDateTime.now())) {
+            throw new NoSuchElementException("Bericht " + auftrag.getId() + " liegt nicht vor");
+        }
+        Path datei = Path.of(auftrag.getDatei());
+        if (!Files.isRegularFile(datei)) {
+            throw new NoSuchElementException("Datei des Berichts " + auftrag.getId() + " fehlt");
+        }
+        return datei;
+    }
+
+    /**
+     * Löscht abgelaufene Aufträge samt Ergebnisdatei.
+     *
+     * @return die Anzahl der gelöschten Aufträge
+     */
+    public int aufraeumen() {
+        List<Berichtsauftrag> abgelaufen = berichtsauftragRepository.findByAblaufBefore(LocalDateTime.now());
+        for (Berichtsauftrag auftrag : abgelaufen) {
+            if (auftrag.getDatei() != null) {
+                try {
+                    Files.deleteIfExists(Path.of(auftrag.getDatei()));
+                } catch (IOException e) {
+                    logger.warn("Datei {} des Berichts {} konnte nicht gelöscht werden", auftrag.getDatei(),
+                            auftrag.getId(), e);
+                }
+            }
+        }
+        berichtsauftragRepository.deleteAll(abgelaufen);
+        if (!abgelaufen.isEmpty()) {
+            logger.info("{} abgelaufene Berichte entfernt", abgelaufen.size());
+        }
+        return abgelaufen.size();
+    }
+
+    /**
+     * Markiert Aufträge, die beim Beenden der Anwendung noch warteten oder liefen, als fehlgeschlagen und
+     * entfernt deren unvollständige Dateien.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void nachNeustartAufraeumen() {
+        List<Berichtsauftrag> unterbrochen = berichtsauftragRepository.findByZustandIn(
+                List.of(Zustand.WARTEND, Zustand.LAEUFT));
+        for (Berichtsauftrag auftrag : unterbrochen) {
+            beenden(auftrag, Zustand.FEHLER, "Durch Neustart der Anwendung abgebrochen");
+        }
+        if (Files.isDirectory(verzeichnis)) {
+            try (DirectoryStream<Path> reste = Files.newDirectoryStream(verzeichnis, "*.tmp")) {
+                for (Path rest : reste) {
+                    Files.deleteIfExists(rest);
+                }
+            } catch (IOException e) {
+                logger.warn("Unvollständige Berichte in {} konnten nicht gelöscht werden", verzeichnis, e);
+            }
+        }
+        if (!unterbrochen.isEmpty()) {
+            logger.warn("{} Berichte durch Neustart abgebrochen", unterbrochen.size());
+        }
+        aufraeumen();
+    }
+
+    /**
+     * Bricht laufende Berichte beim Herunterfahren ab; sie werden beim nächsten Start als fehlgeschlagen markiert.
+     */
+    @PreDestroy
+    public void herunterfahren() {
+        ausfuehrung.shutdownNow();
+    }
+
+    private void ausfuehren(Long id) {
+        Berichtsauftrag auftrag = berichtsauftragRepository.findById(id).orElse(null);
+        if (auftrag == null) {
+            return;
+        }
+        auftrag.setZustand(Zustand.LAEUFT);
+        auftrag.setGestartet(LocalDateTime.now());
+        auftrag = berichtsauftragRepository.save(auftrag);
+
+        long start = System.nanoTime();
+        Path ziel = verzeichnis.resolve("bericht-" + id + "." + auftrag.getFormat().getEndung());
+        Path teil = verzeichnis.resolve("bericht-" + id + ".tmp");
+        try {
+            Files.createDirectories(verzeichnis);
+            long zeilen;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(teil), 64 * 1024)) {
+                zeilen = switch (auftrag.getArt()) {
+                    case EXPORT -> erfassungExportService.exportieren(auftrag.getVon(), auftrag.getBis(),
+                            auftrag.getGruppeId(), auftrag.getFormat(), out, anzahl -> fortschrittSetzen(id, anzahl));
+                    case STATISTIK -> statistikSchreiben(auftrag, out);
+                };
+            }
+            // Erst die vollständige Datei erhält ihren Namen; ein Abbruch hinterlässt nur die .tmp-Datei
+            Files.move(teil, ziel, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            auftrag.setFortschritt(zeilen);
+            auftrag.setDatei(ziel.toString());
+            auftrag.setGroesse(Files.size(ziel));
+            beenden(auftrag, Zustand.FERTIG, null);
+            logger.info("Bericht {} ({}) erstellt: {} Zeilen, {} Bytes in {} ms", id, auftrag.getSchluessel(), zeilen,
+                    auftrag.getGroesse(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Bericht {} ({}) fehlgeschlagen", id, auftrag.getSchluessel(), e);
+            try {
+                Files.deleteIfExists(teil);
+            } catch (IOException ignoriert) {
+                logger.warn("Unvollständiger Bericht {} konnte nicht gelöscht werden", teil);
+            }
+            String meldung = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            beenden(auftrag, Zustand.FEHLER, meldung.length() > 1000 ? meldung.substring(0, 1000) : meldung);
+        }
+    }
+
+    private void beenden(Berichtsauftrag auftrag, Zustand zustand, String fehler) {
+        LocalDateTime jetzt = LocalDateTime.now();
+        auftrag.setZustand(zustand);
+        auftrag.setFehler(fehler);
+        auftrag.setBeendet(jetzt);
+        auftrag.setAblauf(jetzt.plus(aufbewahrung));
+        berichtsauftragRepository.save(auftrag);
+    }
+
+    private void fortschrittSetzen(Long id, long zeilen) {
+        eigeneTransaktion.executeWithoutResult(status -> berichtsauftragRepository.fortschrittSetzen(id, zeilen));
+    }
+
+    /**
+     * Schreibt die Anwesenheitsstatistik aller Studenten der Gruppe bzw. aller Gruppen im Zeitraum.
+     * Der Fortschritt wird nach jeder Gruppe gespeichert.
+     *
+     * @return die Anzahl der geschriebenen Zeilen ohne Kopfzeile
+     */
+    private long statistikSchreiben(Berichtsauftrag auftrag, OutputStream out) throws IOException {
+        List<Gruppe> gruppen = auftrag.getGruppeId() != null
+                ? List.of(referenzdatenRegistry.gruppe(auftrag.getGruppeId()))
+                : referenzdatenRegistry.alleGruppen();
+        return switch (auftrag.getFormat()) {
+            case CSV -> statistikCsv(auftrag, gruppen, out);
+            case XLSX -> statistikXlsx(auftrag, gruppen, out);
+        };
+    }
+
+    private long statistikCsv(Berichtsauftrag auftrag, List<Gruppe> gruppen, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write('\uFEFF');
+        writer.write(String.join(";", STATISTIK_SPALTEN));
+        writer.write("\r\n");
+        long anzahl = 0;
+        for (Gruppe gruppe : gruppen) {
+            for (StatistikErgebnis ergebnis : statistikService.berechneGruppenstatistik(gruppe.getId(),
+                    auftrag.getVon(), auftrag.getBis())) {
+                ErfassungExportService.csvText(writer, gruppe.getBezeichnung());
+                writer.write(';');
+                writer.write(String.valueOf(ergebnis.student().getId()));
+                writer.write(';');
+                ErfassungExportService.csvText(writer, ergebnis.student().getName());
+                writer.write(';');
+                ErfassungExportService.csvText(writer, ergebnis.student().getVorname());
+                writer.write(';');
+                // Dezimalkomma, damit Excel mit deutschen Einstellungen die Werte als Zahlen liest
+                writer.write(String.format(Locale.GERMANY, "%.1f;%d;%d;%d;%d;%d;%.1f", ergebnis.gesamtAnwesenheit(),
+                        ergebnis.entschuldigt(), ergebnis.unentschuldigt(), ergebnis.krank(),
+                        ergebnis.verspaetungen(), ergebnis.verspaetungMinuten(),
+                        ergebnis.verspaetungMinutenDurchschnitt()));
+                writer.write("\r\n");
+                anzahl++;
+            }
+            fortschrittSetzen(auftrag.getId(), anzahl);
+        }
+        writer.flush();
+        return anzahl;
+    }
+
+    private long statistikXlsx(Berichtsauftrag auftrag, List<Gruppe> gruppen, OutputStream out) throws IOException {
+        Workbook workbook = new Workbook(out, "Erfassung", "1.0");
+        Worksheet worksheet = workbook.newWorksheet("Statistik");
+        for (int spalte = 0; spalte < STATISTIK_SPALTEN.length; spalte++) {
+            worksheet.inlineString(0, spalte, STATISTIK_SPALTEN[spalte]);
+        }
+        worksheet.range(0, 0, 0, STATISTIK_SPALTEN.length - 1).style().bold().set();
+        worksheet.freezePane(0, 1);
+        int zeile = 1;
+        for (Gruppe gruppe : gruppen) {
+            for (StatistikErgebnis ergebnis : statistikService.berechneGruppenstatistik(gruppe.getId(),
+                    auftrag.getVon(), auftrag.getBis())) {
+                worksheet.inlineString(zeile, 0, gruppe.getBezeichnung());
+                worksheet.value(zeile, 1, ergebnis.student().getId());
+                worksheet.inlineString(zeile, 2, ergebnis.student().getName());
+                worksheet.inlineString(zeile, 3, ergebnis.student().getVorname());
+                worksheet.value(zeile, 4, ergebnis.gesamtAnwesenheit());
+                worksheet.style(zeile, 4).format("0.0").set();
+                worksheet.value(zeile, 5, ergebnis.entschuldigt());
+                worksheet.value(zeile, 6, ergebnis.unentschuldigt());
+                worksheet.value(zeile, 7, ergebnis.krank());
+                worksheet.value(zeile, 8, ergebnis.verspaetungen());
+                worksheet.value(zeile, 9, ergebnis.verspaetungMinuten());
+                worksheet.value(zeile, 10, ergebnis.verspaetungMinutenDurchschnitt());
+                worksheet.style(zeile, 10).format("0.0").set();
+                zeile++;
+            }
+            worksheet.flush();
+            fortschrittSetzen(auftrag.getId(), zeile - 1);
+        }
+        workbook.finish();
+        return zeile - 1;
+    }
+}
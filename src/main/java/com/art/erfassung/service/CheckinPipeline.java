@@ -0,0 +1,431 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.CheckinAntwort;
+import com.art.erfassung.dto.CheckinScan;
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.error.ErfassungAusgelastetException;
+import com.art.erfassung.error.ErfassungKonfliktException;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.repository.StudentenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Nimmt Scans von Check-in-Terminals entgegen und speichert daraus die Ankünfte der Studenten.
+ * <p>
+ * Die Scans werden ohne Datenbankzugriff angenommen: Je Tag wird im Speicher gehalten, welche Studenten bereits
+ * erfasst oder eingecheckt sind. Beim ersten Zugriff auf einen Tag wird diese Menge aus den vorhandenen
+ * Erfassungen befüllt. Nur der erste Scan eines Studenten je Tag wird angenommen; weitere Scans sind Duplikate.
+ * Ein Duplikat mit früherem Zeitpunkt ersetzt den Zeitpunkt, solange die Ankunft noch nicht gespeichert wurde.
+ * </p>
+ * <p>
+ * Ein Hintergrund-Thread speichert alle {@code erfassung.checkin.intervall-ms} die offenen Ankünfte je Datum in
+ * Gruppen von höchstens {@code erfassung.checkin.batch-groesse} über
+ * {@link ErfassungService#erfassenAnwesenheiten(List, LocalDate, boolean)}, ohne den Tag der Gruppe als erfasst
+ * zu markieren. Die Ankunftszeit ist die Uhrzeit des Scans;
+ * die Verspätung wird dort wie beim Anwesenheitsformular gegenüber 08:00 Uhr berechnet. Als Status wird
+ * {@code erfassung.checkin.status-id} gesetzt, ohne diese Einstellung der Status {@value Status#ANWESEND} aus der
+ * {@link ReferenzdatenRegistry}. Bei jedem Durchlauf werden die bereits Eingecheckten von Tagen vor gestern ohne
+ * offene Ankünfte verworfen.
+ * </p>
+ * <ul>
+ *     <li>Ein Scan legt nur eine neue Erfassung an ({@link ErfassungDTO#KEINE_ERFASSUNG}); eine zwischenzeitlich
+ *         z. B. von einer Lehrkraft angelegte Erfassung wird nicht überschrieben.</li>
+ *     <li>Ankünfte unbekannter Studenten werden verworfen, die übrigen der Gruppe trotzdem gespeichert.</li>
+ *     <li>Bei vorübergehenden Datenbankfehlern bleiben die Ankünfte offen und werden im nächsten Durchlauf
+ *         erneut gespeichert.</li>
+ *     <li>Scans, deren Zeitpunkt nicht auf den heutigen Tag fällt, werden abgelehnt; um Mitternacht wird eine
+ *         Abweichung der Terminal-Uhr von bis zu fünf Minuten toleriert. So bleiben nur heute und gestern im
+ *         Speicher, und ein falsch gestelltes Terminal lädt keine Erfassungen beliebiger Tage.</li>
+ *     <li>Sind mehr als {@code erfassung.checkin.kapazitaet} Ankünfte offen, werden weitere Scans abgelehnt.</li>
+ *     <li>Metriken: {@code erfassung.checkin.scans} (nach Ergebnis), {@code erfassung.checkin.gespeichert},
+ *         {@code erfassung.checkin.verworfen} (nach Grund), {@code erfassung.checkin.rueckstand} und
+ *         {@code erfassung.checkin.schreiben}.</li>
+ * </ul>
+ * <p>
+ * Die offenen Ankünfte werden nur im Speicher gehalten; beim Herunterfahren werden sie noch gespeichert, bei einem
+ * Absturz gehen sie verloren und die Studenten checken mit dem nächsten Scan erneut ein.
+ * </p>
+ */
+@Service
+public class CheckinPipeline implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckinPipeline.class);
+
+    private static final DateTimeFormatter UHRZEIT = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Abweichung der Terminal-Uhren, um die ein Scan um Mitternacht noch dem Vor- bzw. Folgetag zugeordnet wird
+    private static final Duration UHRENTOLERANZ = Duration.ofMinutes(5);
+
+    // Service zur Verwaltung der Erfassungen
+    private final ErfassungService erfassungService;
+    // Repository zur Prüfung unbekannter Studenten
+    private final StudentenRepository studentenRepository;
+    // Registry der im Speicher gehaltenen Status, falls kein Status konfiguriert ist
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+
+    // Konfigurierter Status der Ankünfte; null für den Status "Anwesend"
+    private final Integer statusId;
+    private final Duration intervall;
+    private final int batchGroesse;
+    private final int kapazitaet;
+
+    // Je Tag die Studenten, die bereits erfasst oder zur Speicherung angenommen sind
+    private final ConcurrentMap<LocalDate, Set<Integer>> eingecheckt = new ConcurrentHashMap<>();
+    // Angenommene, noch nicht gespeicherte Ankünfte mit dem frühesten Scan
+    private final ConcurrentMap<Ankunft, LocalTime> offen = new ConcurrentHashMap<>();
+    // Angenommene Ankünfte, deren Speicherung noch nicht abgeschlossen ist
+    private final AtomicInteger rueckstand = new AtomicInteger();
+    // Annehmen unter der Lesesperre, Anhalten unter der Schreibsperre: nach dem Anhalten kommt nichts mehr hinzu
+    private final ReadWriteLock zustand = new ReentrantReadWriteLock();
+
+    private final Counter angenommen;
+    private final Counter doppelt;
+    private final Counter abgelehnt;
+    private final Counter gespeichert;
+    private final Counter bereitsErfasst;
+    private final Counter unbekannt;
+    private final Counter fehlerhaft;
+    private final Timer schreibDauer;
+
+    private Thread schreiber;
+    private volatile boolean laeuft;
+
+    /**
+     * Schlüssel einer Ankunft: ein Student an einem Tag.
+     */
+    private record Ankunft(LocalDate datum, Integer studentenId) {
+    }
+
+    public CheckinPipeline(ErfassungService erfassungService, StudentenRepository studentenRepository,
+                           ReferenzdatenRegistry referenzdatenRegistry, MeterRegistry meterRegistry,
+                           @Value("${erfassung.checkin.status-id:#{null}}") Integer statusId,
+                           @Value("${erfassung.checkin.intervall-ms:250}") long intervallMs,
+                           @Value("${erfassung.checkin.batch-groesse:500}") int batchGroesse,
+                           @Value("${erfassung.checkin.kapazitaet:50000}") int kapazitaet) {
+        this.erfassungService = erfassungService;
+        this.studentenRepository = studentenRepository;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.statusId = statusId;
+        this.intervall = Duration.ofMillis(intervallMs);
+        this.batchGroesse = batchGroesse;
+        this.kapazitaet = kapazitaet;
+
+        this.angenommen = Counter.builder("erfassung.checkin.scans").tag("ergebnis", "angenommen")
+                .description("Empfangene Scans").register(meterRegistry);
+        this.doppelt = Counter.builder("erfassung.checkin.scans").tag("ergebnis", "doppelt")
+                .description("Empfangene Scans").register(meterRegistry);
+        this.abgelehnt = Counter.builder("erfassung.checkin.scans").tag("ergebnis", "abgelehnt")
+                .description("Empfangene Scans").register(meterRegistry);
+        this.gespeichert = Counter.builder("erfassung.checkin.gespeichert")
+                .description("Als Erfassung gespeicherte Ankünfte").register(meterRegistry);
+        this.bereitsErfasst = Counter.builder("erfassung.checkin.verworfen").tag("grund", "bereits_erfasst")
+                .description("Nicht gespeicherte Ankünfte").register(meterRegistry);
+        this.unbekannt = Counter.builder("erfassung.checkin.verworfen").tag("grund", "unbekannt")
+                .description("Nicht gespeicherte Ankünfte").register(meterRegistry);
+        this.fehlerhaft = Counter.builder("erfassung.checkin.verworfen").tag("grund", "fehler")
+                .description("Nicht gespeicherte Ankünfte").register(meterRegistry);
+        Gauge.builder("erfassung.checkin.rueckstand", rueckstand, AtomicInteger::get)
+                .description("Angenommene, noch nicht gespeicherte Ankünfte")
+                .register(meterRegistry);
+        this.schreibDauer = Timer.builder("erfassung.checkin.schreiben")
+                .description("Dauer des Speicherns einer Gruppe von Ankünften")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Nimmt die Scans eines Terminals an.
+     * <p>
+     * Scans ohne Zeitpunkt gelten als zum Empfangszeitpunkt erfasst. Scans mit einem Zeitpunkt außerhalb des
+     * heutigen Tages (mit {@link #UHRENTOLERANZ} um Mitternacht) werden abgelehnt. Ob ein Student existiert, wird
+     * erst beim Speichern geprüft.
+     * </p>
+     *
+     * @param scans die Scans
+     * @return die Anzahl angenommener, doppelter und abgelehnter Scans
+     * @throws ErfassungAusgelastetException wenn zu viele Ankünfte offen sind oder die Verarbeitung nicht läuft
+     * @throws DataAccessException           wenn die Erfassungen eines neuen Tages nicht geladen werden können
+     */
+    public CheckinAntwort annehmen(List<CheckinScan> scans) {
+        zustand.readLock().lock();
+        try {
+            if (!laeuft) {
+                throw new ErfassungAusgelastetException("Die Check-in-Verarbeitung nimmt derzeit keine Scans an");
+            }
+            if (rueckstand.get() >= kapazitaet) {
+                throw new ErfassungAusgelastetException("Zu viele Check-ins warten auf die Speicherung");
+            }
+            LocalDateTime empfangen = LocalDateTime.now();
+            LocalDate fruehesterTag = empfangen.minus(UHRENTOLERANZ).toLocalDate();
+            LocalDate spaetesterTag = empfangen.plus(UHRENTOLERANZ).toLocalDate();
+            int neu = 0;
+            int ungueltig = 0;
+            for (CheckinScan scan : scans) {
+                LocalDateTime zeitpunkt = scan.zeitpunkt() != null ? scan.zeitpunkt() : empfangen;
+                LocalDate datum = zeitpunkt.toLocalDate();
+                if (datum.isBefore(fruehesterTag) || datum.isAfter(spaetesterTag)) {
+                    ungueltig++;
+                    continue;
+                }
+                Ankunft ankunft = new Ankunft(datum, scan.studentenId());
+                LocalTime uhrzeit = zeitpunkt.toLocalTime();
+                if (tag(ankunft.datum()).add(ankunft.studentenId())) {
+                    rueckstand.incrementAndGet();
+                    offen.merge(ankunft, uhrzeit, CheckinPipeline::frueher);
+                    neu++;
+                } else {
+                    // Nach dem Speichern ist die Ankunft nicht mehr offen und bleibt unverändert.
+                    offen.computeIfPresent(ankunft, (schluessel, bisher) -> frueher(bisher, uhrzeit));
+                }
+            }
+            int doppelte = scans.size() - neu - ungueltig;
+            angenommen.increment(neu);
+            doppelt.increment(doppelte);
+            abgelehnt.increment(ungueltig);
+            return new CheckinAntwort(neu, doppelte, ungueltig);
+        } finally {
+            zustand.readLock().unlock();
+        }
+    }
+
+    /**
+     * Startet den Hintergrund-Thread und lädt die bereits erfassten Studenten des heutigen Tages.
+     */
+    @Override
+    public void start() {
+        try {
+            tag(LocalDate.now());
+        } catch (DataAccessException e) {
+            logger.warn("Check-in: Erfassungen des heutigen Tages konnten nicht vorab geladen werden", e);
+        }
+        laeuft = true;
+        schreiber = new Thread(this::abarbeiten, "erfassung-checkin");
+        schreiber.start();
+    }
+
+    /**
+     * Nimmt keine Scans mehr an und speichert die offenen Ankünfte.
+     */
+    @Override
+    public void stop() {
+        zustand.writeLock().lock();
+        try {
+            laeuft = false;
+        } finally {
+            zustand.writeLock().unlock();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+        try {
+            schreiber.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Check-in: Herunterfahren unterbrochen, {} Ankünfte nicht gespeichert", rueckstand.get());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return laeuft;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Wartet, bis alle bisher angenommenen Ankünfte verarbeitet wurden.
+     *
+     * @param timeout die maximale Wartezeit
+     * @return true, wenn keine Ankünfte mehr offen sind
+     * @throws InterruptedException wenn der Thread beim Warten unterbrochen wird
+     */
+    public boolean warteAufSpeicherung(Duration timeout) throws InterruptedException {
+        long ende = System.nanoTime() + timeout.toNanos();
+        while (rueckstand.get() > 0) {
+            if (System.nanoTime() > ende) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private Set<Integer> tag(LocalDate datum) {
+        Set<Integer> studentenIds = eingecheckt.get(datum);
+        if (studentenIds != null) {
+            return studentenIds;
+        }
+        return eingecheckt.computeIfAbsent(datum, d -> {
+            Set<Integer> erfasst = ConcurrentHashMap.newKeySet();
+            erfasst.addAll(erfassungService.findErfassteStudentenIds(d));
+            return erfasst;
+        });
+    }
+
+    private void abarbeiten() {
+        while (laeuft) {
+            synchronized (this) {
+                try {
+                    wait(intervall.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            try {
+                schreiben();
+            } catch (RuntimeException e) {
+                logger.error("Check-in: Fehler beim Speichern der Ankünfte", e);
+            }
+        }
+        schreiben();
+    }
+
+    /**
+     * Entnimmt alle offenen Ankünfte und speichert sie je Datum in Gruppen von höchstens
+     * {@code batchGroesse}.
+     */
+    private void schreiben() {
+        aeltereTageVerwerfen();
+        if (offen.isEmpty()) {
+            return;
+        }
+        // Ohne Status bleiben die Ankünfte offen und werden im nächsten Durchlauf erneut gespeichert.
+        Integer status = statusId();
+        Map<LocalDate, List<ErfassungDTO>> nachDatum = new TreeMap<>();
+        for (Ankunft ankunft : offen.keySet()) {
+            LocalTime uhrzeit = offen.remove(ankunft);
+            if (uhrzeit != null) {
+                nachDatum.computeIfAbsent(ankunft.datum(), d -> new ArrayList<>())
+                        .add(dto(ankunft.studentenId(), status, uhrzeit));
+            }
+        }
+        nachDatum.forEach((datum, dtos) -> {
+            for (int von = 0; von < dtos.size(); von += batchGroesse) {
+                List<ErfassungDTO> gruppe = new ArrayList<>(dtos.subList(von, Math.min(von + batchGroesse, dtos.size())));
+                schreibDauer.record(() -> speichern(datum, gruppe));
+            }
+        });
+    }
+
+    /**
+     * Speichert die Ankünfte eines Tages. Bereits erfasste und unbekannte Studenten werden entfernt und die
+     * übrigen erneut gespeichert; bei vorübergehenden Datenbankfehlern bleiben alle Ankünfte offen.
+     */
+    private void speichern(LocalDate datum, List<ErfassungDTO> dtos) {
+        int anzahl = dtos.size();
+        while (!dtos.isEmpty()) {
+            try {
+                erfassungService.erfassenAnwesenheiten(dtos, datum, false);
+                gespeichert.increment(dtos.size());
+                break;
+            } catch (ErfassungKonfliktException e) {
+                Set<Integer> konflikte = new HashSet<>(e.getStudentenIds());
+                dtos.removeIf(dto -> konflikte.contains(dto.getStudentenId()));
+                bereitsErfasst.increment(konflikte.size());
+            } catch (NoSuchElementException e) {
+                Set<Integer> studentenIds = new HashSet<>();
+                dtos.forEach(dto -> studentenIds.add(dto.getStudentenId()));
+                Set<Integer> vorhanden = new HashSet<>(studentenRepository.findVorhandeneIds(studentenIds));
+                int vorher = dtos.size();
+                dtos.removeIf(dto -> !vorhanden.contains(dto.getStudentenId()));
+                if (dtos.size() == vorher) {
+                    // Alle Studenten existieren, also ist der konfigurierte Status unbekannt.
+                    logger.error("Check-in: {} Ankünfte am {} verworfen", vorher, datum, e);
+                    fehlerhaft.increment(vorher);
+                    break;
+                }
+                logger.warn("Check-in: {} Scans unbekannter Studenten am {} verworfen", vorher - dtos.size(), datum);
+                unbekannt.increment(vorher - dtos.size());
+            } catch (TransientDataAccessException | DataAccessResourceFailureException e) {
+                logger.warn("Check-in: {} Ankünfte am {} werden erneut gespeichert: {}", dtos.size(), datum,
+                        e.getMessage());
+                for (ErfassungDTO dto : dtos) {
+                    offen.merge(new Ankunft(datum, dto.getStudentenId()), LocalTime.parse(dto.getAnkunftszeit()),
+                            CheckinPipeline::frueher);
+                }
+                anzahl -= dtos.size();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Check-in: {} Ankünfte am {} verworfen", dtos.size(), datum, e);
+                fehlerhaft.increment(dtos.size());
+                break;
+            }
+        }
+        rueckstand.addAndGet(-anzahl);
+    }
+
+    /**
+     * Verwirft die Eingecheckten der Tage vor gestern, sodass der Speicher auch bei ständig offenen Ankünften
+     * nicht mit jedem Tag wächst. Tage mit offenen Ankünften bleiben erhalten, da diese Ankünfte noch nicht in
+     * der Datenbank stehen; ältere Tage werden bei Bedarf erneut aus der Datenbank geladen. Die Schreibsperre
+     * verhindert, dass währenddessen eine Ankunft für einen verworfenen Tag angenommen wird.
+     */
+    private void aeltereTageVerwerfen() {
+        LocalDate gestern = LocalDate.now().minusDays(1);
+        if (eingecheckt.keySet().stream().noneMatch(datum -> datum.isBefore(gestern))) {
+            return;
+        }
+        zustand.writeLock().lock();
+        try {
+            Set<LocalDate> offeneTage = new HashSet<>();
+            offen.keySet().forEach(ankunft -> offeneTage.add(ankunft.datum()));
+            eingecheckt.keySet().removeIf(datum -> datum.isBefore(gestern) && !offeneTage.contains(datum));
+        } finally {
+            zustand.writeLock().unlock();
+        }
+    }
+
+    private Integer statusId() {
+        if (statusId != null) {
+            return statusId;
+        }
+        return referenzdatenRegistry.statusMitBezeichnung(Status.ANWESEND)
+                .map(Status::getId)
+                .orElseThrow(() -> new NoSuchElementException("Status '" + Status.ANWESEND + "' wurde nicht gefunden"));
+    }
+
+    private static ErfassungDTO dto(Integer studentenId, Integer statusId, LocalTime uhrzeit) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(studentenId);
+        dto.setStatusId(statusId);
+        dto.setAnkunftszeit(uhrzeit.format(UHRZEIT));
+        dto.setVersion(ErfassungDTO.KEINE_ERFASSUNG);
+        return dto;
+    }
+
+    private static LocalTime frueher(LocalTime a, LocalTime b) {
+        return a.isAfter(b) ? b : a;
+    }
+}
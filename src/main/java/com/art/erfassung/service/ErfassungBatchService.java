@@ -0,0 +1,176 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.ErfassungBatch;
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.ErfassungStand;
+import com.art.erfassung.dto.ErfassungZeilenErgebnis;
+import com.art.erfassung.dto.ErfassungZeilenErgebnis.Ergebnis;
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.error.ErfassungKonfliktException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Verarbeitet Anfragen der Erfassungs-API mit Erfassungen für mehrere Gruppen und Tage.
+ * <p>
+ * Jeder Eintrag wird vorab ohne Datenbankzugriff geprüft: Pflichtfelder und Formate per Bean Validation, der Status
+ * über die {@link ReferenzdatenRegistry} und die Zugehörigkeit des Studenten zur Gruppe über den
+ * {@link RosterCache}. Die gültigen Einträge eines Batches werden über
+ * {@link ErfassungService#erfassenAnwesenheiten(List, java.time.LocalDate)} in einer Transaktion gespeichert.
+ * Einträge mit veralteter Version werden als {@link Ergebnis#KONFLIKT} gemeldet, die übrigen Einträge des Batches
+ * trotzdem gespeichert.
+ * </p>
+ */
+@Service
+public class ErfassungBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungBatchService.class);
+
+    // Service zur Verwaltung der Erfassungen
+    private final ErfassungService erfassungService;
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    // Zwischengespeicherte Studentenlisten der Gruppen
+    private final RosterCache rosterCache;
+    // Prüft die einzelnen Einträge
+    private final Validator validator;
+
+    public ErfassungBatchService(ErfassungService erfassungService, ReferenzdatenRegistry referenzdatenRegistry,
+                                 RosterCache rosterCache, Validator validator) {
+        this.erfassungService = erfassungService;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.rosterCache = rosterCache;
+        this.validator = validator;
+    }
+
+    /**
+     * Prüft und speichert alle Batches einer Anfrage.
+     * <p>
+     * Jeder Batch wird unabhängig von den anderen gespeichert; ein fehlgeschlagener Batch hat keine Auswirkung auf
+     * bereits gespeicherte.
+     * </p>
+     *
+     * @param batches die Batches der Anfrage
+     * @return das Ergebnis je Eintrag in der Reihenfolge der Anfrage
+     */
+    public List<ErfassungZeilenErgebnis> verarbeiten(List<ErfassungBatch> batches) {
+        List<ErfassungZeilenErgebnis> ergebnisse = new ArrayList<>();
+        for (int b = 0; b < batches.size(); b++) {
+            ergebnisse.addAll(verarbeiten(b, batches.get(b)));
+        }
+        return ergebnisse;
+    }
+
+    private List<ErfassungZeilenErgebnis> verarbeiten(int b, ErfassungBatch batch) {
+        List<ErfassungDTO> eintraege = batch.eintraege();
+        ErfassungZeilenErgebnis[] ergebnisse = new ErfassungZeilenErgebnis[eintraege.size()];
+
+        Set<Integer> roster = new HashSet<>();
+        String gruppeFehler = null;
+        try {
+            referenzdatenRegistry.gruppe(batch.gruppeId());
+            for (RosterEintrag eintrag : rosterCache.roster(batch.gruppeId())) {
+                roster.add(eintrag.studentenId());
+            }
+        } catch (NoSuchElementException e) {
+            gruppeFehler = "Gruppe " + batch.gruppeId() + " ist unbekannt";
+        }
+
+        // Gültige Einträge mit ihrer Position im Batch
+        List<Integer> gueltig = new ArrayList<>();
+        for (int z = 0; z < eintraege.size(); z++) {
+            ErfassungDTO dto = eintraege.get(z);
+            String fehler = gruppeFehler != null ? gruppeFehler : pruefen(dto, batch.gruppeId(), roster);
+            if (fehler != null) {
+                ergebnisse[z] = new ErfassungZeilenErgebnis(b, z, dto.getStudentenId(), Ergebnis.UNGUELTIG, null, fehler);
+            } else {
+                gueltig.add(z);
+            }
+        }
+
+        if (gueltig.isEmpty()) {
+            return List.of(ergebnisse);
+        }
+        Set<Integer> konflikte = new HashSet<>();
+        try {
+            speichern(batch, gueltig, konflikte);
+            Map<Integer, Integer> versionen = new HashMap<>();
+            for (ErfassungStand stand : erfassungService.findStandByGruppeUndDatum(batch.gruppeId(), batch.datum())) {
+                versionen.put(stand.studentenId(), stand.version());
+            }
+            for (int z : gueltig) {
+                Integer studentenId = eintraege.get(z).getStudentenId();
+                ergebnisse[z] = konflikte.contains(studentenId)
+                        ? new ErfassungZeilenErgebnis(b, z, studentenId, Ergebnis.KONFLIKT, null,
+                                "Die Erfassung wurde zwischenzeitlich geändert")
+                        : new ErfassungZeilenErgebnis(b, z, studentenId, Ergebnis.GESPEICHERT,
+                                versionen.get(studentenId), null);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Erfassungs-API: Batch {} für Gruppe {} am {} nicht gespeichert", b, batch.gruppeId(),
+                    batch.datum(), e);
+            for (int z : gueltig) {
+                ergebnisse[z] = new ErfassungZeilenErgebnis(b, z, eintraege.get(z).getStudentenId(), Ergebnis.FEHLER,
+                        null, "Der Batch konnte nicht gespeichert werden");
+            }
+        }
+        return List.of(ergebnisse);
+    }
+
+    /**
+     * Speichert die gültigen Einträge; meldet der {@link ErfassungService} Konflikte, werden die betroffenen
+     * Studenten gemerkt und die übrigen Einträge erneut gespeichert.
+     */
+    private void speichern(ErfassungBatch batch, List<Integer> gueltig, Set<Integer> konflikte) {
+        List<ErfassungDTO> zuSpeichern = new ArrayList<>(gueltig.size());
+        for (int z : gueltig) {
+            zuSpeichern.add(batch.eintraege().get(z));
+        }
+        while (!zuSpeichern.isEmpty()) {
+            try {
+                erfassungService.erfassenAnwesenheiten(zuSpeichern, batch.datum());
+                return;
+            } catch (ErfassungKonfliktException e) {
+                konflikte.addAll(e.getStudentenIds());
+                zuSpeichern.removeIf(dto -> konflikte.contains(dto.getStudentenId()));
+            }
+        }
+    }
+
+    private String pruefen(ErfassungDTO dto, Integer gruppeId, Set<Integer> roster) {
+        Set<ConstraintViolation<ErfassungDTO>> verletzungen = validator.validate(dto);
+        if (!verletzungen.isEmpty()) {
+            return verletzungen.stream().map(ConstraintViolation::getMessage).sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (!roster.contains(dto.getStudentenId())) {
+            return "Student " + dto.getStudentenId() + " gehört nicht zur Gruppe " + gruppeId;
+        }
+        try {
+            referenzdatenRegistry.status(dto.getStatusId());
+            if (dto.getAnkunftszeit() != null && !dto.getAnkunftszeit().isBlank()) {
+                LocalTime.parse(dto.getAnkunftszeit());
+            }
+        } catch (NoSuchElementException e) {
+            return "Status " + dto.getStatusId() + " ist unbekannt";
+        } catch (DateTimeParseException e) {
+            return "Ankunftszeit muss im Format HH:MM angegeben werden";
+        }
+        return null;
+    }
+}
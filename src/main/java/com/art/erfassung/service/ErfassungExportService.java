@@ -0,0 +1,234 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.ErfassungExportZeile;
+import com.art.erfassung.dto.ExportFormat;
+import com.art.erfassung.repository.ErfassungRepository;
+import org.dhatim.fastexcel.Workbook;
+import org.dhatim.fastexcel.Worksheet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Serviceklasse für den Export der Erfassungen beliebig langer Zeiträume als CSV oder XLSX.
+ * <p>
+ * Die Zeilen werden über {@link ErfassungRepository#streamExport(LocalDate, LocalDate, Integer)} mit einem
+ * vorwärts gerichteten Cursor gelesen und sofort in den Ausgabestrom geschrieben. Im Speicher liegt jeweils nur
+ * ein Block von Zeilen; der Speicherbedarf ist daher unabhängig von Zeitraum und Anzahl der Gruppen.
+ * </p>
+ */
+@Service
+public class ErfassungExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungExportService.class);
+
+    /**
+     * Maximale Anzahl Zeilen eines Excel-Tabellenblatts einschließlich Kopfzeile.
+     */
+    public static final int MAX_ZEILEN_JE_BLATT = 1_048_576;
+
+    // Anzahl Zeilen, nach denen ein Tabellenblatt in den Ausgabestrom geschrieben wird
+    private static final int ZEILEN_JE_BLOCK = 1_000;
+
+    /**
+     * Anzahl Zeilen, nach denen der Fortschritt eines Exports gemeldet wird.
+     */
+    public static final int ZEILEN_JE_FORTSCHRITT = 10_000;
+
+    private static final String[] SPALTEN = {"Datum", "Gruppe", "Studenten-ID", "Name", "Vorname", "Status",
+            "Ankunftszeit", "Verspätung (Minuten)", "Kommentar"};
+
+    private static final DateTimeFormatter UHRZEIT = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Repository zur Verwaltung der Erfassungen
+    private final ErfassungRepository erfassungRepository;
+
+    public ErfassungExportService(ErfassungRepository erfassungRepository) {
+        this.erfassungRepository = erfassungRepository;
+    }
+
+    /**
+     * Exportiert alle Erfassungen eines Zeitraums in den Ausgabestrom.
+     *
+     * @param von      das erste Datum des Zeitraums
+     * @param bis      das letzte Datum des Zeitraums
+     * @param gruppeId die ID der Gruppe oder null für alle Gruppen
+     * @param format   das Dateiformat
+     * @param out      der Ausgabestrom; er wird nicht geschlossen
+     * @return die Anzahl der exportierten Erfassungen
+     * @throws IOException wenn der Ausgabestrom nicht beschrieben werden kann, z. B. nach einem Verbindungsabbruch
+     */
+    @Transactional(readOnly = true)
+    public long exportieren(LocalDate von, LocalDate bis, Integer gruppeId, ExportFormat format, OutputStream out)
+            throws IOException {
+        return exportieren(von, bis, gruppeId, format, out, anzahl -> { });
+    }
+
+    /**
+     * Exportiert alle Erfassungen eines Zeitraums in den Ausgabestrom und meldet dabei den Fortschritt.
+     *
+     * @param von         das erste Datum des Zeitraums
+     * @param bis         das letzte Datum des Zeitraums
+     * @param gruppeId    die ID der Gruppe oder null für alle Gruppen
+     * @param format      das Dateiformat
+     * @param out         der Ausgabestrom; er wird nicht geschlossen
+     * @param fortschritt erhält alle {@value #ZEILEN_JE_FORTSCHRITT} Zeilen die Anzahl der bisher gelesenen Zeilen
+     * @return die Anzahl der exportierten Erfassungen
+     * @throws IOException wenn der Ausgabestrom nicht beschrieben werden kann
+     */
+    @Transactional(readOnly = true)
+    public long exportieren(LocalDate von, LocalDate bis, Integer gruppeId, ExportFormat format, OutputStream out,
+                            LongConsumer fortschritt) throws IOException {
+        long start = System.nanoTime();
+        long[] gelesen = {0};
+        try (Stream<ErfassungExportZeile> zeilen = erfassungRepository.streamExport(von, bis, gruppeId)) {
+            long anzahl = schreiben(zeilen.peek(zeile -> {
+                if (++gelesen[0] % ZEILEN_JE_FORTSCHRITT == 0) {
+                    fortschritt.accept(gelesen[0]);
+                }
+            }), format, out);
+            logger.info("Export {} bis {} (Gruppe {}) als {}: {} Erfassungen in {} ms", von, bis,
+                    gruppeId != null ? gruppeId : "alle", format, anzahl, (System.nanoTime() - start) / 1_000_000);
+            return anzahl;
+        }
+    }
+
+    /**
+     * Schreibt die Zeilen im angegebenen Format in den Ausgabestrom.
+     *
+     * @param zeilen die Exportzeilen; sie werden genau einmal durchlaufen
+     * @param format das Dateiformat
+     * @param out    der Ausgabestrom; er wird nicht geschlossen
+     * @return die Anzahl der geschriebenen Zeilen ohne Kopfzeile
+     * @throws IOException wenn der Ausgabestrom nicht beschrieben werden kann
+     */
+    public long schreiben(Stream<ErfassungExportZeile> zeilen, ExportFormat format, OutputStream out)
+            throws IOException {
+        return switch (format) {
+            case CSV -> csvSchreiben(zeilen.iterator(), out);
+            case XLSX -> xlsxSchreiben(zeilen.iterator(), out);
+        };
+    }
+
+    private static long csvSchreiben(Iterator<ErfassungExportZeile> zeilen, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        // Byte Order Mark, damit Excel die Datei als UTF-8 erkennt
+        writer.write('\uFEFF');
+        writer.write(String.join(";", SPALTEN));
+        writer.write("\r\n");
+        long anzahl = 0;
+        while (zeilen.hasNext()) {
+            ErfassungExportZeile zeile = zeilen.next();
+            writer.write(zeile.datum().toString());
+            writer.write(';');
+            csvText(writer, zeile.gruppe());
+            writer.write(';');
+            writer.write(zeile.studentenId().toString());
+            writer.write(';');
+            csvText(writer, zeile.name());
+            writer.write(';');
+            csvText(writer, zeile.vorname());
+            writer.write(';');
+            csvText(writer, zeile.status());
+            writer.write(';');
+            if (zeile.ankunftszeit() != null) {
+                writer.write(zeile.ankunftszeit().format(UHRZEIT));
+            }
+            writer.write(';');
+            if (zeile.verspaetungMinuten() != null) {
+                writer.write(zeile.verspaetungMinuten().toString());
+            }
+            writer.write(';');
+            csvText(writer, zeile.kommentar());
+            writer.write("\r\n");
+            anzahl++;
+        }
+        writer.flush();
+        return anzahl;
+    }
+
+    /**
+     * Schreibt einen Text als CSV-Feld. Felder mit Trennzeichen, Anführungszeichen oder Zeilenumbrüchen werden in
+     * Anführungszeichen gesetzt; Texte, die Excel als Formel auswerten würde, erhalten ein führendes Apostroph.
+     */
+    static void csvText(Writer writer, String text) throws IOException {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        char erstes = text.charAt(0);
+        if (erstes == '=' || erstes == '+' || erstes == '-' || erstes == '@' || erstes == '\t' || erstes == '\r') {
+            text = "'" + text;
+        }
+        if (text.indexOf(';') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static long xlsxSchreiben(Iterator<ErfassungExportZeile> zeilen, OutputStream out) throws IOException {
+        Workbook workbook = new Workbook(out, "Erfassung", "1.0");
+        int blatt = 1;
+        Worksheet worksheet = neuesBlatt(workbook, blatt);
+        int zeile = 1;
+        long anzahl = 0;
+        while (zeilen.hasNext()) {
+            if (zeile == MAX_ZEILEN_JE_BLATT) {
+                worksheet.finish();
+                worksheet = neuesBlatt(workbook, ++blatt);
+                zeile = 1;
+            }
+            ErfassungExportZeile eintrag = zeilen.next();
+            worksheet.value(zeile, 0, eintrag.datum());
+            worksheet.style(zeile, 0).format("dd.mm.yyyy").set();
+            // Inline-Texte statt der gemeinsamen Stringtabelle, die bis zum Ende im Speicher bliebe
+            worksheet.inlineString(zeile, 1, eintrag.gruppe());
+            worksheet.value(zeile, 2, eintrag.studentenId());
+            worksheet.inlineString(zeile, 3, eintrag.name());
+            worksheet.inlineString(zeile, 4, eintrag.vorname());
+            worksheet.inlineString(zeile, 5, eintrag.status());
+            if (eintrag.ankunftszeit() != null) {
+                worksheet.value(zeile, 6, eintrag.ankunftszeit().toSecondOfDay() / 86_400.0);
+                worksheet.style(zeile, 6).format("hh:mm").set();
+            }
+            if (eintrag.verspaetungMinuten() != null) {
+                worksheet.value(zeile, 7, eintrag.verspaetungMinuten());
+            }
+            if (eintrag.kommentar() != null) {
+                worksheet.inlineString(zeile, 8, eintrag.kommentar());
+            }
+            zeile++;
+            anzahl++;
+            if (zeile % ZEILEN_JE_BLOCK == 0) {
+                worksheet.flush();
+            }
+        }
+        workbook.finish();
+        return anzahl;
+    }
+
+    private static Worksheet neuesBlatt(Workbook workbook, int nummer) {
+        Worksheet worksheet = workbook.newWorksheet(nummer == 1 ? "Erfassungen" : "Erfassungen " + nummer);
+        for (int spalte = 0; spalte < SPALTEN.length; spalte++) {
+            worksheet.inlineString(0, spalte, SPALTEN[spalte]);
+        }
+        worksheet.range(0, 0, 0, SPALTEN.length - 1).style().bold().set();
+        worksheet.freezePane(0, 1);
+        return worksheet;
+    }
+}
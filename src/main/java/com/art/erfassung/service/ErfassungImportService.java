@@ -0,0 +1,612 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.StudentenStamm;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.ErfassungsTagId;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Serviceklasse für den Massenimport von Studenten und Erfassungen aus einer CSV-Datei.
+ * <p>
+ * Das Format entspricht dem des Exports (siehe {@link ErfassungExportService}): Semikolon als Trennzeichen, UTF-8
+ * und eine Kopfzeile, über die die Spalten erkannt werden. Ein Student wird über die Spalte "Studenten-ID" oder,
+ * wenn sie leer ist, über Gruppe, Name und Vorname bestimmt; unbekannte Studenten und Gruppen werden angelegt.
+ * Zeilen ohne Datum legen nur den Studenten an, sodass auch reine Studentenlisten importiert werden können.
+ * </p>
+ * <p>
+ * Die Datei wird zeilenweise gelesen und in Abschnitten von {@code erfassung.import.abschnitt-groesse} Zeilen
+ * gespeichert, jeder Abschnitt in einer eigenen Transaktion. Gruppen, Status und vorhandene Studenten werden zu
+ * Beginn einmal in Maps geladen. Studenten und Erfassungen werden über eine {@link StatelessSession} auf der
+ * Verbindung der Transaktion in JDBC-Batches eingefügt und nicht im Persistenzkontext gehalten. Die
+ * Anwesenheitszähler werden wie beim Speichern über ein {@link ErfassungenGespeichertEvent} in derselben
+ * Transaktion fortgeschrieben. Wie beim Speichern eines Formulars hält jeder Abschnitt die {@link GruppenSperren}
+ * seiner Gruppen, bevor er die vorhandenen Erfassungen liest, sodass kein gleichzeitiges Speichern derselben Gruppe
+ * zwischen Prüfung und Einfügen eine Erfassung anlegt.
+ * </p>
+ * <p>
+ * Eine importierte Erfassung an einem als erfasst markierten Tag der sparsamen Speicherung ersetzt für Studenten,
+ * die an diesem Tag bereits Mitglied der Gruppe waren, den angenommenen Status "Anwesend"; die Anwesenheitszähler
+ * erhalten ihn daher als bisherigen Zustand.
+ * </p>
+ * <p>
+ * Vorhandene Erfassungen (Student und Datum) werden nicht überschrieben, sondern übersprungen. Ein abgebrochener
+ * Import wird daher fortgesetzt, indem dieselbe Datei erneut importiert wird.
+ * </p>
+ */
+@Service
+public class ErfassungImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungImportService.class);
+
+    // Höchstzahl der Fehlermeldungen im Ergebnis; weitere fehlerhafte Zeilen werden nur gezählt
+    static final int MAX_FEHLERMELDUNGEN = 20;
+
+    private static final DateTimeFormatter DATUM_DEUTSCH = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    // Zwischengespeicherte Studentenlisten der Gruppen
+    private final RosterCache rosterCache;
+    // Sperren je Gruppe, unter denen auch Erfassungen gespeichert werden
+    private final GruppenSperren gruppenSperren;
+    private final GruppeRepository gruppeRepository;
+    private final StudentenRepository studentenRepository;
+    private final ErfassungRepository erfassungRepository;
+    // Repository der als erfasst markierten Tage der sparsamen Speicherung
+    private final ErfassungsTagRepository erfassungsTagRepository;
+
+    // Anzahl der Zeilen, die pro Transaktion gespeichert werden
+    private final int abschnittGroesse;
+    // Anzahl der Inserts pro JDBC-Batch
+    private final int batchGroesse;
+
+    public ErfassungImportService(EntityManager entityManager, TransactionTemplate transactionTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  ReferenzdatenRegistry referenzdatenRegistry, RosterCache rosterCache,
+                                  GruppenSperren gruppenSperren, GruppeRepository gruppeRepository, StudentenRepository studentenRepository,
+                                  ErfassungRepository erfassungRepository,
+                                  ErfassungsTagRepository erfassungsTagRepository,
+                                  @Value("${erfassung.import.abschnitt-groesse:5000}") int abschnittGroesse,
+                                  @Value("${erfassung.import.batch-groesse:1000}") int batchGroesse) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.rosterCache = rosterCache;
+        this.gruppenSperren = gruppenSperren;
+        this.gruppeRepository = gruppeRepository;
+        this.studentenRepository = studentenRepository;
+        this.erfassungRepository = erfassungRepository;
+        this.erfassungsTagRepository = erfassungsTagRepository;
+        this.abschnittGroesse = abschnittGroesse;
+        this.batchGroesse = batchGroesse;
+    }
+
+    /**
+     * Importiert alle Zeilen der CSV-Datei.
+     * <p>
+     * Fehlerhafte Zeilen werden gezählt und übersprungen. Scheitert das Speichern eines Abschnitts, wird der Import
+     * abgebrochen; alle vorherigen Abschnitte bleiben gespeichert.
+     * </p>
+     *
+     * @param in der Inhalt der CSV-Datei; er wird nicht geschlossen
+     * @return ein {@link ImportErgebnis} mit dem Fortschritt und den ersten Fehlermeldungen
+     * @throws IOException              wenn die Datei nicht gelesen werden kann
+     * @throws IllegalArgumentException wenn die Datei leer ist oder die Kopfzeile nötige Spalten nicht enthält
+     */
+    public ImportErgebnis importieren(InputStream in) throws IOException {
+        long start = System.nanoTime();
+        CsvLeser leser = new CsvLeser(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024));
+        List<String> kopf = leser.naechsterDatensatz();
+        if (kopf == null) {
+            throw new IllegalArgumentException("Die Importdatei ist leer");
+        }
+        Spalten spalten = Spalten.aus(kopf);
+        Zuordnung zuordnung = zuordnungLaden();
+        Fortschritt fortschritt = new Fortschritt();
+
+        List<ImportZeile> abschnitt = new ArrayList<>(abschnittGroesse);
+        List<String> felder;
+        while ((felder = leser.naechsterDatensatz()) != null) {
+            if (felder.size() == 1 && felder.get(0).isBlank()) {
+                continue;
+            }
+            fortschritt.zeilen++;
+            try {
+                abschnitt.add(spalten.zeile(leser.zeilennummer, felder, zuordnung));
+            } catch (IllegalArgumentException e) {
+                fortschritt.fehler("Zeile " + leser.zeilennummer + ": " + e.getMessage());
+            } catch (DateTimeParseException e) {
+                fortschritt.fehler("Zeile " + leser.zeilennummer + ": \"" + e.getParsedString()
+                        + "\" ist kein gültiges Datum bzw. keine gültige Uhrzeit");
+            }
+            if (abschnitt.size() == abschnittGroesse) {
+                if (!abschnittSpeichern(abschnitt, zuordnung, fortschritt, start)) {
+                    return fortschritt.ergebnis(true, start);
+                }
+                abschnitt.clear();
+            }
+        }
+        if (!abschnitt.isEmpty() && !abschnittSpeichern(abschnitt, zuordnung, fortschritt, start)) {
+            return fortschritt.ergebnis(true, start);
+        }
+        ImportErgebnis ergebnis = fortschritt.ergebnis(false, start);
+        logger.info("Import abgeschlossen: {}", ergebnis);
+        return ergebnis;
+    }
+
+    private Zuordnung zuordnungLaden() {
+        Zuordnung zuordnung = new Zuordnung();
+        for (Gruppe gruppe : referenzdatenRegistry.alleGruppen()) {
+            zuordnung.gruppen.put(gruppe.getBezeichnung(), gruppe.getId());
+        }
+        for (Status status : referenzdatenRegistry.alleStatus()) {
+            zuordnung.status.put(status.getBezeichnung().toLowerCase(Locale.ROOT), status.getId());
+        }
+        for (StudentenStamm stamm : studentenRepository.findAllStamm()) {
+            zuordnung.studenten.put(studentenSchluessel(stamm.gruppeId(), stamm.name(), stamm.vorname()),
+                    stamm.studentenId());
+            zuordnung.gruppeVonStudent.put(stamm.studentenId(), stamm.gruppeId());
+            if (stamm.gruppeSeit() != null) {
+                zuordnung.gruppeSeitVonStudent.put(stamm.studentenId(), stamm.gruppeSeit());
+            }
+        }
+        return zuordnung;
+    }
+
+    private boolean abschnittSpeichern(List<ImportZeile> abschnitt, Zuordnung zuordnung, Fortschritt fortschritt,
+                                       long start) {
+        Abschnitt gespeichert;
+        try {
+            gespeichert = transactionTemplate.execute(status -> abschnittSchreiben(abschnitt, zuordnung));
+        } catch (RuntimeException e) {
+            logger.error("Import nach Zeile {} abgebrochen", fortschritt.gespeichertBisZeile, e);
+            fortschritt.fehler("Abschnitt ab Zeile " + abschnitt.get(0).zeilennummer() + " nicht gespeichert: "
+                    + e.getMessage());
+            return false;
+        }
+        // Erst nach dem Commit übernehmen, damit ein verworfener Abschnitt keine ungültigen IDs hinterlässt
+        zuordnung.gruppen.putAll(gespeichert.neueGruppen());
+        zuordnung.studenten.putAll(gespeichert.neueStudenten());
+        zuordnung.gruppeVonStudent.putAll(gespeichert.gruppeVonNeuemStudent());
+        zuordnung.gruppeSeitVonStudent.putAll(gespeichert.gruppeSeitVonNeuemStudent());
+        fortschritt.gruppenAngelegt += gespeichert.neueGruppen().size();
+        fortschritt.studentenAngelegt += gespeichert.neueStudenten().size();
+        fortschritt.erfassungenAngelegt += gespeichert.erfassungen();
+        fortschritt.uebersprungen += gespeichert.uebersprungen();
+        fortschritt.gespeichertBisZeile = abschnitt.get(abschnitt.size() - 1).zeilennummer();
+        logger.info("Import: {} Zeilen bis Zeile {} verarbeitet, {} Erfassungen angelegt, {} Zeilen/s",
+                fortschritt.zeilen, fortschritt.gespeichertBisZeile, fortschritt.erfassungenAngelegt,
+                fortschritt.ergebnis(false, start).zeilenJeSekunde());
+        return true;
+    }
+
+    private Abschnitt abschnittSchreiben(List<ImportZeile> abschnitt, Zuordnung zuordnung) {
+        Map<String, Integer> neueGruppen = new HashMap<>();
+        for (ImportZeile zeile : abschnitt) {
+            if (zeile.studentenId() == null && !zuordnung.gruppen.containsKey(zeile.gruppe())
+                    && !neueGruppen.containsKey(zeile.gruppe())) {
+                neueGruppen.put(zeile.gruppe(), gruppeRepository.save(new Gruppe(zeile.gruppe())).getId());
+            }
+        }
+        // Vor dem Lesen der vorhandenen Erfassungen, in aufsteigender Reihenfolge wie beim Speichern
+        Set<Integer> gruppeIds = gruppenDesAbschnitts(abschnitt, zuordnung, neueGruppen);
+        gruppenSperren.sperrenBisTransaktionsende(gruppeIds);
+        Session session = entityManager.unwrap(Session.class);
+        Abschnitt gespeichert = session.doReturningWork(verbindung -> {
+            // Die Sitzung nutzt die Verbindung der laufenden Transaktion, hält aber keine Entitäten
+            try (StatelessSession stateless = session.getSessionFactory().withStatelessOptions()
+                    .connection(verbindung).openStatelessSession()) {
+                stateless.setJdbcBatchSize(batchGroesse);
+                Abschnitt ergebnis = abschnittEinfuegen(stateless, abschnitt, zuordnung, neueGruppen, gruppeIds);
+                // Ohne eigene Transaktion sendet die Sitzung den letzten, unvollständigen Batch nicht selbst
+                ((SharedSessionContractImplementor) stateless).getJdbcCoordinator().executeBatch();
+                return ergebnis;
+            }
+        });
+        if (!gespeichert.aenderungen().isEmpty()) {
+            eventPublisher.publishEvent(new ErfassungenGespeichertEvent(gespeichert.aenderungen()));
+        }
+        for (Integer gruppeId : new HashSet<>(gespeichert.gruppeVonNeuemStudent().values())) {
+            rosterCache.verwerfen(gruppeId);
+        }
+        return gespeichert;
+    }
+
+    private static Set<Integer> gruppenDesAbschnitts(List<ImportZeile> abschnitt, Zuordnung zuordnung,
+                                                     Map<String, Integer> neueGruppen) {
+        Set<Integer> gruppeIds = new TreeSet<>();
+        for (ImportZeile zeile : abschnitt) {
+            Integer gruppeId = zeile.studentenId() != null ? zuordnung.gruppeVonStudent.get(zeile.studentenId())
+                    : zuordnung.gruppen.getOrDefault(zeile.gruppe(), neueGruppen.get(zeile.gruppe()));
+            if (gruppeId != null) {
+                gruppeIds.add(gruppeId);
+            }
+        }
+        return gruppeIds;
+    }
+
+    private Abschnitt abschnittEinfuegen(StatelessSession stateless, List<ImportZeile> abschnitt,
+                                         Zuordnung zuordnung, Map<String, Integer> neueGruppen,
+                                         Set<Integer> gruppeIds) {
+        Map<String, Integer> neueStudenten = new HashMap<>();
+        Map<Integer, Integer> gruppeVonNeuemStudent = new HashMap<>();
+        Map<Integer, LocalDate> gruppeSeitVonNeuemStudent = new HashMap<>();
+        Integer[] studentenIds = new Integer[abschnitt.size()];
+        Set<Integer> vorhandeneStudenten = new HashSet<>();
+        Set<LocalDate> tage = new HashSet<>();
+        Set<LocalDate> alleTage = new HashSet<>();
+        for (int i = 0; i < abschnitt.size(); i++) {
+            ImportZeile zeile = abschnitt.get(i);
+            Integer studentenId = zeile.studentenId();
+            if (studentenId == null) {
+                Integer gruppeId = zuordnung.gruppen.getOrDefault(zeile.gruppe(), neueGruppen.get(zeile.gruppe()));
+                String schluessel = studentenSchluessel(gruppeId, zeile.name(), zeile.vorname());
+                studentenId = zuordnung.studenten.get(schluessel);
+                if (studentenId == null) {
+                    studentenId = neueStudenten.get(schluessel);
+                }
+                if (studentenId == null) {
+                    Studenten neu = new Studenten(zeile.name(), zeile.vorname(), referenzdatenRegistry.gruppe(gruppeId));
+                    studentenId = (Integer) stateless.insert(neu);
+                    neueStudenten.put(schluessel, studentenId);
+                    gruppeVonNeuemStudent.put(studentenId, gruppeId);
+                    gruppeSeitVonNeuemStudent.put(studentenId, neu.getGruppeSeit());
+                }
+            }
+            studentenIds[i] = studentenId;
+            if (zeile.datum() != null) {
+                alleTage.add(zeile.datum());
+                if (!gruppeVonNeuemStudent.containsKey(studentenId)) {
+                    vorhandeneStudenten.add(studentenId);
+                    tage.add(zeile.datum());
+                }
+            }
+        }
+
+        // Neu angelegte Studenten haben noch keine Erfassungen; für alle anderen genügt eine Abfrage je Tag über den
+        // Datumsindex, die unabhängig von der Länge der Historie der Studenten bleibt
+        Set<ErfassungSchluessel> vorhanden = new HashSet<>();
+        for (LocalDate tag : tage) {
+            for (Integer studentenId : erfassungRepository.findStudentenIdsByDatum(tag)) {
+                if (vorhandeneStudenten.contains(studentenId)) {
+                    vorhanden.add(new ErfassungSchluessel(studentenId, tag));
+                }
+            }
+        }
+        // An markierten Tagen galten Mitglieder ohne Erfassung bisher als "Anwesend"
+        Integer anwesendId = null;
+        Set<ErfassungsTagId> markierungen = Set.of();
+        if (!alleTage.isEmpty() && !gruppeIds.isEmpty()) {
+            anwesendId = referenzdatenRegistry.statusMitBezeichnung(Status.ANWESEND).map(Status::getId).orElse(null);
+            if (anwesendId != null) {
+                markierungen = new HashSet<>(erfassungsTagRepository.findMarkierungen(gruppeIds, alleTage));
+            }
+        }
+        List<ErfassungsAenderung> aenderungen = new ArrayList<>();
+        int uebersprungen = 0;
+        for (int i = 0; i < abschnitt.size(); i++) {
+            ImportZeile zeile = abschnitt.get(i);
+            if (zeile.datum() == null) {
+                continue;
+            }
+            Integer studentenId = studentenIds[i];
+            if (!vorhanden.add(new ErfassungSchluessel(studentenId, zeile.datum()))) {
+                uebersprungen++;
+                continue;
+            }
+            Studenten student = new Studenten();
+            student.setId(studentenId);
+            Erfassung erfassung = new Erfassung(student, zeile.datum(), referenzdatenRegistry.status(zeile.statusId()),
+                    zeile.kommentar());
+            erfassung.setAnkunftszeit(zeile.ankunftszeit());
+            erfassung.setVerspaetungMinuten(zeile.verspaetungMinuten());
+            stateless.insert(erfassung);
+            Integer gruppeId = zuordnung.gruppeVonStudent.getOrDefault(studentenId,
+                    gruppeVonNeuemStudent.get(studentenId));
+            LocalDate gruppeSeit = zuordnung.gruppeSeitVonStudent.getOrDefault(studentenId,
+                    gruppeSeitVonNeuemStudent.get(studentenId));
+            boolean implizitAnwesend = markierungen.contains(new ErfassungsTagId(gruppeId, zeile.datum()))
+                    && (gruppeSeit == null || !gruppeSeit.isAfter(zeile.datum()));
+            int verspaetung = zeile.verspaetungMinuten() != null ? zeile.verspaetungMinuten() : 0;
+            aenderungen.add(new ErfassungsAenderung(studentenId, gruppeId, zeile.datum(),
+                    implizitAnwesend ? anwesendId : null, 0, zeile.statusId(), verspaetung));
+        }
+        return new Abschnitt(neueGruppen, neueStudenten, gruppeVonNeuemStudent, gruppeSeitVonNeuemStudent,
+                aenderungen.size(), uebersprungen, aenderungen);
+    }
+
+    private static String studentenSchluessel(Integer gruppeId, String name, String vorname) {
+        return gruppeId + "\u001F" + name + "\u001F" + vorname;
+    }
+
+    /**
+     * Ergebnis eines Imports.
+     *
+     * @param zeilen              Anzahl der gelesenen Datenzeilen
+     * @param gruppenAngelegt     Anzahl der neu angelegten Gruppen
+     * @param studentenAngelegt   Anzahl der neu angelegten Studenten
+     * @param erfassungenAngelegt Anzahl der neu angelegten Erfassungen
+     * @param uebersprungen       Anzahl der Erfassungen, die bereits vorhanden waren
+     * @param fehlerhaft          Anzahl der fehlerhaften Zeilen
+     * @param fehler              die ersten {@value #MAX_FEHLERMELDUNGEN} Fehlermeldungen
+     * @param gespeichertBisZeile die Zeilennummer, bis zu der alle Abschnitte gespeichert sind
+     * @param abgebrochen         ob der Import vor dem Ende der Datei abgebrochen wurde
+     * @param dauerMs             die Dauer des Imports in Millisekunden
+     */
+    public record ImportErgebnis(long zeilen, long gruppenAngelegt, long studentenAngelegt, long erfassungenAngelegt,
+                                 long uebersprungen, long fehlerhaft, List<String> fehler, long gespeichertBisZeile,
+                                 boolean abgebrochen, long dauerMs) {
+
+        /**
+         * Liefert den Durchsatz des Imports.
+         *
+         * @return die gelesenen Zeilen je Sekunde
+         */
+        public long zeilenJeSekunde() {
+            return dauerMs == 0 ? zeilen : zeilen * 1_000 / dauerMs;
+        }
+    }
+
+    /**
+     * Geprüfte Datenzeile der Importdatei; Gruppe, Name und Vorname sind nur gesetzt, wenn die Studenten-ID fehlt.
+     */
+    private record ImportZeile(long zeilennummer, Integer studentenId, String gruppe, String name, String vorname,
+                               LocalDate datum, Integer statusId, LocalTime ankunftszeit, Integer verspaetungMinuten,
+                               String kommentar) {
+    }
+
+    /**
+     * Fachlicher Schlüssel einer Erfassung: je Student und Datum gibt es höchstens eine Erfassung.
+     */
+    private record ErfassungSchluessel(Integer studentenId, LocalDate datum) {
+    }
+
+    private record Abschnitt(Map<String, Integer> neueGruppen, Map<String, Integer> neueStudenten,
+                             Map<Integer, Integer> gruppeVonNeuemStudent,
+                             Map<Integer, LocalDate> gruppeSeitVonNeuemStudent, int erfassungen, int uebersprungen,
+                             List<ErfassungsAenderung> aenderungen) {
+    }
+
+    /**
+     * Im Speicher gehaltene Zuordnungen von Namen zu IDs für die Dauer eines Imports.
+     */
+    private static class Zuordnung {
+        private final Map<String, Integer> gruppen = new HashMap<>();
+        private final Map<String, Integer> status = new HashMap<>();
+        private final Map<String, Integer> studenten = new HashMap<>();
+        private final Map<Integer, Integer> gruppeVonStudent = new HashMap<>();
+        // Beginn der Gruppenzugehörigkeit; Studenten ohne Eintrag sind "seit jeher" Mitglied
+        private final Map<Integer, LocalDate> gruppeSeitVonStudent = new HashMap<>();
+    }
+
+    private static class Fortschritt {
+        private long zeilen;
+        private long gruppenAngelegt;
+        private long studentenAngelegt;
+        private long erfassungenAngelegt;
+        private long uebersprungen;
+        private long fehlerhaft;
+        private long gespeichertBisZeile;
+        private final List<String> fehler = new ArrayList<>();
+
+        private void fehler(String meldung) {
+            fehlerhaft++;
+            if (fehler.size() < MAX_FEHLERMELDUNGEN) {
+                fehler.add(meldung);
+            }
+        }
+
+        private ImportErgebnis ergebnis(boolean abgebrochen, long start) {
+            return new ImportErgebnis(zeilen, gruppenAngelegt, studentenAngelegt, erfassungenAngelegt, uebersprungen,
+                    fehlerhaft, List.copyOf(fehler), gespeichertBisZeile, abgebrochen,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Positionen der erkannten Spalten in der Kopfzeile; -1 für fehlende Spalten.
+     */
+    private record Spalten(int datum, int gruppe, int studentenId, int name, int vorname, int status,
+                           int ankunftszeit, int verspaetung, int kommentar) {
+
+        static Spalten aus(List<String> kopf) {
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < kopf.size(); i++) {
+                index.put(kopf.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            Spalten spalten = new Spalten(index.getOrDefault("datum", -1), index.getOrDefault("gruppe", -1),
+                    index.getOrDefault("studenten-id", -1), index.getOrDefault("name", -1),
+                    index.getOrDefault("vorname", -1), index.getOrDefault("status", -1),
+                    index.getOrDefault("ankunftszeit", -1), index.getOrDefault("verspätung (minuten)", -1),
+                    index.getOrDefault("kommentar", -1));
+            if (spalten.studentenId < 0 && (spalten.gruppe < 0 || spalten.name < 0 || spalten.vorname < 0)) {
+                throw new IllegalArgumentException(
+                        "Die Kopfzeile benötigt die Spalte Studenten-ID oder die Spalten Gruppe, Name und Vorname");
+            }
+            if (spalten.datum >= 0 && spalten.status < 0) {
+                throw new IllegalArgumentException("Die Kopfzeile enthält die Spalte Datum, aber nicht Status");
+            }
+            return spalten;
+        }
+
+        ImportZeile zeile(long zeilennummer, List<String> felder, Zuordnung zuordnung) {
+            Integer studentenId = null;
+            String gruppe = null;
+            String name = null;
+            String vorname = null;
+            String id = feld(felder, studentenId());
+            if (id != null) {
+                studentenId = zahl(id, "Studenten-ID");
+                if (!zuordnung.gruppeVonStudent.containsKey(studentenId)) {
+                    throw new IllegalArgumentException("Student " + studentenId + " ist unbekannt");
+                }
+            } else {
+                gruppe = pflichtfeld(felder, gruppe(), "Gruppe");
+                name = pflichtfeld(felder, name(), "Name");
+                vorname = pflichtfeld(felder, vorname(), "Vorname");
+            }
+
+            String datumText = feld(felder, datum());
+            if (datumText == null) {
+                return new ImportZeile(zeilennummer, studentenId, gruppe, name, vorname, null, null, null, null, null);
+            }
+            LocalDate datum = datumText.contains(".") ? LocalDate.parse(datumText, DATUM_DEUTSCH)
+                    : LocalDate.parse(datumText);
+            String statusText = pflichtfeld(felder, status(), "Status");
+            Integer statusId = zuordnung.status.get(statusText.toLowerCase(Locale.ROOT));
+            if (statusId == null) {
+                throw new IllegalArgumentException("Status \"" + statusText + "\" ist unbekannt");
+            }
+            String ankunftText = feld(felder, ankunftszeit());
+            LocalTime ankunftszeit = ankunftText != null ? LocalTime.parse(ankunftText) : null;
+            String verspaetungText = feld(felder, verspaetung());
+            Integer verspaetungMinuten = verspaetungText != null ? zahl(verspaetungText, "Verspätung")
+                    : ankunftszeit != null ? ErfassungService.berechneVerspaetung(ankunftszeit) : null;
+            return new ImportZeile(zeilennummer, studentenId, gruppe, name, vorname, datum, statusId, ankunftszeit,
+                    verspaetungMinuten, feld(felder, kommentar()));
+        }
+
+        private static String pflichtfeld(List<String> felder, int spalte, String bezeichnung) {
+            String wert = feld(felder, spalte);
+            if (wert == null) {
+                throw new IllegalArgumentException(bezeichnung + " fehlt");
+            }
+            return wert;
+        }
+
+        /**
+         * Liefert den Inhalt einer Spalte oder null, wenn sie fehlt oder leer ist. Das Apostroph, mit dem der Export
+         * Formeln entschärft, wird entfernt.
+         */
+        private static String feld(List<String> felder, int spalte) {
+            if (spalte < 0 || spalte >= felder.size()) {
+                return null;
+            }
+            String wert = felder.get(spalte).trim();
+            if (wert.isEmpty()) {
+                return null;
+            }
+            if (wert.length() > 1 && wert.charAt(0) == '\'' && "=+-@".indexOf(wert.charAt(1)) >= 0) {
+                wert = wert.substring(1);
+            }
+            return wert;
+        }
+
+        private static Integer zahl(String text, String bezeichnung) {
+            try {
+                return Integer.valueOf(text);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(bezeichnung + " \"" + text + "\" ist keine Zahl");
+            }
+        }
+    }
+
+    /**
+     * Liest Datensätze im CSV-Format des Exports: Semikolon als Trennzeichen, Felder optional in Anführungszeichen,
+     * verdoppelte Anführungszeichen und Zeilenumbrüche innerhalb von Anführungszeichen.
+     */
+    private static class CsvLeser {
+
+        private final BufferedReader reader;
+        // Nummer der Zeile, in der der zuletzt gelesene Datensatz beginnt; die Kopfzeile ist Zeile 1
+        private long zeilennummer;
+        private long gelesen;
+
+        CsvLeser(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        List<String> naechsterDatensatz() throws IOException {
+            String zeile = reader.readLine();
+            if (zeile == null) {
+                return null;
+            }
+            gelesen++;
+            zeilennummer = gelesen;
+            if (zeilennummer == 1 && !zeile.isEmpty() && zeile.charAt(0) == '\uFEFF') {
+                zeile = zeile.substring(1);
+            }
+            List<String> felder = new ArrayList<>();
+            StringBuilder feld = new StringBuilder();
+            boolean inAnfuehrung = false;
+            int i = 0;
+            while (true) {
+                if (i == zeile.length()) {
+                    if (!inAnfuehrung) {
+                        break;
+                    }
+                    // Zeilenumbruch innerhalb eines Feldes
+                    String weiter = reader.readLine();
+                    if (weiter == null) {
+                        throw new IllegalArgumentException("Zeile " + zeilennummer + ": Anführungszeichen nicht geschlossen");
+                    }
+                    gelesen++;
+                    feld.append('\n');
+                    zeile = weiter;
+                    i = 0;
+                    continue;
+                }
+                char c = zeile.charAt(i++);
+                if (inAnfuehrung) {
+                    if (c != '"') {
+                        feld.append(c);
+                    } else if (i < zeile.length() && zeile.charAt(i) == '"') {
+                        feld.append('"');
+                        i++;
+                    } else {
+                        inAnfuehrung = false;
+                    }
+                } else if (c == ';') {
+                    felder.add(feld.toString());
+                    feld.setLength(0);
+                } else if (c == '"' && feld.isEmpty()) {
+                    inAnfuehrung = true;
+                } else {
+                    feld.append(c);
+                }
+            }
+            felder.add(feld.toString());
+            return felder;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Lokales, nur anhängendes Journal für eingereichte Anwesenheitsformulare.
+ * <p>
+ * Jede Einreichung wird als eine Zeile {@code <crc32> <json>} angehängt und vor der Rückkehr per
+ * {@link FileChannel#force(boolean)} auf den Datenträger geschrieben. Die Sequenznummer der zuletzt in der
+ * Datenbank gespeicherten Einreichung steht in einer separaten Checkpoint-Datei. Beim Öffnen werden alle
+ * Einträge nach dem Checkpoint als offen geliefert; eine durch einen Absturz unvollständig geschriebene
+ * letzte Zeile wird an ihrer Prüfsumme erkannt und abgeschnitten. Sind alle Einträge bestätigt, wird das
+ * Journal geleert.
+ * </p>
+ * <p>
+ * Einreichungen, die sich dauerhaft nicht speichern lassen, werden mit dem Grund in eine eigene Datei
+ * ({@value #VERWORFEN_DATEI}) geschrieben, bevor der Checkpoint über sie hinaus fortgeschrieben wird, und können
+ * von dort nachträglich geprüft und erneut erfasst werden.
+ * </p>
+ * <p>
+ * Die Klasse ist threadsicher; alle Zugriffe auf die Dateien sind synchronisiert.
+ * </p>
+ */
+public class ErfassungJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungJournal.class);
+
+    static final String JOURNAL_DATEI = "erfassung-journal.log";
+    static final String CHECKPOINT_DATEI = "erfassung-journal.checkpoint";
+    static final String VERWORFEN_DATEI = "erfassung-journal.verworfen";
+
+    private final Path checkpointDatei;
+    private final Path verworfenDatei;
+    private final ObjectMapper objectMapper;
+    private final FileChannel kanal;
+
+    // Beim Öffnen gefundene, noch nicht bestätigte Einträge
+    private List<Eintrag> offeneEintraege;
+    private long letzteSequenz;
+    private long checkpoint;
+
+    /**
+     * Öffnet das Journal im angegebenen Verzeichnis und legt es bei Bedarf an.
+     *
+     * @param verzeichnis  das Verzeichnis für Journal- und Checkpoint-Datei
+     * @param objectMapper der Mapper zur Serialisierung der Einträge
+     * @throws IOException wenn die Dateien nicht gelesen oder angelegt werden können
+     */
+    public ErfassungJournal(Path verzeichnis, ObjectMapper objectMapper) throws IOException {
+        Files.createDirectories(verzeichnis);
+        this.checkpointDatei = verzeichnis.resolve(CHECKPOINT_DATEI);
+        this.verworfenDatei = verzeichnis.resolve(VERWORFEN_DATEI);
+        this.objectMapper = objectMapper;
+        this.checkpoint = Files.exists(checkpointDatei)
+                ? Long.parseLong(Files.readString(checkpointDatei, StandardCharsets.UTF_8).trim())
+                : 0L;
+        this.kanal = FileChannel.open(verzeichnis.resolve(JOURNAL_DATEI),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.letzteSequenz = checkpoint;
+        this.offeneEintraege = einlesen();
+    }
+
+    /**
+     * Liest alle gültigen Zeilen und schneidet eine unvollständige oder beschädigte letzte Zeile ab.
+     */
+    private List<Eintrag> einlesen() throws IOException {
+        long groesse = kanal.size();
+        ByteBuffer puffer = ByteBuffer.allocate((int) groesse);
+        while (puffer.hasRemaining() && kanal.read(puffer, puffer.position()) >= 0) {
+            // Weiterlesen, bis die Datei vollständig im Puffer liegt
+        }
+        byte[] inhalt = puffer.array();
+
+        List<Eintrag> offen = new ArrayList<>();
+        int zeilenStart = 0;
+        for (int i = 0; i < inhalt.length; i++) {
+            if (inhalt[i] != '\n') {
+                continue;
+            }
+            Eintrag eintrag = dekodieren(new String(inhalt, zeilenStart, i - zeilenStart, StandardCharsets.UTF_8));
+            if (eintrag == null) {
+                break;
+            }
+            letzteSequenz = Math.max(letzteSequenz, eintrag.sequenz());
+            if (eintrag.sequenz() > checkpoint) {
+                offen.add(eintrag);
+            }
+            zeilenStart = i + 1;
+        }
+        if (zeilenStart < groesse) {
+            logger.warn("Erfassungsjournal: unvollständiges Ende ({} Bytes) wird abgeschnitten", groesse - zeilenStart);
+            kanal.truncate(zeilenStart);
+            kanal.force(true);
+        }
+        return offen;
+    }
+
+    private Eintrag dekodieren(String zeile) {
+        int trenner = zeile.indexOf(' ');
+        if (trenner < 0) {
+            return null;
+        }
+        String json = zeile.substring(trenner + 1);
+        try {
+            if (Long.parseLong(zeile.substring(0, trenner), 16) != pruefsumme(json)) {
+                return null;
+            }
+            return objectMapper.readValue(json, Eintrag.class);
+        } catch (NumberFormatException | IOException e) {
+            return null;
+        }
+    }
+
+    private static long pruefsumme(String json) {
+        CRC32 crc = new CRC32();
+        crc.update(json.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Liefert die beim Öffnen gefundenen, noch nicht bestätigten Einträge in Einreichungsreihenfolge.
+     * <p>
+     * Die Liste wird nur einmal geliefert; weitere Aufrufe ergeben eine leere Liste.
+     * </p>
+     *
+     * @return die offenen Einträge
+     */
+    public synchronized List<Eintrag> offeneEintraegeUebernehmen() {
+        List<Eintrag> offen = offeneEintraege;
+        offeneEintraege = List.of();
+        return offen;
+    }
+
+    /**
+     * Hängt eine Einreichung an das Journal an und schreibt sie auf den Datenträger.
+     *
+     * @param datum     das Datum, für das die Anwesenheit erfasst wird
+     * @param gruppeId  die ID der Gruppe
+     * @param eintraege die Anwesenheitsdaten des Formulars
+     * @return der geschriebene Eintrag mit seiner Sequenznummer
+     * @throws IOException wenn nicht geschrieben werden konnte
+     */
+    public synchronized Eintrag anhaengen(LocalDate datum, Integer gruppeId, List<ErfassungDTO> eintraege)
+            throws IOException {
+        Eintrag eintrag = new Eintrag(letzteSequenz + 1, datum, gruppeId, Instant.now(), eintraege);
+        String json = objectMapper.writeValueAsString(eintrag);
+        ByteBuffer zeile = ByteBuffer.wrap((Long.toHexString(pruefsumme(json)) + " " + json + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        long position = kanal.size();
+        while (zeile.hasRemaining()) {
+            position += kanal.write(zeile, position);
+        }
+        kanal.force(false);
+        letzteSequenz = eintrag.sequenz();
+        return eintrag;
+    }
+
+    /**
+     * Schreibt eine Einreichung, die sich dauerhaft nicht speichern lässt, in die Datei der verworfenen Einträge.
+     * <p>
+     * Jede Zeile enthält den Eintrag, den Grund und den Zeitpunkt als JSON und wird vor der Rückkehr auf den
+     * Datenträger geschrieben. Erst danach darf der Eintrag bestätigt werden.
+     * </p>
+     *
+     * @param eintrag der verworfene Eintrag
+     * @param grund   der Grund, z.B. die Meldung der Ausnahme
+     * @throws IOException wenn nicht geschrieben werden konnte
+     */
+    public synchronized void verwerfen(Eintrag eintrag, String grund) throws IOException {
+        String json = objectMapper.writeValueAsString(new Verworfen(eintrag, grund, Instant.now()));
+        try (FileChannel verworfenKanal = FileChannel.open(verworfenDatei, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer zeile = ByteBuffer.wrap((json + "\n").getBytes(StandardCharsets.UTF_8));
+            while (zeile.hasRemaining()) {
+                verworfenKanal.write(zeile);
+            }
+            verworfenKanal.force(true);
+        }
+    }
+
+    /**
+     * Liest alle bisher verworfenen Einreichungen.
+     *
+     * @return die verworfenen Einreichungen in der Reihenfolge des Verwerfens
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     */
+    public synchronized List<Verworfen> verworfeneEintraege() throws IOException {
+        if (!Files.exists(verworfenDatei)) {
+            return List.of();
+        }
+        List<Verworfen> verworfen = new ArrayList<>();
+        for (String zeile : Files.readAllLines(verworfenDatei, StandardCharsets.UTF_8)) {
+            if (!zeile.isBlank()) {
+                verworfen.add(objectMapper.readValue(zeile, Verworfen.class));
+            }
+        }
+        return verworfen;
+    }
+
+    /**
+     * Bestätigt, dass alle Einträge bis einschließlich der angegebenen Sequenznummer gespeichert wurden.
+     * <p>
+     * Der Checkpoint wird atomar ersetzt. Sind damit alle Einträge bestätigt, wird das Journal geleert.
+     * </p>
+     *
+     * @param sequenz die Sequenznummer des zuletzt gespeicherten Eintrags
+     * @throws IOException wenn Checkpoint oder Journal nicht geschrieben werden konnten
+     */
+    public synchronized void bestaetigen(long sequenz) throws IOException {
+        Path temp = checkpointDatei.resolveSibling(CHECKPOINT_DATEI + ".tmp");
+        try (FileChannel checkpointKanal = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            checkpointKanal.write(ByteBuffer.wrap(Long.toString(sequenz).getBytes(StandardCharsets.UTF_8)));
+            checkpointKanal.force(true);
+        }
+        Files.move(temp, checkpointDatei, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = sequenz;
+        if (checkpoint == letzteSequenz && kanal.size() > 0) {
+            kanal.truncate(0);
+            kanal.force(true);
+        }
+    }
+
+    /**
+     * Liefert die Sequenznummer des zuletzt bestätigten Eintrags.
+     *
+     * @return die Sequenznummer des Checkpoints
+     */
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Liefert die Sequenznummer des zuletzt angehängten Eintrags.
+     *
+     * @return die letzte vergebene Sequenznummer
+     */
+    public synchronized long getLetzteSequenz() {
+        return letzteSequenz;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        kanal.close();
+    }
+
+    /**
+     * Eine im Journal gespeicherte Einreichung.
+     *
+     * @param sequenz     fortlaufende Nummer der Einreichung
+     * @param datum       das Datum, für das die Anwesenheit erfasst wird
+     * @param gruppeId    die ID der Gruppe
+     * @param eingereicht der Zeitpunkt der Einreichung
+     * @param eintraege   die Anwesenheitsdaten des Formulars
+     */
+    public record Eintrag(long sequenz, LocalDate datum, Integer gruppeId, Instant eingereicht,
+                          List<ErfassungDTO> eintraege) {
+    }
+
+    /**
+     * Eine Einreichung, die sich dauerhaft nicht speichern ließ.
+     *
+     * @param eintrag   die verworfene Einreichung
+     * @param grund     der Grund, z.B. die Meldung der Ausnahme
+     * @param verworfen der Zeitpunkt des Verwerfens
+     */
+    public record Verworfen(Eintrag eintrag, String grund, Instant verworfen) {
+    }
+}
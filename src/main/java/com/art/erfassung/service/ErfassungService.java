@@ -1,45 +1,146 @@
 package com.art.erfassung.service;
 
 import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.ErfassungListeDTO;
+import com.art.erfassung.dto.ErfassungStand;
+import com.art.erfassung.error.ErfassungKonfliktException;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
 import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.ErfassungsTag;
 import com.art.erfassung.model.Status;
 import com.art.erfassung.model.Studenten;
 import com.art.erfassung.repository.ErfassungRepository;
-import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
 import com.art.erfassung.repository.StudentenRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Serviceklasse zur Verwaltung von Erfassungen.
  * <p>
  * Diese Klasse stellt Methoden zum Abrufen, Aktualisieren und Speichern von Erfassungen
- * bereit. Dabei wird sowohl das {@link ErfassungRepository} für Erfassungsdaten als auch
- * das {@link StatusRepository} für Statusdaten verwendet.
+ * bereit. Dabei wird das {@link ErfassungRepository} für Erfassungsdaten und die
+ * {@link ReferenzdatenRegistry} für Statusdaten verwendet.
+ * </p>
+ * <p>
+ * Mit "erfassung.speicherung.sparsam=true" werden nur Abweichungen gespeichert: Eine Erfassung mit dem Status
+ * {@link Status#ANWESEND} ohne Kommentar und ohne Ankunftszeit wird nicht angelegt bzw. gelöscht, stattdessen
+ * wird der Tag der Gruppe als {@link ErfassungsTag} markiert. Die lesenden Abfragen ergänzen an markierten Tagen
+ * für jeden Studenten ohne Erfassung, der an diesem Tag bereits Mitglied der Gruppe war
+ * ({@link Studenten#istMitgliedAm(LocalDate)}), "Anwesend"; die Anwesenheitszähler werden so fortgeschrieben,
+ * als wären alle Erfassungen gespeichert. Die Einstellung muss auf allen Instanzen gleich sein.
+ * </p>
  */
 @Service
 public class ErfassungService {
 
+    /**
+     * Soll-Ankunftszeit, ab der eine Ankunft als Verspätung gilt.
+     */
+    public static final LocalTime SOLL_ANKUNFTSZEIT = LocalTime.of(8, 0);
+
+    /**
+     * Anzahl der Versuche, eine Einreichung nach einem Schreibkonflikt in einer neuen Transaktion zu speichern.
+     */
+    public static final int MAX_VERSUCHE = 5;
+
+    // SQLState einer Schlüsselverletzung nach SQL-Standard (H2) und Fehlercode ER_DUP_ENTRY von MariaDB, die im
+    // Gegensatz zu verletzten Pflichtfeldern oder Fremdschlüsseln einen doppelt eingefügten Schlüssel anzeigen
+    private static final String DOPPELTER_SCHLUESSEL_SQL_STATE = "23505";
+    private static final int DOPPELTER_SCHLUESSEL_FEHLERCODE = 1062;
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungService.class);
+
     // Repository zur Verwaltung der Erfassungen
     private final ErfassungRepository erfassungRepository;
-    // Repository zur Verwaltung der Statusinformationen
-    private final StatusRepository statusRepository;
+    // Registry der im Speicher gehaltenen Statusinformationen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
     // Repository zur Verwaltung der Studenten-Daten
     private final StudentenRepository studentenRepository;
+    // Sperren je Gruppe, die gleichzeitige Einreichungen derselben Gruppe nacheinander speichern
+    private final GruppenSperren gruppenSperren;
+    // Transaktionen für wiederholbare Speicherversuche (READ_COMMITTED, damit nach dem Sperren der aktuelle Stand gelesen wird)
+    private final TransactionTemplate transactionTemplate;
+    // Veröffentlicht die Änderungen gespeicherter Erfassungen an abhängige Komponenten
+    private final ApplicationEventPublisher eventPublisher;
+    // Repository der erfassten Tage je Gruppe
+    private final ErfassungsTagRepository erfassungsTagRepository;
+    // Nur Abweichungen speichern; "Anwesend" gilt an erfassten Tagen für Studenten ohne Erfassung
+    private final boolean sparsam;
+
+    // Ob erfasste Tage markiert sind; ohne sparsame Speicherung werden sie nur dann beim Speichern gelesen
+    private volatile boolean tageVorhanden;
 
     @Autowired
-    public ErfassungService(ErfassungRepository erfassungRepository, StatusRepository statusRepository, StudentenRepository studentenRepository) {
+    public ErfassungService(ErfassungRepository erfassungRepository, ReferenzdatenRegistry referenzdatenRegistry,
+                            StudentenRepository studentenRepository, GruppenSperren gruppenSperren,
+                            PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                            ErfassungsTagRepository erfassungsTagRepository,
+                            @Value("${erfassung.speicherung.sparsam:false}") boolean sparsam) {
         this.erfassungRepository = erfassungRepository;
-        this.statusRepository = statusRepository;
+        this.referenzdatenRegistry = referenzdatenRegistry;
         this.studentenRepository = studentenRepository;
+        this.gruppenSperren = gruppenSperren;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.eventPublisher = eventPublisher;
+        this.erfassungsTagRepository = erfassungsTagRepository;
+        this.sparsam = sparsam;
+    }
+
+    /**
+     * Stellt beim Start fest, ob bereits Tage als erfasst markiert sind.
+     */
+    @PostConstruct
+    public void erfassteTageErmitteln() {
+        tageVorhanden = erfassungsTagRepository.count() > 0;
+    }
+
+    /**
+     * Vermerkt, dass Tage als erfasst markiert wurden, z.B. nach der Umstellung vorhandener Erfassungen auf die
+     * sparsame Speicherung. Danach werden die Markierungen auch ohne sparsame Speicherung beim Speichern
+     * berücksichtigt.
+     */
+    public void erfassteTageVorhanden() {
+        tageVorhanden = true;
+    }
+
+    /**
+     * Gibt an, ob nur Abweichungen gespeichert werden.
+     *
+     * @return {@code true}, falls "erfassung.speicherung.sparsam" aktiv ist
+     */
+    public boolean isSparsam() {
+        return sparsam;
     }
 
     /**
@@ -47,75 +148,377 @@ public class ErfassungService {
      * <p>
      * Diese Methode führt folgende Aufgaben aus:
      * <ul>
-     *   <li>Bestimmt das aktuelle Datum und definiert als Soll-Ankunftszeit 08:00 Uhr.</li>
+     *   <li>Bestimmt das aktuelle Datum; als Soll-Ankunftszeit gilt {@link #SOLL_ANKUNFTSZEIT} (08:00 Uhr).</li>
+     *   <li>Lädt alle benötigten Studenten (inklusive Gruppe) und bereits vorhandenen Erfassungen
+     *       des Tages mit jeweils einer einzigen Abfrage für das gesamte Formular. Status werden nicht gelesen,
+     *       sondern als Referenzen aus der {@link ReferenzdatenRegistry} gesetzt.</li>
+     *   <li>Sperrt vor dem Lesen der vorhandenen Erfassungen die Gruppen der Studenten über die
+     *       {@link GruppenSperren} bis zum Ende der Transaktion.</li>
      *   <li>Iteriert über die übergebene Liste von AnwesenheitDTOs:
      *     <ul>
-     *       <li>Lädt für jeden DTO den entsprechenden Studenten und den Status mithilfe der entsprechenden Services.</li>
+     *       <li>Ermittelt Student und Status aus den vorab geladenen Daten.</li>
      *       <li>Setzt die Gruppen-ID anhand des Studenten – es wird angenommen, dass alle Einträge derselben Gruppe angehören.</li>
      *       <li>Wenn der Eingabestring für die Ankunftszeit leer oder null ist, wird angenommen, dass der Student pünktlich (08:00 Uhr) erschienen ist.</li>
-     *       <li>Falls die tatsächliche Ankunftszeit später als die Soll-Ankunftszeit ist, wird die Verspätung in Minuten berechnet und in den Kommentar aufgenommen.</li>
-     *       <li>Überprüft, ob bereits eine Erfassung für den Studenten am aktuellen Datum existiert.
-     *           Falls ja, wird der bestehende Datensatz aktualisiert, ansonsten wird ein neuer Eintrag erstellt.</li>
+     *       <li>Die Ankunftszeit und die Verspätung in Minuten (0 bei pünktlicher Ankunft) werden in eigenen
+     *           Spalten der Erfassung gespeichert; der Kommentar bleibt unverändert.</li>
+     *       <li>Existiert bereits eine Erfassung für den Studenten am aktuellen Datum, wird diese aktualisiert,
+     *           ansonsten wird ein neuer Eintrag erstellt. Unveränderte Erfassungen werden nicht geschrieben.</li>
+     *       <li>Trägt das DTO eine Version, muss sie der gespeicherten entsprechen
+     *           ({@link ErfassungDTO#KEINE_ERFASSUNG}, falls noch keine Erfassung existierte). Andernfalls wird
+     *           nichts gespeichert und eine {@link ErfassungKonfliktException} mit allen betroffenen Studenten
+     *           ausgelöst.</li>
      *     </ul>
      *   </li>
-     *   <li>Alle Erfassungen werden in einer Liste gesammelt und als Batch gespeichert.</li>
+     *   <li>Alle Erfassungen werden in einer Liste gesammelt und wie bei {@link #saveAll(List)} als Batch gespeichert.</li>
      * </ul>
+     * Die Anzahl der lesenden Abfragen ist damit unabhängig von der Gruppengröße. In der sparsamen Speicherung
+     * werden zusätzlich die Markierungen der erfassten Tage gelesen, der Tag der Gruppe wird markiert und
+     * Erfassungen ohne Abweichung werden nicht angelegt bzw. gelöscht.
+     * </p>
+     * <p>
+     * Ohne umschließende Transaktion wird in einer eigenen Transaktion gespeichert. Scheitert sie an einem
+     * Schreibkonflikt mit einer anderen Instanz – einer zwischenzeitlich erhöhten Version oder einem doppelt
+     * eingefügten Schlüssel, etwa "uk_erfassung_studenten_datum" oder einer erstmals angelegten Zählerzelle –, wird sie bis zu {@link #MAX_VERSUCHE} Mal mit dem dann aktuellen
+     * Stand wiederholt. Alle anderen Fehler, etwa verletzte Pflichtfelder oder eine nicht erhaltene Gruppensperre,
+     * werden sofort weitergegeben. Innerhalb einer umschließenden Transaktion wird nur einmal gespeichert;
+     * Konflikte behandelt dann der Aufrufer.
      * </p>
      *
      * @param dtos Eine Liste von AnwesenheitDTOs, die die vom Benutzer eingegebenen Anwesenheitsdaten enthalten.
      * @return Die Gruppen-ID, zu der die Anwesenheitsdatensätze gehören, oder null, falls sie nicht ermittelt werden konnte.
      * @throws DateTimeParseException falls ein nicht-leerer Ankunftszeit-String nicht in ein {@link LocalTime} geparst werden kann.
+     * @throws NoSuchElementException falls ein Student oder Status aus den DTOs nicht existiert.
+     * @throws ErfassungKonfliktException falls Erfassungen seit dem Laden des Formulars geändert wurden.
+     * @throws OptimisticLockingFailureException falls ein Schreibkonflikt auch nach {@link #MAX_VERSUCHE} Versuchen besteht
+     *         (bzw. {@link DataIntegrityViolationException} bei einem bleibenden Konflikt an einem Schlüssel).
      */
-
     public Integer erfassenAnwesenheiten(List<ErfassungDTO> dtos) {
-        LocalDate datum = LocalDate.now();
-        LocalTime expectedTime = LocalTime.of(8, 0);
+        return erfassenAnwesenheiten(dtos, LocalDate.now());
+    }
+
+    /**
+     * Verarbeitet eine Liste von AnwesenheitDTOs für ein vorgegebenes Datum.
+     * <p>
+     * Wird vom {@link WriteBehindErfassung} verwendet, das Einreichungen zeitversetzt speichert und dabei das
+     * Datum der Einreichung und nicht das der Verarbeitung zugrunde legen muss. Ansonsten wie
+     * {@link #erfassenAnwesenheiten(List)}.
+     * </p>
+     *
+     * @param dtos  die Anwesenheitsdaten
+     * @param datum das Datum, für das die Erfassungen gespeichert werden
+     * @return die Gruppen-ID, zu der die Anwesenheitsdatensätze gehören
+     */
+    public Integer erfassenAnwesenheiten(List<ErfassungDTO> dtos, LocalDate datum) {
+        return erfassenAnwesenheiten(dtos, datum, true);
+    }
+
+    /**
+     * Verarbeitet eine Liste von AnwesenheitDTOs für ein vorgegebenes Datum, wahlweise ohne den Tag der Gruppen
+     * als erfasst zu markieren.
+     * <p>
+     * Wird von der {@link CheckinPipeline} verwendet: Einzelne Ankünfte geben die Anwesenheit einer Gruppe
+     * nicht ab, sonst gälten in der sparsamen Speicherung alle noch nicht gescannten Studenten als anwesend.
+     * Ansonsten wie {@link #erfassenAnwesenheiten(List, LocalDate)}.
+     * </p>
+     *
+     * @param dtos         die Anwesenheitsdaten
+     * @param datum        das Datum, für das die Erfassungen gespeichert werden
+     * @param tagMarkieren ob der Tag der Gruppen in der sparsamen Speicherung als erfasst markiert wird
+     * @return die Gruppen-ID, zu der die Anwesenheitsdatensätze gehören
+     */
+    public Integer erfassenAnwesenheiten(List<ErfassungDTO> dtos, LocalDate datum, boolean tagMarkieren) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return speichern(dtos, datum, tagMarkieren);
+        }
+        for (int versuch = 1; ; versuch++) {
+            try {
+                return transactionTemplate.execute(status -> speichern(dtos, datum, tagMarkieren));
+            } catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+                // Nur Schreibkonflikte wiederholen; andere Verletzungen scheitern bei jedem Versuch gleich.
+                if (versuch >= MAX_VERSUCHE || !schreibkonflikt(e)) {
+                    throw e;
+                }
+                logger.debug("Schreibkonflikt beim Speichern von Erfassungen (Versuch {}): {}", versuch, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Prüft, ob eine Ausnahme auf einen Schreibkonflikt mit einer anderen Transaktion zurückgeht.
+     * <p>
+     * Neben einer zwischenzeitlich erhöhten Version gilt nur ein doppelt eingefügter Schlüssel als Konflikt:
+     * Beim Speichern entstehen solche Zeilen ausschließlich, wenn eine andere Instanz dieselbe Erfassung
+     * ("uk_erfassung_studenten_datum"), Zählerzelle, Würfelzelle oder Tagesmarkierung zeitgleich erstmals anlegt.
+     * </p>
+     */
+    private static boolean schreibkonflikt(RuntimeException e) {
+        if (e instanceof OptimisticLockingFailureException) {
+            return true;
+        }
+        for (Throwable ursache = e; ursache != null; ursache = ursache.getCause()) {
+            if (ursache instanceof SQLException sql && (DOPPELTER_SCHLUESSEL_SQL_STATE.equals(sql.getSQLState())
+                    || sql.getErrorCode() == DOPPELTER_SCHLUESSEL_FEHLERCODE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Integer speichern(List<ErfassungDTO> dtos, LocalDate datum, boolean tagMarkieren) {
         Integer gruppeId = null;
-        List<Erfassung> erfassungenToSave = new ArrayList<>();
+
+        // Alle referenzierten IDs sammeln, um Studenten und vorhandene Erfassungen gebündelt zu laden.
+        Set<Integer> studentenIds = new HashSet<>();
+        Map<Integer, Status> statusById = new HashMap<>();
+        for (ErfassungDTO dto : dtos) {
+            studentenIds.add(dto.getStudentenId());
+            // Verwaltete Referenz ohne Abfrage; unbekannte IDs führen zu einer NoSuchElementException.
+            statusById.computeIfAbsent(dto.getStatusId(), referenzdatenRegistry::statusReferenz);
+        }
+        Map<Integer, Studenten> studentenById = new HashMap<>();
+        Set<Integer> gruppeIds = new HashSet<>();
+        for (Studenten student : studentenRepository.findAllMitGruppeByIdIn(studentenIds)) {
+            studentenById.put(student.getId(), student);
+            gruppeIds.add(student.getGruppe().getId());
+        }
+        // Erst nach dem Sperren lesen, damit die Erfassungen einer zuvor gespeicherten Einreichung sichtbar sind.
+        gruppenSperren.sperrenBisTransaktionsende(gruppeIds);
+        Map<Integer, Erfassung> vorhandeneByStudent = new HashMap<>();
+        for (Erfassung erfassung : erfassungRepository.findByStudenten_IdInAndDatum(studentenIds, datum)) {
+            vorhandeneByStudent.putIfAbsent(erfassung.getStudenten().getId(), erfassung);
+        }
+        // An erfassten Tagen gilt für Studenten ohne Erfassung "Anwesend" als gespeicherter Zustand.
+        Integer anwesendId = null;
+        Set<Integer> erfassteGruppen = Set.of();
+        if (sparsam || tageVorhanden) {
+            anwesendId = referenzdatenRegistry.statusMitBezeichnung(Status.ANWESEND).map(Status::getId).orElse(null);
+            if (anwesendId != null) {
+                erfassteGruppen = new HashSet<>(erfassungsTagRepository.findGruppeIdsByDatum(gruppeIds, datum));
+            }
+        }
+
+        // Pro Student wird genau eine Erfassung gespeichert; doppelte Einträge im Formular überschreiben sich.
+        Map<Integer, Erfassung> erfassungenToSave = new LinkedHashMap<>();
+        List<Integer> konflikte = new ArrayList<>();
         for (ErfassungDTO dto : dtos) {
-            Studenten student = studentenRepository.findById(dto.getStudentenId()).orElseThrow();
-            Status status = statusRepository.findById(dto.getStatusId()).orElseThrow();
+            Studenten student = studentenById.get(dto.getStudentenId());
+            if (student == null) {
+                throw new NoSuchElementException("Student mit ID " + dto.getStudentenId() + " wurde nicht gefunden");
+            }
+            Status status = statusById.get(dto.getStatusId());
             String kommentar = dto.getKommentar();
             gruppeId = student.getGruppe().getId();
             String ankunftStr = dto.getAnkunftszeit();
-            LocalTime ankunftszeit;
-            if (ankunftStr == null || ankunftStr.trim().isEmpty()) {
-                ankunftszeit = expectedTime;
+            // Ohne Angabe einer Ankunftszeit gilt der Student als pünktlich erschienen.
+            LocalTime ankunftszeit = (ankunftStr == null || ankunftStr.trim().isEmpty())
+                    ? null
+                    : LocalTime.parse(ankunftStr);
+            Erfassung erfassung = vorhandeneByStudent.get(student.getId());
+            if (dto.getVersion() != null && !Objects.equals(dto.getVersion(), versionVon(erfassung))) {
+                // Seit dem Laden des Formulars angelegt oder geändert
+                konflikte.add(student.getId());
+                continue;
+            }
+            if (erfassung != null && !erfassungenToSave.containsKey(student.getId())
+                    && unveraendert(erfassung, dto.getStatusId(), ankunftszeit, kommentar)) {
+                // Unveränderte Zeilen werden nicht geschrieben.
+                continue;
+            }
+            if (erfassung != null) {
+                erfassung.setStatus(status);
+                erfassung.setKommentar(kommentar);
             } else {
-                ankunftszeit = LocalTime.parse(ankunftStr);
+                erfassung = new Erfassung(student, datum, status, kommentar);
+                vorhandeneByStudent.put(student.getId(), erfassung);
             }
-            if (ankunftszeit.isAfter(expectedTime)) {
-                long delayMinutes = ChronoUnit.MINUTES.between(expectedTime, ankunftszeit);
-                kommentar = (kommentar != null && !kommentar.isEmpty())
-                        ? kommentar + " | Verspätung: " + delayMinutes + " Minuten"
-                        : "Verspätung: " + delayMinutes + " Minuten";
+            erfassung.setAnkunftszeit(ankunftszeit);
+            erfassung.setVerspaetungMinuten(berechneVerspaetung(ankunftszeit));
+            erfassungenToSave.put(student.getId(), erfassung);
+        }
+        if (!konflikte.isEmpty()) {
+            throw new ErfassungKonfliktException(konflikte);
+        }
+        if (!sparsam || anwesendId == null) {
+            if (!erfassungenToSave.isEmpty()) {
+                speichernUndMelden(new ArrayList<>(erfassungenToSave.values()), List.of(), erfassteGruppen,
+                        anwesendId, List.of());
+            }
+            return gruppeId;
+        }
+
+        // Sparsame Speicherung: neu markierte Tage machen alle übrigen Studenten, die an diesem Tag bereits Mitglied
+        // der Gruppe waren, implizit anwesend.
+        List<ErfassungsAenderung> impliziteAenderungen = new ArrayList<>();
+        if (tagMarkieren) {
+            for (Integer neueGruppeId : gruppeIds) {
+                if (erfassteGruppen.contains(neueGruppeId)) {
+                    continue;
+                }
+                for (Integer mitgliedId : studentenRepository.findMitgliederIdsAm(neueGruppeId, datum)) {
+                    if (!vorhandeneByStudent.containsKey(mitgliedId)) {
+                        impliziteAenderungen.add(new ErfassungsAenderung(mitgliedId, neueGruppeId, datum,
+                                null, 0, anwesendId, 0));
+                    }
+                }
+                erfassungsTagRepository.save(new ErfassungsTag(neueGruppeId, datum));
+                tageVorhanden = true;
+            }
+        }
+        List<Erfassung> zuSpeichern = new ArrayList<>(erfassungenToSave.size());
+        List<Erfassung> zuLoeschen = new ArrayList<>();
+        for (Erfassung erfassung : erfassungenToSave.values()) {
+            boolean implizit = (tagMarkieren || erfassteGruppen.contains(erfassung.getStudenten().getGruppe().getId()))
+                    && erfassung.getStudenten().istMitgliedAm(datum);
+            if (!implizit || !ohneAbweichung(erfassung, anwesendId)) {
+                zuSpeichern.add(erfassung);
+            } else if (erfassung.getGespeicherterStatus() != null) {
+                zuLoeschen.add(erfassung);
+            } else if (!erfassteGruppen.contains(erfassung.getStudenten().getGruppe().getId())) {
+                // Neu implizit anwesend, ohne eine Zeile anzulegen
+                impliziteAenderungen.add(aenderungVon(erfassung));
             }
-            final String finalKommentar = kommentar;
-            Erfassung erfassung = findByStudentAndDate(student.getId(), datum)
-                    .map(e -> {
-                        e.setStatus(status);
-                        e.setKommentar(finalKommentar);
-                        return e;
-                    })
-                    .orElseGet(() -> new Erfassung(student, datum, status, finalKommentar));
-            erfassungenToSave.add(erfassung);
-        }
-        saveAll(erfassungenToSave);
+        }
+        if (!zuSpeichern.isEmpty() || !zuLoeschen.isEmpty() || !impliziteAenderungen.isEmpty()) {
+            speichernUndMelden(zuSpeichern, zuLoeschen, erfassteGruppen, anwesendId, impliziteAenderungen);
+        }
         return gruppeId;
     }
 
+    /**
+     * Gibt an, ob eine Erfassung der Annahme der sparsamen Speicherung entspricht und daher nicht gespeichert
+     * werden muss: Status "Anwesend", kein Kommentar, keine Ankunftszeit.
+     */
+    private static boolean ohneAbweichung(Erfassung erfassung, Integer anwesendId) {
+        return anwesendId.equals(erfassung.getStatus().getId())
+                && erfassung.getAnkunftszeit() == null
+                && leerAlsNull(erfassung.getKommentar()) == null;
+    }
+
+    private static Integer versionVon(Erfassung erfassung) {
+        return erfassung == null ? Integer.valueOf(ErfassungDTO.KEINE_ERFASSUNG) : erfassung.getVersion();
+    }
+
+    private static boolean unveraendert(Erfassung erfassung, Integer statusId, LocalTime ankunftszeit,
+                                        String kommentar) {
+        return erfassung.getStatus().getId().equals(statusId)
+                && Objects.equals(erfassung.getAnkunftszeit(), ankunftszeit)
+                && Objects.equals(leerAlsNull(erfassung.getKommentar()), leerAlsNull(kommentar));
+    }
+
+    private static String leerAlsNull(String text) {
+        return (text == null || text.isBlank()) ? null : text;
+    }
+
+    /**
+     * Liefert den gespeicherten Stand aller Erfassungen einer Gruppe an einem Tag mit einer Abfrage.
+     * <p>
+     * Dient der Vorbelegung des Anwesenheitsformulars einschließlich der Versionen für die Konfliktprüfung.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param datum    das Datum
+     * @return die {@link ErfassungStand} Einträge des Tages
+     */
+    public List<ErfassungStand> findStandByGruppeUndDatum(Integer gruppeId, LocalDate datum) {
+        return erfassungRepository.findStandByGruppeUndDatum(gruppeId, datum);
+    }
+
+    /**
+     * Liefert die IDs aller Studenten, für die an einem Tag bereits eine Erfassung existiert.
+     *
+     * @param datum das Datum
+     * @return die IDs der erfassten Studenten
+     */
+    public List<Integer> findErfassteStudentenIds(LocalDate datum) {
+        return erfassungRepository.findStudentenIdsByDatum(datum);
+    }
+
+    /**
+     * Berechnet die Verspätung in Minuten gegenüber der {@link #SOLL_ANKUNFTSZEIT}.
+     *
+     * @param ankunftszeit die tatsächliche Ankunftszeit oder null, falls keine angegeben wurde
+     * @return die Verspätung in Minuten; 0 bei pünktlicher oder fehlender Ankunftszeit
+     */
+    public static int berechneVerspaetung(LocalTime ankunftszeit) {
+        if (ankunftszeit == null || !ankunftszeit.isAfter(SOLL_ANKUNFTSZEIT)) {
+            return 0;
+        }
+        return (int) ChronoUnit.MINUTES.between(SOLL_ANKUNFTSZEIT, ankunftszeit);
+    }
+
     /**
      * Speichert alle übergebenen Erfassungen in der Datenbank.
      * <p>
      * Diese Methode nutzt die Batch-Funktionalität von {@link ErfassungRepository}
-     * um mehrere Erfassungen in einem einzigen Aufruf zu persistieren. Dadurch werden
-     * Datenbankzugriffe reduziert und die Performance verbessert, sofern Hibernate entsprechend konfiguriert ist.
+     * um mehrere Erfassungen in einem einzigen Aufruf zu persistieren. Da {@link Erfassung} seine IDs
+     * aus einer Sequenz bezieht, bündelt Hibernate die Inserts gemäß {@code hibernate.jdbc.batch_size}
+     * zu JDBC-Batches.
+     * </p>
+     * <p>
+     * Anschließend wird ein {@link ErfassungenGespeichertEvent} mit dem zuletzt gespeicherten und dem neuen
+     * Zustand jeder Erfassung veröffentlicht. Darüber werden in derselben Transaktion die Anwesenheitszähler
+     * fortgeschrieben und nach dem Commit die zwischengespeicherten Statistiken der betroffenen Studenten
+     * verworfen.
      * </p>
      *
      * @param erfassungenToSave die Liste der {@link Erfassung} Objekte, die gespeichert werden sollen
      */
+    @Transactional
     public void saveAll(List<Erfassung> erfassungenToSave) {
-        erfassungRepository.saveAll(erfassungenToSave);
+        speichernUndMelden(erfassungenToSave, List.of(), Set.of(), null, List.of());
+    }
+
+    /**
+     * Speichert und löscht Erfassungen und veröffentlicht alle Änderungen in einem
+     * {@link ErfassungenGespeichertEvent}.
+     * <p>
+     * Eine neue Erfassung eines Mitglieds einer Gruppe mit erfasstem Tag ersetzt den impliziten Zustand
+     * "Anwesend"; eine gelöschte Erfassung geht in ihn über.
+     * </p>
+     */
+    private void speichernUndMelden(List<Erfassung> zuSpeichern, List<Erfassung> zuLoeschen,
+                                    Set<Integer> erfassteGruppen, Integer anwesendId,
+                                    List<ErfassungsAenderung> weitereAenderungen) {
+        List<ErfassungsAenderung> aenderungen = new ArrayList<>(
+                zuSpeichern.size() + zuLoeschen.size() + weitereAenderungen.size());
+        for (Erfassung erfassung : zuSpeichern) {
+            Studenten student = erfassung.getStudenten();
+            if (erfassung.getGespeicherterStatus() == null && erfassteGruppen.contains(student.getGruppe().getId())
+                    && student.istMitgliedAm(erfassung.getDatum())) {
+                aenderungen.add(new ErfassungsAenderung(student.getId(), student.getGruppe().getId(),
+                        erfassung.getDatum(), anwesendId, 0, erfassung.getStatus().getId(),
+                        alsMinuten(erfassung.getVerspaetungMinuten())));
+            } else {
+                aenderungen.add(aenderungVon(erfassung));
+            }
+        }
+        // Gelöschte Erfassungen tragen bereits den neuen Zustand "Anwesend" ohne Verspätung.
+        for (Erfassung erfassung : zuLoeschen) {
+            aenderungen.add(aenderungVon(erfassung));
+        }
+        aenderungen.addAll(weitereAenderungen);
+        if (!zuLoeschen.isEmpty()) {
+            erfassungRepository.deleteAll(zuLoeschen);
+        }
+        erfassungRepository.saveAll(zuSpeichern);
+        for (Erfassung erfassung : zuSpeichern) {
+            erfassung.gespeichertenZustandMerken();
+        }
+        eventPublisher.publishEvent(new ErfassungenGespeichertEvent(aenderungen));
+    }
+
+    private static ErfassungsAenderung aenderungVon(Erfassung erfassung) {
+        Studenten student = erfassung.getStudenten();
+        Status alterStatus = erfassung.getGespeicherterStatus();
+        return new ErfassungsAenderung(student.getId(), student.getGruppe().getId(), erfassung.getDatum(),
+                alterStatus == null ? null : alterStatus.getId(),
+                alsMinuten(erfassung.getGespeicherteVerspaetungMinuten()),
+                erfassung.getStatus().getId(),
+                alsMinuten(erfassung.getVerspaetungMinuten()));
+    }
+
+    private static int alsMinuten(Integer verspaetungMinuten) {
+        return verspaetungMinuten == null ? 0 : verspaetungMinuten;
     }
 
     /**
@@ -135,6 +538,21 @@ public class ErfassungService {
         return erfassungRepository.findByStudenten_GruppeIdAndDatumBetween(gruppeId, monatStart, monatEnde);
     }
 
+    /**
+     * Gibt die Erfassungen einer Gruppe in einem Zeitraum als {@link ErfassungListeDTO} zurück.
+     * <p>
+     * Im Gegensatz zu {@link #findByGruppeUndMonat(Integer, LocalDate, LocalDate)} werden keine Entitäten
+     * geladen; Student und Status sind bereits im Ergebnis der einzigen Abfrage enthalten.
+     *
+     * @param gruppeId   die ID der Gruppe, für die die Erfassungen gesucht werden.
+     * @param monatStart das Startdatum des Monats.
+     * @param monatEnde  das Enddatum des Monats.
+     * @return eine Liste von {@link ErfassungListeDTO} Objekten, die den Kriterien entsprechen.
+     */
+    public List<ErfassungListeDTO> findListeByGruppeUndMonat(Integer gruppeId, LocalDate monatStart, LocalDate monatEnde) {
+        return erfassungRepository.findListeByGruppeUndZeitraum(gruppeId, monatStart, monatEnde);
+    }
+
     /**
      * Sucht eine Erfassung anhand der Studenten-ID und eines bestimmten Datums.
      *
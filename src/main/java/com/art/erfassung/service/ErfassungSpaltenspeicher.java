@@ -0,0 +1,528 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.AnalyseErgebnis;
+import com.art.erfassung.dto.AnalyseFilter;
+import com.art.erfassung.dto.ErfassungIndexEintrag;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.repository.ErfassungRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Spaltenorientierter, lesend optimierter Speicher aller Erfassungen für schulweite Auswertungen.
+ * <p>
+ * Je Erfassung werden Student, Gruppe, Tag (Tage seit dem 01.01.1970), ein Statuscode und die Verspätungsminuten
+ * in parallelen primitiven Arrays gehalten, zusammen etwa 15 Byte je Erfassung statt einer Entität samt
+ * Verweisen. Der Hauptteil ist nach Gruppe, Tag und Student sortiert, sodass Filter auf Gruppe und Zeitraum per
+ * Binärsuche auf einen zusammenhängenden Bereich eingegrenzt werden; dieser wird in Partitionen von
+ * {@code erfassung.analyse.partition-groesse} Zeilen parallel im {@link ForkJoinPool} gelesen.
+ * </p>
+ * <p>
+ * Der Speicher wird beim Start mit einer als Stream gelesenen, sortierten Abfrage geladen. Nach dem Commit
+ * gespeicherter Erfassungen werden vorhandene Zeilen direkt geändert und neue an einen unsortierten Zusatzteil
+ * angehängt, der ab {@code erfassung.analyse.zusatz-max} Zeilen in den Hauptteil einsortiert wird. An markierten
+ * Tagen der sparsamen Speicherung gelten Studenten ohne Erfassung als "Anwesend". Wechselt ein Student die
+ * Gruppe, bleiben seine bisherigen Zeilen bis zum nächsten {@link #neuLaden()} der alten Gruppe zugeordnet.
+ * </p>
+ */
+@Service
+public class ErfassungSpaltenspeicher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungSpaltenspeicher.class);
+
+    // Repository zum Lesen aller Erfassungen beim Laden
+    private final ErfassungRepository erfassungRepository;
+    // Registry der im Speicher gehaltenen Status für die Bezeichnungen im Ergebnis
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    // Lesende Transaktion für den Stream beim Laden
+    private final TransactionTemplate lesendeTransaktion;
+
+    private final int partitionGroesse;
+    private final int zusatzMax;
+
+    private final ReentrantReadWriteLock sperre = new ReentrantReadWriteLock();
+    // Aktueller Stand, geschützt durch sperre
+    private Stand stand = new Stand();
+    // Während des Ladens eingegangene Änderungen, die anschließend nachgetragen werden; sonst null
+    private List<ErfassungsAenderung> waehrendLaden;
+
+    public ErfassungSpaltenspeicher(ErfassungRepository erfassungRepository,
+                                    ReferenzdatenRegistry referenzdatenRegistry,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${erfassung.analyse.partition-groesse:65536}") int partitionGroesse,
+                                    @Value("${erfassung.analyse.zusatz-max:100000}") int zusatzMax) {
+        this.erfassungRepository = erfassungRepository;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.lesendeTransaktion = new TransactionTemplate(transactionManager);
+        this.lesendeTransaktion.setReadOnly(true);
+        this.partitionGroesse = partitionGroesse;
+        this.zusatzMax = zusatzMax;
+
+        Gauge.builder("erfassung.analyse.zeilen", this, speicher -> speicher.lesen(Stand::zeilen))
+                .description("Anzahl der Erfassungen im Spaltenspeicher")
+                .register(meterRegistry);
+        Gauge.builder("erfassung.analyse.bytes", this, speicher -> speicher.lesen(Stand::bytes))
+                .description("Belegter Speicher der Spalten des Spaltenspeichers")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lädt den Spaltenspeicher beim Start der Anwendung.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void beimStartLaden() {
+        neuLaden();
+    }
+
+    /**
+     * Lädt alle Erfassungen aus der Datenbank und ersetzt den bisherigen Stand.
+     * <p>
+     * Änderungen, die während des Ladens gespeichert werden, werden gesammelt und vor dem Austausch auf den neuen
+     * Stand angewendet.
+     * </p>
+     *
+     * @return die Anzahl der geladenen Zeilen
+     */
+    public synchronized long neuLaden() {
+        sperre.writeLock().lock();
+        try {
+            waehrendLaden = new ArrayList<>();
+        } finally {
+            sperre.writeLock().unlock();
+        }
+        long start = System.nanoTime();
+        Stand neu = new Stand();
+        try {
+            lesendeTransaktion.executeWithoutResult(status -> {
+                try (Stream<ErfassungIndexEintrag> eintraege = erfassungRepository.streamSpaltenEintraege()) {
+                    eintraege.forEach(e -> neu.haupt.anhaengen(e.studentenId(), e.gruppeId(), tag(e.datum()),
+                            neu.code(e.statusId()), minuten(e.verspaetungMinuten())));
+                }
+            });
+        } catch (RuntimeException e) {
+            sperre.writeLock().lock();
+            try {
+                waehrendLaden = null;
+            } finally {
+                sperre.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        sperre.writeLock().lock();
+        try {
+            waehrendLaden.forEach(neu::anwenden);
+            waehrendLaden = null;
+            stand = neu;
+            logger.info("Spaltenspeicher geladen: {} Erfassungen, {} KB in {} ms", neu.zeilen(), neu.bytes() / 1024,
+                    (System.nanoTime() - start) / 1_000_000);
+            return neu.zeilen();
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Übernimmt die gespeicherten Erfassungen nach dem Commit.
+     *
+     * @param event das Ereignis mit den Änderungen der gespeicherten Erfassungen
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void erfassungenGespeichert(ErfassungenGespeichertEvent event) {
+        sperre.writeLock().lock();
+        try {
+            for (ErfassungsAenderung aenderung : event.aenderungen()) {
+                stand.anwenden(aenderung);
+            }
+            if (waehrendLaden != null) {
+                waehrendLaden.addAll(event.aenderungen());
+            }
+            if (stand.zusatz.groesse >= zusatzMax) {
+                stand.zusammenfuehren();
+            }
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Zählt die Erfassungen, die einem Filter entsprechen, je Status.
+     *
+     * @param filter der Filter
+     * @return ein {@link AnalyseErgebnis} mit den Anzahlen je Status
+     * @throws IllegalArgumentException wenn das Startdatum nach dem Enddatum liegt
+     */
+    public AnalyseErgebnis auswerten(AnalyseFilter filter) {
+        if (filter.von() != null && filter.bis() != null && filter.von().isAfter(filter.bis())) {
+            throw new IllegalArgumentException("Das Startdatum darf nicht nach dem Enddatum liegen");
+        }
+        long start = System.nanoTime();
+        int vonTag = filter.von() != null ? tag(filter.von()) : Integer.MIN_VALUE;
+        int bisTag = filter.bis() != null ? tag(filter.bis()) : Integer.MAX_VALUE;
+        int wochentage = 0;
+        if (filter.wochentage() == null || filter.wochentage().isEmpty()) {
+            wochentage = 0b111_1111;
+        } else {
+            for (DayOfWeek wochentag : filter.wochentage()) {
+                wochentage |= 1 << (wochentag.getValue() - 1);
+            }
+        }
+
+        long[] summen;
+        int[] statusIds;
+        long zeilenGeprueft;
+        sperre.readLock().lock();
+        try {
+            statusIds = Arrays.copyOf(stand.statusIdByCode, stand.codes);
+            boolean[] erlaubt = new boolean[stand.codes];
+            for (int code = 0; code < stand.codes; code++) {
+                erlaubt[code] = filter.statusIds() == null || filter.statusIds().isEmpty()
+                        || filter.statusIds().contains(statusIds[code]);
+            }
+            Spalten haupt = stand.haupt;
+            int von = 0;
+            int bis = haupt.groesse;
+            if (filter.gruppeId() != null) {
+                von = haupt.untergrenze(filter.gruppeId(), vonTag);
+                bis = bisTag == Integer.MAX_VALUE ? haupt.untergrenze(filter.gruppeId() + 1, Integer.MIN_VALUE)
+                        : haupt.untergrenze(filter.gruppeId(), bisTag + 1);
+            }
+            Scan scan = new Scan(haupt, von, bis, null, vonTag, bisTag, wochentage, erlaubt, partitionGroesse);
+            summen = bis - von > partitionGroesse ? ForkJoinPool.commonPool().invoke(scan) : scan.compute();
+            Spalten zusatz = stand.zusatz;
+            long[] imZusatz = new Scan(zusatz, 0, zusatz.groesse, filter.gruppeId(), vonTag, bisTag, wochentage,
+                    erlaubt, partitionGroesse).compute();
+            for (int i = 0; i < summen.length; i++) {
+                summen[i] += imZusatz[i];
+            }
+            zeilenGeprueft = (long) (bis - von) + zusatz.groesse;
+        } finally {
+            sperre.readLock().unlock();
+        }
+
+        Map<Integer, String> bezeichnungen = new HashMap<>();
+        for (Status status : referenzdatenRegistry.alleStatus()) {
+            bezeichnungen.put(status.getId(), status.getBezeichnung());
+        }
+        Integer[] codesNachStatusId = new Integer[statusIds.length];
+        for (int code = 0; code < statusIds.length; code++) {
+            codesNachStatusId[code] = code;
+        }
+        Arrays.sort(codesNachStatusId, (a, b) -> Integer.compare(statusIds[a], statusIds[b]));
+        int codes = statusIds.length;
+        long erfassungen = 0;
+        List<StatusAnzahl> statusAnzahlen = new ArrayList<>();
+        for (int code : codesNachStatusId) {
+            if (summen[code] > 0) {
+                erfassungen += summen[code];
+                statusAnzahlen.add(new StatusAnzahl(bezeichnungen.getOrDefault(statusIds[code],
+                        "Status " + statusIds[code]), summen[code], summen[codes + code], summen[2 * codes + code]));
+            }
+        }
+        return new AnalyseErgebnis(erfassungen, statusAnzahlen, zeilenGeprueft, (System.nanoTime() - start) / 1_000);
+    }
+
+    private double lesen(ToLongFunction<Stand> wert) {
+        sperre.readLock().lock();
+        try {
+            return wert.applyAsLong(stand);
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    private static int tag(LocalDate datum) {
+        return Math.toIntExact(datum.toEpochDay());
+    }
+
+    private static int minuten(Integer verspaetungMinuten) {
+        return verspaetungMinuten == null ? 0 : verspaetungMinuten;
+    }
+
+    /**
+     * Hauptteil, Zusatzteil und Statuscodes des Speichers; nicht threadsicher.
+     */
+    private static final class Stand {
+
+        // Nach Gruppe, Tag und Student sortiert
+        private Spalten haupt = new Spalten(1024);
+        // Neue Zeilen in der Reihenfolge ihres Eintreffens
+        private Spalten zusatz = new Spalten(1024);
+        // Zeile im Zusatzteil je Student und Tag
+        private final Map<Long, Integer> zusatzZeilen = new HashMap<>();
+        // Status-ID je Statuscode und umgekehrt
+        private int[] statusIdByCode = new int[8];
+        private final Map<Integer, Integer> codeByStatusId = new HashMap<>();
+        private int codes;
+
+        int code(Integer statusId) {
+            Integer code = codeByStatusId.get(statusId);
+            if (code == null) {
+                if (codes > 0xFF) {
+                    throw new IllegalStateException("Mehr als 256 Status im Spaltenspeicher");
+                }
+                code = codes++;
+                if (code == statusIdByCode.length) {
+                    statusIdByCode = Arrays.copyOf(statusIdByCode, code * 2);
+                }
+                statusIdByCode[code] = statusId;
+                codeByStatusId.put(statusId, code);
+            }
+            return code;
+        }
+
+        void anwenden(ErfassungsAenderung aenderung) {
+            int tag = tag(aenderung.datum());
+            int code = code(aenderung.neuerStatusId());
+            int zeile = haupt.suchen(aenderung.gruppeId(), tag, aenderung.studentenId());
+            if (zeile >= 0) {
+                haupt.aendern(zeile, code, aenderung.neueVerspaetungMinuten());
+                return;
+            }
+            long schluessel = ((long) aenderung.studentenId() << 32) | (tag & 0xFFFF_FFFFL);
+            Integer imZusatz = zusatzZeilen.get(schluessel);
+            if (imZusatz != null) {
+                zusatz.aendern(imZusatz, code, aenderung.neueVerspaetungMinuten());
+            } else {
+                zusatzZeilen.put(schluessel, zusatz.groesse);
+                zusatz.anhaengen(aenderung.studentenId(), aenderung.gruppeId(), tag, code,
+                        aenderung.neueVerspaetungMinuten());
+            }
+        }
+
+        /**
+         * Sortiert den Zusatzteil ein und leert ihn.
+         */
+        void zusammenfuehren() {
+            Integer[] reihenfolge = new Integer[zusatz.groesse];
+            for (int i = 0; i < reihenfolge.length; i++) {
+                reihenfolge[i] = i;
+            }
+            Arrays.sort(reihenfolge, (a, b) -> zusatz.vergleichen(a, zusatz.gruppeIds[b], zusatz.tage[b],
+                    zusatz.studentenIds[b]));
+            Spalten neu = new Spalten(haupt.groesse + zusatz.groesse);
+            int h = 0;
+            int z = 0;
+            while (h < haupt.groesse || z < reihenfolge.length) {
+                if (z == reihenfolge.length || (h < haupt.groesse && haupt.vergleichen(h,
+                        zusatz.gruppeIds[reihenfolge[z]], zusatz.tage[reihenfolge[z]],
+                        zusatz.studentenIds[reihenfolge[z]]) < 0)) {
+                    neu.kopieren(haupt, h++);
+                } else {
+                    neu.kopieren(zusatz, reihenfolge[z++]);
+                }
+            }
+            haupt = neu;
+            zusatz = new Spalten(1024);
+            zusatzZeilen.clear();
+        }
+
+        long zeilen() {
+            return (long) haupt.groesse + zusatz.groesse;
+        }
+
+        long bytes() {
+            return haupt.bytes() + zusatz.bytes();
+        }
+    }
+
+    /**
+     * Parallele primitive Arrays je Spalte; nicht threadsicher.
+     */
+    private static final class Spalten {
+
+        private int[] studentenIds;
+        private int[] gruppeIds;
+        private int[] tage;
+        private byte[] statusCodes;
+        private short[] verspaetungMinuten;
+        private int groesse;
+
+        Spalten(int kapazitaet) {
+            kapazitaet = Math.max(kapazitaet, 16);
+            studentenIds = new int[kapazitaet];
+            gruppeIds = new int[kapazitaet];
+            tage = new int[kapazitaet];
+            statusCodes = new byte[kapazitaet];
+            verspaetungMinuten = new short[kapazitaet];
+        }
+
+        void anhaengen(int studentenId, int gruppeId, int tag, int code, int minuten) {
+            if (groesse == tage.length) {
+                int kapazitaet = groesse + (groesse >> 1);
+                studentenIds = Arrays.copyOf(studentenIds, kapazitaet);
+                gruppeIds = Arrays.copyOf(gruppeIds, kapazitaet);
+                tage = Arrays.copyOf(tage, kapazitaet);
+                statusCodes = Arrays.copyOf(statusCodes, kapazitaet);
+                verspaetungMinuten = Arrays.copyOf(verspaetungMinuten, kapazitaet);
+            }
+            studentenIds[groesse] = studentenId;
+            gruppeIds[groesse] = gruppeId;
+            tage[groesse] = tag;
+            groesse++;
+            aendern(groesse - 1, code, minuten);
+        }
+
+        void kopieren(Spalten quelle, int zeile) {
+            anhaengen(quelle.studentenIds[zeile], quelle.gruppeIds[zeile], quelle.tage[zeile],
+                    quelle.statusCodes[zeile] & 0xFF, quelle.verspaetungMinuten[zeile]);
+        }
+
+        void aendern(int zeile, int code, int minuten) {
+            statusCodes[zeile] = (byte) code;
+            // Nur Verspätungen größer 0 werden ausgewertet
+            verspaetungMinuten[zeile] = (short) Math.min(Math.max(minuten, 0), Short.MAX_VALUE);
+        }
+
+        int vergleichen(int zeile, int gruppeId, int tag, int studentenId) {
+            int vergleich = Integer.compare(gruppeIds[zeile], gruppeId);
+            if (vergleich == 0) {
+                vergleich = Integer.compare(tage[zeile], tag);
+            }
+            return vergleich != 0 ? vergleich : Integer.compare(studentenIds[zeile], studentenId);
+        }
+
+        /**
+         * Liefert die erste Zeile, die nicht vor (Gruppe, Tag) liegt; nur für den sortierten Hauptteil.
+         */
+        int untergrenze(int gruppeId, int tag) {
+            int von = 0;
+            int bis = groesse;
+            while (von < bis) {
+                int mitte = (von + bis) >>> 1;
+                if (vergleichen(mitte, gruppeId, tag, Integer.MIN_VALUE) < 0) {
+                    von = mitte + 1;
+                } else {
+                    bis = mitte;
+                }
+            }
+            return von;
+        }
+
+        /**
+         * Sucht die Zeile eines Studenten an einem Tag im sortierten Hauptteil.
+         *
+         * @return die Zeile oder -1
+         */
+        int suchen(int gruppeId, int tag, int studentenId) {
+            for (int zeile = untergrenze(gruppeId, tag); zeile < groesse
+                    && gruppeIds[zeile] == gruppeId && tage[zeile] == tag; zeile++) {
+                if (studentenIds[zeile] == studentenId) {
+                    return zeile;
+                }
+            }
+            return -1;
+        }
+
+        long bytes() {
+            return 4L * (studentenIds.length + gruppeIds.length + tage.length) + statusCodes.length
+                    + 2L * verspaetungMinuten.length;
+        }
+    }
+
+    /**
+     * Zählt die passenden Zeilen eines Bereichs je Statuscode; große Bereiche werden halbiert und parallel gelesen.
+     * <p>
+     * Das Ergebnis enthält hintereinander Anzahl, Verspätungen und Verspätungsminuten je Statuscode.
+     * </p>
+     */
+    private static final class Scan extends RecursiveTask<long[]> {
+
+        private final Spalten spalten;
+        private final int von;
+        private final int bis;
+        // Gruppe, falls der Bereich nicht bereits darauf eingegrenzt ist
+        private final Integer gruppeId;
+        private final int vonTag;
+        private final int bisTag;
+        private final int wochentage;
+        private final boolean[] erlaubt;
+        private final int partitionGroesse;
+
+        Scan(Spalten spalten, int von, int bis, Integer gruppeId, int vonTag, int bisTag, int wochentage,
+             boolean[] erlaubt, int partitionGroesse) {
+            this.spalten = spalten;
+            this.von = von;
+            this.bis = bis;
+            this.gruppeId = gruppeId;
+            this.vonTag = vonTag;
+            this.bisTag = bisTag;
+            this.wochentage = wochentage;
+            this.erlaubt = erlaubt;
+            this.partitionGroesse = partitionGroesse;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (bis - von > partitionGroesse) {
+                int mitte = (von + bis) >>> 1;
+                Scan links = new Scan(spalten, von, mitte, gruppeId, vonTag, bisTag, wochentage, erlaubt,
+                        partitionGroesse);
+                Scan rechts = new Scan(spalten, mitte, bis, gruppeId, vonTag, bisTag, wochentage, erlaubt,
+                        partitionGroesse);
+                links.fork();
+                long[] summen = rechts.compute();
+                long[] linksSummen = links.join();
+                for (int i = 0; i < summen.length; i++) {
+                    summen[i] += linksSummen[i];
+                }
+                return summen;
+            }
+            int codes = erlaubt.length;
+            long[] summen = new long[3 * codes];
+            int[] tage = spalten.tage;
+            int[] gruppeIds = spalten.gruppeIds;
+            byte[] statusCodes = spalten.statusCodes;
+            short[] verspaetungMinuten = spalten.verspaetungMinuten;
+            boolean alleGruppen = gruppeId == null;
+            int gruppe = alleGruppen ? 0 : gruppeId;
+            for (int i = von; i < bis; i++) {
+                int tag = tage[i];
+                if (tag < vonTag || tag > bisTag || (!alleGruppen && gruppeIds[i] != gruppe)
+                        // 01.01.1970 war ein Donnerstag, Bit 0 steht für Montag
+                        || (wochentage & (1 << Math.floorMod(tag + 3, 7))) == 0) {
+                    continue;
+                }
+                int code = statusCodes[i] & 0xFF;
+                if (!erlaubt[code]) {
+                    continue;
+                }
+                summen[code]++;
+                int minuten = verspaetungMinuten[i];
+                if (minuten > 0) {
+                    summen[codes + code]++;
+                    summen[2 * codes + code] += minuten;
+                }
+            }
+            return summen;
+        }
+    }
+}
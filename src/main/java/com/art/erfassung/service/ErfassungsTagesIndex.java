@@ -0,0 +1,403 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.ErfassungIndexEintrag;
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
+import com.art.erfassung.repository.ErfassungRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Hält für jeden Studenten und Status eine {@link TageBitmap} der Tage, an denen der Student diesen Status
+ * erhalten hat, sowie je Gruppe eine Bitmap der Tage, an denen für die Gruppe erfasst wurde.
+ * <p>
+ * Der Index wird beim Start der Anwendung mit einer einzigen, als Stream gelesenen Abfrage aufgebaut und danach
+ * aus den {@link ErfassungenGespeichertEvent}s des Schreibpfads nach dem Commit fortgeschrieben. An markierten
+ * Tagen der sparsamen Speicherung gelten Studenten ohne Erfassung wie in Listen und Statistik als "Anwesend".
+ * Fragen wie "welche Studenten sind heute noch nicht erfasst", "hat die Gruppe an diesem Tag erfasst" oder
+ * "wie viele Fehltage hatte ein Student im Zeitraum" werden so ohne Datenbankzugriff mit wenigen Wortoperationen
+ * beantwortet.
+ * </p>
+ * <p>
+ * Fortgeschrieben werden wie beim {@link ErfassungSpaltenspeicher} nur die Schreibvorgänge der eigenen Instanz.
+ * Bei mehreren Instanzen, nach einem Gruppenwechsel und wenn ein Student an einem bereits markierten Tag angelegt
+ * wird, weicht der Index von der Datenbank ab, bis er mit {@link #pruefen()} abgeglichen wird. Er beantwortet
+ * daher nur Anzeigefragen wie die noch nicht erfassten Studenten einer Gruppe
+ * ({@code GET /api/v1/erfassungen/offen}); Schreibpfade wie Import und Check-in prüfen in der Datenbank.
+ * </p>
+ */
+@Service
+public class ErfassungsTagesIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungsTagesIndex.class);
+
+    // Repository zum Lesen aller Erfassungen beim Aufbau
+    private final ErfassungRepository erfassungRepository;
+    // Zwischengespeicherte Studentenlisten der Gruppen
+    private final RosterCache rosterCache;
+    // Lesende Transaktion für den Stream beim Aufbau
+    private final TransactionTemplate lesendeTransaktion;
+
+    private final ReentrantReadWriteLock sperre = new ReentrantReadWriteLock();
+    // Aktueller Stand und ob er bereits aus der Datenbank aufgebaut wurde, geschützt durch sperre
+    private Stand stand = new Stand();
+    private boolean aufgebaut;
+    // Während eines Aufbaus eingegangene Änderungen, die anschließend nachgetragen werden; sonst null
+    private List<ErfassungsAenderung> waehrendAufbau;
+
+    /**
+     * Ergebnis eines Abgleichs mit der Datenbank.
+     *
+     * @param studenten    Anzahl der Studenten mit mindestens einer Erfassung
+     * @param bitmaps      Anzahl der Bitmaps je Student und Status
+     * @param eintraege    Anzahl der gesetzten Tage über alle Studenten
+     * @param abweichungen Anzahl der Bitmaps von Studenten und Gruppen, die vor dem Abgleich abwichen;
+     *                     beim ersten Aufbau 0
+     * @param bytes        geschätzter Speicherbedarf der Bitmaps nach dem Abgleich
+     */
+    public record PruefErgebnis(int studenten, long bitmaps, long eintraege, int abweichungen, long bytes) {
+    }
+
+    public ErfassungsTagesIndex(ErfassungRepository erfassungRepository, RosterCache rosterCache,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.erfassungRepository = erfassungRepository;
+        this.rosterCache = rosterCache;
+        this.lesendeTransaktion = new TransactionTemplate(transactionManager);
+        this.lesendeTransaktion.setReadOnly(true);
+
+        Gauge.builder("erfassung.tagesindex.bytes", this, index -> index.lesen(Stand::bytes))
+                .description("Geschätzter Speicherbedarf der Bitmaps des Tagesindex")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("erfassung.tagesindex.bitmaps", this, index -> index.lesen(Stand::bitmaps))
+                .description("Anzahl der Bitmaps je Student und Status im Tagesindex")
+                .register(meterRegistry);
+        Gauge.builder("erfassung.tagesindex.eintraege", this, index -> index.lesen(Stand::eintraege))
+                .description("Anzahl der im Tagesindex gesetzten Tage")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Baut den Index beim Start der Anwendung auf.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void beimStartAufbauen() {
+        PruefErgebnis ergebnis = pruefen();
+        logger.info("Tagesindex aufgebaut: {} Studenten, {} Bitmaps, {} Tage, etwa {} KB",
+                ergebnis.studenten(), ergebnis.bitmaps(), ergebnis.eintraege(), ergebnis.bytes() / 1024);
+    }
+
+    /**
+     * Baut den Index aus der Datenbank neu auf, vergleicht ihn mit dem bisherigen Stand und ersetzt diesen.
+     * <p>
+     * Das Lesen erfolgt ohne Sperre; Änderungen, die währenddessen gespeichert werden, werden gesammelt und vor
+     * dem Austausch auf den neuen Stand angewendet. Da jede Änderung den Endzustand eines Tages setzt, ist das
+     * auch für Änderungen korrekt, die der Stream bereits gesehen hat.
+     * </p>
+     *
+     * @return ein {@link PruefErgebnis} mit dem Umfang des neuen Index und den gefundenen Abweichungen
+     */
+    public synchronized PruefErgebnis pruefen() {
+        sperre.writeLock().lock();
+        try {
+            waehrendAufbau = new ArrayList<>();
+        } finally {
+            sperre.writeLock().unlock();
+        }
+        Stand neu = new Stand();
+        try {
+            lesendeTransaktion.executeWithoutResult(status -> {
+                try (Stream<ErfassungIndexEintrag> eintraege = erfassungRepository.streamIndexEintraege()) {
+                    eintraege.forEach(e -> neu.setzen(e.studentenId(), e.gruppeId(), tag(e.datum()), e.statusId()));
+                }
+            });
+        } catch (RuntimeException e) {
+            sperre.writeLock().lock();
+            try {
+                waehrendAufbau = null;
+            } finally {
+                sperre.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        sperre.writeLock().lock();
+        try {
+            waehrendAufbau.forEach(neu::anwenden);
+            waehrendAufbau = null;
+            int abweichungen = aufgebaut ? neu.abweichungen(stand) : 0;
+            stand = neu;
+            aufgebaut = true;
+            if (abweichungen > 0) {
+                logger.warn("Tagesindex wich in {} Bitmaps von der Datenbank ab", abweichungen);
+            }
+            return new PruefErgebnis(neu.tageByStudent.size(), neu.bitmaps(), neu.eintraege(), abweichungen,
+                    neu.bytes());
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Schreibt die gespeicherten Erfassungen nach dem Commit in den Index.
+     *
+     * @param event das Ereignis mit den Änderungen der gespeicherten Erfassungen
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void erfassungenGespeichert(ErfassungenGespeichertEvent event) {
+        sperre.writeLock().lock();
+        try {
+            for (ErfassungsAenderung aenderung : event.aenderungen()) {
+                stand.anwenden(aenderung);
+            }
+            if (waehrendAufbau != null) {
+                waehrendAufbau.addAll(event.aenderungen());
+            }
+        } finally {
+            sperre.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Liefert die Studenten einer Gruppe, für die an einem Tag keine Erfassung vorliegt.
+     * <p>
+     * Geprüft werden die aktuellen Mitglieder der Gruppe; für vergangene Tage sind daher auch später
+     * hinzugekommene Studenten enthalten.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param datum    der Tag
+     * @return die nicht erfassten Studenten in der Reihenfolge der Studentenliste
+     */
+    public List<RosterEintrag> studentenOhneErfassung(Integer gruppeId, LocalDate datum) {
+        List<RosterEintrag> roster = rosterCache.roster(gruppeId);
+        int tag = tag(datum);
+        List<RosterEintrag> ohneErfassung = new ArrayList<>();
+        sperre.readLock().lock();
+        try {
+            for (RosterEintrag eintrag : roster) {
+                if (!stand.erfasst(eintrag.studentenId(), tag)) {
+                    ohneErfassung.add(eintrag);
+                }
+            }
+        } finally {
+            sperre.readLock().unlock();
+        }
+        return ohneErfassung;
+    }
+
+    /**
+     * Gibt an, ob für eine Gruppe an einem Tag erfasst wurde.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param datum    der Tag
+     * @return {@code true}, falls für mindestens einen Studenten der Gruppe eine Erfassung vorliegt
+     */
+    public boolean gruppeErfasst(Integer gruppeId, LocalDate datum) {
+        int tag = tag(datum);
+        sperre.readLock().lock();
+        try {
+            TageBitmap tage = stand.tageByGruppe.get(gruppeId);
+            return tage != null && tage.enthaelt(tag);
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Zählt die Tage, an denen ein Student einen der angegebenen Status erhalten hat, z.B. seine Fehltage.
+     *
+     * @param studentenId die ID des Studenten
+     * @param statusIds   die IDs der zu zählenden Status
+     * @param von         das Startdatum des Zeitraums (inklusive)
+     * @param bis         das Enddatum des Zeitraums (inklusive)
+     * @return die Anzahl der Tage
+     */
+    public int anzahl(Integer studentenId, Collection<Integer> statusIds, LocalDate von, LocalDate bis) {
+        int vonTag = tag(von);
+        int bisTag = tag(bis);
+        sperre.readLock().lock();
+        try {
+            return stand.anzahl(studentenId, statusIds, vonTag, bisTag);
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    /**
+     * Zählt die Tage, an denen die Studenten einer Gruppe einen der angegebenen Status erhalten haben.
+     *
+     * @param gruppeId  die ID der Gruppe
+     * @param statusIds die IDs der zu zählenden Status
+     * @param von       das Startdatum des Zeitraums (inklusive)
+     * @param bis       das Enddatum des Zeitraums (inklusive)
+     * @return die Summe der Tage über alle Studenten der Gruppe
+     */
+    public long anzahlInGruppe(Integer gruppeId, Collection<Integer> statusIds, LocalDate von, LocalDate bis) {
+        List<RosterEintrag> roster = rosterCache.roster(gruppeId);
+        int vonTag = tag(von);
+        int bisTag = tag(bis);
+        long anzahl = 0;
+        sperre.readLock().lock();
+        try {
+            for (RosterEintrag eintrag : roster) {
+                anzahl += stand.anzahl(eintrag.studentenId(), statusIds, vonTag, bisTag);
+            }
+        } finally {
+            sperre.readLock().unlock();
+        }
+        return anzahl;
+    }
+
+    private double lesen(ToLongFunction<Stand> wert) {
+        sperre.readLock().lock();
+        try {
+            return wert.applyAsLong(stand);
+        } finally {
+            sperre.readLock().unlock();
+        }
+    }
+
+    private static int tag(LocalDate datum) {
+        return Math.toIntExact(datum.toEpochDay());
+    }
+
+    /**
+     * Bitmaps des Index; nicht threadsicher.
+     */
+    private static final class Stand {
+
+        // Tage je Student und Status-ID
+        private final Map<Integer, Map<Integer, TageBitmap>> tageByStudent = new HashMap<>();
+        // Tage mit mindestens einer Erfassung je Gruppe
+        private final Map<Integer, TageBitmap> tageByGruppe = new HashMap<>();
+
+        void setzen(Integer studentenId, Integer gruppeId, int tag, Integer statusId) {
+            tageByStudent.computeIfAbsent(studentenId, id -> new HashMap<>(4))
+                    .computeIfAbsent(statusId, id -> new TageBitmap()).setzen(tag);
+            if (gruppeId != null) {
+                tageByGruppe.computeIfAbsent(gruppeId, id -> new TageBitmap()).setzen(tag);
+            }
+        }
+
+        void anwenden(ErfassungsAenderung aenderung) {
+            int tag = tag(aenderung.datum());
+            if (aenderung.alterStatusId() != null && !aenderung.alterStatusId().equals(aenderung.neuerStatusId())) {
+                Map<Integer, TageBitmap> tageByStatus = tageByStudent.get(aenderung.studentenId());
+                TageBitmap alt = tageByStatus != null ? tageByStatus.get(aenderung.alterStatusId()) : null;
+                if (alt != null) {
+                    alt.loeschen(tag);
+                }
+            }
+            setzen(aenderung.studentenId(), aenderung.gruppeId(), tag, aenderung.neuerStatusId());
+        }
+
+        boolean erfasst(Integer studentenId, int tag) {
+            Map<Integer, TageBitmap> tageByStatus = tageByStudent.get(studentenId);
+            if (tageByStatus != null) {
+                for (TageBitmap tage : tageByStatus.values()) {
+                    if (tage.enthaelt(tag)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        int anzahl(Integer studentenId, Collection<Integer> statusIds, int von, int bis) {
+            Map<Integer, TageBitmap> tageByStatus = tageByStudent.get(studentenId);
+            if (tageByStatus == null) {
+                return 0;
+            }
+            TageBitmap tage = null;
+            for (Integer statusId : statusIds) {
+                TageBitmap status = tageByStatus.get(statusId);
+                if (status != null) {
+                    tage = tage == null ? status : tage.kopie().oder(status);
+                }
+            }
+            return tage == null ? 0 : tage.anzahl(von, bis);
+        }
+
+        long bitmaps() {
+            long bitmaps = 0;
+            for (Map<Integer, TageBitmap> tageByStatus : tageByStudent.values()) {
+                bitmaps += tageByStatus.size();
+            }
+            return bitmaps;
+        }
+
+        long eintraege() {
+            long eintraege = 0;
+            for (Map<Integer, TageBitmap> tageByStatus : tageByStudent.values()) {
+                for (TageBitmap tage : tageByStatus.values()) {
+                    eintraege += tage.anzahl();
+                }
+            }
+            return eintraege;
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (Map<Integer, TageBitmap> tageByStatus : tageByStudent.values()) {
+                for (TageBitmap tage : tageByStatus.values()) {
+                    bytes += tage.speicherBytes();
+                }
+            }
+            for (TageBitmap tage : tageByGruppe.values()) {
+                bytes += tage.speicherBytes();
+            }
+            return bytes;
+        }
+
+        /**
+         * Zählt die Bitmaps von Studenten und Gruppen, deren gesetzte Tage sich zwischen zwei Ständen
+         * unterscheiden. Leere und fehlende Bitmaps gelten als gleich.
+         */
+        int abweichungen(Stand anderer) {
+            int abweichungen = 0;
+            Set<Integer> studenten = new HashSet<>(tageByStudent.keySet());
+            studenten.addAll(anderer.tageByStudent.keySet());
+            for (Integer studentenId : studenten) {
+                abweichungen += abweichungen(tageByStudent.getOrDefault(studentenId, Map.of()),
+                        anderer.tageByStudent.getOrDefault(studentenId, Map.of()));
+            }
+            return abweichungen + abweichungen(tageByGruppe, anderer.tageByGruppe);
+        }
+
+        private static int abweichungen(Map<Integer, TageBitmap> soll, Map<Integer, TageBitmap> ist) {
+            int abweichungen = 0;
+            Set<Integer> schluessel = new HashSet<>(soll.keySet());
+            schluessel.addAll(ist.keySet());
+            TageBitmap leer = new TageBitmap();
+            for (Integer id : schluessel) {
+                if (!soll.getOrDefault(id, leer).equals(ist.getOrDefault(id, leer))) {
+                    abweichungen++;
+                }
+            }
+            return abweichungen;
+        }
+    }
+}
@@ -1,30 +1,28 @@
 package com.art.erfassung.service;
 
 import com.art.erfassung.model.Gruppe;
-import com.art.erfassung.repository.GruppeRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 
 /**
  * Serviceklasse zur Verwaltung von Gruppen.
  * <p>
  * Diese Klasse stellt Methoden zum Abrufen einzelner Gruppen sowie zur
- * Abfrage aller Gruppen zur Verfügung. Der Zugriff auf die Daten erfolgt über
- * das {@link GruppeRepository}.
+ * Abfrage aller Gruppen zur Verfügung. Die Gruppen werden aus der
+ * {@link ReferenzdatenRegistry} im Speicher gelesen, sodass keine Datenbankabfrage entsteht.
  */
 @Service
 public class GruppeService {
 
-    // Repository zur Verwaltung der Gruppen-Daten
-    private final GruppeRepository gruppeRepository;
+    // Registry der im Speicher gehaltenen Referenzdaten
+    private final ReferenzdatenRegistry referenzdatenRegistry;
 
     @Autowired
-    public GruppeService(GruppeRepository gruppeRepository) {
-        this.gruppeRepository = gruppeRepository;
+    public GruppeService(ReferenzdatenRegistry referenzdatenRegistry) {
+        this.referenzdatenRegistry = referenzdatenRegistry;
     }
 
     /**
@@ -38,7 +36,7 @@ public class GruppeService {
      */
     public Gruppe findOrThrow(Integer id) {
         // Suche der Gruppe und Fehler werfen, wenn sie nicht gefunden wird
-        return gruppeRepository.findById(id).orElseThrow();
+        return referenzdatenRegistry.gruppe(id);
     }
 
     /**
@@ -47,7 +45,7 @@ public class GruppeService {
      * @return eine Liste aller {@link Gruppe} Objekte
      */
     public List<Gruppe> findAll() {
-        // Abrufen aller Gruppen aus dem Repository
-        return gruppeRepository.findAll();
+        // Abrufen aller Gruppen aus der Registry
+        return referenzdatenRegistry.alleGruppen();
     }
 }
@@ -0,0 +1,103 @@
+package com.art.erfassung.service;
+
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gestreifte Sperren je Gruppe für das Speichern von Erfassungen innerhalb dieser Anwendungsinstanz.
+ * <p>
+ * Jede Gruppe wird über ihre ID einer von {@value #ANZAHL_STREIFEN} Sperren zugeordnet. Gleichzeitige
+ * Einreichungen derselben Gruppe werden so nacheinander verarbeitet, während verschiedene Gruppen in der Regel
+ * parallel gespeichert werden. Die Sperren werden bis zum Ende der laufenden Transaktion gehalten, damit die
+ * nächste Einreichung den festgeschriebenen Stand liest.
+ * </p>
+ * <p>
+ * Die Sperren vermeiden lediglich Konflikte innerhalb einer Instanz. Gegen doppelte Erfassungen schützt der
+ * eindeutige Schlüssel auf (studenten_id, datum), gegen verlorene Änderungen die Versionsspalte der
+ * {@link com.art.erfassung.model.Erfassung}.
+ * </p>
+ */
+@Component
+public class GruppenSperren {
+
+    /**
+     * Anzahl der Sperren, auf die die Gruppen verteilt werden.
+     */
+    public static final int ANZAHL_STREIFEN = 64;
+
+    /**
+     * Maximale Wartezeit auf eine Sperre, bevor das Speichern als Konflikt abgebrochen wird.
+     */
+    public static final Duration WARTEZEIT = Duration.ofSeconds(10);
+
+    private final ReentrantLock[] streifen = new ReentrantLock[ANZAHL_STREIFEN];
+
+    public GruppenSperren() {
+        for (int i = 0; i < streifen.length; i++) {
+            streifen[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Sperrt die angegebenen Gruppen bis zum Abschluss der laufenden Transaktion.
+     * <p>
+     * Die Sperren werden in aufsteigender Reihenfolge angefordert, sodass sich Einreichungen mit mehreren
+     * Gruppen nicht gegenseitig blockieren. Wird eine Sperre nicht innerhalb von {@link #WARTEZEIT} frei, werden
+     * die bereits erhaltenen freigegeben.
+     * </p>
+     *
+     * @param gruppeIds die IDs der Gruppen
+     * @throws CannotAcquireLockException falls eine Sperre nicht rechtzeitig erhalten wurde
+     * @throws IllegalStateException      falls keine Transaktion aktiv ist
+     */
+    public void sperrenBisTransaktionsende(Collection<Integer> gruppeIds) {
+        Assert.state(TransactionSynchronizationManager.isSynchronizationActive(),
+                "Gruppensperren erfordern eine aktive Transaktion");
+        SortedSet<Integer> indizes = new TreeSet<>();
+        for (Integer gruppeId : gruppeIds) {
+            indizes.add(Math.floorMod(gruppeId.hashCode(), ANZAHL_STREIFEN));
+        }
+        List<ReentrantLock> gehalten = new ArrayList<>(indizes.size());
+        try {
+            for (int index : indizes) {
+                ReentrantLock sperre = streifen[index];
+                if (!sperre.tryLock(WARTEZEIT.toMillis(), TimeUnit.MILLISECONDS)) {
+                    throw new CannotAcquireLockException("Sperre für Gruppen " + gruppeIds
+                            + " nicht innerhalb von " + WARTEZEIT.toSeconds() + " s erhalten");
+                }
+                gehalten.add(sperre);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            freigeben(gehalten);
+            throw new CannotAcquireLockException("Warten auf Sperre für Gruppen " + gruppeIds + " unterbrochen", e);
+        } catch (RuntimeException e) {
+            freigeben(gehalten);
+            throw e;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                freigeben(gehalten);
+            }
+        });
+    }
+
+    private static void freigeben(List<ReentrantLock> gehalten) {
+        for (int i = gehalten.size() - 1; i >= 0; i--) {
+            gehalten.get(i).unlock();
+        }
+    }
+}
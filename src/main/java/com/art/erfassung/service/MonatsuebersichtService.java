@@ -0,0 +1,118 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.config.CacheConfig;
+import com.art.erfassung.dto.GruppenMonat;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
+import com.art.erfassung.repository.ErfassungRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Serviceklasse, die die Erfassungen einer Gruppe je Monat als kodierten {@link GruppenMonat} bereitstellt.
+ * <p>
+ * Die Monate werden mit einer Projektionsabfrage gelesen, ohne Erfassungen, Studenten oder Status als Entitäten
+ * zu laden, und im Cache {@value CacheConfig#MONATSUEBERSICHT} gehalten. Nach dem Commit gespeicherter
+ * Erfassungen werden die betroffenen Monate der Gruppen verworfen; Änderungen an Studenten verwerfen alle
+ * Monate, da sie Gruppenzugehörigkeit und erfasste Tage der sparsamen Speicherung beeinflussen.
+ * </p>
+ */
+@Service
+public class MonatsuebersichtService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonatsuebersichtService.class);
+
+    // Repository zur Abfrage der Erfassungen eines Monats
+    private final ErfassungRepository erfassungRepository;
+
+    // Cache der kodierten Monate, null falls nicht konfiguriert
+    private final Cache monatsuebersicht;
+
+    public MonatsuebersichtService(ErfassungRepository erfassungRepository, CacheManager cacheManager) {
+        this.erfassungRepository = erfassungRepository;
+        this.monatsuebersicht = cacheManager.getCache(CacheConfig.MONATSUEBERSICHT);
+    }
+
+    /**
+     * Liefert die kodierten Erfassungen einer Gruppe in einem Monat.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param monat    der Monat
+     * @return der kodierte Monat oder leer, falls im Monat mehr Status vorkommen, als kodiert werden können
+     */
+    public Optional<GruppenMonat> gruppenMonat(Integer gruppeId, YearMonth monat) {
+        MonatsSchluessel schluessel = new MonatsSchluessel(gruppeId, monat);
+        GruppenMonat gruppenMonat = monatsuebersicht != null ? monatsuebersicht.get(schluessel, GruppenMonat.class) : null;
+        if (gruppenMonat != null) {
+            return Optional.of(gruppenMonat);
+        }
+        Optional<GruppenMonat> geladen = GruppenMonat.kodieren(monat,
+                erfassungRepository.findTageswerteByGruppeUndZeitraum(gruppeId, monat.atDay(1), monat.atEndOfMonth()));
+        if (geladen.isEmpty()) {
+            logger.debug("Monat {} der Gruppe {} enthält zu viele Status für die Kodierung", monat, gruppeId);
+        } else if (monatsuebersicht != null) {
+            monatsuebersicht.put(schluessel, geladen.get());
+        }
+        return geladen;
+    }
+
+    /**
+     * Verwirft die Monate, deren Erfassungen gespeichert wurden.
+     *
+     * @param event das Ereignis mit den Änderungen der gespeicherten Erfassungen
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void erfassungenGespeichert(ErfassungenGespeichertEvent event) {
+        if (monatsuebersicht == null) {
+            return;
+        }
+        Set<MonatsSchluessel> schluessel = new HashSet<>();
+        for (ErfassungsAenderung aenderung : event.aenderungen()) {
+            schluessel.add(new MonatsSchluessel(aenderung.gruppeId(), YearMonth.from(aenderung.datum())));
+        }
+        schluessel.forEach(monatsuebersicht::evict);
+    }
+
+    /**
+     * Verwirft alle Monate, z.B. nachdem ein Student angelegt, verschoben oder gelöscht wurde.
+     * <p>
+     * Innerhalb einer Transaktion geschieht dies erst nach deren Abschluss.
+     * </p>
+     */
+    public void verwerfen() {
+        if (monatsuebersicht == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    monatsuebersicht.clear();
+                }
+            });
+        } else {
+            monatsuebersicht.clear();
+        }
+    }
+
+    /**
+     * Schlüssel eines Monats im Cache.
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param monat    der Monat
+     */
+    private record MonatsSchluessel(Integer gruppeId, YearMonth monat) {
+    }
+}
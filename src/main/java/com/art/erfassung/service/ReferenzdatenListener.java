@@ -0,0 +1,30 @@
+package com.art.erfassung.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * JPA-Entity-Listener, der die {@link ReferenzdatenRegistry} bei Änderungen an Status oder Gruppen
+ * als veraltet markiert.
+ * <p>
+ * Hibernate erzeugt den Listener über den Spring-Bean-Container. Die Registry wird erst bei Bedarf
+ * aufgelöst, da der Listener bereits beim Aufbau der EntityManagerFactory benötigt wird.
+ * </p>
+ */
+public class ReferenzdatenListener {
+
+    private final ObjectProvider<ReferenzdatenRegistry> registry;
+
+    public ReferenzdatenListener(ObjectProvider<ReferenzdatenRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void referenzdatenGeaendert(Object entity) {
+        registry.ifAvailable(ReferenzdatenRegistry::alsVeraltetMarkieren);
+    }
+}
@@ -0,0 +1,212 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Hält die selten geänderten Referenzdaten {@link Status} und {@link Gruppe} im Speicher.
+ * <p>
+ * Die Daten werden beim Start der Anwendung vollständig geladen und danach ohne Datenbankzugriff
+ * ausgeliefert. Ein neuer Stand wird geladen, wenn
+ * <ul>
+ *     <li>{@link #neuLaden()} aufgerufen wird (z.B. über die Wartungsseite),</li>
+ *     <li>ein Status oder eine Gruppe gespeichert oder gelöscht wurde (siehe {@link ReferenzdatenListener}) oder</li>
+ *     <li>eine angefragte ID im aktuellen Stand fehlt.</li>
+ * </ul>
+ * Die gelieferten Objekte sind losgelöste Entitäten und dürfen nur gelesen werden. Für schreibende Zugriffe
+ * stellen {@link #statusReferenz(Integer)} und {@link #gruppeReferenz(Integer)} verwaltete Referenzen bereit,
+ * die ohne Abfrage der Tabellen "status" und "gruppe" auskommen.
+ * </p>
+ */
+@Service
+public class ReferenzdatenRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenzdatenRegistry.class);
+
+    // Repository zur Verwaltung der Statusinformationen
+    private final StatusRepository statusRepository;
+    // Repository zur Verwaltung der Gruppen-Daten
+    private final GruppeRepository gruppeRepository;
+
+    // Aktueller, unveränderlicher Stand; null, solange nichts geladen ist oder der Stand veraltet ist
+    private volatile Stand stand;
+
+    public ReferenzdatenRegistry(StatusRepository statusRepository, GruppeRepository gruppeRepository) {
+        this.statusRepository = statusRepository;
+        this.gruppeRepository = gruppeRepository;
+    }
+
+    /**
+     * Lädt die Referenzdaten beim Start der Anwendung.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void beimStartLaden() {
+        neuLaden();
+    }
+
+    /**
+     * Lädt alle Status und Gruppen aus der Datenbank und ersetzt den aktuellen Stand.
+     *
+     * @return der neu geladene Stand
+     */
+    public Stand neuLaden() {
+        Map<Integer, Status> statusById = new TreeMap<>();
+        for (Status status : statusRepository.findAll()) {
+            statusById.put(status.getId(), status);
+        }
+        Map<Integer, Gruppe> gruppeById = new TreeMap<>();
+        for (Gruppe gruppe : gruppeRepository.findAll()) {
+            gruppeById.put(gruppe.getId(), gruppe);
+        }
+        Stand neu = new Stand(Collections.unmodifiableMap(statusById), Collections.unmodifiableMap(gruppeById));
+        this.stand = neu;
+        logger.debug("Referenzdaten geladen: {} Status, {} Gruppen", statusById.size(), gruppeById.size());
+        return neu;
+    }
+
+    /**
+     * Markiert den aktuellen Stand als veraltet, sodass der nächste Zugriff neu lädt.
+     * <p>
+     * Innerhalb einer Transaktion geschieht dies erst nach deren Abschluss, damit kein Stand mit noch
+     * nicht festgeschriebenen Änderungen geladen wird.
+     * </p>
+     */
+    public void alsVeraltetMarkieren() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    stand = null;
+                }
+            });
+        } else {
+            stand = null;
+        }
+    }
+
+    /**
+     * Liefert alle Status, sortiert nach ID.
+     *
+     * @return eine unveränderliche Liste aller {@link Status} Objekte
+     */
+    public List<Status> alleStatus() {
+        return List.copyOf(aktuellerStand().statusById().values());
+    }
+
+    /**
+     * Liefert den Status mit der angegebenen ID.
+     *
+     * @param id die ID des Status
+     * @return der gefundene {@link Status}
+     * @throws NoSuchElementException wenn kein Status mit der angegebenen ID existiert
+     */
+    public Status status(Integer id) {
+        Status status = aktuellerStand().statusById().get(id);
+        if (status == null) {
+            // Möglicherweise wurde der Status nach dem letzten Laden angelegt.
+            status = neuLaden().statusById().get(id);
+        }
+        if (status == null) {
+            throw new NoSuchElementException("Status mit ID " + id + " wurde nicht gefunden");
+        }
+        return status;
+    }
+
+    /**
+     * Liefert den Status mit der angegebenen Bezeichnung.
+     *
+     * @param bezeichnung die Bezeichnung des Status, z.B. {@link Status#ANWESEND}
+     * @return der Status mit der kleinsten ID unter dieser Bezeichnung, falls vorhanden
+     */
+    public Optional<Status> statusMitBezeichnung(String bezeichnung) {
+        for (Status status : aktuellerStand().statusById().values()) {
+            if (status.getBezeichnung() != null && status.getBezeichnung().equals(bezeichnung)) {
+                return Optional.of(status);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Liefert eine verwaltete Referenz auf den Status mit der angegebenen ID, ohne ihn aus der Datenbank zu lesen.
+     *
+     * @param id die ID des Status
+     * @return eine Referenz zur Verwendung in zu speichernden Entitäten
+     * @throws NoSuchElementException wenn kein Status mit der angegebenen ID existiert
+     */
+    public Status statusReferenz(Integer id) {
+        status(id);
+        return statusRepository.getReferenceById(id);
+    }
+
+    /**
+     * Liefert alle Gruppen, sortiert nach ID.
+     *
+     * @return eine unveränderliche Liste aller {@link Gruppe} Objekte
+     */
+    public List<Gruppe> alleGruppen() {
+        return List.copyOf(aktuellerStand().gruppeById().values());
+    }
+
+    /**
+     * Liefert die Gruppe mit der angegebenen ID.
+     *
+     * @param id die ID der Gruppe
+     * @return die gefundene {@link Gruppe}
+     * @throws NoSuchElementException wenn keine Gruppe mit der angegebenen ID existiert
+     */
+    public Gruppe gruppe(Integer id) {
+        Gruppe gruppe = aktuellerStand().gruppeById().get(id);
+        if (gruppe == null) {
+            // Möglicherweise wurde die Gruppe nach dem letzten Laden angelegt.
+            gruppe = neuLaden().gruppeById().get(id);
+        }
+        if (gruppe == null) {
+            throw new NoSuchElementException("Gruppe mit ID " + id + " wurde nicht gefunden");
+        }
+        return gruppe;
+    }
+
+    /**
+     * Liefert eine verwaltete Referenz auf die Gruppe mit der angegebenen ID, ohne sie aus der Datenbank zu lesen.
+     *
+     * @param id die ID der Gruppe
+     * @return eine Referenz zur Verwendung in zu speichernden Entitäten
+     * @throws NoSuchElementException wenn keine Gruppe mit der angegebenen ID existiert
+     */
+    public Gruppe gruppeReferenz(Integer id) {
+        gruppe(id);
+        return gruppeRepository.getReferenceById(id);
+    }
+
+    private Stand aktuellerStand() {
+        Stand aktuell = stand;
+        return aktuell != null ? aktuell : neuLaden();
+    }
+
+    /**
+     * Unveränderlicher Stand der Referenzdaten.
+     *
+     * @param statusById alle Status nach ID
+     * @param gruppeById alle Gruppen nach ID
+     */
+    public record Stand(Map<Integer, Status> statusById, Map<Integer, Gruppe> gruppeById) {
+    }
+}
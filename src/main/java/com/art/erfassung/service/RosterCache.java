@@ -0,0 +1,114 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.repository.StudentenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hält die Studentenlisten aller Gruppen als unveränderliche {@link RosterEintrag} Listen im Speicher.
+ * <p>
+ * Beim Start der Anwendung werden die Listen aller Gruppen mit einer einzigen Abfrage geladen. Das Formular
+ * zur Anwesenheitserfassung und die Monatsliste lesen die Studenten danach ohne Datenbankzugriff. Wird ein
+ * Student angelegt, geändert, in eine andere Gruppe verschoben oder gelöscht, verwirft der {@link RosterListener}
+ * die Listen der betroffenen Gruppen; sie werden beim nächsten Zugriff neu geladen.
+ * </p>
+ */
+@Service
+public class RosterCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RosterCache.class);
+
+    // Repository zur Verwaltung der Studenten-Daten
+    private final StudentenRepository studentenRepository;
+    // Registry der im Speicher gehaltenen Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+
+    // Studentenlisten nach Gruppen-ID
+    private final Map<Integer, List<RosterEintrag>> rosterByGruppe = new ConcurrentHashMap<>();
+
+    public RosterCache(StudentenRepository studentenRepository, ReferenzdatenRegistry referenzdatenRegistry) {
+        this.studentenRepository = studentenRepository;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+    }
+
+    /**
+     * Lädt die Studentenlisten aller Gruppen beim Start der Anwendung.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void beimStartLaden() {
+        vorwaermen();
+    }
+
+    /**
+     * Lädt die Studentenlisten aller Gruppen mit einer Abfrage und ersetzt die zwischengespeicherten Listen.
+     * <p>
+     * Gruppen ohne Studenten erhalten eine leere Liste, damit auch für sie keine Abfrage mehr entsteht.
+     * </p>
+     *
+     * @return die Anzahl der geladenen Einträge
+     */
+    public int vorwaermen() {
+        List<RosterEintrag> alle = studentenRepository.findAllRoster();
+        Map<Integer, List<RosterEintrag>> neu = new HashMap<>();
+        for (Gruppe gruppe : referenzdatenRegistry.alleGruppen()) {
+            neu.put(gruppe.getId(), new ArrayList<>());
+        }
+        for (RosterEintrag eintrag : alle) {
+            neu.computeIfAbsent(eintrag.gruppeId(), id -> new ArrayList<>()).add(eintrag);
+        }
+        rosterByGruppe.clear();
+        neu.forEach((gruppeId, eintraege) -> rosterByGruppe.put(gruppeId, List.copyOf(eintraege)));
+        logger.debug("Studentenlisten geladen: {} Einträge in {} Gruppen", alle.size(), neu.size());
+        return alle.size();
+    }
+
+    /**
+     * Liefert die Studentenliste einer Gruppe, sortiert nach Studenten-ID.
+     * <p>
+     * Fehlt die Liste, wird sie geladen und zwischengespeichert. Ein gleichzeitiges Verwerfen derselben
+     * Gruppe wartet, bis das Laden abgeschlossen ist, sodass kein veralteter Stand erhalten bleibt.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return eine unveränderliche Liste der {@link RosterEintrag} Objekte der Gruppe
+     */
+    public List<RosterEintrag> roster(Integer gruppeId) {
+        return rosterByGruppe.computeIfAbsent(gruppeId,
+                id -> List.copyOf(studentenRepository.findRosterByGruppeId(id)));
+    }
+
+    /**
+     * Verwirft die Studentenliste einer Gruppe.
+     * <p>
+     * Innerhalb einer Transaktion geschieht dies erst nach deren Abschluss, damit nicht zwischenzeitlich ein
+     * Stand ohne die noch nicht festgeschriebenen Änderungen geladen und behalten wird.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     */
+    public void verwerfen(Integer gruppeId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    rosterByGruppe.remove(gruppeId);
+                }
+            });
+        } else {
+            rosterByGruppe.remove(gruppeId);
+        }
+    }
+}
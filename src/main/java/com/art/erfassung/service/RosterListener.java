@@ -0,0 +1,42 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.model.Studenten;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * JPA-Entity-Listener, der bei Änderungen an Studenten die betroffenen Einträge im {@link RosterCache} verwirft.
+ * <p>
+ * Verworfen werden die Liste der aktuellen und, bei einem Gruppenwechsel, die der zuletzt gespeicherten Gruppe.
+ * Die kodierten Monate des {@link MonatsuebersichtService} werden vollständig verworfen.
+ * Entity-Listener laufen vor den Callbacks der Entität, sodass die bisherige Gruppe hier noch bekannt ist.
+ * </p>
+ */
+public class RosterListener {
+
+    private final ObjectProvider<RosterCache> rosterCache;
+    private final ObjectProvider<MonatsuebersichtService> monatsuebersichtService;
+
+    public RosterListener(ObjectProvider<RosterCache> rosterCache,
+                          ObjectProvider<MonatsuebersichtService> monatsuebersichtService) {
+        this.rosterCache = rosterCache;
+        this.monatsuebersichtService = monatsuebersichtService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void studentGeaendert(Studenten student) {
+        rosterCache.ifAvailable(cache -> {
+            if (student.getGruppe() != null) {
+                cache.verwerfen(student.getGruppe().getId());
+            }
+            if (student.getGespeicherteGruppeId() != null) {
+                cache.verwerfen(student.getGespeicherteGruppeId());
+            }
+        });
+        monatsuebersichtService.ifAvailable(MonatsuebersichtService::verwerfen);
+    }
+}
@@ -0,0 +1,169 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.model.ErfassungsTag;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serviceklasse zur Umstellung vorhandener Erfassungen auf die sparsame Speicherung.
+ * <p>
+ * Je Gruppe werden alle Tage, an denen jeder Student, der an diesem Tag bereits Mitglied der Gruppe war, eine
+ * Erfassung besitzt, als {@link ErfassungsTag} markiert. Anschließend werden an diesen Tagen die Erfassungen
+ * dieser Mitglieder ohne Abweichung ("Anwesend", ohne Kommentar, ohne Ankunftszeit) gelöscht; sie gelten
+ * weiterhin als "Anwesend". Tage, an denen einzelne Mitglieder keine Erfassung besitzen, bleiben unverändert, da
+ * ein markierter Tag fehlende Erfassungen als anwesend werten würde.
+ * </p>
+ * <p>
+ * Die angenommenen Anwesenheiten hängen an der Gruppe: Später hinzugekommene Studenten zählen an früheren
+ * markierten Tagen nicht mit ({@link Studenten#istMitgliedAm(LocalDate)}). Wechselt ein
+ * Student dagegen die Gruppe, entfallen seine angenommenen Anwesenheiten in der bisherigen Gruppe; sie müssen
+ * vorher als Erfassungen gespeichert werden (siehe V11__studenten_gruppe_seit.sql).
+ * </p>
+ * <p>
+ * Jede Gruppe wird unter ihrer {@link GruppenSperren Gruppensperre} in einer eigenen Transaktion umgestellt,
+ * sodass die Umstellung beliebig oft unterbrochen und erneut gestartet werden kann. Sie ist unabhängig davon
+ * möglich, ob "erfassung.speicherung.sparsam" aktiv ist.
+ * </p>
+ */
+@Service
+public class SparsameSpeicherungService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SparsameSpeicherungService.class);
+
+    private final ErfassungRepository erfassungRepository;
+    private final ErfassungsTagRepository erfassungsTagRepository;
+    private final ErfassungService erfassungService;
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    private final GruppenSperren gruppenSperren;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    public SparsameSpeicherungService(ErfassungRepository erfassungRepository,
+                                      ErfassungsTagRepository erfassungsTagRepository,
+                                      ErfassungService erfassungService,
+                                      ReferenzdatenRegistry referenzdatenRegistry,
+                                      GruppenSperren gruppenSperren,
+                                      TransactionTemplate transactionTemplate,
+                                      EntityManager entityManager) {
+        this.erfassungRepository = erfassungRepository;
+        this.erfassungsTagRepository = erfassungsTagRepository;
+        this.erfassungService = erfassungService;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.gruppenSperren = gruppenSperren;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Stellt die Erfassungen aller Gruppen auf die sparsame Speicherung um.
+     * <p>
+     * Ohne einen Status {@link Status#ANWESEND} wird nichts umgestellt.
+     * </p>
+     *
+     * @return ein {@link UmstellungErgebnis} mit den markierten Tagen, den entfernten Erfassungen und der
+     *         geschätzten Platzersparnis
+     */
+    public UmstellungErgebnis umstellen() {
+        long erfassungenVorher = erfassungRepository.count();
+        Long bytesVorher = tabellenGroesse();
+        if (referenzdatenRegistry.statusMitBezeichnung(Status.ANWESEND).isEmpty()) {
+            logger.warn("Keine Umstellung auf sparsame Speicherung: Status \"{}\" fehlt", Status.ANWESEND);
+            return new UmstellungErgebnis(0, 0, erfassungenVorher, 0, null);
+        }
+        int gruppen = 0;
+        long tage = 0;
+        long entfernt = 0;
+        for (Gruppe gruppe : referenzdatenRegistry.alleGruppen()) {
+            Integer gruppeId = gruppe.getId();
+            long[] ergebnis = transactionTemplate.execute(status -> gruppeUmstellen(gruppeId));
+            if (ergebnis != null && ergebnis[0] > 0) {
+                gruppen++;
+                tage += ergebnis[0];
+                entfernt += ergebnis[1];
+                logger.debug("Gruppe {} umgestellt: {} Tage markiert, {} Erfassungen entfernt",
+                        gruppeId, ergebnis[0], ergebnis[1]);
+            }
+        }
+        if (tage > 0) {
+            erfassungService.erfassteTageVorhanden();
+        }
+        // Freigegebener Platz wird von der Datenbank erst nach einer Reorganisation zurückgegeben; die
+        // Ersparnis wird deshalb aus der durchschnittlichen Größe je Zeile vor der Umstellung geschätzt.
+        Long bytesEingespart = (bytesVorher == null || erfassungenVorher == 0) ? null
+                : Math.round((double) bytesVorher / erfassungenVorher * entfernt);
+        UmstellungErgebnis ergebnis = new UmstellungErgebnis(gruppen, tage, erfassungenVorher, entfernt,
+                bytesEingespart);
+        logger.info("Umstellung auf sparsame Speicherung abgeschlossen: {}", ergebnis);
+        return ergebnis;
+    }
+
+    private long[] gruppeUmstellen(Integer gruppeId) {
+        gruppenSperren.sperrenBisTransaktionsende(Set.of(gruppeId));
+        List<LocalDate> tage = erfassungsTagRepository.findVollstaendigeTageOhneMarkierung(gruppeId);
+        if (tage.isEmpty()) {
+            return new long[]{0, 0};
+        }
+        List<ErfassungsTag> markierungen = new ArrayList<>(tage.size());
+        for (LocalDate datum : tage) {
+            markierungen.add(new ErfassungsTag(gruppeId, datum));
+        }
+        erfassungsTagRepository.saveAllAndFlush(markierungen);
+        int entfernt = erfassungRepository.loescheAnwesendAnErfasstenTagen(gruppeId);
+        return new long[]{tage.size(), entfernt};
+    }
+
+    /**
+     * Liefert die Größe der Tabelle "erfassung" samt Indizes laut Datenbankstatistik.
+     *
+     * @return die Größe in Bytes oder null, falls die Datenbank sie nicht bereitstellt (z.B. H2)
+     */
+    private Long tabellenGroesse() {
+        try {
+            Object groesse = entityManager.createNativeQuery("select data_length + index_length "
+                            + "from information_schema.tables "
+                            + "where table_schema = database() and table_name = 'erfassung'")
+                    .getSingleResult();
+            return groesse instanceof Number n ? n.longValue() : null;
+        } catch (PersistenceException e) {
+            logger.debug("Tabellengröße nicht verfügbar: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Ergebnis einer Umstellung auf die sparsame Speicherung.
+     *
+     * @param gruppen           Anzahl der Gruppen mit neu markierten Tagen
+     * @param tageMarkiert      Anzahl der neu markierten Tage über alle Gruppen
+     * @param erfassungenVorher Anzahl der Erfassungen vor der Umstellung
+     * @param entfernt          Anzahl der entfernten Erfassungen ohne Abweichung
+     * @param bytesEingespart   geschätzte Ersparnis der Tabelle "erfassung" samt Indizes in Bytes oder null,
+     *                          falls die Datenbank keine Tabellengröße liefert
+     */
+    public record UmstellungErgebnis(int gruppen, long tageMarkiert, long erfassungenVorher, long entfernt,
+                                     Long bytesEingespart) {
+
+        /**
+         * Liefert den Anteil der entfernten Erfassungen.
+         *
+         * @return der Anteil in Prozent, 0 ohne Erfassungen
+         */
+        public double anteilEntferntProzent() {
+            return erfassungenVorher == 0 ? 0.0 : (double) entfernt / erfassungenVorher * 100.0;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.config.CacheConfig;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Verwirft zwischengespeicherte Studentenstatistiken, sobald sich Erfassungen der Studenten ändern.
+ * <p>
+ * Der Listener läuft erst nach dem Commit der schreibenden Transaktion, damit eine parallele Anfrage den
+ * Cache nicht mit dem noch nicht festgeschriebenen alten Stand neu befüllen kann. Verworfen werden genau
+ * die Einträge der Studenten, deren Erfassungen gespeichert wurden; bei einem Rollback bleibt der Cache
+ * unverändert.
+ * </p>
+ */
+@Component
+public class StatistikCacheInvalidierung {
+
+    // Cache der Studentenstatistiken
+    private final Cache studentenstatistik;
+
+    public StatistikCacheInvalidierung(CacheManager cacheManager) {
+        this.studentenstatistik = cacheManager.getCache(CacheConfig.STUDENTENSTATISTIK);
+    }
+
+    /**
+     * Entfernt die Statistiken aller Studenten, deren Erfassungen gespeichert wurden.
+     *
+     * @param event das Ereignis mit den Änderungen der gespeicherten Erfassungen
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void erfassungenGespeichert(ErfassungenGespeichertEvent event) {
+        if (studentenstatistik == null) {
+            return;
+        }
+        Set<Integer> studentenIds = new HashSet<>();
+        for (ErfassungsAenderung aenderung : event.aenderungen()) {
+            studentenIds.add(aenderung.studentenId());
+        }
+        for (Integer studentId : studentenIds) {
+            studentenstatistik.evict(studentId);
+        }
+    }
+}
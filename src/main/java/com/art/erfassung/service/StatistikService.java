@@ -1,74 +1,233 @@
 package com.art.erfassung.service;
 
-import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.config.CacheConfig;
+import com.art.erfassung.dto.GruppenMonat;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.dto.StudentStatusAnzahl;
+import com.art.erfassung.model.Status;
 import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
 import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Serviceklasse zur Berechnung von Statistikdaten für Studenten.
  * <p>
- * Diese Klasse nutzt das {@link ErfassungRepository}, um Erfassungen eines Studenten abzurufen
- * und daraus verschiedene Anwesenheitsstatistiken zu ermitteln.
+ * Diese Klasse liest die vorberechneten Anwesenheitszähler eines Studenten über das
+ * {@link AnwesenheitZaehlerRepository} und ermittelt daraus verschiedene Anwesenheitsstatistiken.
+ * Der Aufwand ist damit unabhängig von der Anzahl der Erfassungen des Studenten. Für ganze Gruppen werden die
+ * Statistiken aller Studenten mit einer gemeinsamen Abfrage ermittelt.
  */
 @Service
 public class StatistikService {
 
-    // Repository zur Abfrage der Erfassungsdaten
+    // Repository zur Abfrage der Anwesenheitszähler
+    private final AnwesenheitZaehlerRepository zaehlerRepository;
+
+    // Repository zur Aggregation der Erfassungen in einem Zeitraum
     private final ErfassungRepository erfassungRepository;
 
-    public StatistikService(ErfassungRepository erfassungRepository) {
+    // Repository zum Laden des Studenten samt Gruppe
+    private final StudentenRepository studentenRepository;
+
+    public StatistikService(AnwesenheitZaehlerRepository zaehlerRepository, ErfassungRepository erfassungRepository,
+                            StudentenRepository studentenRepository) {
+        this.zaehlerRepository = zaehlerRepository;
         this.erfassungRepository = erfassungRepository;
+        this.studentenRepository = studentenRepository;
     }
 
     /**
      * Berechnet die Anwesenheitsstatistik für einen Studenten anhand seiner ID.
      * <p>
-     * Es werden alle Erfassungen des Studenten abgefragt und folgende Statistiken ermittelt:
+     * Die Erfassungen werden nicht gelesen; stattdessen werden die beim Speichern fortgeschriebenen
+     * Zähler je Status verwendet. Dadurch ist der Aufwand unabhängig von der Anzahl der Erfassungen.
+     * Folgende Statistiken werden ermittelt:
      * <ul>
      *     <li>Gesamte Anwesenheitsquote (in Prozent) basierend auf dem Anteil der "Anwesend"-Einträge</li>
      *     <li>Anzahl der "Entschuldigt"-Einträge</li>
      *     <li>Anzahl der "Unentschuldigt"-Einträge</li>
      *     <li>Anzahl der "Krank"-Einträge</li>
-     *     <li>Anzahl der Verspätungen (Erfassungen, deren Kommentar das Wort "verspätung" enthält)</li>
+     *     <li>Anzahl der Verspätungen sowie Summe und Durchschnitt der Verspätungsminuten</li>
      * </ul>
+     * Das Ergebnis wird je Student im Cache {@value CacheConfig#STUDENTENSTATISTIK} gehalten und nach dem
+     * Speichern von Erfassungen des Studenten durch {@link StatistikCacheInvalidierung} verworfen.
+     * </p>
      *
      * @param studentId die eindeutige ID des Studenten
      * @return ein {@link StatistikErgebnis} Objekt, das die berechneten Statistiken enthält
      */
+    @Cacheable(CacheConfig.STUDENTENSTATISTIK)
     public StatistikErgebnis berechneStudentenstatistik(Integer studentId) {
-        // Alle Erfassungen (Attendance Records) für den gegebenen Studenten abrufen.
-        List<Erfassung> erfassungen = erfassungRepository.findByStudenten_id(studentId);
-        long total = erfassungen.size();
-        // Gruppierung der Erfassungen nach Status-Bezeichnung und Zählung der Anzahl pro Status.
-        Map<String, Long> statusCount = erfassungen.stream()
-                .collect(Collectors.groupingBy(e -> e.getStatus().
-                        getBezeichnung(), Collectors.counting()));
-        // Berechne die Anzahl der Erfassungen, bei denen im Kommentar der Begriff "verspätung"
-        // (unabhängig von Groß-/Kleinschreibung) vorkommt. Falls der Kommentar null ist, wird ein leerer String verwendet.
-        long verspaetet = erfassungen.stream()
-                .filter(e -> Optional.ofNullable(e.getKommentar()).
-                        orElse("").toLowerCase().contains("verspätung"))
-                .count();
-        // Anzahl der "Anwesend"-Erfassungen aus der Status-Gruppe extrahieren.
-        long anwesend = statusCount.getOrDefault("Anwesend", 0L);
+        // Zählerstände je Status lesen.
+        List<StatusAnzahl> statusAnzahlen = zaehlerRepository.findStandByStudentId(studentId);
+        // Ohne Erfassungen gibt es weder Student noch Verspätungen.
+        if (statusAnzahlen.isEmpty()) {
+            return new StatistikErgebnis(null, 0.0, 0L, 0L, 0L, 0L, 0L, 0.0);
+        }
+        // Der Student wird samt Gruppe in einer Abfrage geladen.
+        Studenten student = studentenRepository.findAllMitGruppeByIdIn(List.of(studentId)).stream()
+                .findFirst().orElse(null);
+        return ergebnisAus(student, statusAnzahlen);
+    }
+
+    /**
+     * Berechnet die Anwesenheitsstatistik eines Studenten aus bereits ermittelten Anzahlen je Status.
+     * <p>
+     * Wird für Zeiträume verwendet, deren Anzahlen aus den Präfixsummen des {@link StudentenVerlaufIndex}
+     * stammen; es wird nur der Student samt Gruppe geladen. Das Ergebnis wird nicht zwischengespeichert.
+     * </p>
+     *
+     * @param studentId      die eindeutige ID des Studenten
+     * @param statusAnzahlen die Anzahlen je Status im gewünschten Zeitraum
+     * @return ein {@link StatistikErgebnis} Objekt; ohne Student, falls es den Studenten nicht gibt
+     */
+    public StatistikErgebnis berechneStudentenstatistik(Integer studentId, List<StatusAnzahl> statusAnzahlen) {
+        Studenten student = studentenRepository.findAllMitGruppeByIdIn(List.of(studentId)).stream()
+                .findFirst().orElse(null);
+        return ergebnisAus(student, statusAnzahlen);
+    }
+
+    /**
+     * Berechnet die Anwesenheitsstatistik eines bereits geladenen Studenten aus Anzahlen je Status.
+     * <p>
+     * Erlaubt es, mehrere Zeiträume desselben Studenten nebeneinander zu berechnen, ohne ihn jeweils neu zu laden.
+     * </p>
+     *
+     * @param student        der Student
+     * @param statusAnzahlen die Anzahlen je Status im gewünschten Zeitraum
+     * @return ein {@link StatistikErgebnis} Objekt
+     */
+    public StatistikErgebnis berechneStudentenstatistik(Studenten student, List<StatusAnzahl> statusAnzahlen) {
+        return ergebnisAus(student, statusAnzahlen);
+    }
+
+    /**
+     * Berechnet die Anwesenheitsstatistik aller Studenten einer Gruppe.
+     * <p>
+     * Ohne Zeitraum werden die Anwesenheitszähler aller Studenten der Gruppe mit einer Abfrage gelesen. Mit
+     * Zeitraum werden die Erfassungen der Gruppe in der Datenbank je Student und Status gezählt; an erfassten
+     * Tagen der sparsamen Speicherung zählen Studenten ohne Erfassung als "Anwesend". In beiden Fällen
+     * entstehen unabhängig von der Gruppengröße genau zwei Abfragen: eine für die Studenten und eine für
+     * die Zählerstände.
+     * </p>
+     * <p>
+     * Studenten ohne Erfassungen sind mit einer Anwesenheit von 0 Prozent enthalten. Das Ergebnis ist
+     * absteigend nach Anwesenheitsquote und anschließend nach Namen sortiert.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @param von      das Startdatum des Zeitraums (inklusive) oder null für unbegrenzt
+     * @param bis      das Enddatum des Zeitraums (inklusive) oder null für unbegrenzt
+     * @return eine Liste von {@link StatistikErgebnis} Objekten, eines je Student der Gruppe
+     */
+    public List<StatistikErgebnis> berechneGruppenstatistik(Integer gruppeId, LocalDate von, LocalDate bis) {
+        List<Studenten> studenten = studentenRepository.findAllMitGruppeByGruppeId(gruppeId);
+        // Ohne Zeitraum genügen die fortgeschriebenen Zähler, andernfalls wird im Zeitraum gezählt.
+        List<StudentStatusAnzahl> zeilen = (von == null && bis == null)
+                ? zaehlerRepository.findStandByGruppeId(gruppeId)
+                : erfassungRepository.zaehleNachStudentUndStatus(gruppeId, von, bis);
+        Map<Integer, List<StatusAnzahl>> statusAnzahlenByStudent = new HashMap<>();
+        for (StudentStatusAnzahl zeile : zeilen) {
+            statusAnzahlenByStudent.computeIfAbsent(zeile.studentenId(), id -> new ArrayList<>())
+                    .add(zeile.toStatusAnzahl());
+        }
+        List<StatistikErgebnis> ergebnisse = new ArrayList<>(studenten.size());
+        for (Studenten student : studenten) {
+            ergebnisse.add(ergebnisAus(student, statusAnzahlenByStudent.getOrDefault(student.getId(), List.of())));
+        }
+        return sortiert(ergebnisse);
+    }
+
+    /**
+     * Berechnet die Anwesenheitsstatistik aller Studenten einer Gruppe aus einem kodierten {@link GruppenMonat}.
+     * <p>
+     * Das Ergebnis entspricht {@link #berechneGruppenstatistik(Integer, LocalDate, LocalDate)} für den ersten
+     * bis letzten Tag des Monats; die Erfassungen werden jedoch nicht erneut in der Datenbank gezählt, sodass
+     * nur die Abfrage der Studenten entsteht.
+     * </p>
+     *
+     * @param gruppeId     die ID der Gruppe
+     * @param gruppenMonat die kodierten Erfassungen der Gruppe in einem Monat
+     * @return eine Liste von {@link StatistikErgebnis} Objekten, eines je Student der Gruppe
+     */
+    public List<StatistikErgebnis> berechneGruppenstatistik(Integer gruppeId, GruppenMonat gruppenMonat) {
+        List<Studenten> studenten = studentenRepository.findAllMitGruppeByGruppeId(gruppeId);
+        List<StatistikErgebnis> ergebnisse = new ArrayList<>(studenten.size());
+        for (Studenten student : studenten) {
+            ergebnisse.add(ergebnisAus(student, gruppenMonat.statusAnzahlen(gruppenMonat.zeile(student.getId()))));
+        }
+        return sortiert(ergebnisse);
+    }
+
+    /**
+     * Sortiert Gruppenstatistiken absteigend nach Anwesenheitsquote und anschließend nach Namen.
+     *
+     * @param ergebnisse die zu sortierenden Ergebnisse
+     * @return die sortierte Liste
+     */
+    private static List<StatistikErgebnis> sortiert(List<StatistikErgebnis> ergebnisse) {
+        ergebnisse.sort(Comparator.comparingDouble(StatistikErgebnis::gesamtAnwesenheit).reversed()
+                .thenComparing(e -> e.student().getName())
+                .thenComparing(e -> e.student().getVorname()));
+        return ergebnisse;
+    }
+
+    /**
+     * Berechnet das {@link StatistikErgebnis} eines Studenten aus seinen Zählerständen je Status.
+     *
+     * @param student        der Student
+     * @param statusAnzahlen die Zählerstände je Status; leer, falls keine Erfassungen vorhanden sind
+     * @return das berechnete {@link StatistikErgebnis}
+     */
+    private static StatistikErgebnis ergebnisAus(Studenten student, List<StatusAnzahl> statusAnzahlen) {
+        long total = 0;
+        long verspaetungen = 0;
+        long verspaetungMinuten = 0;
+        for (StatusAnzahl statusAnzahl : statusAnzahlen) {
+            total += statusAnzahl.anzahl();
+            verspaetungen += statusAnzahl.verspaetungen();
+            verspaetungMinuten += statusAnzahl.verspaetungMinuten();
+        }
         // Berechne den prozentualen Anteil der Anwesenheit. Falls keine Erfassung vorliegt, wird 0.0 Prozent verwendet.
-        double prozent = (total > 0) ? ((double) anwesend / total * 100.0) : 0.0;
-        // Falls Erfassungen vorhanden sind, wird der Student aus dem ersten Eintrag übernommen.
-        // Andernfalls ist der Student null.
-        Studenten student = erfassungen.isEmpty() ? null : erfassungen.get(0).getStudenten();
-        // Erstelle und gebe das Statistik-Ergebnis zurück.
+        double prozent = (total > 0) ? ((double) anzahl(statusAnzahlen, Status.ANWESEND) / total * 100.0) : 0.0;
         return new StatistikErgebnis(student, prozent,
-                statusCount.getOrDefault("Entschuldigt", 0L),
-                statusCount.getOrDefault("Unentschuldigt", 0L),
-                statusCount.getOrDefault("Krank", 0L),
-                verspaetet);
+                anzahl(statusAnzahlen, "Entschuldigt"),
+                anzahl(statusAnzahlen, "Unentschuldigt"),
+                anzahl(statusAnzahlen, "Krank"),
+                verspaetungen,
+                verspaetungMinuten,
+                verspaetungen > 0 ? (double) verspaetungMinuten / verspaetungen : 0.0);
+    }
+
+    /**
+     * Liefert die Anzahl der Erfassungen mit der angegebenen Status-Bezeichnung.
+     * <p>
+     * Ein Status kann mehrfach vorkommen, z.B. "Anwesend" für gespeicherte Erfassungen und für Studenten ohne
+     * Erfassung an erfassten Tagen; die Anzahlen werden addiert.
+     * </p>
+     *
+     * @param statusAnzahlen die Zählerstände je Status
+     * @param bezeichnung    die gesuchte Status-Bezeichnung
+     * @return die Anzahl, oder 0 falls der Status nicht vorkommt
+     */
+    private static long anzahl(List<StatusAnzahl> statusAnzahlen, String bezeichnung) {
+        long anzahl = 0L;
+        for (StatusAnzahl statusAnzahl : statusAnzahlen) {
+            if (statusAnzahl.bezeichnung().equals(bezeichnung)) {
+                anzahl += statusAnzahl.anzahl();
+            }
+        }
+        return anzahl;
     }
 
     /**
@@ -80,6 +239,8 @@ public class StatistikService {
      * @param unentschuldigt    Anzahl der unentschuldigten Fehlzeiten
      * @param krank             Anzahl der Krankmeldungen
      * @param verspaetungen     Anzahl der Verspätungen
+     * @param verspaetungMinuten              Summe der Verspätungsminuten
+     * @param verspaetungMinutenDurchschnitt durchschnittliche Verspätung in Minuten
      */
     public record StatistikErgebnis(
             Studenten student,
@@ -87,6 +248,8 @@ public class StatistikService {
             long entschuldigt,
             long unentschuldigt,
             long krank,
-            long verspaetungen) {
+            long verspaetungen,
+            long verspaetungMinuten,
+            double verspaetungMinutenDurchschnitt) {
     }
 }
@@ -1,7 +1,6 @@
 package com.art.erfassung.service;
 
 import com.art.erfassung.model.Status;
-import com.art.erfassung.repository.StatusRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -12,18 +11,18 @@ import java.util.NoSuchElementException;
  * Serviceklasse zur Verwaltung von Status-Objekten.
  * <p>
  * Diese Klasse bietet Methoden zum Abrufen aller Statusobjekte sowie zum
- * Suchen eines bestimmten Status anhand seiner ID. Dabei wird das {@link StatusRepository}
- * verwendet, um den Datenzugriff zu realisieren.
+ * Suchen eines bestimmten Status anhand seiner ID. Die Status werden aus der
+ * {@link ReferenzdatenRegistry} im Speicher gelesen, sodass keine Datenbankabfrage entsteht.
  */
 @Service
 public class StatusService {
 
-    // Repository zur Verwaltung der Statusdaten
-    private final StatusRepository statusRepository;
+    // Registry der im Speicher gehaltenen Referenzdaten
+    private final ReferenzdatenRegistry referenzdatenRegistry;
 
     @Autowired
-    public StatusService(StatusRepository statusRepository) {
-        this.statusRepository = statusRepository;
+    public StatusService(ReferenzdatenRegistry referenzdatenRegistry) {
+        this.referenzdatenRegistry = referenzdatenRegistry;
     }
 
     /**
@@ -32,8 +31,8 @@ public class StatusService {
      * @return eine Liste von {@link Status} Objekten
      */
     public List<Status> findAll() {
-        // Abrufen aller Status-Objekte aus dem Repository
-        return statusRepository.findAll();
+        // Abrufen aller Status-Objekte aus der Registry
+        return referenzdatenRegistry.alleStatus();
     }
 
     /**
@@ -47,6 +46,6 @@ public class StatusService {
      */
     public Status findOrThrow(Integer id) {
         // Suche nach dem Status, andernfalls Exception werfen
-        return statusRepository.findById(id).orElseThrow();
+        return referenzdatenRegistry.status(id);
     }
 }
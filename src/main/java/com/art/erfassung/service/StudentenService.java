@@ -1,5 +1,6 @@
 package com.art.erfassung.service;
 
+import com.art.erfassung.dto.RosterEintrag;
 import com.art.erfassung.model.Studenten;
 import com.art.erfassung.repository.StudentenRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,17 +15,21 @@ import java.util.Optional;
  * <p>
  * Diese Klasse stellt Methoden zur Abfrage von Studenten bereit, entweder anhand der Gruppen-ID
  * oder durch Suche nach einer spezifischen Studenten-ID. Für den Datenzugriff wird das
- * {@link StudentenRepository} verwendet.
+ * {@link StudentenRepository} verwendet; die Studentenlisten für Formular und Monatsliste
+ * kommen aus dem {@link RosterCache}.
  */
 @Service
 public class StudentenService {
 
     // Repository zur Verwaltung der Studenten-Daten
     private final StudentenRepository studentenRepository;
+    // Zwischengespeicherte Studentenlisten der Gruppen
+    private final RosterCache rosterCache;
 
     @Autowired
-    public StudentenService(StudentenRepository studentenRepository) {
+    public StudentenService(StudentenRepository studentenRepository, RosterCache rosterCache) {
         this.studentenRepository = studentenRepository;
+        this.rosterCache = rosterCache;
     }
 
     /**
@@ -38,6 +43,19 @@ public class StudentenService {
         return studentenRepository.findByGruppeId(gruppeId);
     }
 
+    /**
+     * Liefert die Studentenliste einer Gruppe aus dem {@link RosterCache}.
+     * <p>
+     * Ist die Liste zwischengespeichert, entsteht keine Datenbankabfrage.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe
+     * @return eine unveränderliche Liste der {@link RosterEintrag} Objekte, sortiert nach Studenten-ID
+     */
+    public List<RosterEintrag> findRosterByGruppeId(Integer gruppeId) {
+        return rosterCache.roster(gruppeId);
+    }
+
     /**
      * Sucht einen Studenten anhand seiner ID.
      * <p>
@@ -0,0 +1,248 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.ErfassungIndexEintrag;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.dto.StudentenVerlauf;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
+import com.art.erfassung.repository.ErfassungRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Im Speicher gehaltene Präfixsummen der Erfassungen je Student für Statistiken über beliebige Zeiträume.
+ * <p>
+ * Je Student wird ein {@link StudentenVerlauf} gehalten, aus dem sich die Anzahlen je Status für jeden Zeitraum
+ * mit zwei binären Suchen und einer Subtraktion ergeben, etwa für "dieses Halbjahr", "letzte 30 Tage" und
+ * "dieser Monat" nebeneinander. An erfassten Tagen der sparsamen Speicherung zählen Studenten ohne Erfassung wie
+ * in den Anwesenheitszählern als "Anwesend".
+ * </p>
+ * <p>
+ * Der Index wird beim Start aufgebaut und nach jedem Commit fortgeschrieben; dabei wird der Verlauf eines
+ * betroffenen Studenten einmal je Schreibvorgang neu berechnet und ausgetauscht, sodass Leser keine Sperre
+ * benötigen. Fortgeschrieben werden nur die Schreibvorgänge der eigenen Instanz; Speichern auf anderen Instanzen
+ * und Studenten, die an einem bereits markierten Tag angelegt werden, lässt den Index bis zum nächsten
+ * {@link #neuLaden()} abweichen. Die Studentenstatistik liest den Verlauf des angezeigten Studenten daher über
+ * {@link #auffrischen(Integer)} neu aus der Datenbank; die Gruppenstatistik zählt in der Datenbank.
+ * </p>
+ */
+@Service
+public class StudentenVerlaufIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StudentenVerlaufIndex.class);
+
+    // Repository zum Lesen aller Erfassungen beim Aufbau
+    private final ErfassungRepository erfassungRepository;
+    // Registry der im Speicher gehaltenen Status für die Bezeichnungen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    // Lesende Transaktion für den Stream beim Aufbau
+    private final TransactionTemplate lesendeTransaktion;
+
+    // Verlauf je Studenten-ID; die Map wird beim Neuladen ausgetauscht
+    private volatile Map<Integer, StudentenVerlauf> verlaeufe = new ConcurrentHashMap<>();
+    // Während eines Aufbaus eingegangene Änderungen, die anschließend nachgetragen werden; sonst null.
+    // Geschützt durch die Sperre auf diesem Objekt.
+    private List<ErfassungsAenderung> waehrendAufbau;
+
+    /**
+     * Ergebnis eines Neuladens.
+     *
+     * @param studenten Anzahl der Studenten mit mindestens einem erfassten Tag
+     * @param tage      Anzahl der erfassten Tage über alle Studenten
+     * @param bytes     geschätzter Speicherbedarf der Präfixsummen
+     */
+    public record LadeErgebnis(int studenten, long tage, long bytes) {
+    }
+
+    public StudentenVerlaufIndex(ErfassungRepository erfassungRepository,
+                                 ReferenzdatenRegistry referenzdatenRegistry,
+                                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.erfassungRepository = erfassungRepository;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.lesendeTransaktion = new TransactionTemplate(transactionManager);
+        this.lesendeTransaktion.setReadOnly(true);
+
+        Gauge.builder("erfassung.verlauf.tage", this, index -> index.summe(StudentenVerlauf::tage))
+                .description("Anzahl der erfassten Tage in den Präfixsummen je Student")
+                .register(meterRegistry);
+        Gauge.builder("erfassung.verlauf.bytes", this, index -> index.summe(StudentenVerlauf::speicherBytes))
+                .description("Geschätzter Speicherbedarf der Präfixsummen je Student")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Baut den Index beim Start der Anwendung auf.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void beimStartAufbauen() {
+        LadeErgebnis ergebnis = neuLaden();
+        logger.info("Präfixsummen aufgebaut: {} Studenten, {} Tage, etwa {} KB",
+                ergebnis.studenten(), ergebnis.tage(), ergebnis.bytes() / 1024);
+    }
+
+    /**
+     * Baut alle Verläufe aus der Datenbank neu auf und ersetzt den bisherigen Stand.
+     * <p>
+     * Das Lesen erfolgt ohne Sperre; Änderungen, die währenddessen gespeichert werden, werden gesammelt und vor
+     * dem Austausch auf den neuen Stand angewendet. Da jede Änderung den Endzustand eines Tages setzt, ist das
+     * auch für Änderungen korrekt, die der Stream bereits gesehen hat.
+     * </p>
+     *
+     * @return ein {@link LadeErgebnis} mit dem Umfang des neuen Index
+     */
+    public LadeErgebnis neuLaden() {
+        synchronized (this) {
+            waehrendAufbau = new ArrayList<>();
+        }
+        Map<Integer, Puffer> puffer = new HashMap<>();
+        try {
+            lesendeTransaktion.executeWithoutResult(status -> {
+                try (Stream<ErfassungIndexEintrag> eintraege = erfassungRepository.streamIndexEintraege()) {
+                    eintraege.forEach(e -> puffer.computeIfAbsent(e.studentenId(), id -> new Puffer())
+                            .hinzufuegen(e.datum(), e.statusId(), e.verspaetungMinuten()));
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                waehrendAufbau = null;
+            }
+            throw e;
+        }
+        Map<Integer, StudentenVerlauf> neu = new ConcurrentHashMap<>(puffer.size() * 4 / 3 + 1);
+        puffer.forEach((studentenId, p) -> neu.put(studentenId, StudentenVerlauf.aufbauen(p.tage, p.statusIds,
+                p.minuten, p.anzahl, this::bezeichnung)));
+
+        synchronized (this) {
+            anwenden(neu, waehrendAufbau);
+            waehrendAufbau = null;
+            verlaeufe = neu;
+        }
+        return new LadeErgebnis(neu.size(), summe(StudentenVerlauf::tage), summe(StudentenVerlauf::speicherBytes));
+    }
+
+    /**
+     * Schreibt die gespeicherten Erfassungen nach dem Commit in die Verläufe der betroffenen Studenten.
+     *
+     * @param event das Ereignis mit den Änderungen der gespeicherten Erfassungen
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void erfassungenGespeichert(ErfassungenGespeichertEvent event) {
+        anwenden(verlaeufe, event.aenderungen());
+        if (waehrendAufbau != null) {
+            waehrendAufbau.addAll(event.aenderungen());
+        }
+    }
+
+    private void anwenden(Map<Integer, StudentenVerlauf> ziel, List<ErfassungsAenderung> aenderungen) {
+        Map<Integer, Puffer> jeStudent = new LinkedHashMap<>();
+        for (ErfassungsAenderung aenderung : aenderungen) {
+            jeStudent.computeIfAbsent(aenderung.studentenId(), id -> new Puffer()).hinzufuegen(aenderung.datum(),
+                    aenderung.neuerStatusId(), aenderung.neueVerspaetungMinuten());
+        }
+        jeStudent.forEach((studentenId, p) -> ziel.put(studentenId,
+                ziel.getOrDefault(studentenId, StudentenVerlauf.LEER)
+                        .mitTagen(p.tage, p.statusIds, p.minuten, p.anzahl, this::bezeichnung)));
+    }
+
+    private String bezeichnung(int statusId) {
+        return referenzdatenRegistry.status(statusId).getBezeichnung();
+    }
+
+    /**
+     * Liest den Verlauf eines Studenten neu aus der Datenbank und ersetzt ihn im Index.
+     * <p>
+     * Damit sind auch Erfassungen enthalten, die auf anderen Instanzen oder an der Anwendung vorbei gespeichert
+     * wurden. Das Lesen erfolgt unter derselben Sperre wie das Fortschreiben nach dem Commit, sodass eine
+     * währenddessen gespeicherte Änderung danach angewendet wird und nicht verloren geht.
+     * </p>
+     *
+     * @param studentenId die ID des Studenten
+     * @return der neu gelesene Verlauf, {@link StudentenVerlauf#LEER} für Studenten ohne Erfassung
+     */
+    public synchronized StudentenVerlauf auffrischen(Integer studentenId) {
+        Puffer p = new Puffer();
+        lesendeTransaktion.executeWithoutResult(status -> erfassungRepository
+                .findIndexEintraegeByStudentenId(studentenId)
+                .forEach(e -> p.hinzufuegen(e.datum(), e.statusId(), e.verspaetungMinuten())));
+        if (p.anzahl == 0) {
+            verlaeufe.remove(studentenId);
+            return StudentenVerlauf.LEER;
+        }
+        StudentenVerlauf verlauf = StudentenVerlauf.aufbauen(p.tage, p.statusIds, p.minuten, p.anzahl,
+                this::bezeichnung);
+        verlaeufe.put(studentenId, verlauf);
+        return verlauf;
+    }
+
+    /**
+     * Liefert den Verlauf eines Studenten.
+     *
+     * @param studentenId die ID des Studenten
+     * @return der Verlauf, {@link StudentenVerlauf#LEER} für Studenten ohne Erfassung
+     */
+    public StudentenVerlauf verlauf(Integer studentenId) {
+        return verlaeufe.getOrDefault(studentenId, StudentenVerlauf.LEER);
+    }
+
+    /**
+     * Zählt die Erfassungen eines Studenten in einem Zeitraum je Status.
+     *
+     * @param studentenId die ID des Studenten
+     * @param von         das Startdatum (inklusive) oder null für unbegrenzt
+     * @param bis         das Enddatum (inklusive) oder null für unbegrenzt
+     * @return je im Zeitraum vorkommendem Status eine {@link StatusAnzahl}
+     */
+    public List<StatusAnzahl> statusAnzahlen(Integer studentenId, LocalDate von, LocalDate bis) {
+        return verlauf(studentenId).statusAnzahlen(von, bis);
+    }
+
+    private long summe(ToLongFunction<StudentenVerlauf> wert) {
+        long summe = 0;
+        for (StudentenVerlauf verlauf : verlaeufe.values()) {
+            summe += wert.applyAsLong(verlauf);
+        }
+        return summe;
+    }
+
+    /**
+     * Wachsende Arrays für die Einträge eines Studenten vor der Berechnung der Präfixsummen.
+     */
+    private static final class Puffer {
+        private int[] tage = new int[16];
+        private int[] statusIds = new int[16];
+        private int[] minuten = new int[16];
+        private int anzahl;
+
+        void hinzufuegen(LocalDate datum, Integer statusId, Integer verspaetungMinuten) {
+            if (anzahl == tage.length) {
+                tage = Arrays.copyOf(tage, anzahl * 2);
+                statusIds = Arrays.copyOf(statusIds, anzahl * 2);
+                minuten = Arrays.copyOf(minuten, anzahl * 2);
+            }
+            tage[anzahl] = Math.toIntExact(datum.toEpochDay());
+            statusIds[anzahl] = statusId;
+            minuten[anzahl++] = verspaetungMinuten != null ? verspaetungMinuten : 0;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.art.erfassung.service;
+
+import java.util.Arrays;
+
+/**
+ * Bitmap über Tagesnummern (Tage seit dem 01.01.1970), z.B. die Tage, an denen ein Student einen bestimmten
+ * Status erhalten hat.
+ * <p>
+ * Gespeichert werden nur die {@code long} Werte vom ersten bis zum letzten belegten Wort; das Array wächst bei
+ * Bedarf in beide Richtungen. Ein Jahr belegt so höchstens sechs Wörter, unabhängig davon, wie viele Tage
+ * gesetzt sind. Zählen und Verknüpfen arbeiten wortweise mit {@link Long#bitCount(long)}.
+ * </p>
+ * <p>
+ * Die Klasse ist nicht threadsicher; der {@link ErfassungsTagesIndex} synchronisiert alle Zugriffe.
+ * </p>
+ */
+public final class TageBitmap {
+
+    private static final long[] LEER = new long[0];
+
+    // Index des ersten gespeicherten Worts (Tag / 64)
+    private int basis;
+    // Gespeicherte Wörter ab basis
+    private long[] woerter = LEER;
+
+    /**
+     * Gibt an, ob ein Tag gesetzt ist.
+     *
+     * @param tag die Tagesnummer
+     * @return {@code true}, falls der Tag gesetzt ist
+     */
+    public boolean enthaelt(int tag) {
+        int index = (tag >> 6) - basis;
+        return index >= 0 && index < woerter.length && (woerter[index] & (1L << tag)) != 0;
+    }
+
+    /**
+     * Setzt einen Tag.
+     *
+     * @param tag die Tagesnummer
+     */
+    public void setzen(int tag) {
+        int wort = tag >> 6;
+        if (woerter.length == 0) {
+            basis = wort;
+            woerter = new long[1];
+        } else if (wort < basis) {
+            long[] neu = new long[woerter.length + basis - wort];
+            System.arraycopy(woerter, 0, neu, basis - wort, woerter.length);
+            woerter = neu;
+            basis = wort;
+        } else if (wort - basis >= woerter.length) {
+            woerter = Arrays.copyOf(woerter, wort - basis + 1);
+        }
+        woerter[wort - basis] |= 1L << tag;
+    }
+
+    /**
+     * Löscht einen Tag. Das Array wird dabei nicht verkleinert.
+     *
+     * @param tag die Tagesnummer
+     */
+    public void loeschen(int tag) {
+        int index = (tag >> 6) - basis;
+        if (index >= 0 && index < woerter.length) {
+            woerter[index] &= ~(1L << tag);
+        }
+    }
+
+    /**
+     * Gibt an, ob kein Tag gesetzt ist.
+     *
+     * @return {@code true}, falls die Bitmap leer ist
+     */
+    public boolean istLeer() {
+        for (long wort : woerter) {
+            if (wort != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Zählt alle gesetzten Tage.
+     *
+     * @return die Anzahl der gesetzten Tage
+     */
+    public int anzahl() {
+        int anzahl = 0;
+        for (long wort : woerter) {
+            anzahl += Long.bitCount(wort);
+        }
+        return anzahl;
+    }
+
+    /**
+     * Zählt die gesetzten Tage in einem Zeitraum.
+     *
+     * @param von der erste Tag (inklusive)
+     * @param bis der letzte Tag (inklusive)
+     * @return die Anzahl der gesetzten Tage im Zeitraum
+     */
+    public int anzahl(int von, int bis) {
+        if (von > bis || woerter.length == 0) {
+            return 0;
+        }
+        int erstes = Math.max(von >> 6, basis);
+        int letztes = Math.min(bis >> 6, basis + woerter.length - 1);
+        int anzahl = 0;
+        for (int wort = erstes; wort <= letztes; wort++) {
+            long maske = -1L;
+            if (wort == von >> 6) {
+                maske &= -1L << von;
+            }
+            if (wort == bis >> 6) {
+                maske &= -1L >>> (63 - (bis & 63));
+            }
+            anzahl += Long.bitCount(woerter[wort - basis] & maske);
+        }
+        return anzahl;
+    }
+
+    /**
+     * Setzt alle Tage, die in einer anderen Bitmap gesetzt sind (Vereinigung).
+     *
+     * @param andere die andere Bitmap
+     * @return diese Bitmap
+     */
+    public TageBitmap oder(TageBitmap andere) {
+        if (andere.woerter.length == 0) {
+            return this;
+        }
+        if (woerter.length == 0) {
+            basis = andere.basis;
+            woerter = andere.woerter.clone();
+            return this;
+        }
+        int neueBasis = Math.min(basis, andere.basis);
+        int neuesEnde = Math.max(basis + woerter.length, andere.basis + andere.woerter.length);
+        if (neueBasis != basis || neuesEnde != basis + woerter.length) {
+            long[] neu = new long[neuesEnde - neueBasis];
+            System.arraycopy(woerter, 0, neu, basis - neueBasis, woerter.length);
+            woerter = neu;
+            basis = neueBasis;
+        }
+        for (int i = 0; i < andere.woerter.length; i++) {
+            woerter[andere.basis - basis + i] |= andere.woerter[i];
+        }
+        return this;
+    }
+
+    /**
+     * Behält nur die Tage, die auch in einer anderen Bitmap gesetzt sind (Schnittmenge).
+     *
+     * @param andere die andere Bitmap
+     * @return diese Bitmap
+     */
+    public TageBitmap und(TageBitmap andere) {
+        for (int i = 0; i < woerter.length; i++) {
+            int index = basis + i - andere.basis;
+            woerter[i] &= index >= 0 && index < andere.woerter.length ? andere.woerter[index] : 0L;
+        }
+        return this;
+    }
+
+    /**
+     * Erstellt eine unabhängige Kopie.
+     *
+     * @return die Kopie
+     */
+    public TageBitmap kopie() {
+        TageBitmap kopie = new TageBitmap();
+        kopie.basis = basis;
+        kopie.woerter = woerter.length == 0 ? LEER : woerter.clone();
+        return kopie;
+    }
+
+    /**
+     * Schätzt den belegten Heap-Speicher einschließlich Objekt- und Array-Kopf.
+     *
+     * @return die geschätzte Größe in Bytes
+     */
+    public long speicherBytes() {
+        return 16 + (woerter.length == 0 ? 0 : 16 + 8L * woerter.length);
+    }
+
+    /**
+     * Vergleicht die gesetzten Tage zweier Bitmaps, unabhängig von der Größe der Arrays.
+     *
+     * @param o die andere Bitmap
+     * @return {@code true}, falls dieselben Tage gesetzt sind
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TageBitmap andere)) {
+            return false;
+        }
+        int von = Math.min(basis, andere.basis);
+        int bis = Math.max(basis + woerter.length, andere.basis + andere.woerter.length);
+        for (int wort = von; wort < bis; wort++) {
+            if (wort(wort) != andere.wort(wort)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < woerter.length; i++) {
+            if (woerter[i] != 0) {
+                hash = 31 * hash + Long.hashCode(woerter[i]) + basis + i;
+            }
+        }
+        return hash;
+    }
+
+    private long wort(int wort) {
+        int index = wort - basis;
+        return index >= 0 && index < woerter.length ? woerter[index] : 0L;
+    }
+}
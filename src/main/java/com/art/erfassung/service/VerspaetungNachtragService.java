@@ -0,0 +1,125 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.repository.ErfassungRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serviceklasse zum Nachtragen der strukturierten Verspätungsspalten.
+ * <p>
+ * Ältere Erfassungen enthalten die Verspätung nur als Text ("Verspätung: N Minuten") im Kommentar.
+ * Dieser Service liest solche Erfassungen abschnittsweise, überträgt Verspätung und Ankunftszeit in die
+ * Spalten {@code verspaetung_minuten} und {@code ankunftszeit} und entfernt den generierten Text aus dem
+ * Kommentar. Jeder Abschnitt wird in einer eigenen Transaktion verarbeitet, sodass der Nachtrag beliebig
+ * oft unterbrochen und erneut gestartet werden kann. Die geänderten Erfassungen werden über
+ * {@link ErfassungService#saveAll(List)} gespeichert, damit die Anwesenheitszähler in derselben Transaktion
+ * fortgeschrieben und zwischengespeicherte Statistiken verworfen werden.
+ * </p>
+ */
+@Service
+public class VerspaetungNachtragService {
+
+    // Anzahl der Erfassungen, die pro Transaktion verarbeitet werden
+    static final int ABSCHNITTSGROESSE = 500;
+
+    // Vom bisherigen Schreibpfad erzeugter Kommentarteil, optional mit " | " an einen Kommentar angehängt
+    private static final Pattern VERSPAETUNG = Pattern.compile("(?:^|\\s*\\|\\s*)Verspätung: (\\d+) Minuten\\s*$");
+
+    private static final Logger logger = LoggerFactory.getLogger(VerspaetungNachtragService.class);
+
+    private final ErfassungRepository erfassungRepository;
+    private final ErfassungService erfassungService;
+    private final TransactionTemplate transactionTemplate;
+
+    public VerspaetungNachtragService(ErfassungRepository erfassungRepository, ErfassungService erfassungService,
+                                      TransactionTemplate transactionTemplate) {
+        this.erfassungRepository = erfassungRepository;
+        this.erfassungService = erfassungService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Überträgt die Verspätungen aller noch nicht migrierten Erfassungen in die strukturierten Spalten.
+     *
+     * @return ein {@link NachtragErgebnis} mit der Anzahl geprüfter und übernommener Erfassungen
+     */
+    public NachtragErgebnis nachtragen() {
+        int letzteId = 0;
+        long geprueft = 0;
+        long uebernommen = 0;
+        while (true) {
+            final int abschnittStart = letzteId;
+            Abschnitt abschnitt = transactionTemplate.execute(status -> verarbeiteAbschnitt(abschnittStart));
+            if (abschnitt == null || abschnitt.geprueft() == 0) {
+                break;
+            }
+            letzteId = abschnitt.letzteId();
+            geprueft += abschnitt.geprueft();
+            uebernommen += abschnitt.uebernommen();
+            logger.debug("Verspätungsnachtrag: {} Erfassungen geprüft, bis ID {}", geprueft, letzteId);
+        }
+        logger.info("Verspätungsnachtrag abgeschlossen: {} geprüft, {} übernommen", geprueft, uebernommen);
+        return new NachtragErgebnis(geprueft, uebernommen);
+    }
+
+    private Abschnitt verarbeiteAbschnitt(int letzteId) {
+        List<Erfassung> erfassungen = erfassungRepository.findVerspaetungNachtragKandidaten(
+                letzteId, PageRequest.of(0, ABSCHNITTSGROESSE));
+        List<Erfassung> geaendert = new ArrayList<>();
+        for (Erfassung erfassung : erfassungen) {
+            if (uebernehmen(erfassung)) {
+                geaendert.add(erfassung);
+            }
+        }
+        if (!geaendert.isEmpty()) {
+            erfassungService.saveAll(geaendert);
+        }
+        int uebernommen = geaendert.size();
+        int hoechsteId = erfassungen.isEmpty() ? letzteId : erfassungen.get(erfassungen.size() - 1).getId();
+        return new Abschnitt(erfassungen.size(), uebernommen, hoechsteId);
+    }
+
+    /**
+     * Überträgt die Verspätung aus dem Kommentar einer Erfassung in die strukturierten Spalten.
+     *
+     * @param erfassung die zu migrierende Erfassung
+     * @return {@code true}, falls der Kommentar eine Verspätung im erwarteten Format enthielt
+     */
+    static boolean uebernehmen(Erfassung erfassung) {
+        String kommentar = erfassung.getKommentar();
+        if (kommentar == null) {
+            return false;
+        }
+        Matcher matcher = VERSPAETUNG.matcher(kommentar);
+        if (!matcher.find()) {
+            return false;
+        }
+        int minuten = Integer.parseInt(matcher.group(1));
+        String rest = kommentar.substring(0, matcher.start()).trim();
+        erfassung.setVerspaetungMinuten(minuten);
+        erfassung.setAnkunftszeit(ErfassungService.SOLL_ANKUNFTSZEIT.plusMinutes(minuten));
+        erfassung.setKommentar(rest.isEmpty() ? null : rest);
+        return true;
+    }
+
+    private record Abschnitt(int geprueft, int uebernommen, int letzteId) {
+    }
+
+    /**
+     * Ergebnis eines Verspätungsnachtrags.
+     *
+     * @param geprueft    Anzahl der geprüften Erfassungen mit Verspätungstext im Kommentar
+     * @param uebernommen Anzahl der Erfassungen, deren Verspätung übernommen wurde
+     */
+    public record NachtragErgebnis(long geprueft, long uebernommen) {
+    }
+}
@@ -0,0 +1,489 @@
+package com.art.erfassung.service;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.error.ErfassungAusgelastetException;
+import com.art.erfassung.service.ErfassungJournal.Eintrag;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optionaler Write-Behind-Modus für die Anwesenheitserfassung.
+ * <p>
+ * Aktiv mit {@code erfassung.write-behind.aktiv=true}. Eingereichte Formulare werden ohne Datenbankzugriff
+ * gegen {@link ReferenzdatenRegistry} und {@link RosterCache} geprüft, im {@link ErfassungJournal} dauerhaft
+ * gespeichert und sofort bestätigt. Ein Hintergrund-Thread liest die Einreichungen aus der Warteschlange und
+ * speichert sie in großen Gruppen mit einer Transaktion je Gruppe (Group Commit) über den {@link ErfassungService}.
+ * </p>
+ * <p>
+ * Da die Bestätigung vor dem Speichern erfolgt, findet keine Konflikterkennung über die Versionen des Formulars
+ * statt: Die Versionen werden beim Speichern ignoriert, und die zuletzt gespeicherte Einreichung gewinnt
+ * (Last Writer Wins). Ein Konflikt könnte der Lehrkraft sonst erst nach der Erfolgsmeldung auffallen.
+ * </p>
+ * <ul>
+ *     <li>Beim Start werden die noch nicht bestätigten Einträge des Journals gespeichert, bevor Anfragen
+ *         angenommen werden.</li>
+ *     <li>Die Warteschlange ist begrenzt ({@code erfassung.write-behind.kapazitaet}); ist sie voll, wartet die
+ *         Einreichung bis zu {@code erfassung.write-behind.wartezeit-ms} und wird dann abgelehnt.</li>
+ *     <li>Beim Herunterfahren werden keine Einreichungen mehr angenommen und die Warteschlange wird geleert.</li>
+ *     <li>Der Checkpoint des Journals wird nur über Einreichungen hinaus fortgeschrieben, die gespeichert oder in
+ *         die Datei der verworfenen Einträge geschrieben wurden. Bei Fehlern der Infrastruktur (Datenbank nicht
+ *         erreichbar, Zeitüberschreitung, Sperre nicht erhalten) wird mit wachsender Pause bis
+ *         {@code erfassung.write-behind.max-pause-ms} wiederholt; verworfen werden nur Einreichungen, deren
+ *         Speicherung aus inhaltlichen Gründen scheitert. Wird während einer Störung heruntergefahren, bleiben
+ *         die offenen Einreichungen im Journal.</li>
+ *     <li>Metriken: {@code erfassung.journal.rueckstand} (offene Einreichungen),
+ *         {@code erfassung.journal.verzoegerung} (Alter der ältesten offenen Einreichung),
+ *         {@code erfassung.journal.batch.groesse}, {@code erfassung.journal.commit},
+ *         {@code erfassung.journal.wiederholungen} und {@code erfassung.journal.verworfen}.</li>
+ * </ul>
+ * <p>
+ * Die Lifecycle-Phase liegt vor der des Webservers, sodass das Journal vor ihm gestartet und nach ihm
+ * gestoppt wird.
+ * </p>
+ */
+@Service
+@ConditionalOnProperty(name = "erfassung.write-behind.aktiv", havingValue = "true")
+public class WriteBehindErfassung implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindErfassung.class);
+
+    // Erste Pause nach einem Fehler der Infrastruktur; sie verdoppelt sich bis zur maximalen Pause
+    private static final Duration ERSTE_PAUSE = Duration.ofMillis(100);
+
+    // Service zur Verwaltung der Erfassungen
+    private final ErfassungService erfassungService;
+    // Transaktion je Gruppe von Einreichungen, wie beim ErfassungService mit READ_COMMITTED
+    private final TransactionTemplate transactionTemplate;
+    // Sperren je Gruppe, im Group Commit einmal für alle Gruppen der Einreichungen
+    private final GruppenSperren gruppenSperren;
+    // Registry der im Speicher gehaltenen Status und Gruppen
+    private final ReferenzdatenRegistry referenzdatenRegistry;
+    // Zwischengespeicherte Studentenlisten der Gruppen
+    private final RosterCache rosterCache;
+    private final ObjectMapper objectMapper;
+
+    private final Path verzeichnis;
+    private final int batchGroesse;
+    private final Duration wartezeit;
+    private final Duration maxPause;
+
+    // Offene Einreichungen in Journalreihenfolge; die Kapazität wird über die Semaphore begrenzt
+    private final BlockingQueue<Eintrag> warteschlange = new LinkedBlockingQueue<>();
+    private final Semaphore plaetze;
+    // Eingereichte, aber noch nicht gespeicherte Einreichungen einschließlich der gerade verarbeiteten
+    private final AtomicInteger rueckstand = new AtomicInteger();
+    private volatile Instant aeltesteInArbeit;
+
+    private final DistributionSummary batchGroesseMetrik;
+    private final Timer commitDauer;
+    private final Counter verworfen;
+    private final Counter wiederholungen;
+
+    private ErfassungJournal journal;
+    private Thread committer;
+    private volatile boolean laeuft;
+    // Gesetzt, sobald heruntergefahren wird; beendet das Warten auf die Datenbank
+    private volatile boolean herunterfahren;
+
+    public WriteBehindErfassung(ErfassungService erfassungService, PlatformTransactionManager transactionManager,
+                                GruppenSperren gruppenSperren,
+                                ReferenzdatenRegistry referenzdatenRegistry, RosterCache rosterCache,
+                                ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                @Value("${erfassung.write-behind.verzeichnis:journal}") String verzeichnis,
+                                @Value("${erfassung.write-behind.kapazitaet:10000}") int kapazitaet,
+                                @Value("${erfassung.write-behind.batch-groesse:200}") int batchGroesse,
+                                @Value("${erfassung.write-behind.wartezeit-ms:500}") long wartezeitMs,
+                                @Value("${erfassung.write-behind.max-pause-ms:30000}") long maxPauseMs) {
+        this.erfassungService = erfassungService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.gruppenSperren = gruppenSperren;
+        this.referenzdatenRegistry = referenzdatenRegistry;
+        this.rosterCache = rosterCache;
+        this.objectMapper = objectMapper;
+        this.verzeichnis = Path.of(verzeichnis);
+        this.plaetze = new Semaphore(kapazitaet);
+        this.batchGroesse = batchGroesse;
+        this.wartezeit = Duration.ofMillis(wartezeitMs);
+        this.maxPause = Duration.ofMillis(maxPauseMs);
+
+        Gauge.builder("erfassung.journal.rueckstand", rueckstand, AtomicInteger::get)
+                .description("Eingereichte, noch nicht gespeicherte Formulare")
+                .register(meterRegistry);
+        TimeGauge.builder("erfassung.journal.verzoegerung", this, TimeUnit.MILLISECONDS,
+                        WriteBehindErfassung::verzoegerungMillis)
+                .description("Alter der ältesten noch nicht gespeicherten Einreichung")
+                .register(meterRegistry);
+        this.batchGroesseMetrik = DistributionSummary.builder("erfassung.journal.batch.groesse")
+                .description("Einreichungen je Group Commit")
+                .register(meterRegistry);
+        this.commitDauer = Timer.builder("erfassung.journal.commit")
+                .description("Dauer eines Group Commits")
+                .register(meterRegistry);
+        this.verworfen = Counter.builder("erfassung.journal.verworfen")
+                .description("Einreichungen, die beim Speichern abgelehnt und in die Datei der verworfenen Einträge geschrieben wurden")
+                .register(meterRegistry);
+        this.wiederholungen = Counter.builder("erfassung.journal.wiederholungen")
+                .description("Wiederholte Speicherversuche nach Fehlern der Infrastruktur")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Prüft ein Formular, schreibt es in das Journal und stellt es zur Speicherung ein.
+     * <p>
+     * Die Prüfung erfolgt ohne Datenbankzugriff: Gruppe und Status über die {@link ReferenzdatenRegistry},
+     * die Zugehörigkeit der Studenten zur Gruppe über den {@link RosterCache}.
+     * </p>
+     *
+     * @param gruppeId die ID der Gruppe des Formulars
+     * @param dtos     die Anwesenheitsdaten
+     * @return die Gruppen-ID
+     * @throws NoSuchElementException wenn Gruppe, Status oder Student unbekannt sind
+     * @throws ErfassungAusgelastetException wenn die Warteschlange auch nach der Wartezeit voll ist
+     * @throws IllegalStateException         wenn der Modus nicht läuft
+     */
+    public Integer einreichen(Integer gruppeId, List<ErfassungDTO> dtos) {
+        if (gruppeId == null) {
+            throw new IllegalArgumentException("Für die verzögerte Speicherung ist die Gruppen-ID erforderlich");
+        }
+        referenzdatenRegistry.gruppe(gruppeId);
+        Set<Integer> studentenIds = new HashSet<>();
+        for (RosterEintrag eintrag : rosterCache.roster(gruppeId)) {
+            studentenIds.add(eintrag.studentenId());
+        }
+        for (ErfassungDTO dto : dtos) {
+            if (!studentenIds.contains(dto.getStudentenId())) {
+                throw new NoSuchElementException("Student mit ID " + dto.getStudentenId()
+                        + " gehört nicht zur Gruppe " + gruppeId);
+            }
+            referenzdatenRegistry.status(dto.getStatusId());
+        }
+
+        try {
+            if (!plaetze.tryAcquire(wartezeit.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ErfassungAusgelastetException("Die Warteschlange der Anwesenheitserfassung ist voll");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Einreichung wurde unterbrochen", e);
+        }
+        // Anhängen und Einstellen unter derselben Sperre, damit die Warteschlange der Journalreihenfolge folgt.
+        synchronized (this) {
+            if (!laeuft) {
+                plaetze.release();
+                throw new IllegalStateException("Die verzögerte Speicherung ist nicht aktiv");
+            }
+            try {
+                Eintrag eintrag = journal.anhaengen(LocalDate.now(), gruppeId, dtos);
+                rueckstand.incrementAndGet();
+                warteschlange.add(eintrag);
+            } catch (IOException e) {
+                plaetze.release();
+                throw new UncheckedIOException("Einreichung konnte nicht in das Journal geschrieben werden", e);
+            }
+        }
+        return gruppeId;
+    }
+
+    /**
+     * Öffnet das Journal, speichert dessen offene Einträge und startet den Hintergrund-Thread.
+     * <p>
+     * Ist die Datenbank nicht erreichbar, wartet der Start, bis die offenen Einträge gespeichert sind, damit neue
+     * Einreichungen nicht vor älteren gespeichert werden.
+     * </p>
+     */
+    @Override
+    public void start() {
+        try {
+            journal = new ErfassungJournal(verzeichnis, objectMapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erfassungsjournal konnte nicht geöffnet werden: " + verzeichnis, e);
+        }
+        List<Eintrag> offen = journal.offeneEintraegeUebernehmen();
+        if (!offen.isEmpty()) {
+            logger.info("Erfassungsjournal: {} offene Einreichungen werden nachgespielt", offen.size());
+            rueckstand.addAndGet(offen.size());
+            for (int von = 0; von < offen.size(); von += batchGroesse) {
+                verarbeiten(offen.subList(von, Math.min(von + batchGroesse, offen.size())));
+            }
+        }
+        laeuft = true;
+        committer = new Thread(this::abarbeiten, "erfassung-journal");
+        committer.start();
+    }
+
+    /**
+     * Nimmt keine Einreichungen mehr an, leert die Warteschlange und schließt das Journal.
+     */
+    @Override
+    public void stop() {
+        synchronized (this) {
+            laeuft = false;
+            herunterfahren = true;
+        }
+        try {
+            committer.join();
+            journal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Erfassungsjournal: Herunterfahren unterbrochen, {} Einreichungen verbleiben im Journal",
+                    rueckstand.get());
+        } catch (IOException e) {
+            logger.warn("Erfassungsjournal konnte nicht geschlossen werden", e);
+        }
+        logger.info("Erfassungsjournal gestoppt, bestätigt bis Sequenz {}", journal.getCheckpoint());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return laeuft;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    /**
+     * Wartet, bis alle bisher eingereichten Formulare gespeichert wurden.
+     *
+     * @param timeout die maximale Wartezeit
+     * @return true, wenn alle Einreichungen gespeichert wurden
+     * @throws InterruptedException wenn der Thread beim Warten unterbrochen wird
+     */
+    public boolean warteAufSpeicherung(Duration timeout) throws InterruptedException {
+        long ende = System.nanoTime() + timeout.toNanos();
+        while (rueckstand.get() > 0) {
+            if (System.nanoTime() > ende) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private void abarbeiten() {
+        List<Eintrag> batch = new ArrayList<>(batchGroesse);
+        while (laeuft || !warteschlange.isEmpty()) {
+            try {
+                Eintrag erster = warteschlange.poll(100, TimeUnit.MILLISECONDS);
+                if (erster == null) {
+                    continue;
+                }
+                batch.add(erster);
+                warteschlange.drainTo(batch, batchGroesse - 1);
+                verarbeiten(batch);
+                plaetze.release(batch.size());
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Die Warteschlange wird trotzdem weiter geleert; unterbrochen wird nur das Warten.
+            } catch (RuntimeException e) {
+                // Der Checkpoint steht vor der ersten nicht erledigten Einreichung; sie und alle folgenden bleiben
+                // im Journal und werden beim nächsten Start nachgespielt.
+                logger.error("Erfassungsjournal: Verarbeitung angehalten, {} Einreichungen verbleiben im Journal",
+                        rueckstand.get(), e);
+                laeuft = false;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Speichert eine Gruppe von Einreichungen in einer Transaktion und bestätigt sie im Journal.
+     * <p>
+     * Die Einreichungen werden je Datum zusammengefasst, sodass pro Gruppe in der Regel nur ein Aufruf von
+     * {@link ErfassungService#erfassenAnwesenheiten(List, LocalDate)} mit zwei lesenden Abfragen entsteht; spätere
+     * Einreichungen für denselben Studenten überschreiben frühere. Vor dem ersten Schreiben werden die
+     * {@link GruppenSperren} aller Gruppen der Einreichungen auf einmal und damit in aufsteigender Reihenfolge
+     * angefordert; die Aufrufe je Datum erhalten sie danach erneut, ohne eine weitere Sperre in anderer
+     * Reihenfolge zu warten. Schlägt die gemeinsame Transaktion aus inhaltlichen Gründen fehl, werden die
+     * Einreichungen einzeln gespeichert und nur die fehlerhaften verworfen.
+     * </p>
+     * <p>
+     * Bestätigt werden nur die Einreichungen vor der ersten, die weder gespeichert noch verworfen wurde. Wird die
+     * Verarbeitung abgebrochen, wirft die Methode eine Ausnahme.
+     * </p>
+     */
+    private void verarbeiten(List<Eintrag> batch) {
+        aeltesteInArbeit = batch.get(0).eingereicht();
+        Map<LocalDate, List<ErfassungDTO>> nachDatum = new LinkedHashMap<>();
+        Set<Integer> gruppeIds = new TreeSet<>();
+        for (Eintrag eintrag : batch) {
+            ohneVersion(eintrag.eintraege());
+            nachDatum.computeIfAbsent(eintrag.datum(), d -> new ArrayList<>()).addAll(eintrag.eintraege());
+            gruppeIds.add(eintrag.gruppeId());
+        }
+        int erledigt = 0;
+        try {
+            RuntimeException fehler = speichern("Group Commit von " + batch.size() + " Einreichungen",
+                    () -> commitDauer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                        gruppenSperren.sperrenBisTransaktionsende(gruppeIds);
+                        nachDatum.forEach((datum, dtos) -> erfassungService.erfassenAnwesenheiten(dtos, datum));
+                    })));
+            if (fehler == null) {
+                erledigt = batch.size();
+            } else {
+                logger.warn("Erfassungsjournal: Group Commit von {} Einreichungen fehlgeschlagen, speichere einzeln",
+                        batch.size(), fehler);
+                for (Eintrag eintrag : batch) {
+                    RuntimeException einzelfehler = speichern("Einreichung " + eintrag.sequenz(), () ->
+                            transactionTemplate.executeWithoutResult(status ->
+                                    erfassungService.erfassenAnwesenheiten(eintrag.eintraege(), eintrag.datum())));
+                    if (einzelfehler != null) {
+                        verwerfen(eintrag, einzelfehler);
+                    }
+                    erledigt++;
+                }
+            }
+        } finally {
+            if (erledigt > 0) {
+                try {
+                    journal.bestaetigen(batch.get(erledigt - 1).sequenz());
+                } catch (IOException e) {
+                    // Bereits gespeicherte Einreichungen werden nach einem Neustart erneut und mit gleichem Ergebnis
+                    // gespeichert; der nächste Checkpoint schließt sie ein.
+                    logger.warn("Erfassungsjournal: Checkpoint konnte nicht geschrieben werden", e);
+                }
+                batchGroesseMetrik.record(erledigt);
+                rueckstand.addAndGet(-erledigt);
+            }
+            aeltesteInArbeit = null;
+        }
+    }
+
+    /**
+     * Entfernt die Versionen des Formulars, damit die Einreichung ohne Konfliktprüfung gespeichert wird.
+     * <p>
+     * Gilt auch für Einträge, die ältere Versionen der Anwendung mit Version in das Journal geschrieben haben.
+     * </p>
+     */
+    private static void ohneVersion(List<ErfassungDTO> dtos) {
+        for (ErfassungDTO dto : dtos) {
+            dto.setVersion(null);
+        }
+    }
+
+    /**
+     * Führt einen Speicherversuch aus und wiederholt ihn bei Fehlern der Infrastruktur mit wachsender Pause.
+     *
+     * @param beschreibung die Beschreibung für das Log
+     * @param versuch      der Speicherversuch
+     * @return null bei Erfolg, sonst die Ausnahme eines inhaltlichen Fehlers
+     * @throws IllegalStateException wenn während einer Störung heruntergefahren wird
+     */
+    private RuntimeException speichern(String beschreibung, Runnable versuch) {
+        Duration pause = ERSTE_PAUSE;
+        while (true) {
+            try {
+                versuch.run();
+                return null;
+            } catch (RuntimeException e) {
+                if (!infrastrukturFehler(e)) {
+                    return e;
+                }
+                if (herunterfahren) {
+                    throw new IllegalStateException("Herunterfahren während einer Störung der Datenbank", e);
+                }
+                wiederholungen.increment();
+                logger.warn("Erfassungsjournal: {} fehlgeschlagen, neuer Versuch in {} ms: {}",
+                        beschreibung, pause.toMillis(), e.toString());
+                pausieren(pause);
+                pause = pause.multipliedBy(2).compareTo(maxPause) > 0 ? maxPause : pause.multipliedBy(2);
+            }
+        }
+    }
+
+    /**
+     * Prüft, ob ein Fehler oder eine seiner Ursachen an der Infrastruktur und nicht am Inhalt der Einreichung liegt.
+     * <p>
+     * Konflikte der optimistischen Sperre gelten als inhaltlich; kurzzeitige Konflikte wiederholt bereits
+     * {@link ErfassungService#erfassenAnwesenheiten(List, LocalDate)}.
+     * </p>
+     */
+    private static boolean infrastrukturFehler(Throwable fehler) {
+        for (Throwable ursache = fehler; ursache != null; ursache = ursache.getCause()) {
+            if (ursache instanceof OptimisticLockingFailureException) {
+                return false;
+            }
+            if (ursache instanceof TransientDataAccessException
+                    || ursache instanceof DataAccessResourceFailureException
+                    || ursache instanceof CannotAcquireLockException
+                    || ursache instanceof CannotCreateTransactionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void pausieren(Duration pause) {
+        long ende = System.nanoTime() + pause.toNanos();
+        while (!herunterfahren && System.nanoTime() < ende) {
+            try {
+                Thread.sleep(Math.min(100, Math.max(1, (ende - System.nanoTime()) / 1_000_000)));
+            } catch (InterruptedException e) {
+                // Unterbrochen wird nur die Pause; das Herunterfahren wird über das Flag erkannt.
+            }
+        }
+    }
+
+    private void verwerfen(Eintrag eintrag, RuntimeException fehler) {
+        try {
+            journal.verwerfen(eintrag, fehler.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Einreichung " + eintrag.sequenz()
+                    + " konnte nicht in die Datei der verworfenen Einträge geschrieben werden", e);
+        }
+        verworfen.increment();
+        logger.error("Erfassungsjournal: Einreichung {} für Gruppe {} verworfen und in {} abgelegt",
+                eintrag.sequenz(), eintrag.gruppeId(), verzeichnis.resolve(ErfassungJournal.VERWORFEN_DATEI), fehler);
+    }
+
+    private double verzoegerungMillis() {
+        Instant aelteste = aeltesteInArbeit;
+        if (aelteste == null) {
+            Eintrag naechster = warteschlange.peek();
+            aelteste = naechster == null ? null : naechster.eingereicht();
+        }
+        return aelteste == null ? 0 : Duration.between(aelteste, Instant.now()).toMillis();
+    }
+}
@@ -0,0 +1,35 @@
+-- Vorberechnete Anwesenheit je Gruppe, Monat, Wochentag und Status.
+--
+-- Die Tabelle wird beim Speichern von Erfassungen in derselben Transaktion fortgeschrieben und von der
+-- Übersicht unter /statistik gelesen. monat ist der Erste des Monats, wochentag der ISO-Wochentag (1 = Montag).
+-- Das Skript legt die Tabelle an und befüllt sie einmalig aus erfassung; an erfassten Tagen der sparsamen
+-- Speicherung zählen Studenten ohne Erfassung als "Anwesend". Danach kann der Stand jederzeit über die
+-- Wartungsseite (/admin/wartung) geprüft und neu aufgebaut werden.
+
+CREATE TABLE IF NOT EXISTS anwesenheit_wuerfel (
+    gruppe_id           INT    NOT NULL,
+    monat               DATE   NOT NULL,
+    wochentag           INT    NOT NULL,
+    status_id           INT    NOT NULL,
+    anzahl              BIGINT NOT NULL,
+    verspaetungen       BIGINT NOT NULL,
+    verspaetung_minuten BIGINT NOT NULL,
+    PRIMARY KEY (gruppe_id, monat, wochentag, status_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_anwesenheit_wuerfel_monat ON anwesenheit_wuerfel (monat);
+
+DELETE FROM anwesenheit_wuerfel;
+
+INSERT INTO anwesenheit_wuerfel (gruppe_id, monat, wochentag, status_id, anzahl, verspaetungen, verspaetung_minuten)
+SELECT gruppe_id, DATE_SUB(datum, INTERVAL DAYOFMONTH(datum) - 1 DAY), WEEKDAY(datum) + 1, status_id, COUNT(*),
+       SUM(CASE WHEN verspaetung_minuten > 0 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN verspaetung_minuten > 0 THEN verspaetung_minuten ELSE 0 END)
+FROM (SELECT s.gruppe_id, e.datum, e.status_id, e.verspaetung_minuten
+      FROM erfassung e JOIN studenten s ON s.id = e.studenten_id
+      UNION ALL
+      SELECT t.gruppe_id, t.datum, st.id, 0
+      FROM erfassungstag t JOIN studenten s ON s.gruppe_id = t.gruppe_id
+      JOIN status st ON st.bezeichnung = 'Anwesend'
+      WHERE NOT EXISTS (SELECT 1 FROM erfassung e WHERE e.studenten_id = s.id AND e.datum = t.datum)) z
+GROUP BY gruppe_id, DATE_SUB(datum, INTERVAL DAYOFMONTH(datum) - 1 DAY), WEEKDAY(datum) + 1, status_id;
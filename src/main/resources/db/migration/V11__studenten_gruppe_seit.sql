@@ -0,0 +1,19 @@
+-- Beginn der Gruppenzugehörigkeit je Student für die sparsame Speicherung der Anwesenheit.
+--
+-- Studenten ohne Erfassung an einem markierten Tag (erfassungstag) gelten nur dann als anwesend, wenn sie an
+-- diesem Tag bereits Mitglied der Gruppe waren. NULL bedeutet "seit jeher" und gilt für alle vorhandenen
+-- Studenten; neu angelegte Studenten erhalten das Datum ihrer Anlage, ein Gruppenwechsel über die Anwendung
+-- setzt das Datum des Wechsels.
+--
+-- Wird ein Student manuell in eine andere Gruppe verschoben, müssen vorher die angenommenen Anwesenheiten der
+-- bisherigen Gruppe als Zeilen gespeichert werden, sonst entfallen sie. Danach Anwesenheitszähler,
+-- Anwesenheitswürfel und Präfixsummen über die Wartungsseite (/admin/wartung) neu aufbauen.
+--
+--   INSERT INTO erfassung (id, studenten_id, datum, status_id, version)
+--   SELECT NEXT VALUE FOR erfassung_seq, s.id, t.datum, (SELECT id FROM status WHERE bezeichnung = 'Anwesend'), 0
+--   FROM erfassungstag t JOIN studenten s ON s.gruppe_id = t.gruppe_id
+--   WHERE s.id = :student AND (s.gruppe_seit IS NULL OR s.gruppe_seit <= t.datum)
+--     AND NOT EXISTS (SELECT 1 FROM erfassung e WHERE e.studenten_id = s.id AND e.datum = t.datum);
+--   UPDATE studenten SET gruppe_id = :neueGruppe, gruppe_seit = CURRENT_DATE WHERE id = :student;
+
+ALTER TABLE studenten ADD COLUMN IF NOT EXISTS gruppe_seit DATE NULL;
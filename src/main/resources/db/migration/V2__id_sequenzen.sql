@@ -0,0 +1,35 @@
+-- Umstellung der ID-Vergabe von erfassung und studenten auf Sequenzen (MariaDB >= 10.3).
+--
+-- Hibernate deaktiviert JDBC-Batching für Inserts bei IDENTITY-Spalten. Die Entitäten beziehen
+-- ihre IDs daher aus Sequenzen mit Schrittweite 50 (Pooled-Optimizer, allocationSize = 50).
+--
+-- Der Pooled-Optimizer wertet jeden von der Sequenz gelieferten Wert außer dem Startwert 1 als obere Grenze
+-- eines Blocks und vergibt die 50 IDs darunter (Wert - 49 bis Wert). Die Sequenzen starten daher 50 hinter der
+-- höchsten vorhandenen ID; bei MAX(id) + 1 würde der erste Block bereits vergebene IDs enthalten.
+--
+-- Die AUTO_INCREMENT-Eigenschaft der id-Spalten wird entfernt, damit kein Insert mehr IDs außerhalb der
+-- Sequenz vergibt, die mit späteren Blöcken kollidieren. Manuelle Inserts geben die ID mit
+-- NEXT VALUE FOR erfassung_seq bzw. NEXT VALUE FOR studenten_seq an; Hibernate erhält diesen Wert nicht mehr als
+-- Block, da jeder Abruf die Sequenz um 50 weiterzählt.
+--
+-- Prüfung nach dem Einspielen (beide Abfragen liefern 1):
+--   SELECT next_not_cached_value - 49 > (SELECT COALESCE(MAX(id), 0) FROM erfassung) FROM erfassung_seq;
+--   SELECT next_not_cached_value - 49 > (SELECT COALESCE(MAX(id), 0) FROM studenten) FROM studenten_seq;
+
+SET @start = (SELECT COALESCE(MAX(id), 0) + 50 FROM erfassung);
+SET @sql = CONCAT('CREATE SEQUENCE IF NOT EXISTS erfassung_seq START WITH ', @start, ' INCREMENT BY 50');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @start = (SELECT COALESCE(MAX(id), 0) + 50 FROM studenten);
+SET @sql = CONCAT('CREATE SEQUENCE IF NOT EXISTS studenten_seq START WITH ', @start, ' INCREMENT BY 50');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- studenten.id wird von erfassung.studenten_id referenziert; der Typ bleibt unverändert.
+SET FOREIGN_KEY_CHECKS = 0;
+ALTER TABLE erfassung MODIFY id INT NOT NULL;
+ALTER TABLE studenten MODIFY id INT NOT NULL;
+SET FOREIGN_KEY_CHECKS = 1;
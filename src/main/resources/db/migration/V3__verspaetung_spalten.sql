@@ -0,0 +1,11 @@
+-- Strukturierte Ankunftszeit und Verspätung für erfassung.
+--
+-- Bisher stand die Verspätung nur als Text ("Verspätung: N Minuten") im Kommentar. Die neuen Spalten
+-- werden vom Schreibpfad befüllt; bestehende Zeilen überträgt der Verspätungsnachtrag auf der
+-- Wartungsseite (/admin/wartung) abschnittsweise.
+
+ALTER TABLE erfassung
+    ADD COLUMN IF NOT EXISTS ankunftszeit TIME NULL,
+    ADD COLUMN IF NOT EXISTS verspaetung_minuten INT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_erfassung_studenten_verspaetung ON erfassung (studenten_id, verspaetung_minuten);
@@ -0,0 +1,23 @@
+-- Vorberechnete Anwesenheitszähler je Student und Status.
+--
+-- Die Zähler werden beim Speichern von Erfassungen in derselben Transaktion fortgeschrieben und von der
+-- Studentenstatistik gelesen. Das Skript legt die Tabelle an und befüllt sie einmalig aus erfassung; danach
+-- kann der Stand jederzeit über die Wartungsseite (/admin/wartung) geprüft und neu aufgebaut werden.
+
+CREATE TABLE IF NOT EXISTS anwesenheit_zaehler (
+    studenten_id        INT    NOT NULL,
+    status_id           INT    NOT NULL,
+    anzahl              BIGINT NOT NULL,
+    verspaetungen       BIGINT NOT NULL,
+    verspaetung_minuten BIGINT NOT NULL,
+    PRIMARY KEY (studenten_id, status_id)
+);
+
+DELETE FROM anwesenheit_zaehler;
+
+INSERT INTO anwesenheit_zaehler (studenten_id, status_id, anzahl, verspaetungen, verspaetung_minuten)
+SELECT studenten_id, status_id, COUNT(*),
+       SUM(CASE WHEN verspaetung_minuten > 0 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN verspaetung_minuten > 0 THEN verspaetung_minuten ELSE 0 END)
+FROM erfassung
+GROUP BY studenten_id, status_id;
@@ -0,0 +1,7 @@
+-- Versionsspalte für die optimistische Sperre von Erfassungen.
+--
+-- Das Anwesenheitsformular überträgt die Version jeder vorbelegten Zeile; weicht sie beim Speichern vom
+-- aktuellen Stand ab, hat zwischenzeitlich jemand anderes die Erfassung geändert. Bestehende Zeilen
+-- beginnen mit Version 0.
+
+ALTER TABLE erfassung ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,51 @@
+-- Eindeutiger Schlüssel auf (studenten_id, datum) für erfassung.
+--
+-- Gleichzeitiges Speichern derselben Gruppe konnte bisher doppelte Erfassungen eines Studenten für einen Tag
+-- anlegen, die die Statistiken verfälschen. Das Skript führt vorhandene Duplikate zusammen, baut die daraus
+-- abgeleiteten Anwesenheitszähler neu auf und legt anschließend den Schlüssel an.
+--
+-- Von mehreren Erfassungen eines Studenten an einem Tag bleibt die zuletzt angelegte (höchste ID) erhalten.
+-- Hat sie keinen Kommentar, übernimmt sie den Kommentar einer der älteren Zeilen.
+
+-- Betroffene Studenten und Tage zur Kontrolle vor dem Zusammenführen
+SELECT studenten_id, datum, COUNT(*) AS anzahl
+FROM erfassung
+GROUP BY studenten_id, datum
+HAVING COUNT(*) > 1;
+
+CREATE TEMPORARY TABLE erfassung_behalten AS
+SELECT studenten_id, datum, MAX(id) AS id
+FROM erfassung
+GROUP BY studenten_id, datum
+HAVING COUNT(*) > 1;
+
+CREATE TEMPORARY TABLE erfassung_kommentar AS
+SELECT b.id, MAX(d.kommentar) AS kommentar
+FROM erfassung_behalten b
+JOIN erfassung d ON d.studenten_id = b.studenten_id AND d.datum = b.datum AND d.id <> b.id
+WHERE d.kommentar IS NOT NULL AND d.kommentar <> ''
+GROUP BY b.id;
+
+UPDATE erfassung e
+JOIN erfassung_kommentar k ON k.id = e.id
+SET e.kommentar = k.kommentar
+WHERE e.kommentar IS NULL OR e.kommentar = '';
+
+DELETE e
+FROM erfassung e
+JOIN erfassung_behalten b ON b.studenten_id = e.studenten_id AND b.datum = e.datum AND e.id < b.id;
+
+DROP TEMPORARY TABLE erfassung_kommentar;
+DROP TEMPORARY TABLE erfassung_behalten;
+
+-- Anwesenheitszähler aus den bereinigten Erfassungen neu aufbauen (wie V4)
+DELETE FROM anwesenheit_zaehler;
+
+INSERT INTO anwesenheit_zaehler (studenten_id, status_id, anzahl, verspaetungen, verspaetung_minuten)
+SELECT studenten_id, status_id, COUNT(*),
+       SUM(CASE WHEN verspaetung_minuten > 0 THEN 1 ELSE 0 END),
+       SUM(CASE WHEN verspaetung_minuten > 0 THEN verspaetung_minuten ELSE 0 END)
+FROM erfassung
+GROUP BY studenten_id, status_id;
+
+ALTER TABLE erfassung ADD UNIQUE KEY IF NOT EXISTS uk_erfassung_studenten_datum (studenten_id, datum);
@@ -0,0 +1,7 @@
+-- Index auf (datum, studenten_id) für erfassung.
+--
+-- Der Massenimport prüft je Tag, welche Studenten bereits eine Erfassung haben. Der eindeutige Schlüssel beginnt
+-- mit studenten_id und hilft bei der Suche nach einem Datum nicht; ohne eigenen Index liest jede dieser Abfragen
+-- die gesamte Tabelle.
+
+CREATE INDEX IF NOT EXISTS idx_erfassung_datum_studenten ON erfassung (datum, studenten_id);
@@ -0,0 +1,28 @@
+-- Aufträge für Berichte, die im Hintergrund erstellt werden (/admin/berichte).
+--
+-- Je Auftrag werden Art und Parameter, Zustand und Fortschritt sowie nach Abschluss Pfad, Größe und Ablaufzeit
+-- der Ergebnisdatei gespeichert. Über den Schlüssel aus Art und Parametern werden gleiche Anforderungen einem
+-- vorhandenen Auftrag zugeordnet.
+
+CREATE TABLE IF NOT EXISTS berichtsauftrag (
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    art           VARCHAR(20)  NOT NULL,
+    format        VARCHAR(10)  NOT NULL,
+    von           DATE         NOT NULL,
+    bis           DATE         NOT NULL,
+    gruppe_id     INT          NULL,
+    schluessel    VARCHAR(100) NOT NULL,
+    zustand       VARCHAR(10)  NOT NULL,
+    fortschritt   BIGINT       NOT NULL,
+    datei         VARCHAR(500) NULL,
+    groesse       BIGINT       NULL,
+    fehler        VARCHAR(1000) NULL,
+    beantragt_von VARCHAR(100) NULL,
+    angelegt      DATETIME(6)  NOT NULL,
+    gestartet     DATETIME(6)  NULL,
+    beendet       DATETIME(6)  NULL,
+    ablauf        DATETIME(6)  NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_berichtsauftrag_schluessel ON berichtsauftrag (schluessel);
@@ -0,0 +1,13 @@
+-- Erfasste Tage je Gruppe für die sparsame Speicherung der Anwesenheit.
+--
+-- Ein Eintrag markiert, dass die Anwesenheit einer Gruppe an einem Tag abgegeben wurde. Ist
+-- erfassung.speicherung.sparsam aktiv, werden nur Abweichungen in erfassung gespeichert; Studenten der Gruppe
+-- ohne Erfassung an einem markierten Tag gelten als anwesend. Ohne Einträge ändert sich nichts. Vorhandene
+-- Erfassungen werden über die Wartungsseite (/admin/wartung) umgestellt.
+
+CREATE TABLE IF NOT EXISTS erfassungstag (
+    gruppe_id INT         NOT NULL,
+    datum     DATE        NOT NULL,
+    abgegeben DATETIME(6) NOT NULL,
+    PRIMARY KEY (gruppe_id, datum)
+);
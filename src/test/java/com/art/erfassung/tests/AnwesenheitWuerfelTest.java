@@ -0,0 +1,265 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.StatistikUebersicht;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.model.AnwesenheitWuerfel;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.ErfassungsTag;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitWuerfelRepository;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.AnwesenheitWuerfelService;
+import com.art.erfassung.service.AnwesenheitWuerfelService.AufbauErgebnis;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests für den Anwesenheitswürfel: Fortschreiben beim Speichern, gruppenweiser Neuaufbau einschließlich
+ * markierter Tage der sparsamen Speicherung sowie die Dauer der Übersicht bei langer Historie.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class AnwesenheitWuerfelTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnwesenheitWuerfelTest.class);
+
+    private static final String ADMIN = ErfassungApiControllerTest.basic("admin", "admin123");
+
+    private static final LocalDate MONTAG = LocalDate.of(2025, 3, 3);
+    private static final LocalDate DIENSTAG = LocalDate.of(2025, 3, 4);
+    private static final YearMonth MAERZ = YearMonth.of(2025, 3);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AnwesenheitWuerfelService anwesenheitWuerfelService;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private AnwesenheitWuerfelRepository wuerfelRepository;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private ErfassungsTagRepository erfassungsTagRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppe = gruppeRepository.save(new Gruppe("Würfel Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        referenzdatenRegistry.neuLaden();
+        anna = studentenRepository.save(seitJeher(new Studenten("Musterfrau", "Anna", gruppe)));
+        max = studentenRepository.save(seitJeher(new Studenten("Mustermann", "Max", gruppe)));
+        // Zellen, die andere Tests ohne Ereignis hinterlassen haben, entfernen
+        anwesenheitWuerfelService.neuAufbauen();
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        wuerfelRepository.deleteAll();
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        erfassungsTagRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.delete(gruppe);
+        referenzdatenRegistry.neuLaden();
+    }
+
+    @Test
+    public void testWuerfelWirdBeimSpeichernFortgeschrieben() {
+        // Arrange: Anna montags 10 Minuten zu spät, Max montags krank
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, "08:10"), dto(max, krank, null)), MONTAG);
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, null), dto(max, anwesend, null)), DIENSTAG);
+
+        // Act: Korrektur am Montag, Max war doch anwesend
+        erfassungService.erfassenAnwesenheiten(List.of(dto(max, anwesend, null)), MONTAG);
+
+        // Assert
+        StatistikUebersicht uebersicht = anwesenheitWuerfelService.uebersicht(MAERZ, MAERZ, gruppe.getId());
+        assertEquals(4, uebersicht.gesamt().anzahl());
+        assertEquals(1, uebersicht.gesamt().verspaetungen());
+        assertEquals(10, uebersicht.gesamt().verspaetungMinuten());
+        assertEquals(1, uebersicht.gruppen().size());
+        assertEquals(Map.of(anwesend.getId(), new StatusAnzahl("Anwesend", 4, 1, 10)),
+                uebersicht.gruppen().get(0).jeStatus());
+        assertEquals(List.of("Montag", "Dienstag"),
+                uebersicht.wochentage().stream().map(StatistikUebersicht.Zeile::bezeichnung).toList());
+        assertEquals(0, anwesenheitWuerfelService.uebersicht(MAERZ.plusMonths(1), MAERZ.plusMonths(2), null)
+                .gesamt().anzahl());
+        assertEquals(0, anwesenheitWuerfelService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testNeuaufbauKorrigiertAbweichungenUndZaehltMarkierteTage() {
+        // Arrange: an der Anwendung vorbei gespeichert, ohne Ereignis
+        erfassungRepository.save(new Erfassung(anna, MONTAG, krank, null));
+        erfassungsTagRepository.save(new ErfassungsTag(gruppe.getId(), DIENSTAG));
+        wuerfelRepository.save(new AnwesenheitWuerfel(gruppe.getId(), MONTAG.plusMonths(1), anwesend.getId(), 3, 0, 0));
+
+        // Act
+        AufbauErgebnis ergebnis = anwesenheitWuerfelService.neuAufbauen();
+
+        // Assert: Montag Krank, Dienstag zweimal Anwesend, die Zelle im April entfällt
+        assertEquals(3, ergebnis.abweichungen());
+        StatistikUebersicht uebersicht = anwesenheitWuerfelService.uebersicht(MAERZ, MAERZ.plusMonths(1), null);
+        assertEquals(3, uebersicht.gesamt().anzahl());
+        assertEquals(1, uebersicht.gesamt().jeStatus().get(krank.getId()).anzahl());
+        assertEquals(2, uebersicht.gesamt().jeStatus().get(anwesend.getId()).anzahl());
+        assertEquals(0, anwesenheitWuerfelService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testUebersichtAlsJsonUndNeuaufbauUeberWartung() throws Exception {
+        // Arrange
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, null), dto(max, krank, null)), MONTAG);
+
+        // Act & Assert
+        mockMvc.perform(get("/statistik").param("von", "2025-03").param("bis", "2025-03")
+                        .param("gruppeId", gruppe.getId().toString())
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN)
+                        .header(HttpHeaders.ACCEPT, "application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.gesamt.anzahl").value(2))
+                .andExpect(jsonPath("$.gruppen[0].bezeichnung").value("Würfel Gruppe"))
+                .andExpect(jsonPath("$.wochentage[0].bezeichnung").value("Montag"));
+        mockMvc.perform(post("/admin/wartung/wuerfel").header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(redirectedUrl("/admin/wartung"));
+    }
+
+    @Test
+    public void testUngueltigerZeitraum() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> anwesenheitWuerfelService.uebersicht(MAERZ, MAERZ.minusMonths(1), null));
+    }
+
+    @Test
+    public void testDauerDerUebersichtBeiLangerHistorie() {
+        // Arrange: zehn Jahre mit je fünf Wochentagen und zwei Status für 20 Gruppen
+        List<Gruppe> gruppen = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            gruppen.add(gruppeRepository.save(new Gruppe("Würfel Historie " + i)));
+        }
+        referenzdatenRegistry.neuLaden();
+        List<AnwesenheitWuerfel> zellen = new ArrayList<>();
+        YearMonth erster = MAERZ.minusYears(10);
+        for (Gruppe g : gruppen) {
+            for (YearMonth monat = erster; !monat.isAfter(MAERZ); monat = monat.plusMonths(1)) {
+                for (int tag = 0; tag < 5; tag++) {
+                    LocalDate datum = monat.atDay(1).plusDays(tag);
+                    zellen.add(new AnwesenheitWuerfel(g.getId(), datum, anwesend.getId(), 80, 3, 25));
+                    zellen.add(new AnwesenheitWuerfel(g.getId(), datum, krank.getId(), 4, 0, 0));
+                }
+            }
+        }
+        wuerfelRepository.saveAll(zellen);
+        // Aufwärmen, bis die Abfrage kompiliert ist
+        for (int i = 0; i < 300; i++) {
+            anwesenheitWuerfelService.uebersicht(MAERZ.minusMonths(11), MAERZ, null);
+        }
+
+        try {
+            // Act
+            int wiederholungen = 50;
+            long beginn = System.nanoTime();
+            StatistikUebersicht jahr = null;
+            for (int i = 0; i < wiederholungen; i++) {
+                jahr = anwesenheitWuerfelService.uebersicht(MAERZ.minusMonths(11), MAERZ, null);
+            }
+            long jahrMikros = (System.nanoTime() - beginn) / wiederholungen / 1_000;
+            beginn = System.nanoTime();
+            StatistikUebersicht alles = null;
+            for (int i = 0; i < wiederholungen; i++) {
+                alles = anwesenheitWuerfelService.uebersicht(erster, MAERZ, null);
+            }
+            long allesMikros = (System.nanoTime() - beginn) / wiederholungen / 1_000;
+
+            // Assert
+            logger.info("Statistikübersicht aus {} Zellen: zwölf Monate {} µs, zehn Jahre {} µs",
+                    zellen.size(), jahrMikros, allesMikros);
+            assertEquals(20 * 12 * 5 * 84, jahr.gesamt().anzahl());
+            assertEquals(20 * 121 * 5 * 84, alles.gesamt().anzahl());
+            assertEquals(20, jahr.gruppen().size());
+            assertTrue(jahrMikros < 10_000, "Übersicht dauerte " + jahrMikros + " µs");
+        } finally {
+            wuerfelRepository.deleteAllInBatch();
+            gruppeRepository.deleteAll(gruppen);
+        }
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status, String ankunftszeit) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        dto.setAnkunftszeit(ankunftszeit);
+        return dto;
+    }
+
+    /**
+     * Macht den Studenten zum Mitglied "seit jeher", damit er auch an markierten Tagen vor heute als anwesend gilt.
+     */
+    private static Studenten seitJeher(Studenten student) {
+        student.setGruppeSeit(null);
+        return student;
+    }
+}
@@ -0,0 +1,135 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.model.AnwesenheitZaehler;
+import com.art.erfassung.model.AnwesenheitZaehlerId;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.AnwesenheitZaehlerService.NeuaufbauErgebnis;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für den AnwesenheitZaehlerService, der die Zähler beim Speichern von Erfassungen fortschreibt.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ErfassungService.class, GruppenSperren.class, ReferenzdatenRegistry.class, AnwesenheitZaehlerService.class})
+public class AnwesenheitZaehlerServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Studenten anna;
+    private Studenten max;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        Gruppe gruppe = entityManager.persist(new Gruppe("Gruppe A"));
+        anwesend = entityManager.persist(new Status("Anwesend"));
+        krank = entityManager.persist(new Status("Krank"));
+        anna = entityManager.persist(new Studenten("Musterfrau", "Anna", gruppe));
+        max = entityManager.persist(new Studenten("Mustermann", "Max", gruppe));
+        entityManager.flush();
+    }
+
+    @Test
+    public void testErfassenAnwesenheiten_NeueErfassungenErhoehenZaehler() {
+        // Act
+        erfassungService.erfassenAnwesenheiten(List.of(
+                dto(anna, anwesend, "08:20"),
+                dto(max, anwesend, null)));
+
+        // Assert
+        AnwesenheitZaehler annaAnwesend = zaehler(anna, anwesend);
+        assertEquals(1, annaAnwesend.getAnzahl());
+        assertEquals(1, annaAnwesend.getVerspaetungen());
+        assertEquals(20, annaAnwesend.getVerspaetungMinuten());
+        assertEquals(1, zaehler(max, anwesend).getAnzahl());
+        assertEquals(0, zaehler(max, anwesend).getVerspaetungen());
+    }
+
+    @Test
+    public void testErfassenAnwesenheiten_StatuswechselVerschiebtZaehler() {
+        // Arrange
+        erfassungService.erfassenAnwesenheiten(List.of(
+                dto(anna, anwesend, "08:20"),
+                dto(max, anwesend, null)));
+
+        // Act
+        erfassungService.erfassenAnwesenheiten(List.of(
+                dto(anna, krank, null),
+                dto(max, anwesend, "08:05")));
+
+        // Assert
+        AnwesenheitZaehler annaAnwesend = zaehler(anna, anwesend);
+        assertEquals(0, annaAnwesend.getAnzahl());
+        assertEquals(0, annaAnwesend.getVerspaetungen());
+        assertEquals(0, annaAnwesend.getVerspaetungMinuten());
+        assertEquals(1, zaehler(anna, krank).getAnzahl());
+        AnwesenheitZaehler maxAnwesend = zaehler(max, anwesend);
+        assertEquals(1, maxAnwesend.getAnzahl());
+        assertEquals(1, maxAnwesend.getVerspaetungen());
+        assertEquals(5, maxAnwesend.getVerspaetungMinuten());
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testNeuAufbauen_KorrigiertAbweichungen() {
+        // Arrange
+        erfassungService.erfassenAnwesenheiten(List.of(
+                dto(anna, anwesend, "08:20"),
+                dto(max, krank, null)));
+        zaehler(anna, anwesend).setAnzahl(7);
+        zaehlerRepository.delete(zaehler(max, krank));
+        entityManager.flush();
+
+        // Act
+        NeuaufbauErgebnis ergebnis = anwesenheitZaehlerService.neuAufbauen();
+
+        // Assert
+        assertEquals(2, ergebnis.zeilen());
+        assertEquals(2, ergebnis.abweichungen());
+        assertEquals(1, zaehler(anna, anwesend).getAnzahl());
+        assertEquals(20, zaehler(anna, anwesend).getVerspaetungMinuten());
+        assertEquals(1, zaehler(max, krank).getAnzahl());
+    }
+
+    private AnwesenheitZaehler zaehler(Studenten student, Status status) {
+        return zaehlerRepository.findById(new AnwesenheitZaehlerId(student.getId(), status.getId())).orElseThrow();
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status, String ankunftszeit) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        dto.setAnkunftszeit(ankunftszeit);
+        return dto;
+    }
+}
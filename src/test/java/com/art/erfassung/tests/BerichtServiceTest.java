@@ -0,0 +1,238 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ExportFormat;
+import com.art.erfassung.model.Berichtsauftrag;
+import com.art.erfassung.model.Berichtsauftrag.Art;
+import com.art.erfassung.model.Berichtsauftrag.Zustand;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.BerichtsauftragRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.BerichtService;
+import com.art.erfassung.service.BerichtService.Anforderung;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests für die Berichte im Hintergrund über den {@link BerichtService} und "/admin/berichte".
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class BerichtServiceTest {
+
+    private static final String ADMIN = ErfassungApiControllerTest.basic("admin", "admin123");
+
+    private static final LocalDate MONTAG = LocalDate.of(2025, 6, 2);
+    private static final LocalDate DIENSTAG = LocalDate.of(2025, 6, 3);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BerichtService berichtService;
+
+    @Autowired
+    private BerichtsauftragRepository berichtsauftragRepository;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppe = gruppeRepository.save(new Gruppe("Bericht Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        referenzdatenRegistry.neuLaden();
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppe));
+        max = studentenRepository.save(new Studenten("Mustermann", "Max", gruppe));
+        erfassungRepository.save(new Erfassung(anna, MONTAG, anwesend, null));
+        erfassungRepository.save(new Erfassung(anna, DIENSTAG, anwesend, null));
+        erfassungRepository.save(new Erfassung(max, MONTAG, krank, "Attest"));
+    }
+
+    @AfterEach
+    public void aufraeumen() throws Exception {
+        for (Berichtsauftrag auftrag : berichtsauftragRepository.findAll()) {
+            warten(auftrag.getId());
+            if (auftrag.getDatei() != null) {
+                Files.deleteIfExists(Path.of(auftrag.getDatei()));
+            }
+        }
+        berichtsauftragRepository.deleteAll();
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.delete(gruppe);
+        referenzdatenRegistry.neuLaden();
+    }
+
+    @Test
+    public void testGleicheAnforderungen_EinAuftragUndWiederverwendeteDatei() throws Exception {
+        // Arrange
+        int anfragen = 8;
+        ExecutorService ausfuehrung = Executors.newFixedThreadPool(anfragen);
+        CountDownLatch startsignal = new CountDownLatch(1);
+        List<Future<Anforderung>> ergebnisse = new ArrayList<>();
+
+        // Act: acht gleichzeitige Anforderungen desselben Exports
+        for (int i = 0; i < anfragen; i++) {
+            ergebnisse.add(ausfuehrung.submit(() -> {
+                startsignal.await();
+                return berichtService.anfordern(Art.EXPORT, ExportFormat.CSV, MONTAG, DIENSTAG, null, "admin");
+            }));
+        }
+        startsignal.countDown();
+        Set<Long> ids = new HashSet<>();
+        int neu = 0;
+        for (Future<Anforderung> ergebnis : ergebnisse) {
+            ids.add(ergebnis.get().auftrag().getId());
+            neu += ergebnis.get().neu() ? 1 : 0;
+        }
+        ausfuehrung.shutdown();
+
+        // Assert: ein Auftrag, eine Datei; eine spätere Anforderung erhält sofort denselben Bericht
+        assertEquals(1, ids.size());
+        assertEquals(1, neu);
+        Long id = ids.iterator().next();
+        Berichtsauftrag auftrag = warten(id);
+        assertEquals(Zustand.FERTIG, auftrag.getZustand());
+        assertEquals(3, auftrag.getFortschritt());
+        assertTrue(auftrag.getAblauf().isAfter(LocalDateTime.now()));
+
+        Anforderung wiederholt = berichtService.anfordern(Art.EXPORT, ExportFormat.CSV, MONTAG, DIENSTAG, null,
+                "admin");
+        assertFalse(wiederholt.neu());
+        assertEquals(id, wiederholt.auftrag().getId());
+        assertEquals(1, berichtsauftragRepository.count());
+
+        byte[] inhalt = mockMvc.perform(get("/admin/berichte/" + id + "/datei")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"erfassungen_2025-06-02_2025-06-03.csv\""))
+                .andReturn().getResponse().getContentAsByteArray();
+        String[] zeilen = new String(inhalt, StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(4, zeilen.length);
+        assertTrue(zeilen[0].startsWith("\uFEFFDatum;Gruppe;Studenten-ID"));
+    }
+
+    @Test
+    public void testStatistik_UeberFormularAnfordernUndZustandAbfragen() throws Exception {
+        // Act
+        mockMvc.perform(post("/admin/berichte")
+                        .param("art", "statistik")
+                        .param("von", "2025-06-01")
+                        .param("bis", "2025-06-30")
+                        .param("gruppeId", gruppe.getId().toString())
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/admin/berichte"));
+        Berichtsauftrag auftrag = warten(berichtsauftragRepository.findAll().get(0).getId());
+
+        // Assert: je Student eine Zeile, Anna mit 100 % Anwesenheit
+        mockMvc.perform(get("/admin/berichte/" + auftrag.getId())
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.zustand").value("FERTIG"))
+                .andExpect(jsonPath("$.fortschritt").value(2))
+                .andExpect(jsonPath("$.download").value("/admin/berichte/" + auftrag.getId() + "/datei"));
+        String bericht = Files.readString(Path.of(auftrag.getDatei()), StandardCharsets.UTF_8);
+        assertTrue(bericht.contains("Bericht Gruppe;" + anna.getId() + ";Musterfrau;Anna;100,0;0;0;0;0;0;0,0"),
+                bericht);
+        assertTrue(bericht.contains("Bericht Gruppe;" + max.getId() + ";Mustermann;Max;0,0;0;0;1;0;0;0,0"), bericht);
+    }
+
+    @Test
+    public void testAbgelaufenerBericht_WirdMitDateiEntfernt() throws Exception {
+        // Arrange
+        Long id = berichtService.anfordern(Art.EXPORT, ExportFormat.XLSX, MONTAG, MONTAG, gruppe.getId(), "admin")
+                .auftrag().getId();
+        Berichtsauftrag auftrag = warten(id);
+        Path datei = Path.of(auftrag.getDatei());
+        assertTrue(Files.exists(datei));
+        auftrag.setAblauf(LocalDateTime.now().minusMinutes(1));
+        berichtsauftragRepository.save(auftrag);
+
+        // Act
+        mockMvc.perform(get("/admin/berichte/" + id + "/datei")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(status().isNotFound());
+        int entfernt = berichtService.aufraeumen();
+
+        // Assert
+        assertEquals(1, entfernt);
+        assertFalse(Files.exists(datei));
+        assertTrue(berichtsauftragRepository.findById(id).isEmpty());
+    }
+
+    private Berichtsauftrag warten(Long id) throws InterruptedException {
+        for (int versuch = 0; versuch < 600; versuch++) {
+            Berichtsauftrag auftrag = berichtsauftragRepository.findById(id).orElseThrow();
+            if (auftrag.getZustand() == Zustand.FERTIG || auftrag.getZustand() == Zustand.FEHLER) {
+                return auftrag;
+            }
+            Thread.sleep(50);
+        }
+        fail("Bericht " + id + " wurde nicht rechtzeitig fertig");
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.CheckinPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests für die Check-in-Schnittstelle unter "/api/v1/checkins".
+ * <p>
+ * Die {@link CheckinPipeline} nimmt nur Scans des heutigen Tages an und merkt sich die eingecheckten Studenten
+ * über die Tests hinweg; jeder Test legt daher eigene Studenten an.
+ * </p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class CheckinApiControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CheckinPipeline checkinPipeline;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Studenten lena;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppe = gruppeRepository.save(new Gruppe("Check-in Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppe));
+        max = studentenRepository.save(new Studenten("Mustermann", "Max", gruppe));
+        lena = studentenRepository.save(new Studenten("Beispiel", "Lena", gruppe));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max, lena));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.delete(gruppe);
+    }
+
+    @Test
+    public void testCheckin_ErsterScanZaehltMitVerspaetung() throws Exception {
+        // Arrange
+        LocalDate datum = LocalDate.now();
+
+        // Act
+        senden("""
+                {"scans": [
+                  {"studentenId": %d, "zeitpunkt": "%sT08:12:40"},
+                  {"studentenId": %d, "zeitpunkt": "%sT07:55:00"},
+                  {"studentenId": %d, "zeitpunkt": "%sT08:13:05"}
+                ]}
+                """.formatted(anna.getId(), datum, max.getId(), datum, anna.getId(), datum))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.angenommen").value(2))
+                .andExpect(jsonPath("$.doppelt").value(1))
+                .andExpect(jsonPath("$.abgelehnt").value(0));
+        assertTrue(checkinPipeline.warteAufSpeicherung(Duration.ofSeconds(10)));
+        senden("""
+                {"scans": [{"studentenId": %d, "zeitpunkt": "%sT09:30:00"}]}
+                """.formatted(anna.getId(), datum))
+                .andExpect(jsonPath("$.angenommen").value(0))
+                .andExpect(jsonPath("$.doppelt").value(1));
+        assertTrue(checkinPipeline.warteAufSpeicherung(Duration.ofSeconds(10)));
+
+        // Assert
+        Erfassung annaErfassung = erfassungRepository.findByStudenten_IdAndDatum(anna.getId(), datum).orElseThrow();
+        assertEquals(LocalTime.of(8, 12), annaErfassung.getAnkunftszeit());
+        assertEquals(12, annaErfassung.getVerspaetungMinuten());
+        assertEquals(anwesend.getId(), annaErfassung.getStatus().getId());
+        Erfassung maxErfassung = erfassungRepository.findByStudenten_IdAndDatum(max.getId(), datum).orElseThrow();
+        assertEquals(0, maxErfassung.getVerspaetungMinuten());
+        assertEquals(2, erfassungRepository.count());
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testCheckin_VorhandeneErfassungWirdNichtUeberschrieben() throws Exception {
+        // Arrange: Lena und Max wurden krank gemeldet, nachdem die Pipeline den heutigen Tag geladen hat
+        LocalDate datum = LocalDate.now();
+        senden("""
+                {"scans": [{"studentenId": %d, "zeitpunkt": "%sT07:50:00"}]}
+                """.formatted(anna.getId(), datum))
+                .andExpect(jsonPath("$.angenommen").value(1));
+        erfassungRepository.save(new Erfassung(lena, datum, krank, "Attest"));
+        erfassungRepository.save(new Erfassung(max, datum, krank, "Attest"));
+
+        // Act
+        senden("""
+                {"scans": [
+                  {"studentenId": %d, "zeitpunkt": "%sT08:05:00"},
+                  {"studentenId": %d, "zeitpunkt": "%sT08:06:00"},
+                  {"studentenId": %d, "zeitpunkt": "%sT08:07:00"}
+                ]}
+                """.formatted(lena.getId(), datum, max.getId(), datum, anna.getId(), datum))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.angenommen").value(2))
+                .andExpect(jsonPath("$.doppelt").value(1));
+        assertTrue(checkinPipeline.warteAufSpeicherung(Duration.ofSeconds(10)));
+
+        // Assert
+        for (Studenten student : List.of(lena, max)) {
+            Erfassung erfassung = erfassungRepository.findByStudenten_IdAndDatum(student.getId(), datum).orElseThrow();
+            assertEquals(krank.getId(), erfassung.getStatus().getId());
+            assertNull(erfassung.getAnkunftszeit());
+        }
+        assertTrue(erfassungRepository.findByStudenten_IdAndDatum(anna.getId(), datum).isPresent());
+    }
+
+    @Test
+    public void testCheckin_UnbekannterStudentVerhindertNichtDieUebrigen() throws Exception {
+        // Arrange
+        LocalDate datum = LocalDate.now();
+
+        // Act
+        senden("""
+                {"scans": [
+                  {"studentenId": 999999, "zeitpunkt": "%sT08:00:00"},
+                  {"studentenId": %d, "zeitpunkt": "%sT08:01:00"}
+                ]}
+                """.formatted(datum, lena.getId(), datum))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.angenommen").value(2));
+        assertTrue(checkinPipeline.warteAufSpeicherung(Duration.ofSeconds(10)));
+
+        // Assert
+        assertEquals(1, erfassungRepository.count());
+        assertEquals(1, erfassungRepository.findByStudenten_IdAndDatum(lena.getId(), datum).orElseThrow()
+                .getVerspaetungMinuten());
+    }
+
+    @Test
+    public void testCheckin_ScansAusserhalbDesHeutigenTagesWerdenAbgelehnt() throws Exception {
+        // Arrange
+        LocalDate heute = LocalDate.now();
+
+        // Act
+        senden("""
+                {"scans": [
+                  {"studentenId": %d, "zeitpunkt": "%sT08:00:00"},
+                  {"studentenId": %d, "zeitpunkt": "%sT08:00:00"},
+                  {"studentenId": %d, "zeitpunkt": "%sT08:00:00"},
+                  {"studentenId": %d, "zeitpunkt": "%sT08:03:00"}
+                ]}
+                """.formatted(anna.getId(), heute.minusDays(1), max.getId(), heute.plusDays(1),
+                        lena.getId(), heute.minusYears(3), lena.getId(), heute))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.angenommen").value(1))
+                .andExpect(jsonPath("$.doppelt").value(0))
+                .andExpect(jsonPath("$.abgelehnt").value(3));
+        assertTrue(checkinPipeline.warteAufSpeicherung(Duration.ofSeconds(10)));
+
+        // Assert
+        assertEquals(1, erfassungRepository.count());
+        assertEquals(heute, erfassungRepository.findByStudenten_IdAndDatum(lena.getId(), heute).orElseThrow()
+                .getDatum());
+    }
+
+    @Test
+    public void testCheckin_UngueltigeAnfrageUndFalscheRolle() throws Exception {
+        // Act & Assert
+        senden("{\"scans\": [{\"zeitpunkt\": \"2025-04-04T08:00:00\"}]}")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fehler.length()").value(1));
+        mockMvc.perform(post("/api/v1/checkins")
+                        .header(HttpHeaders.AUTHORIZATION, ErfassungApiControllerTest.LEHRKRAFT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"scans\": [{\"studentenId\": 1}]}"))
+                .andExpect(status().isForbidden());
+    }
+
+    private ResultActions senden(String inhalt) throws Exception {
+        return mockMvc.perform(post("/api/v1/checkins")
+                .header(HttpHeaders.AUTHORIZATION, CheckinLastTest.SCANNER)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(inhalt));
+    }
+}
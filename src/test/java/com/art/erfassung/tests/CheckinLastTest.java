@@ -0,0 +1,211 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.CheckinPipeline;
+import com.art.erfassung.service.ErfassungService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Lasttest der Check-in-Schnittstelle.
+ * <p>
+ * {@value #TERMINALS} Terminals senden gleichzeitig je {@value #SCANS_JE_ANFRAGE} Scans pro Anfrage über HTTP
+ * einschließlich Anmeldung; wie ein echtes Terminal verwendet jedes seine Sitzung weiter. Jeder der {@value #STUDENTEN} Studenten wird an seinem Terminal
+ * {@value #SCANS_JE_STUDENT} Mal gescannt, zuerst mit seiner Ankunftszeit, danach mit späteren Zeitpunkten. Gemessen wird vom ersten Scan, bis alle
+ * Ankünfte gespeichert sind; gefordert sind mindestens {@value #MINDESTRATE} Scans je Sekunde.
+ * </p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class CheckinLastTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckinLastTest.class);
+
+    static final String SCANNER = ErfassungApiControllerTest.basic("scanner", "scanner123");
+
+    private static final int GRUPPEN = 40;
+    private static final int STUDENTEN = 4_000;
+    private static final int SCANS_JE_STUDENT = 5;
+    private static final int TERMINALS = 4;
+    private static final int SCANS_JE_ANFRAGE = 500;
+    private static final int MINDESTRATE = 2_000;
+    private static final LocalDate DATUM = LocalDate.now();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CheckinPipeline checkinPipeline;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private final List<Gruppe> gruppen = new ArrayList<>();
+    private final List<Studenten> studenten = new ArrayList<>();
+    private Status anwesend;
+
+    @BeforeEach
+    public void setup() {
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        for (int g = 0; g < GRUPPEN; g++) {
+            gruppen.add(gruppeRepository.save(new Gruppe("Check-in Gruppe " + g)));
+        }
+        List<Studenten> neu = new ArrayList<>();
+        for (int i = 0; i < STUDENTEN; i++) {
+            neu.add(new Studenten("Name" + i, "Vorname" + i, gruppen.get(i % GRUPPEN)));
+        }
+        studenten.addAll(studentenRepository.saveAll(neu));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAllInBatch();
+        erfassungRepository.deleteAllInBatch();
+        studentenRepository.deleteAllByIdInBatch(studenten.stream().map(Studenten::getId).toList());
+        studenten.clear();
+        statusRepository.delete(anwesend);
+        gruppeRepository.deleteAll(gruppen);
+        gruppen.clear();
+    }
+
+    @Test
+    public void testLast_MindestensZweitausendScansJeSekunde() throws Exception {
+        // Arrange: jeder Student geht durch einen Eingang; je Terminal zuerst die ersten Scans in zufälliger
+        // Reihenfolge, danach die Wiederholungen mit späteren Zeitpunkten
+        Random zufall = new Random(42);
+        Map<Integer, LocalTime> ankunft = new HashMap<>();
+        for (Studenten student : studenten) {
+            ankunft.put(student.getId(), LocalTime.of(7, 40).plusSeconds(zufall.nextInt(40 * 60)));
+        }
+        List<List<String>> anfragenJeTerminal = new ArrayList<>();
+        for (int t = 0; t < TERMINALS; t++) {
+            List<String> scans = new ArrayList<>();
+            for (int runde = 0; runde < SCANS_JE_STUDENT; runde++) {
+                List<String> rundenScans = new ArrayList<>();
+                for (int i = t; i < studenten.size(); i += TERMINALS) {
+                    Integer studentenId = studenten.get(i).getId();
+                    LocalTime zeit = ankunft.get(studentenId).plusSeconds(runde * 30L);
+                    rundenScans.add("{\"studentenId\":" + studentenId + ",\"zeitpunkt\":\"" + DATUM.atTime(zeit) + "\"}");
+                }
+                Collections.shuffle(rundenScans, zufall);
+                scans.addAll(rundenScans);
+            }
+            List<String> anfragen = new ArrayList<>();
+            for (int von = 0; von < scans.size(); von += SCANS_JE_ANFRAGE) {
+                List<String> teil = scans.subList(von, Math.min(von + SCANS_JE_ANFRAGE, scans.size()));
+                anfragen.add("{\"scans\":[" + String.join(",", teil) + "]}");
+            }
+            anfragenJeTerminal.add(anfragen);
+        }
+        int scanAnzahl = STUDENTEN * SCANS_JE_STUDENT;
+
+        // Act
+        ExecutorService terminals = Executors.newFixedThreadPool(TERMINALS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> ergebnisse = new ArrayList<>();
+            for (List<String> anfragen : anfragenJeTerminal) {
+                ergebnisse.add(terminals.submit((Callable<Void>) () -> {
+                    // Jedes Terminal sendet das Sitzungscookie zurück und wird nur einmal per BCrypt geprüft
+                    MockHttpSession sitzung = new MockHttpSession();
+                    for (String anfrage : anfragen) {
+                        mockMvc.perform(post("/api/v1/checkins")
+                                        .session(sitzung)
+                                        .header(HttpHeaders.AUTHORIZATION, SCANNER)
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content(anfrage))
+                                .andExpect(status().isAccepted());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> ergebnis : ergebnisse) {
+                ergebnis.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            terminals.shutdownNow();
+        }
+        long angenommen = System.nanoTime();
+        assertTrue(checkinPipeline.warteAufSpeicherung(Duration.ofMinutes(1)));
+        long gespeichert = System.nanoTime();
+
+        // Assert
+        double sekunden = (gespeichert - start) / 1e9;
+        double rate = scanAnzahl / sekunden;
+        logger.info("{} Scans: angenommen nach {} ms, gespeichert nach {} ms, {} Scans/s", scanAnzahl,
+                (angenommen - start) / 1_000_000, (gespeichert - start) / 1_000_000, Math.round(rate));
+        assertTrue(rate >= MINDESTRATE, "Nur " + Math.round(rate) + " Scans/s");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Erfassung> erfassungen = erfassungRepository.findAll();
+            assertEquals(STUDENTEN, erfassungen.size());
+            for (Erfassung erfassung : erfassungen) {
+                LocalTime erwartet = ankunft.get(erfassung.getStudenten().getId()).withSecond(0);
+                assertEquals(DATUM, erfassung.getDatum());
+                assertEquals(anwesend.getId(), erfassung.getStatus().getId());
+                assertEquals(erwartet, erfassung.getAnkunftszeit());
+                assertEquals(ErfassungService.berechneVerspaetung(erwartet), erfassung.getVerspaetungMinuten());
+            }
+        });
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+}
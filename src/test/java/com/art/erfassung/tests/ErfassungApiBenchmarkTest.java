@@ -0,0 +1,172 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungStand;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ErfassungService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Benchmark der JSON-Schnittstelle gegen das Anwesenheitsformular.
+ * <p>
+ * Beide Wege speichern dieselbe Anzahl Erfassungen über den {@link ErfassungService}; jede Einreichung wechselt
+ * den Status aller Studenten, damit jede Zeile geschrieben wird. Gemessen wird die gesamte Verarbeitung einer
+ * Anfrage einschließlich Datenbindung bzw. JSON-Deserialisierung.
+ * </p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ErfassungApiBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungApiBenchmarkTest.class);
+
+    private static final int STUDENTEN = 200;
+    private static final int AUFWAERMEN = 3;
+    private static final int DURCHLAEUFE = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe formularGruppe;
+    private Gruppe apiGruppe;
+    private final List<Studenten> studenten = new ArrayList<>();
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        formularGruppe = gruppeRepository.save(new Gruppe("Formular Gruppe"));
+        apiGruppe = gruppeRepository.save(new Gruppe("API Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        List<Studenten> neu = new ArrayList<>();
+        for (int i = 0; i < STUDENTEN; i++) {
+            neu.add(new Studenten("Name" + i, "Vorname" + i, formularGruppe));
+            neu.add(new Studenten("Name" + i, "Vorname" + i, apiGruppe));
+        }
+        studenten.addAll(studentenRepository.saveAll(neu));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(studenten);
+        studenten.clear();
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.deleteAll(List.of(formularGruppe, apiGruppe));
+    }
+
+    @Test
+    public void testBenchmark_JsonGegenFormular() throws Exception {
+        List<Studenten> formularStudenten = studenten.stream()
+                .filter(s -> s.getGruppe().getId().equals(formularGruppe.getId())).toList();
+        List<Studenten> apiStudenten = studenten.stream()
+                .filter(s -> s.getGruppe().getId().equals(apiGruppe.getId())).toList();
+
+        long dauerFormular = 0;
+        long dauerApi = 0;
+        int durchlauf;
+        for (durchlauf = 0; durchlauf < AUFWAERMEN + DURCHLAEUFE; durchlauf++) {
+            Status status = (durchlauf % 2 == 0) ? krank : anwesend;
+            MockHttpServletRequestBuilder formular = formular(formularStudenten, status);
+            MockHttpServletRequestBuilder json = json(apiStudenten, status);
+
+            long start = System.nanoTime();
+            mockMvc.perform(formular).andExpect(status().is3xxRedirection());
+            long formularFertig = System.nanoTime();
+            mockMvc.perform(json).andExpect(status().isOk())
+                    .andExpect(jsonPath("$.gespeichert").value(STUDENTEN));
+            long apiFertig = System.nanoTime();
+
+            if (durchlauf >= AUFWAERMEN) {
+                dauerFormular += formularFertig - start;
+                dauerApi += apiFertig - formularFertig;
+            }
+        }
+
+        logger.info("{} Studenten je Einreichung: Formular {} µs/Anfrage, JSON {} µs/Anfrage",
+                STUDENTEN, dauerFormular / DURCHLAEUFE / 1_000, dauerApi / DURCHLAEUFE / 1_000);
+        Integer letzterStatus = ((durchlauf - 1) % 2 == 0 ? krank : anwesend).getId();
+        for (Gruppe gruppe : List.of(formularGruppe, apiGruppe)) {
+            List<ErfassungStand> stand = erfassungService.findStandByGruppeUndDatum(gruppe.getId(), LocalDate.now());
+            assertEquals(STUDENTEN, stand.size());
+            assertTrue(stand.stream().allMatch(s -> s.statusId().equals(letzterStatus)
+                    && s.version() == AUFWAERMEN + DURCHLAEUFE - 1));
+        }
+    }
+
+    private MockHttpServletRequestBuilder formular(List<Studenten> studenten, Status status) {
+        MockHttpServletRequestBuilder anfrage = post("/anwesenheit/speichern")
+                .header(HttpHeaders.AUTHORIZATION, ErfassungApiControllerTest.LEHRKRAFT)
+                .param("gruppeId", formularGruppe.getId().toString());
+        for (int i = 0; i < studenten.size(); i++) {
+            anfrage.param("eintraege[" + i + "].studentenId", studenten.get(i).getId() + "")
+                    .param("eintraege[" + i + "].statusId", status.getId().toString());
+        }
+        return anfrage;
+    }
+
+    private MockHttpServletRequestBuilder json(List<Studenten> studenten, Status status) {
+        StringBuilder eintraege = new StringBuilder();
+        for (Studenten student : studenten) {
+            if (!eintraege.isEmpty()) {
+                eintraege.append(',');
+            }
+            eintraege.append("{\"studentenId\":").append(student.getId())
+                    .append(",\"statusId\":").append(status.getId()).append('}');
+        }
+        String inhalt = "{\"batches\":[{\"gruppeId\":" + apiGruppe.getId() + ",\"datum\":\"" + LocalDate.now()
+                + "\",\"eintraege\":[" + eintraege + "]}]}";
+        return post("/api/v1/erfassungen")
+                .header(HttpHeaders.AUTHORIZATION, ErfassungApiControllerTest.LEHRKRAFT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(inhalt);
+    }
+}
@@ -0,0 +1,212 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests für die JSON-Schnittstelle unter "/api/v1/erfassungen".
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ErfassungApiControllerTest {
+
+    static final String LEHRKRAFT = basic("teacher", "teacher123");
+
+    private static final LocalDate MONTAG = LocalDate.of(2025, 3, 3);
+    private static final LocalDate DIENSTAG = LocalDate.of(2025, 3, 4);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppeA;
+    private Gruppe gruppeB;
+    private Studenten anna;
+    private Studenten max;
+    private Studenten lena;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppeA = gruppeRepository.save(new Gruppe("API Gruppe A"));
+        gruppeB = gruppeRepository.save(new Gruppe("API Gruppe B"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppeA));
+        max = studentenRepository.save(new Studenten("Mustermann", "Max", gruppeA));
+        lena = studentenRepository.save(new Studenten("Beispiel", "Lena", gruppeB));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max, lena));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.deleteAll(List.of(gruppeA, gruppeB));
+    }
+
+    static String basic(String benutzer, String passwort) {
+        return "Basic " + Base64.getEncoder()
+                .encodeToString((benutzer + ":" + passwort).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSpeichern_MehrereGruppenUndTageMitErgebnisJeZeile() throws Exception {
+        // Arrange: Max wurde am Montag bereits erfasst, die Anfrage trägt eine veraltete Version
+        erfassungRepository.save(new Erfassung(max, MONTAG, anwesend, null));
+        String anfrage = """
+                {"batches": [
+                  {"gruppeId": %d, "datum": "2025-03-03", "eintraege": [
+                    {"studentenId": %d, "statusId": %d, "ankunftszeit": "08:20"},
+                    {"studentenId": %d, "statusId": %d, "version": 5},
+                    {"studentenId": %d, "statusId": %d}
+                  ]},
+                  {"gruppeId": %d, "datum": "2025-03-04", "eintraege": [
+                    {"studentenId": %d, "statusId": %d, "kommentar": "Attest liegt vor"},
+                    {"studentenId": %d, "statusId": 999}
+                  ]}
+                ]}
+                """.formatted(gruppeA.getId(), anna.getId(), anwesend.getId(), max.getId(), krank.getId(),
+                lena.getId(), anwesend.getId(), gruppeB.getId(), lena.getId(), krank.getId(), lena.getId());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/erfassungen")
+                        .header(HttpHeaders.AUTHORIZATION, LEHRKRAFT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(anfrage))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.gespeichert").value(2))
+                .andExpect(jsonPath("$.konflikte").value(1))
+                .andExpect(jsonPath("$.ungueltig").value(2))
+                .andExpect(jsonPath("$.fehler").value(0))
+                .andExpect(jsonPath("$.zeilen[0].ergebnis").value("GESPEICHERT"))
+                .andExpect(jsonPath("$.zeilen[0].version").value(0))
+                .andExpect(jsonPath("$.zeilen[1].ergebnis").value("KONFLIKT"))
+                .andExpect(jsonPath("$.zeilen[2].ergebnis").value("UNGUELTIG"))
+                .andExpect(jsonPath("$.zeilen[3].batch").value(1))
+                .andExpect(jsonPath("$.zeilen[3].ergebnis").value("GESPEICHERT"))
+                .andExpect(jsonPath("$.zeilen[4].ergebnis").value("UNGUELTIG"))
+                .andExpect(jsonPath("$.zeilen[4].meldung").value("Status 999 ist unbekannt"));
+
+        assertEquals(20, erfassungRepository.findByStudenten_IdAndDatum(anna.getId(), MONTAG)
+                .orElseThrow().getVerspaetungMinuten());
+        assertEquals(anwesend.getId(), erfassungRepository.findByStudenten_IdAndDatum(max.getId(), MONTAG)
+                .orElseThrow().getStatus().getId());
+        assertEquals("Attest liegt vor", erfassungRepository.findByStudenten_IdAndDatum(lena.getId(), DIENSTAG)
+                .orElseThrow().getKommentar());
+        assertTrue(erfassungRepository.findByStudenten_IdAndDatum(lena.getId(), MONTAG).isEmpty());
+    }
+
+    @Test
+    public void testStand_LiefertVersionen() throws Exception {
+        // Arrange
+        erfassungRepository.save(new Erfassung(anna, MONTAG, krank, "Attest"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/erfassungen")
+                        .param("gruppeId", gruppeA.getId().toString())
+                        .param("datum", "2025-03-03")
+                        .header(HttpHeaders.AUTHORIZATION, LEHRKRAFT))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].studentenId").value(anna.getId()))
+                .andExpect(jsonPath("$[0].statusId").value(krank.getId()))
+                .andExpect(jsonPath("$[0].version").value(0));
+    }
+
+    @Test
+    public void testOffen_LiefertHeuteNochNichtErfassteStudenten() throws Exception {
+        // Arrange
+        mockMvc.perform(post("/api/v1/erfassungen")
+                        .header(HttpHeaders.AUTHORIZATION, LEHRKRAFT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"batches": [{"gruppeId": %d, "datum": "%s", "eintraege": [
+                                  {"studentenId": %d, "statusId": %d}]}]}
+                                """.formatted(gruppeA.getId(), LocalDate.now(), anna.getId(), krank.getId())))
+                .andExpect(status().isOk());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/v1/erfassungen/offen")
+                        .param("gruppeId", gruppeA.getId().toString())
+                        .header(HttpHeaders.AUTHORIZATION, LEHRKRAFT))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].studentenId").value(max.getId()))
+                .andExpect(jsonPath("$[0].anzeigeName").value("Max Mustermann"));
+    }
+
+    @Test
+    public void testSpeichern_UngueltigeAnfrageAlsProblemDetails() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/erfassungen")
+                        .header(HttpHeaders.AUTHORIZATION, LEHRKRAFT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"batches\": [{\"gruppeId\": 1, \"eintraege\": []}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_PROBLEM_JSON_VALUE))
+                .andExpect(jsonPath("$.fehler.length()").value(2));
+
+        mockMvc.perform(post("/api/v1/erfassungen")
+                        .header(HttpHeaders.AUTHORIZATION, LEHRKRAFT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"batches\": ["))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testOhneAnmeldung_401StattWeiterleitung() throws Exception {
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/erfassungen")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"batches\": []}"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().exists(HttpHeaders.WWW_AUTHENTICATE));
+    }
+}
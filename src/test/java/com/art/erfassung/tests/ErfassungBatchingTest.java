@@ -0,0 +1,71 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prüft, dass Erfassungen per JDBC-Batch geschrieben werden.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ErfassungService.class, GruppenSperren.class, ReferenzdatenRegistry.class, JdbcBatchZaehler.class})
+public class ErfassungBatchingTest {
+
+    private static final int ANZAHL = 500;
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private JdbcBatchZaehler batchZaehler;
+
+    @Test
+    public void testErfassungVon500ZeilenSendetZehnBatches() {
+        // Arrange
+        Status status = entityManager.persist(new Status("Anwesend"));
+        Gruppe gruppe = entityManager.persist(new Gruppe("Große Gruppe"));
+        List<ErfassungDTO> dtos = new ArrayList<>();
+        for (int i = 0; i < ANZAHL; i++) {
+            Studenten student = entityManager.persist(new Studenten("Name" + i, "Vorname" + i, gruppe));
+            ErfassungDTO dto = new ErfassungDTO();
+            dto.setStudentenId(student.getId());
+            dto.setStatusId(status.getId());
+            dtos.add(dto);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        batchZaehler.zuruecksetzen();
+
+        // Act
+        erfassungService.erfassenAnwesenheiten(dtos);
+        entityManager.flush();
+
+        // Assert
+        assertEquals(ANZAHL / BATCH_SIZE, batchZaehler.batches("erfassung"));
+        assertEquals(ANZAHL, erfassungRepository.count());
+    }
+}
@@ -0,0 +1,103 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark für {@link ErfassungService#erfassenAnwesenheiten(List)}.
+ * <p>
+ * Prüft, dass die Anzahl der lesenden Abfragen pro Formular unabhängig von der Gruppengröße bleibt.
+ * </p>
+ */
+@DataJpaTest(properties = SqlZaehler.PROPERTY)
+@ActiveProfiles("test")
+@Import({ErfassungService.class, GruppenSperren.class, ReferenzdatenRegistry.class})
+public class ErfassungBulkBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungBulkBenchmarkTest.class);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Test
+    public void testAbfragenProFormularBleibenKonstant() {
+        Status anwesend = entityManager.persist(new Status("Anwesend"));
+        Status krank = entityManager.persist(new Status("Krank"));
+        // Entspricht dem Laden beim Anwendungsstart
+        referenzdatenRegistry.neuLaden();
+
+        List<Integer> selectsNeu = new ArrayList<>();
+        List<Integer> selectsUpdate = new ArrayList<>();
+        for (int groesse : new int[]{5, 50, 200}) {
+            List<ErfassungDTO> dtos = formularFuerNeueGruppe(groesse, anwesend);
+
+            selectsNeu.add(messen(dtos, groesse, "neu"));
+            dtos.forEach(dto -> {
+                dto.setStatusId(krank.getId());
+                dto.setAnkunftszeit("08:10");
+            });
+            selectsUpdate.add(messen(dtos, groesse, "update"));
+        }
+
+        // Studenten und vorhandene Erfassungen: je eine Abfrage pro Formular, Status kommen aus dem Speicher.
+        selectsNeu.forEach(anzahl -> assertEquals(2, anzahl));
+        selectsUpdate.forEach(anzahl -> assertEquals(2, anzahl));
+        assertEquals(255, erfassungRepository.count());
+    }
+
+    private int messen(List<ErfassungDTO> dtos, int groesse, String art) {
+        SqlZaehler.zuruecksetzen();
+        long start = System.nanoTime();
+        erfassungService.erfassenAnwesenheiten(dtos);
+        entityManager.flush();
+        long dauer = System.nanoTime() - start;
+        int selects = SqlZaehler.selects();
+        logger.info("Gruppengröße {} ({}): {} Selects, {} Statements, {} µs",
+                groesse, art, selects, SqlZaehler.statements(), dauer / 1_000);
+        entityManager.clear();
+        return selects;
+    }
+
+    private List<ErfassungDTO> formularFuerNeueGruppe(int groesse, Status status) {
+        Gruppe gruppe = entityManager.persist(new Gruppe("Gruppe " + groesse));
+        List<ErfassungDTO> dtos = new ArrayList<>();
+        for (int i = 0; i < groesse; i++) {
+            Studenten student = entityManager.persist(new Studenten("Name" + i, "Vorname" + i, gruppe));
+            ErfassungDTO dto = new ErfassungDTO();
+            dto.setStudentenId(student.getId());
+            dto.setStatusId(status.getId());
+            dtos.add(dto);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return dtos;
+    }
+}
@@ -0,0 +1,251 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.ErfassungApplication;
+import com.art.erfassung.dto.ErfassungExportZeile;
+import com.art.erfassung.dto.ExportFormat;
+import com.art.erfassung.service.ErfassungExportService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Speichertest des Exports.
+ * <p>
+ * Ein eigener Prozess mit festem Heap exportiert Zeilen als CSV und als XLSX in einen zählenden Ausgabestrom.
+ * Jede Zeile hat eigene Texte, damit ein Zwischenspeicher je Zeile oder je Text den Heap sprengen würde.
+ * </p>
+ * <ul>
+ *     <li>{@value #ZEILEN} Zeilen aus einem erzeugten Stream mit {@value #HEAP} Heap prüfen das Schreiben.</li>
+ *     <li>{@value #DB_ZEILEN} Zeilen aus einer H2-Datei mit {@value #DB_HEAP} Heap prüfen den Weg über den Cursor von
+ *         {@code ErfassungRepository#streamExport} mit seiner Fetch Size. Als Liste geladen würden die Zeilen den
+ *         Heap übersteigen; zusätzlich darf der belegte Heap nach einer Speicherbereinigung während des Exports um
+ *         höchstens {@value #DB_MAX_ZUWACHS_MB} MB über dem Stand vor dem Export liegen.</li>
+ * </ul>
+ */
+public class ErfassungExportSpeicherTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungExportSpeicherTest.class);
+
+    private static final String HEAP = "64m";
+    private static final long ZEILEN = 5_000_000;
+
+    private static final String DB_HEAP = "128m";
+    private static final int DB_STUDENTEN = 1_000;
+    private static final int DB_TAGE = 400;
+    private static final long DB_ZEILEN = (long) DB_STUDENTEN * DB_TAGE;
+    private static final long DB_MAX_ZUWACHS_MB = 32;
+    private static final LocalDate DB_START = LocalDate.of(2020, 1, 1);
+
+    // Präfix der Ergebniszeilen, die der Kindprozess auf stdout schreibt
+    private static final String ERGEBNIS = "ERGEBNIS;";
+
+    /**
+     * Ergebnis eines Formats im Kindprozess.
+     *
+     * @param format     das Dateiformat
+     * @param zeilen     Anzahl der exportierten Zeilen
+     * @param zuwachsMb  höchster belegter Heap während des Exports über dem Stand davor, nur beim Export aus der
+     *                   Datenbank gemessen
+     */
+    private record Ergebnis(ExportFormat format, long zeilen, long zuwachsMb) {
+
+        static Ergebnis parsen(String zeile) {
+            String[] felder = zeile.substring(ERGEBNIS.length()).split(";");
+            return new Ergebnis(ExportFormat.valueOf(felder[0]), Long.parseLong(felder[1]), Long.parseLong(felder[2]));
+        }
+
+        String formatieren() {
+            return ERGEBNIS + format + ";" + zeilen + ";" + zuwachsMb;
+        }
+    }
+
+    @Test
+    public void testExport_FuenfMillionenZeilenMitFestemHeap() throws Exception {
+        // Act
+        List<Ergebnis> ergebnisse = kindprozess(HEAP, "stream", String.valueOf(ZEILEN));
+
+        // Assert
+        assertEquals(ExportFormat.values().length, ergebnisse.size());
+        for (Ergebnis ergebnis : ergebnisse) {
+            assertEquals(ZEILEN, ergebnis.zeilen(), ergebnis.format().name());
+        }
+    }
+
+    @Test
+    public void testExport_AusDatenbankUeberCursorMitFestemHeap(@TempDir Path verzeichnis) throws Exception {
+        // Act
+        List<Ergebnis> ergebnisse = kindprozess(DB_HEAP, "datenbank", verzeichnis.resolve("export").toString());
+
+        // Assert
+        assertEquals(ExportFormat.values().length, ergebnisse.size());
+        for (Ergebnis ergebnis : ergebnisse) {
+            assertEquals(DB_ZEILEN, ergebnis.zeilen(), ergebnis.format().name());
+            assertTrue(ergebnis.zuwachsMb() <= DB_MAX_ZUWACHS_MB,
+                    ergebnis.format() + ": Heap um " + ergebnis.zuwachsMb() + " MB gewachsen");
+        }
+    }
+
+    /**
+     * Startet den Kindprozess, prüft seinen Exit-Code und liefert seine Ergebniszeilen.
+     */
+    private static List<Ergebnis> kindprozess(String heap, String... args) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<String> befehl = new ArrayList<>(List.of(java, "-Xmx" + heap, "-cp", System.getProperty("java.class.path"),
+                ErfassungExportSpeicherTest.class.getName()));
+        befehl.addAll(Arrays.asList(args));
+        Process export = new ProcessBuilder(befehl).redirectErrorStream(true).start();
+        String ausgabe = new String(export.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(export.waitFor(10, TimeUnit.MINUTES));
+
+        logger.info("Export {} mit -Xmx{}:\n{}", args[0], heap, ausgabe.strip());
+        assertEquals(0, export.exitValue(), ausgabe);
+        return ausgabe.lines().filter(zeile -> zeile.startsWith(ERGEBNIS)).map(Ergebnis::parsen).toList();
+    }
+
+    /**
+     * Einstiegspunkt des Kindprozesses: exportiert in beiden Formaten.
+     * <p>
+     * Der Kindprozess meldet je Format eine Zeile mit dem Präfix {@value #ERGEBNIS} auf stdout, dem einzigen Kanal
+     * zum Test; Messwerte für das Protokoll stehen in weiteren Zeilen.
+     * </p>
+     *
+     * @param args "stream" und die Anzahl der Zeilen oder "datenbank" und der Pfad der H2-Datei
+     * @throws IOException wenn der Export fehlschlägt
+     */
+    public static void main(String[] args) throws IOException {
+        if (args[0].equals("datenbank")) {
+            ausDatenbank(args[1]);
+        } else {
+            ausStream(Long.parseLong(args[1]));
+        }
+    }
+
+    private static void ausStream(long anzahl) throws IOException {
+        ErfassungExportService exportService = new ErfassungExportService(null);
+        for (ExportFormat format : ExportFormat.values()) {
+            long start = System.nanoTime();
+            ZaehlenderStrom out = new ZaehlenderStrom();
+            long zeilen = exportService.schreiben(zeilen(anzahl), format, out);
+            protokollieren(format, out, start);
+            System.out.println(new Ergebnis(format, zeilen, 0).formatieren());
+        }
+    }
+
+    private static void ausDatenbank(String datei) throws IOException {
+        // Die DevTools würden main in einem eigenen Thread ohne Argumente neu starten.
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ErfassungApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=test",
+                        "--spring.datasource.url=jdbc:h2:file:" + datei,
+                        "--logging.level.root=error",
+                        "--logging.level.com.art.erfassung=warn");
+        try {
+            befuellen(context.getBean(JdbcTemplate.class));
+            ErfassungExportService exportService = context.getBean(ErfassungExportService.class);
+            MemoryMXBean speicher = ManagementFactory.getMemoryMXBean();
+            for (ExportFormat format : ExportFormat.values()) {
+                System.gc();
+                long vorher = speicher.getHeapMemoryUsage().getUsed();
+                long[] spitze = {0};
+                long start = System.nanoTime();
+                ZaehlenderStrom out = new ZaehlenderStrom();
+                long zeilen = exportService.exportieren(DB_START, DB_START.plusDays(DB_TAGE), null, format, out,
+                        gelesen -> {
+                            System.gc();
+                            spitze[0] = Math.max(spitze[0], speicher.getHeapMemoryUsage().getUsed() - vorher);
+                        });
+                protokollieren(format, out, start);
+                System.out.println(new Ergebnis(format, zeilen, spitze[0] / 1_048_576).formatieren());
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace(System.out);
+            SpringApplication.exit(context);
+            System.exit(1);
+        }
+        // Die Hintergrund-Threads der Anwendung würden den Prozess sonst am Leben halten.
+        System.exit(SpringApplication.exit(context));
+    }
+
+    /**
+     * Legt {@value #DB_STUDENTEN} Studenten mit je {@value #DB_TAGE} Erfassungen an. Die Zeilen werden in der
+     * Datenbank erzeugt, damit sie nicht den Heap des Kindprozesses belegen.
+     */
+    private static void befuellen(JdbcTemplate jdbc) {
+        jdbc.update("insert into status (id, bezeichnung) values (1, 'Anwesend'), (2, 'Krank')");
+        jdbc.update("insert into gruppe (id, bezeichnung) select x, 'Gruppe ' || x from system_range(1, 40)");
+        jdbc.update("insert into studenten (id, name, vorname, gruppe_id) "
+                + "select x, 'Name' || x, 'Vorname' || x, mod(x, 40) + 1 from system_range(1, ?)", DB_STUDENTEN);
+        for (int tag = 0; tag < DB_TAGE; tag += 50) {
+            jdbc.update("insert into erfassung (id, studenten_id, datum, status_id, kommentar, ankunftszeit, "
+                    + "verspaetung_minuten, version) "
+                    + "select d.x * " + DB_STUDENTEN + " + s.x, s.x, dateadd(day, d.x, cast(? as date)), "
+                    + "case when mod(s.x + d.x, 10) = 0 then 2 else 1 end, "
+                    + "case when mod(s.x + d.x, 7) = 0 then 'Kommentar zur Erfassung ' || (d.x * " + DB_STUDENTEN
+                    + " + s.x) end, null, null, 0 "
+                    + "from system_range(1, ?) s cross join system_range(?, ?) d",
+                    DB_START, DB_STUDENTEN, tag, Math.min(tag + 50, DB_TAGE) - 1);
+        }
+    }
+
+    private static void protokollieren(ExportFormat format, ZaehlenderStrom out, long start) {
+        Runtime runtime = Runtime.getRuntime();
+        System.out.println(format + ": " + out.bytes / 1_048_576 + " MB in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms, Heap belegt "
+                + (runtime.totalMemory() - runtime.freeMemory()) / 1_048_576 + " MB von "
+                + runtime.maxMemory() / 1_048_576 + " MB");
+    }
+
+    private static Stream<ErfassungExportZeile> zeilen(long anzahl) {
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        return LongStream.range(0, anzahl).mapToObj(i -> {
+            int student = (int) (i % 5_000);
+            LocalTime ankunft = i % 4 == 0 ? LocalTime.of(7, 30).plusMinutes(i % 60) : null;
+            return new ErfassungExportZeile(start.plusDays(i / 5_000), "Gruppe " + student / 25, student,
+                    "Name" + i, "Vorname" + i, i % 10 == 0 ? "Krank" : "Anwesend", ankunft,
+                    ankunft != null && ankunft.isAfter(LocalTime.of(8, 0)) ? (int) (i % 60) - 30 : null,
+                    i % 7 == 0 ? "Kommentar zur Erfassung " + i : null);
+        });
+    }
+
+    /**
+     * Ausgabestrom, der die geschriebenen Bytes nur zählt.
+     */
+    private static class ZaehlenderStrom extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
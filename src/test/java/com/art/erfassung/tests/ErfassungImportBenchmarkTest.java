@@ -0,0 +1,124 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Status;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.ErfassungImportService;
+import com.art.erfassung.service.ErfassungImportService.ImportErgebnis;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark des Massenimports.
+ * <p>
+ * Importiert eine Übernahme aus einem Fremdsystem mit {@value #STUDENTEN} neuen Studenten in {@value #GRUPPEN}
+ * neuen Gruppen und je {@value #TAGE} Tagen Historie. Gemessen werden die Zeilen je Sekunde einschließlich
+ * CSV-Verarbeitung, Anlegen der Studenten und Fortschreiben der Anwesenheitszähler; gefordert sind mindestens
+ * {@value #MINDESTRATE} Zeilen je Sekunde.
+ * </p>
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ErfassungImportBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungImportBenchmarkTest.class);
+
+    private static final int GRUPPEN = 40;
+    private static final int STUDENTEN = 2_000;
+    private static final int TAGE = 100;
+    private static final int MINDESTRATE = 4_000;
+
+    @Autowired
+    private ErfassungImportService importService;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private List<Status> status;
+
+    @BeforeEach
+    public void setup() {
+        status = statusRepository.saveAll(List.of(new Status("Präsent"), new Status("Entschuldigt")));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAllInBatch();
+        erfassungRepository.deleteAllInBatch();
+        studentenRepository.deleteAllInBatch();
+        statusRepository.deleteAll(status);
+        gruppeRepository.deleteAll(gruppeRepository.findAll().stream()
+                .filter(g -> g.getBezeichnung().startsWith("Übernahme ")).toList());
+        referenzdatenRegistry.neuLaden();
+    }
+
+    @Test
+    public void testBenchmark_ZeilenJeSekunde() throws Exception {
+        // Arrange: nach Datum sortiert wie ein Export des Altsystems
+        StringBuilder csv = new StringBuilder("Datum;Gruppe;Name;Vorname;Status;Ankunftszeit;Kommentar\n");
+        LocalDate start = LocalDate.of(2024, 9, 2);
+        for (int tag = 0; tag < TAGE; tag++) {
+            LocalDate datum = start.plusDays(tag);
+            for (int s = 0; s < STUDENTEN; s++) {
+                boolean fehlt = (s + tag) % 10 == 0;
+                csv.append(datum).append(";Übernahme ").append(s % GRUPPEN).append(";Name").append(s)
+                        .append(";Vorname").append(s).append(';').append(fehlt ? "Entschuldigt" : "Präsent")
+                        .append(';').append(fehlt ? "" : "07:" + (45 + (s + tag) % 30 / 2))
+                        .append(';').append(fehlt ? "Attest" : "").append('\n');
+            }
+        }
+        byte[] datei = csv.toString().getBytes(StandardCharsets.UTF_8);
+        int zeilen = STUDENTEN * TAGE;
+
+        // Act
+        ImportErgebnis ergebnis = importService.importieren(new ByteArrayInputStream(datei));
+
+        // Assert
+        logger.info("Import von {} Zeilen ({} MB): {} ms, {} Zeilen/s", zeilen, datei.length / 1_048_576,
+                ergebnis.dauerMs(), ergebnis.zeilenJeSekunde());
+        assertEquals(zeilen, ergebnis.zeilen());
+        assertEquals(GRUPPEN, ergebnis.gruppenAngelegt());
+        assertEquals(STUDENTEN, ergebnis.studentenAngelegt());
+        assertEquals(zeilen, ergebnis.erfassungenAngelegt());
+        assertEquals(0, ergebnis.fehlerhaft());
+        assertEquals(zeilen, erfassungRepository.count());
+        assertTrue(ergebnis.zeilenJeSekunde() >= MINDESTRATE, "Nur " + ergebnis.zeilenJeSekunde() + " Zeilen/s");
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+}
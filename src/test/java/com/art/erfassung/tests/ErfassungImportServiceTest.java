@@ -0,0 +1,274 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.ErfassungsTag;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.ErfassungImportService;
+import com.art.erfassung.service.ErfassungImportService.ImportErgebnis;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.RosterCache;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für den Massenimport über den {@link ErfassungImportService}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ErfassungImportServiceTest {
+
+    private static final String KOPF =
+            "\uFEFFDatum;Gruppe;Studenten-ID;Name;Vorname;Status;Ankunftszeit;Verspätung (Minuten);Kommentar\r\n";
+
+    @Autowired
+    private ErfassungImportService importService;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private GruppenSperren gruppenSperren;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RosterCache rosterCache;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    @Autowired
+    private ErfassungsTagRepository erfassungsTagRepository;
+
+    private Gruppe vorhandeneGruppe;
+    private Studenten vorhandenerStudent;
+    private Status praesent;
+    private Status entschuldigt;
+
+    @BeforeEach
+    public void setup() {
+        vorhandeneGruppe = gruppeRepository.save(new Gruppe("Import Gruppe A"));
+        vorhandenerStudent = studentenRepository.save(new Studenten("Musterfrau", "Anna", vorhandeneGruppe));
+        praesent = statusRepository.save(new Status("Präsent"));
+        entschuldigt = statusRepository.save(new Status("Entschuldigt"));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAllInBatch();
+        erfassungsTagRepository.deleteAllInBatch();
+        erfassungRepository.deleteAllInBatch();
+        studentenRepository.deleteAllInBatch();
+        statusRepository.deleteAll(List.of(praesent, entschuldigt));
+        gruppeRepository.deleteAll(gruppeRepository.findAll().stream()
+                .filter(g -> g.getBezeichnung().startsWith("Import ")).toList());
+        referenzdatenRegistry.neuLaden();
+    }
+
+    @Test
+    public void testImport_LegtGruppenStudentenUndErfassungenAn() throws Exception {
+        // Arrange: Anna ist vorhanden, Max und die Gruppe B sind neu; zwei Zeilen sind fehlerhaft
+        String csv = KOPF
+                + "2025-02-03;Import Gruppe A;;Musterfrau;Anna;präsent;08:15;;\r\n"
+                + "03.02.2025;Import Gruppe B;;Mustermann;Max;Entschuldigt;;;\"'=Attest; \"\"Arzt\"\"\nfolgt\"\r\n"
+                + "2025-02-04;Import Gruppe B;;Mustermann;Max;Präsent;;;\r\n"
+                + ";Import Gruppe B;;Beispiel;Lena;;;;\r\n"
+                + "2025-02-04;Import Gruppe A;" + vorhandenerStudent.getId() + ";;;Krankgeschrieben;;;\r\n"
+                + "2025-02-30;Import Gruppe A;;Musterfrau;Anna;Präsent;;;\r\n";
+
+        // Act
+        ImportErgebnis ergebnis = importieren(csv);
+
+        // Assert
+        assertEquals(6, ergebnis.zeilen());
+        assertEquals(1, ergebnis.gruppenAngelegt());
+        assertEquals(2, ergebnis.studentenAngelegt());
+        assertEquals(3, ergebnis.erfassungenAngelegt());
+        assertEquals(0, ergebnis.uebersprungen());
+        assertEquals(2, ergebnis.fehlerhaft());
+        assertFalse(ergebnis.abgebrochen());
+        assertEquals("Zeile 7: Status \"Krankgeschrieben\" ist unbekannt", ergebnis.fehler().get(0));
+        assertTrue(ergebnis.fehler().get(1).startsWith("Zeile 8:"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Erfassung anna = erfassungRepository.findByStudenten_IdAndDatum(vorhandenerStudent.getId(),
+                    LocalDate.of(2025, 2, 3)).orElseThrow();
+            assertEquals(praesent.getId(), anna.getStatus().getId());
+            assertEquals(LocalTime.of(8, 15), anna.getAnkunftszeit());
+            assertEquals(15, anna.getVerspaetungMinuten());
+            assertEquals(0, anna.getVersion());
+
+            Studenten max = studentenRepository.findAll().stream()
+                    .filter(s -> s.getName().equals("Mustermann")).findFirst().orElseThrow();
+            assertEquals("Import Gruppe B", max.getGruppe().getBezeichnung());
+            Erfassung attest = erfassungRepository.findByStudenten_IdAndDatum(max.getId(), LocalDate.of(2025, 2, 3))
+                    .orElseThrow();
+            assertEquals("=Attest; \"Arzt\"\nfolgt", attest.getKommentar());
+            assertEquals(2, erfassungRepository.findByStudenten_id(max.getId()).size());
+            assertTrue(studentenRepository.findAll().stream().anyMatch(s -> s.getVorname().equals("Lena")));
+        });
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testImport_ErneutGestartetUeberspringtGespeicherteAbschnitte() throws Exception {
+        // Arrange: Abschnitte von drei Zeilen; der erste Lauf endet nach vier von zehn Tagen, wie nach einem Abbruch
+        ErfassungImportService kleineAbschnitte = new ErfassungImportService(entityManager, transactionTemplate,
+                eventPublisher, referenzdatenRegistry, rosterCache, gruppenSperren, gruppeRepository,
+                studentenRepository, erfassungRepository, erfassungsTagRepository, 3, 1000);
+        StringBuilder csv = new StringBuilder(KOPF);
+        for (int tag = 1; tag <= 10; tag++) {
+            csv.append("2025-03-").append(String.format("%02d", tag)).append(";Import Gruppe A;;Neu;Nina;Präsent;;;\r\n");
+        }
+        String[] zeilen = csv.toString().split("\r\n");
+        String teil = String.join("\r\n", List.of(zeilen).subList(0, 5)) + "\r\n";
+        importieren(kleineAbschnitte, teil);
+
+        // Act
+        ImportErgebnis ergebnis = importieren(kleineAbschnitte, csv.toString());
+
+        // Assert
+        assertEquals(10, ergebnis.zeilen());
+        assertEquals(0, ergebnis.studentenAngelegt());
+        assertEquals(6, ergebnis.erfassungenAngelegt());
+        assertEquals(4, ergebnis.uebersprungen());
+        assertEquals(11, ergebnis.gespeichertBisZeile());
+        assertEquals(10, erfassungRepository.count());
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testImport_WartetAufGruppensperre() throws Exception {
+        // Arrange: ein gleichzeitiges Speichern hält die Sperre der Gruppe
+        CountDownLatch gesperrt = new CountDownLatch(1);
+        CountDownLatch freigeben = new CountDownLatch(1);
+        CompletableFuture<Void> speichern = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    gruppenSperren.sperrenBisTransaktionsende(Set.of(vorhandeneGruppe.getId()));
+                    gesperrt.countDown();
+                    try {
+                        freigeben.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(gesperrt.await(10, TimeUnit.SECONDS));
+        String csv = KOPF + "2025-03-03;;" + vorhandenerStudent.getId() + ";;;Präsent;;;\r\n";
+
+        // Act
+        CompletableFuture<ImportErgebnis> importiert = CompletableFuture.supplyAsync(() -> {
+            try {
+                return importieren(csv);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(300);
+        boolean vorFreigabeFertig = importiert.isDone();
+        long vorFreigabeGespeichert = erfassungRepository.count();
+        freigeben.countDown();
+        speichern.get(10, TimeUnit.SECONDS);
+        ImportErgebnis ergebnis = importiert.get(10, TimeUnit.SECONDS);
+
+        // Assert
+        assertFalse(vorFreigabeFertig);
+        assertEquals(0, vorFreigabeGespeichert);
+        assertEquals(1, ergebnis.erfassungenAngelegt());
+        assertEquals(1, erfassungRepository.count());
+    }
+
+    @Test
+    public void testImport_ErsetztAnMarkiertenTagenDasAngenommeneAnwesend() throws Exception {
+        // Arrange: Anna ist seit jeher Mitglied und gilt am markierten Tag ohne Erfassung als anwesend
+        Status anwesend = statusRepository.save(new Status(Status.ANWESEND));
+        vorhandenerStudent.setGruppeSeit(null);
+        studentenRepository.save(vorhandenerStudent);
+        LocalDate tag = LocalDate.of(2025, 3, 3);
+        erfassungsTagRepository.save(new ErfassungsTag(vorhandeneGruppe.getId(), tag));
+        referenzdatenRegistry.neuLaden();
+        anwesenheitZaehlerService.neuAufbauen();
+        String csv = KOPF
+                + "2025-03-03;;" + vorhandenerStudent.getId() + ";;;Entschuldigt;;;\r\n"
+                + "2025-03-03;Import Gruppe A;;Neu;Nina;Entschuldigt;;;\r\n";
+
+        try {
+            // Act
+            ImportErgebnis ergebnis = importieren(csv);
+
+            // Assert: Annas Anwesenheit wird ersetzt; Nina war am Tag noch kein Mitglied und war nie anwesend
+            assertEquals(2, ergebnis.erfassungenAngelegt());
+            assertEquals(List.of(new StatusAnzahl("Entschuldigt", 1, 0, 0)),
+                    zaehlerRepository.findStandByStudentId(vorhandenerStudent.getId()));
+            assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+        } finally {
+            zaehlerRepository.deleteAllInBatch();
+            statusRepository.delete(anwesend);
+        }
+    }
+
+    @Test
+    public void testImport_KopfzeileOhneStudentenspalten() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> importieren("Datum;Status\r\n2025-03-03;Präsent\r\n"));
+    }
+
+    private ImportErgebnis importieren(String csv) throws Exception {
+        return importieren(importService, csv);
+    }
+
+    private static ImportErgebnis importieren(ErfassungImportService service, String csv) throws Exception {
+        return service.importieren(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+}
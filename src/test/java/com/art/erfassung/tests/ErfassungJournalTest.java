@@ -0,0 +1,101 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.service.ErfassungJournal;
+import com.art.erfassung.service.ErfassungJournal.Eintrag;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link ErfassungJournal}.
+ */
+public class ErfassungJournalTest {
+
+    private static final LocalDate DATUM = LocalDate.of(2024, 3, 4);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path verzeichnis;
+
+    @Test
+    public void testOffeneEintraegeNachCheckpoint() throws Exception {
+        // Arrange
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            journal.anhaengen(DATUM, 1, List.of(dto(10, 1)));
+            journal.anhaengen(DATUM, 1, List.of(dto(10, 4)));
+            journal.anhaengen(DATUM, 2, List.of(dto(20, 1)));
+            journal.bestaetigen(1);
+        }
+
+        // Act
+        List<Eintrag> offen;
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            offen = journal.offeneEintraegeUebernehmen();
+        }
+
+        // Assert
+        assertEquals(List.of(2L, 3L), offen.stream().map(Eintrag::sequenz).toList());
+        assertEquals(4, offen.get(0).eintraege().get(0).getStatusId());
+        assertEquals(DATUM, offen.get(0).datum());
+    }
+
+    @Test
+    public void testUnvollstaendigeLetzteZeileWirdAbgeschnitten() throws Exception {
+        // Arrange
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            journal.anhaengen(DATUM, 1, List.of(dto(10, 1)));
+        }
+        Path datei = verzeichnis.resolve("erfassung-journal.log");
+        long gueltig = Files.size(datei);
+        Files.writeString(datei, "1a2b {\"sequenz\":2,\"dat", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // Act
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            List<Eintrag> offen = journal.offeneEintraegeUebernehmen();
+            Eintrag neu = journal.anhaengen(DATUM, 1, List.of(dto(11, 1)));
+
+            // Assert
+            assertEquals(1, offen.size());
+            assertEquals(2, neu.sequenz());
+        }
+        assertTrue(Files.size(datei) > gueltig);
+    }
+
+    @Test
+    public void testVollstaendigBestaetigtLeertJournal() throws Exception {
+        // Arrange
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            journal.anhaengen(DATUM, 1, List.of(dto(10, 1)));
+            journal.anhaengen(DATUM, 1, List.of(dto(11, 1)));
+
+            // Act
+            journal.bestaetigen(2);
+        }
+
+        // Assert
+        assertEquals(0, Files.size(verzeichnis.resolve("erfassung-journal.log")));
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            assertTrue(journal.offeneEintraegeUebernehmen().isEmpty());
+            // Die Sequenz wird über den Checkpoint fortgesetzt
+            assertEquals(3, journal.anhaengen(DATUM, 1, List.of(dto(12, 1))).sequenz());
+        }
+    }
+
+    private static ErfassungDTO dto(int studentenId, int statusId) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(studentenId);
+        dto.setStatusId(statusId);
+        return dto;
+    }
+}
@@ -0,0 +1,82 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungListeDTO;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prüft, dass die Monatsliste einer Gruppe mit genau einem SQL-Statement gelesen wird.
+ */
+@DataJpaTest(properties = SqlZaehler.PROPERTY)
+@ActiveProfiles("test")
+@Import({ErfassungService.class, GruppenSperren.class, ReferenzdatenRegistry.class})
+public class ErfassungListeAbfrageTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Test
+    public void testFindListeByGruppeUndMonat_EinStatementOhneLazyLoading() {
+        // Arrange
+        Gruppe gruppe = entityManager.persist(new Gruppe("Gruppe A"));
+        Gruppe andereGruppe = entityManager.persist(new Gruppe("Gruppe B"));
+        Status anwesend = entityManager.persist(new Status("Anwesend"));
+        Status krank = entityManager.persist(new Status("Krank"));
+        Studenten anna = entityManager.persist(new Studenten("Musterfrau", "Anna", gruppe));
+        Studenten max = entityManager.persist(new Studenten("Mustermann", "Max", gruppe));
+        Studenten fremd = entityManager.persist(new Studenten("Fremd", "Fritz", andereGruppe));
+        for (int tag = 1; tag <= 20; tag++) {
+            LocalDate datum = LocalDate.of(2024, 3, tag);
+            entityManager.persist(new Erfassung(anna, datum, anwesend, null));
+            entityManager.persist(new Erfassung(max, datum, tag % 5 == 0 ? krank : anwesend, "Tag " + tag));
+            entityManager.persist(new Erfassung(fremd, datum, anwesend, null));
+        }
+        entityManager.persist(new Erfassung(anna, LocalDate.of(2024, 4, 1), anwesend, null));
+        entityManager.flush();
+        entityManager.clear();
+        SqlZaehler.zuruecksetzen();
+
+        // Act
+        List<ErfassungListeDTO> liste = erfassungService.findListeByGruppeUndMonat(
+                gruppe.getId(), LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+        // Alle Felder lesen, die die Listenansicht benötigt
+        liste.forEach(dto -> {
+            assertNotNull(dto.getStudentenId());
+            assertNotNull(dto.getStatusBezeichnung());
+            assertNotNull(dto.getStudentenName());
+        });
+
+        // Assert
+        assertEquals(1, SqlZaehler.statements());
+        assertEquals(40, liste.size());
+        ErfassungListeDTO krankMax = liste.stream()
+                .filter(dto -> dto.getStudentenId().equals(max.getId()) && dto.getDatum().getDayOfMonth() == 5)
+                .findFirst().orElseThrow();
+        assertEquals("Max Mustermann", krankMax.getStudentenName());
+        assertEquals("Krank", krankMax.getStatusBezeichnung());
+        assertEquals(krank.getId(), krankMax.getStatusId());
+        assertEquals("Tag 5", krankMax.getKommentar());
+        assertEquals(LocalDate.of(2024, 3, 20),
+                liste.stream().map(ErfassungListeDTO::getDatum).max(Comparator.naturalOrder()).orElseThrow());
+    }
+}
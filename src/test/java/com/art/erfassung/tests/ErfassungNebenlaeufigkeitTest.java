@@ -0,0 +1,249 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.ErfassungStand;
+import com.art.erfassung.error.ErfassungKonfliktException;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Belastungstests für gleichzeitiges Speichern von Erfassungen.
+ * <p>
+ * Je Test speichern 64 Threads gleichzeitig. Innerhalb einer Instanz ordnen die {@link GruppenSperren} die
+ * Einreichungen derselben Gruppe nacheinander an. Für Änderungen mit Versionsprüfung wird zusätzlich eine zweite
+ * {@link ErfassungService} Instanz mit eigenen Sperren verwendet, wie eine zweite Anwendungsinstanz auf derselben
+ * Datenbank; Konflikte zwischen den Instanzen löst nur die Datenbank über den eindeutigen Schlüssel und die
+ * Versionsspalte auf.
+ * </p>
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ErfassungNebenlaeufigkeitTest {
+
+    private static final int THREADS = 64;
+    private static final LocalDate DATUM = LocalDate.of(2025, 3, 3);
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private ErfassungsTagRepository erfassungsTagRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    // Zweite Instanz mit eigenen Sperren
+    private ErfassungService zweiteInstanz;
+
+    private Gruppe gruppeA;
+    private Gruppe gruppeB;
+    private final List<Studenten> studenten = new ArrayList<>();
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        zweiteInstanz = new ErfassungService(erfassungRepository, referenzdatenRegistry, studentenRepository,
+                new GruppenSperren(), transactionManager, eventPublisher, erfassungsTagRepository, false);
+        gruppeA = gruppeRepository.save(new Gruppe("Gruppe A"));
+        gruppeB = gruppeRepository.save(new Gruppe("Gruppe B"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        for (int i = 0; i < 8; i++) {
+            studenten.add(studentenRepository.save(new Studenten("Student" + i, "Vorname" + i, i < 4 ? gruppeA : gruppeB)));
+        }
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(studenten);
+        studenten.clear();
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.deleteAll(List.of(gruppeA, gruppeB));
+    }
+
+    @Test
+    public void testGleichzeitigeEinreichungen_KeineDuplikate() throws Exception {
+        // Arrange: jeder Thread speichert mehrmals das vollständige Formular einer Gruppe ohne Versionsprüfung
+        List<Callable<Void>> aufgaben = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            List<Studenten> gruppe = (t % 2 == 0) ? studenten.subList(0, 4) : studenten.subList(4, 8);
+            aufgaben.add(() -> {
+                for (int runde = 0; runde < 5; runde++) {
+                    List<ErfassungDTO> dtos = new ArrayList<>();
+                    for (Studenten student : gruppe) {
+                        Status status = ThreadLocalRandom.current().nextBoolean() ? anwesend : krank;
+                        dtos.add(dto(student, status, null, null));
+                    }
+                    erfassungService.erfassenAnwesenheiten(dtos, DATUM);
+                }
+                return null;
+            });
+        }
+
+        // Act
+        gleichzeitigAusfuehren(aufgaben);
+
+        // Assert
+        assertEquals(studenten.size(), erfassungRepository.count());
+        for (Studenten student : studenten) {
+            assertTrue(erfassungRepository.findByStudenten_IdAndDatum(student.getId(), DATUM).isPresent());
+        }
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testGleichzeitigeAenderungen_KeineVerloreneAenderung() throws Exception {
+        // Arrange: jeder Thread erhöht dreimal den Zähler im Kommentar eines Studenten mit Versionsprüfung
+        int erhoehungenJeThread = 3;
+        int studentenAnzahl = 4;
+        AtomicInteger konflikte = new AtomicInteger();
+        List<Callable<Void>> aufgaben = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            ErfassungService instanz = (t % 2 == 0) ? erfassungService : zweiteInstanz;
+            Studenten student = studenten.get((t % studentenAnzahl) * 2);
+            aufgaben.add(() -> {
+                int erfolgreich = 0;
+                while (erfolgreich < erhoehungenJeThread) {
+                    ErfassungStand stand = standVon(student);
+                    int zaehler = stand == null ? 0 : Integer.parseInt(stand.kommentar());
+                    Integer version = stand == null ? ErfassungDTO.KEINE_ERFASSUNG : stand.version();
+                    Status status = (zaehler % 2 == 0) ? krank : anwesend;
+                    try {
+                        instanz.erfassenAnwesenheiten(
+                                List.of(dto(student, status, String.valueOf(zaehler + 1), version)), DATUM);
+                        erfolgreich++;
+                    } catch (ErfassungKonfliktException | OptimisticLockingFailureException e) {
+                        konflikte.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        // Act
+        gleichzeitigAusfuehren(aufgaben);
+
+        // Assert
+        int erwartet = THREADS / studentenAnzahl * erhoehungenJeThread;
+        for (int i = 0; i < studentenAnzahl; i++) {
+            Erfassung erfassung = erfassungRepository
+                    .findByStudenten_IdAndDatum(studenten.get(i * 2).getId(), DATUM).orElseThrow();
+            assertEquals(String.valueOf(erwartet), erfassung.getKommentar());
+            assertEquals(erwartet - 1, erfassung.getVersion());
+        }
+        assertEquals(studentenAnzahl, erfassungRepository.count());
+        assertTrue(konflikte.get() > 0, "Die Threads sollten sich gegenseitig überholt haben");
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testDoppelteErfassung_WirdVonDatenbankAbgewiesen() {
+        // Arrange
+        Studenten student = studenten.get(0);
+        erfassungRepository.saveAndFlush(new Erfassung(student, DATUM, anwesend, null));
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class,
+                () -> erfassungRepository.saveAndFlush(new Erfassung(student, DATUM, krank, null)));
+    }
+
+    private ErfassungStand standVon(Studenten student) {
+        return erfassungService.findStandByGruppeUndDatum(student.getGruppe().getId(), DATUM).stream()
+                .filter(stand -> stand.studentenId().equals(student.getId()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static void gleichzeitigAusfuehren(List<Callable<Void>> aufgaben) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(aufgaben.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> ergebnisse = new ArrayList<>();
+            for (Callable<Void> aufgabe : aufgaben) {
+                ergebnisse.add(executor.submit(() -> {
+                    start.await();
+                    return aufgabe.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> ergebnis : ergebnisse) {
+                // Wirft die Ausnahme eines Threads erneut, z. B. einen nicht aufgelösten Schreibkonflikt
+                ergebnis.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status, String kommentar, Integer version) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        dto.setKommentar(kommentar);
+        dto.setVersion(version);
+        return dto;
+    }
+}
@@ -1,23 +1,38 @@
 package com.art.erfassung.tests;
 
 import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.error.ErfassungKonfliktException;
+import com.art.erfassung.event.ErfassungenGespeichertEvent;
+import com.art.erfassung.event.ErfassungsAenderung;
 import com.art.erfassung.model.Erfassung;
 import com.art.erfassung.model.Gruppe;
 import com.art.erfassung.model.Status;
 import com.art.erfassung.model.Studenten;
 import com.art.erfassung.repository.ErfassungRepository;
-import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
 import com.art.erfassung.repository.StudentenRepository;
 import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,11 +47,23 @@ public class ErfassungServiceTest {
     private ErfassungRepository erfassungRepository;
 
     @Mock
-    private StatusRepository statusRepository;
+    private ReferenzdatenRegistry referenzdatenRegistry;
 
     @Mock
     private StudentenRepository studentenRepository;
 
+    @Mock
+    private ErfassungsTagRepository erfassungsTagRepository;
+
+    @Mock
+    private GruppenSperren gruppenSperren;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private ErfassungService erfassungService;
 
     private Gruppe testGruppe;
@@ -46,7 +73,8 @@ public class ErfassungServiceTest {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        erfassungService = new ErfassungService(erfassungRepository, statusRepository, studentenRepository);
+        erfassungService = new ErfassungService(erfassungRepository, referenzdatenRegistry, studentenRepository,
+                gruppenSperren, transactionManager, eventPublisher, erfassungsTagRepository, false);
 
         // Setup test data
         testGruppe = new Gruppe("Test Gruppe");
@@ -69,10 +97,10 @@ public class ErfassungServiceTest {
         dto.setAnkunftszeit("08:30");
         dto.setKommentar("Test Kommentar");
 
-        when(studentenRepository.findById(1)).thenReturn(Optional.of(testStudent));
-        when(statusRepository.findById(1)).thenReturn(Optional.of(testStatus));
-        when(erfassungRepository.findByStudenten_IdAndDatum(1, LocalDate.now()))
-                .thenReturn(Optional.empty());
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(1))).thenReturn(List.of(testStudent));
+        when(referenzdatenRegistry.statusReferenz(1)).thenReturn(testStatus);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(1), LocalDate.now()))
+                .thenReturn(List.of());
         when(erfassungRepository.saveAll(any())).thenReturn(Arrays.asList());
 
         // Act
@@ -80,9 +108,9 @@ public class ErfassungServiceTest {
 
         // Assert
         assertEquals(1, result);
-        verify(studentenRepository).findById(1);
-        verify(statusRepository).findById(1);
-        verify(erfassungRepository).findByStudenten_IdAndDatum(1, LocalDate.now());
+        verify(studentenRepository).findAllMitGruppeByIdIn(Set.of(1));
+        verify(referenzdatenRegistry).statusReferenz(1);
+        verify(erfassungRepository).findByStudenten_IdInAndDatum(Set.of(1), LocalDate.now());
         verify(erfassungRepository).saveAll(any());
     }
 
@@ -97,10 +125,10 @@ public class ErfassungServiceTest {
 
         Erfassung existingErfassung = new Erfassung(testStudent, LocalDate.now(), testStatus, "Alter Kommentar");
 
-        when(studentenRepository.findById(1)).thenReturn(Optional.of(testStudent));
-        when(statusRepository.findById(1)).thenReturn(Optional.of(testStatus));
-        when(erfassungRepository.findByStudenten_IdAndDatum(1, LocalDate.now()))
-                .thenReturn(Optional.of(existingErfassung));
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(1))).thenReturn(List.of(testStudent));
+        when(referenzdatenRegistry.statusReferenz(1)).thenReturn(testStatus);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(1), LocalDate.now()))
+                .thenReturn(List.of(existingErfassung));
         when(erfassungRepository.saveAll(any())).thenReturn(Arrays.asList(existingErfassung));
 
         // Act
@@ -108,9 +136,112 @@ public class ErfassungServiceTest {
 
         // Assert
         assertEquals(1, result);
+        assertEquals("Aktualisierter Kommentar", existingErfassung.getKommentar());
+        assertEquals(LocalTime.of(8, 30), existingErfassung.getAnkunftszeit());
+        assertEquals(30, existingErfassung.getVerspaetungMinuten());
         verify(erfassungRepository).saveAll(any());
     }
 
+    @Test
+    public void testErfassenAnwesenheiten_PublishesStatusChange() {
+        // Arrange
+        Status krank = new Status("Krank");
+        krank.setId(4);
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(1);
+        dto.setStatusId(4);
+
+        Erfassung existingErfassung = new Erfassung(testStudent, LocalDate.now(), testStatus, null);
+        existingErfassung.setVerspaetungMinuten(10);
+        existingErfassung.gespeichertenZustandMerken();
+
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(1))).thenReturn(List.of(testStudent));
+        when(referenzdatenRegistry.statusReferenz(4)).thenReturn(krank);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(1), LocalDate.now()))
+                .thenReturn(List.of(existingErfassung));
+
+        // Act
+        erfassungService.erfassenAnwesenheiten(Arrays.asList(dto));
+
+        // Assert
+        ArgumentCaptor<ErfassungenGespeichertEvent> event = ArgumentCaptor.forClass(ErfassungenGespeichertEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(List.of(new ErfassungsAenderung(1, 1, LocalDate.now(), 1, 10, 4, 0)),
+                event.getValue().aenderungen());
+    }
+
+    @Test
+    public void testErfassenAnwesenheiten_UnknownStudent() {
+        // Arrange
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(99);
+        dto.setStatusId(1);
+
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(99))).thenReturn(List.of());
+        when(referenzdatenRegistry.statusReferenz(1)).thenReturn(testStatus);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(99), LocalDate.now()))
+                .thenReturn(List.of());
+
+        // Act & Assert
+        assertThrows(NoSuchElementException.class,
+                () -> erfassungService.erfassenAnwesenheiten(Arrays.asList(dto)));
+        verify(erfassungRepository, never()).saveAll(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void testErfassenAnwesenheiten_UnchangedRowIsNotSaved() {
+        // Arrange
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(1);
+        dto.setStatusId(1);
+        dto.setKommentar("");
+
+        Erfassung existingErfassung = new Erfassung(testStudent, LocalDate.now(), testStatus, null);
+
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(1))).thenReturn(List.of(testStudent));
+        when(referenzdatenRegistry.statusReferenz(1)).thenReturn(testStatus);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(1), LocalDate.now()))
+                .thenReturn(List.of(existingErfassung));
+
+        // Act
+        Integer result = erfassungService.erfassenAnwesenheiten(Arrays.asList(dto));
+
+        // Assert
+        assertEquals(1, result);
+        verify(erfassungRepository, never()).saveAll(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void testErfassenAnwesenheiten_ConcurrentlyCreatedRowIsConflict() {
+        // Arrange: beim Laden des Formulars gab es noch keine Erfassung
+        Studenten anna = new Studenten("Musterfrau", "Anna", testGruppe);
+        anna.setId(2);
+        ErfassungDTO konflikt = new ErfassungDTO();
+        konflikt.setStudentenId(1);
+        konflikt.setStatusId(1);
+        konflikt.setVersion(ErfassungDTO.KEINE_ERFASSUNG);
+        ErfassungDTO neu = new ErfassungDTO();
+        neu.setStudentenId(2);
+        neu.setStatusId(1);
+        neu.setVersion(ErfassungDTO.KEINE_ERFASSUNG);
+
+        Erfassung inzwischenAngelegt = new Erfassung(testStudent, LocalDate.now(), testStatus, "Andere Lehrkraft");
+
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(1, 2))).thenReturn(List.of(testStudent, anna));
+        when(referenzdatenRegistry.statusReferenz(1)).thenReturn(testStatus);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(1, 2), LocalDate.now()))
+                .thenReturn(List.of(inzwischenAngelegt));
+
+        // Act & Assert
+        ErfassungKonfliktException e = assertThrows(ErfassungKonfliktException.class,
+                () -> erfassungService.erfassenAnwesenheiten(Arrays.asList(konflikt, neu)));
+        assertEquals(List.of(1), e.getStudentenIds());
+        assertEquals("Andere Lehrkraft", inzwischenAngelegt.getKommentar());
+        verify(erfassungRepository, never()).saveAll(any());
+    }
+
     @Test
     public void testErfassenAnwesenheiten_WithDelay() {
         // Arrange
@@ -120,10 +251,10 @@ public class ErfassungServiceTest {
         dto.setAnkunftszeit("08:15"); // 15 minutes late
         dto.setKommentar("Test Kommentar");
 
-        when(studentenRepository.findById(1)).thenReturn(Optional.of(testStudent));
-        when(statusRepository.findById(1)).thenReturn(Optional.of(testStatus));
-        when(erfassungRepository.findByStudenten_IdAndDatum(1, LocalDate.now()))
-                .thenReturn(Optional.empty());
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(1))).thenReturn(List.of(testStudent));
+        when(referenzdatenRegistry.statusReferenz(1)).thenReturn(testStatus);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(1), LocalDate.now()))
+                .thenReturn(List.of());
         when(erfassungRepository.saveAll(any())).thenReturn(Arrays.asList());
 
         // Act
@@ -143,10 +274,10 @@ public class ErfassungServiceTest {
         dto.setAnkunftszeit(null); // No arrival time
         dto.setKommentar("Test Kommentar");
 
-        when(studentenRepository.findById(1)).thenReturn(Optional.of(testStudent));
-        when(statusRepository.findById(1)).thenReturn(Optional.of(testStatus));
-        when(erfassungRepository.findByStudenten_IdAndDatum(1, LocalDate.now()))
-                .thenReturn(Optional.empty());
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(1))).thenReturn(List.of(testStudent));
+        when(referenzdatenRegistry.statusReferenz(1)).thenReturn(testStatus);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(1), LocalDate.now()))
+                .thenReturn(List.of());
         when(erfassungRepository.saveAll(any())).thenReturn(Arrays.asList());
 
         // Act
@@ -196,7 +327,8 @@ public class ErfassungServiceTest {
     @Test
     public void testSaveAll() {
         // Arrange
-        List<Erfassung> erfassungen = Arrays.asList(new Erfassung(), new Erfassung());
+        Erfassung neu = new Erfassung(testStudent, LocalDate.now(), testStatus, null);
+        List<Erfassung> erfassungen = Arrays.asList(neu);
         when(erfassungRepository.saveAll(erfassungen)).thenReturn(erfassungen);
 
         // Act
@@ -204,5 +336,71 @@ public class ErfassungServiceTest {
 
         // Assert
         verify(erfassungRepository).saveAll(erfassungen);
+        ArgumentCaptor<ErfassungenGespeichertEvent> event = ArgumentCaptor.forClass(ErfassungenGespeichertEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertTrue(event.getValue().aenderungen().get(0).istNeu());
+        assertSame(testStatus, neu.getGespeicherterStatus());
+    }
+
+    @Test
+    public void testErfassenAnwesenheiten_WiederholtKonfliktAmEindeutigenSchluessel() {
+        // Arrange: der erste Versuch scheitert an einer gleichzeitig angelegten Erfassung
+        ErfassungDTO dto = anwesendDto();
+        stubSpeichern();
+        when(erfassungRepository.saveAll(any()))
+                .thenThrow(new DataIntegrityViolationException("Einfügen fehlgeschlagen",
+                        new ConstraintViolationException("Duplicate entry", new SQLException(
+                                "Duplicate entry '1-2025-03-03' for key 'uk_erfassung_studenten_datum'", "23000", 1062),
+                                "uk_erfassung_studenten_datum")))
+                .thenReturn(List.of());
+
+        // Act
+        Integer result = erfassungService.erfassenAnwesenheiten(List.of(dto));
+
+        // Assert
+        assertEquals(1, result);
+        verify(erfassungRepository, times(2)).saveAll(any());
+    }
+
+    @Test
+    public void testErfassenAnwesenheiten_AndereVerletzungWirdNichtWiederholt() {
+        // Arrange: ein verletztes Pflichtfeld scheitert bei jedem Versuch gleich
+        ErfassungDTO dto = anwesendDto();
+        stubSpeichern();
+        when(erfassungRepository.saveAll(any()))
+                .thenThrow(new DataIntegrityViolationException("NULL not allowed",
+                        new ConstraintViolationException("NULL not allowed", new SQLException(
+                                "NULL not allowed for column \"STATUS_ID\"", "23502", 23502), null)));
+
+        // Act & Assert
+        assertThrows(DataIntegrityViolationException.class, () -> erfassungService.erfassenAnwesenheiten(List.of(dto)));
+        verify(erfassungRepository, times(1)).saveAll(any());
+    }
+
+    @Test
+    public void testErfassenAnwesenheiten_NichtErhalteneSperreWirdNichtWiederholt() {
+        // Arrange
+        ErfassungDTO dto = anwesendDto();
+        stubSpeichern();
+        doThrow(new CannotAcquireLockException("Sperre für Gruppen [1] nicht erhalten"))
+                .when(gruppenSperren).sperrenBisTransaktionsende(any());
+
+        // Act & Assert
+        assertThrows(CannotAcquireLockException.class, () -> erfassungService.erfassenAnwesenheiten(List.of(dto)));
+        verify(gruppenSperren, times(1)).sperrenBisTransaktionsende(any());
+        verify(erfassungRepository, never()).saveAll(any());
+    }
+
+    private ErfassungDTO anwesendDto() {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(1);
+        dto.setStatusId(1);
+        return dto;
+    }
+
+    private void stubSpeichern() {
+        when(studentenRepository.findAllMitGruppeByIdIn(Set.of(1))).thenReturn(List.of(testStudent));
+        when(referenzdatenRegistry.statusReferenz(1)).thenReturn(testStatus);
+        when(erfassungRepository.findByStudenten_IdInAndDatum(Set.of(1), LocalDate.now())).thenReturn(List.of());
     }
 }
@@ -0,0 +1,206 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.AnalyseErgebnis;
+import com.art.erfassung.dto.AnalyseFilter;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ErfassungImportService;
+import com.art.erfassung.service.ErfassungSpaltenspeicher;
+import com.art.erfassung.service.ErfassungsTagesIndex;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark des {@link ErfassungSpaltenspeicher} gegen dieselben Auswertungen als SQL auf H2.
+ * <p>
+ * Importiert {@value #STUDENTEN} Studenten in {@value #GRUPPEN} Gruppen mit je {@value #TAGE} Tagen Historie und
+ * vergleicht für mehrere Filter Ergebnis und Dauer der Auswertung im Spaltenspeicher mit einer
+ * {@code group by} Abfrage über "erfassung" und "studenten".
+ * </p>
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ErfassungSpaltenspeicherBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungSpaltenspeicherBenchmarkTest.class);
+
+    private static final int GRUPPEN = 20;
+    private static final int STUDENTEN = 500;
+    private static final int TAGE = 240;
+    private static final int AUFWAERMEN = 200;
+    private static final int WIEDERHOLUNGEN = 50;
+    // H2 benötigt je nach Plan über eine Sekunde je Abfrage
+    private static final int SQL_WIEDERHOLUNGEN = 5;
+    private static final LocalDate START = LocalDate.of(2024, 9, 2);
+
+    @Autowired
+    private ErfassungSpaltenspeicher erfassungSpaltenspeicher;
+
+    @Autowired
+    private ErfassungsTagesIndex erfassungsTagesIndex;
+
+    @Autowired
+    private ErfassungImportService importService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private List<Status> status;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        status = statusRepository.saveAll(List.of(new Status("Präsent"), new Status("Entschuldigt"),
+                new Status("Erkrankt")));
+        referenzdatenRegistry.neuLaden();
+        StringBuilder csv = new StringBuilder("Datum;Gruppe;Name;Vorname;Status;Ankunftszeit;Kommentar\n");
+        for (int tag = 0; tag < TAGE; tag++) {
+            LocalDate datum = START.plusDays(tag);
+            for (int s = 0; s < STUDENTEN; s++) {
+                int fall = (s * 7 + tag) % 23;
+                String bezeichnung = fall == 0 ? "Erkrankt" : fall < 3 ? "Entschuldigt" : "Präsent";
+                String ankunft = fall == 5 ? "08:" + (10 + s % 40) : fall == 6 ? "07:50" : "";
+                csv.append(datum).append(";Auswertung ").append(s % GRUPPEN).append(";Name").append(s)
+                        .append(";Vorname").append(s).append(';').append(bezeichnung).append(';').append(ankunft)
+                        .append(";\n");
+            }
+        }
+        importService.importieren(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+        erfassungSpaltenspeicher.neuLaden();
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAllInBatch();
+        erfassungRepository.deleteAllInBatch();
+        studentenRepository.deleteAllInBatch();
+        statusRepository.deleteAll(status);
+        gruppeRepository.deleteAll(gruppeRepository.findAll().stream()
+                .filter(g -> g.getBezeichnung().startsWith("Auswertung ")).toList());
+        referenzdatenRegistry.neuLaden();
+        erfassungSpaltenspeicher.neuLaden();
+        erfassungsTagesIndex.pruefen();
+    }
+
+    @Test
+    public void testBenchmark_SpaltenspeicherGegenSql() {
+        // Arrange
+        Gruppe gruppe = gruppeRepository.findAll().stream()
+                .filter(g -> g.getBezeichnung().equals("Auswertung 3")).findFirst().orElseThrow();
+        List<AnalyseFilter> filter = List.of(
+                new AnalyseFilter(null, null, null, null, null),
+                new AnalyseFilter(null, START.plusDays(30), START.plusDays(120),
+                        Set.of(DayOfWeek.MONDAY, DayOfWeek.FRIDAY), Set.of(status.get(1).getId(), status.get(2).getId())),
+                new AnalyseFilter(gruppe.getId(), START.plusDays(60), START.plusDays(150), null, null));
+
+        for (AnalyseFilter f : filter) {
+            // Act
+            List<StatusAnzahl> ausSql = sql(f, 0);
+            AnalyseErgebnis ausSpeicher = erfassungSpaltenspeicher.auswerten(f);
+            for (int i = 0; i < AUFWAERMEN; i++) {
+                erfassungSpaltenspeicher.auswerten(f);
+            }
+            sql(f, 1);
+            long beginn = System.nanoTime();
+            for (int i = 0; i < SQL_WIEDERHOLUNGEN; i++) {
+                sql(f, i + 10);
+            }
+            long sqlMikros = (System.nanoTime() - beginn) / SQL_WIEDERHOLUNGEN / 1_000;
+            beginn = System.nanoTime();
+            for (int i = 0; i < WIEDERHOLUNGEN; i++) {
+                erfassungSpaltenspeicher.auswerten(f);
+            }
+            long speicherMikros = (System.nanoTime() - beginn) / WIEDERHOLUNGEN / 1_000;
+
+            // Assert
+            logger.info("Auswertung {}: {} Erfassungen aus {} Zeilen, SQL {} µs, Spaltenspeicher {} µs ({}x)", f,
+                    ausSpeicher.erfassungen(), ausSpeicher.zeilenGeprueft(), sqlMikros, speicherMikros,
+                    speicherMikros > 0 ? sqlMikros / speicherMikros : sqlMikros);
+            assertFalse(ausSql.isEmpty());
+            assertEquals(ausSql, ausSpeicher.statusAnzahlen());
+            assertTrue(speicherMikros < sqlMikros, "Spaltenspeicher " + speicherMikros + " µs, SQL " + sqlMikros + " µs");
+        }
+    }
+
+    /**
+     * Dieselbe Auswertung als SQL, ebenfalls nach Status-ID sortiert.
+     * <p>
+     * Der stets erfüllte Parameter {@code lauf} unterscheidet die Wiederholungen, da H2 das Ergebnis einer
+     * identischen Abfrage auf unveränderten Tabellen sonst wiederverwendet.
+     * </p>
+     */
+    private List<StatusAnzahl> sql(AnalyseFilter f, int lauf) {
+        List<Object> parameter = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("select st.bezeichnung, count(*), "
+                + "sum(case when e.verspaetung_minuten > 0 then 1 else 0 end), "
+                + "sum(case when e.verspaetung_minuten > 0 then e.verspaetung_minuten else 0 end) "
+                + "from erfassung e join studenten s on s.id = e.studenten_id join status st on st.id = e.status_id "
+                + "where e.studenten_id <> ?");
+        parameter.add(-lauf);
+        if (f.gruppeId() != null) {
+            sql.append(" and s.gruppe_id = ?");
+            parameter.add(f.gruppeId());
+        }
+        if (f.von() != null) {
+            sql.append(" and e.datum >= ?");
+            parameter.add(f.von());
+        }
+        if (f.bis() != null) {
+            sql.append(" and e.datum <= ?");
+            parameter.add(f.bis());
+        }
+        if (f.wochentage() != null) {
+            sql.append(" and iso_day_of_week(e.datum) in (").append(f.wochentage().stream()
+                    .map(w -> String.valueOf(w.getValue())).collect(Collectors.joining(","))).append(')');
+        }
+        if (f.statusIds() != null) {
+            sql.append(" and e.status_id in (").append(f.statusIds().stream()
+                    .map(String::valueOf).collect(Collectors.joining(","))).append(')');
+        }
+        sql.append(" group by e.status_id, st.bezeichnung order by e.status_id");
+        return jdbcTemplate.query(sql.toString(), (rs, i) -> new StatusAnzahl(rs.getString(1), rs.getLong(2),
+                rs.getLong(3), rs.getLong(4)), parameter.toArray());
+    }
+}
@@ -0,0 +1,158 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.AnalyseErgebnis;
+import com.art.erfassung.dto.AnalyseFilter;
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.ErfassungSpaltenspeicher;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für den {@link ErfassungSpaltenspeicher}: Übernahme gespeicherter Erfassungen nach dem Commit, Einsortieren
+ * des Zusatzteils, Filter nach Gruppe, Zeitraum, Wochentag und Status sowie gleiche Ergebnisse nach dem Neuladen.
+ * <p>
+ * Partitionen von vier Zeilen und ein Zusatzteil von höchstens drei Zeilen sorgen dafür, dass auch die kleinen
+ * Testdaten parallel gelesen und mehrfach einsortiert werden.
+ * </p>
+ */
+@SpringBootTest(properties = {"erfassung.analyse.partition-groesse=4", "erfassung.analyse.zusatz-max=3"})
+@ActiveProfiles("test")
+public class ErfassungSpaltenspeicherTest {
+
+    // Montag bis Freitag einer Woche
+    private static final LocalDate MONTAG = LocalDate.of(2025, 3, 3);
+    private static final LocalDate FREITAG = LocalDate.of(2025, 3, 7);
+
+    @Autowired
+    private ErfassungSpaltenspeicher erfassungSpaltenspeicher;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppeA;
+    private Gruppe gruppeB;
+    private Studenten anna;
+    private Studenten max;
+    private Studenten lea;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppeA = gruppeRepository.save(new Gruppe("Analyse A"));
+        gruppeB = gruppeRepository.save(new Gruppe("Analyse B"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        referenzdatenRegistry.neuLaden();
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppeA));
+        max = studentenRepository.save(new Studenten("Mustermann", "Max", gruppeA));
+        lea = studentenRepository.save(new Studenten("Beispiel", "Lea", gruppeB));
+        erfassungSpaltenspeicher.neuLaden();
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max, lea));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.deleteAll(List.of(gruppeA, gruppeB));
+        referenzdatenRegistry.neuLaden();
+        erfassungSpaltenspeicher.neuLaden();
+    }
+
+    @Test
+    public void testAuswertungNachCommitUndNachNeuladen() {
+        // Arrange: eine Woche, Max ist mittwochs krank, Anna dienstags 10 Minuten zu spät
+        for (LocalDate datum = MONTAG; !datum.isAfter(FREITAG); datum = datum.plusDays(1)) {
+            boolean mittwoch = datum.getDayOfWeek() == DayOfWeek.WEDNESDAY;
+            erfassungService.erfassenAnwesenheiten(List.of(
+                    dto(anna, anwesend, datum.getDayOfWeek() == DayOfWeek.TUESDAY ? "08:10" : null),
+                    dto(max, mittwoch ? krank : anwesend, null)), datum);
+            erfassungService.erfassenAnwesenheiten(List.of(dto(lea, krank, null)), datum);
+        }
+
+        // Act & Assert: Gruppe A gesamt
+        AnalyseErgebnis gruppe = auswerten(gruppeA, MONTAG, FREITAG, null, null);
+        assertEquals(10, gruppe.erfassungen());
+        assertEquals(List.of(new StatusAnzahl("Anwesend", 9, 1, 10), new StatusAnzahl("Krank", 1, 0, 0)),
+                gruppe.statusAnzahlen());
+
+        // Act & Assert: Wochentage, Status und Zeitraum
+        assertEquals(3, auswerten(null, MONTAG, FREITAG, Set.of(DayOfWeek.WEDNESDAY), null).erfassungen());
+        assertEquals(6, auswerten(null, MONTAG, FREITAG, null, Set.of(krank.getId())).erfassungen());
+        assertEquals(2, auswerten(gruppeA, FREITAG, FREITAG, null, null).erfassungen());
+        assertEquals(0, auswerten(gruppeA, FREITAG.plusDays(1), null, null, null).erfassungen());
+
+        // Act: Korrektur einer bereits einsortierten Zeile
+        erfassungService.erfassenAnwesenheiten(List.of(dto(max, anwesend, null)), MONTAG.plusDays(2));
+
+        // Assert
+        assertEquals(5, auswerten(null, MONTAG, FREITAG, null, Set.of(krank.getId())).erfassungen());
+        AnalyseErgebnis vorher = auswerten(null, MONTAG, FREITAG, null, null);
+        erfassungSpaltenspeicher.neuLaden();
+        assertEquals(vorher.statusAnzahlen(), auswerten(null, MONTAG, FREITAG, null, null).statusAnzahlen());
+        assertEquals(auswerten(gruppeA, MONTAG, FREITAG, null, null).statusAnzahlen(),
+                auswerten(gruppeA, null, null, null, null).statusAnzahlen());
+    }
+
+    @Test
+    public void testUngueltigerZeitraum() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> auswerten(null, FREITAG, MONTAG, null, null));
+    }
+
+    private AnalyseErgebnis auswerten(Gruppe gruppe, LocalDate von, LocalDate bis, Set<DayOfWeek> wochentage,
+                                      Set<Integer> statusIds) {
+        return erfassungSpaltenspeicher.auswerten(new AnalyseFilter(gruppe != null ? gruppe.getId() : null, von, bis,
+                wochentage, statusIds));
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status, String ankunftszeit) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        dto.setAnkunftszeit(ankunftszeit);
+        return dto;
+    }
+}
@@ -0,0 +1,250 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.ErfassungsTag;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.ErfassungsTagesIndex;
+import com.art.erfassung.service.ErfassungsTagesIndex.PruefErgebnis;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.TageBitmap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für den {@link ErfassungsTagesIndex} und die {@link TageBitmap}: Fortschreiben beim Speichern, Abgleich
+ * mit der Datenbank einschließlich markierter Tage der sparsamen Speicherung sowie die Dauer der Abfragen.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ErfassungsTagesIndexTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ErfassungsTagesIndexTest.class);
+
+    private static final LocalDate MONTAG = LocalDate.of(2025, 3, 3);
+    private static final LocalDate DIENSTAG = LocalDate.of(2025, 3, 4);
+    private static final LocalDate MITTWOCH = LocalDate.of(2025, 3, 5);
+
+    @Autowired
+    private ErfassungsTagesIndex erfassungsTagesIndex;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private ErfassungsTagRepository erfassungsTagRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppe = gruppeRepository.save(new Gruppe("Index Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        referenzdatenRegistry.neuLaden();
+        anna = studentenRepository.save(seitJeher(new Studenten("Musterfrau", "Anna", gruppe)));
+        max = studentenRepository.save(seitJeher(new Studenten("Mustermann", "Max", gruppe)));
+        erfassungsTagesIndex.pruefen();
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        erfassungsTagRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.delete(gruppe);
+        referenzdatenRegistry.neuLaden();
+        erfassungsTagesIndex.pruefen();
+    }
+
+    @Test
+    public void testBitmapZaehltUndVerknuepftUeberWortgrenzen() {
+        // Arrange: Tage in drei Wörtern, zuerst rechts gesetzt, damit das Array nach links wächst
+        TageBitmap a = new TageBitmap();
+        a.setzen(200);
+        a.setzen(63);
+        a.setzen(64);
+        a.setzen(10);
+        TageBitmap b = new TageBitmap();
+        b.setzen(64);
+        b.setzen(500);
+
+        // Act & Assert
+        assertTrue(a.enthaelt(63));
+        assertFalse(a.enthaelt(62));
+        assertEquals(4, a.anzahl());
+        assertEquals(2, a.anzahl(63, 64));
+        assertEquals(3, a.anzahl(11, 1000));
+        assertEquals(0, a.anzahl(201, 199));
+        assertEquals(5, a.kopie().oder(b).anzahl());
+        assertEquals(1, a.kopie().und(b).anzahl());
+        a.loeschen(200);
+        assertEquals(3, a.anzahl());
+
+        TageBitmap gleich = new TageBitmap();
+        gleich.setzen(10);
+        gleich.setzen(63);
+        gleich.setzen(64);
+        assertEquals(gleich, a);
+        assertEquals(gleich.hashCode(), a.hashCode());
+    }
+
+    @Test
+    public void testIndexWirdBeimSpeichernFortgeschrieben() {
+        // Arrange
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend)), MONTAG);
+
+        // Act & Assert: teilweise erfasster Tag
+        assertTrue(erfassungsTagesIndex.gruppeErfasst(gruppe.getId(), MONTAG));
+        assertFalse(erfassungsTagesIndex.gruppeErfasst(gruppe.getId(), DIENSTAG));
+        assertEquals(List.of(max.getId()), ids(erfassungsTagesIndex.studentenOhneErfassung(gruppe.getId(), MONTAG)));
+        assertEquals(List.of(anna.getId(), max.getId()),
+                ids(erfassungsTagesIndex.studentenOhneErfassung(gruppe.getId(), DIENSTAG)));
+
+        // Act: weitere Tage und eine Korrektur
+        erfassungService.erfassenAnwesenheiten(List.of(dto(max, krank)), MONTAG);
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, krank), dto(max, krank)), DIENSTAG);
+        erfassungService.erfassenAnwesenheiten(List.of(dto(max, anwesend)), DIENSTAG);
+
+        // Assert
+        assertTrue(erfassungsTagesIndex.studentenOhneErfassung(gruppe.getId(), MONTAG).isEmpty());
+        assertEquals(1, erfassungsTagesIndex.anzahl(max.getId(), Set.of(krank.getId()), MONTAG, MITTWOCH));
+        assertEquals(2, erfassungsTagesIndex.anzahl(max.getId(), Set.of(krank.getId(), anwesend.getId()),
+                MONTAG, MITTWOCH));
+        assertEquals(0, erfassungsTagesIndex.anzahl(anna.getId(), Set.of(krank.getId()), MONTAG, MONTAG));
+        assertEquals(2, erfassungsTagesIndex.anzahlInGruppe(gruppe.getId(), Set.of(krank.getId()),
+                MONTAG, MITTWOCH));
+        assertEquals(0, erfassungsTagesIndex.pruefen().abweichungen());
+    }
+
+    @Test
+    public void testPruefenKorrigiertAbweichungenUndErgaenztMarkierteTage() {
+        // Arrange: an der Anwendung vorbei gespeichert, ohne Ereignis
+        erfassungRepository.save(new Erfassung(anna, MONTAG, krank, null));
+        erfassungsTagRepository.save(new ErfassungsTag(gruppe.getId(), DIENSTAG));
+        assertFalse(erfassungsTagesIndex.gruppeErfasst(gruppe.getId(), MONTAG));
+
+        // Act
+        PruefErgebnis ergebnis = erfassungsTagesIndex.pruefen();
+
+        // Assert: Bitmaps von Anna (Krank, Anwesend), Max (Anwesend) und der Gruppe
+        assertEquals(4, ergebnis.abweichungen());
+        assertTrue(ergebnis.bytes() > 0);
+        assertTrue(erfassungsTagesIndex.gruppeErfasst(gruppe.getId(), MONTAG));
+        assertTrue(erfassungsTagesIndex.studentenOhneErfassung(gruppe.getId(), DIENSTAG).isEmpty());
+        assertEquals(1, erfassungsTagesIndex.anzahl(max.getId(), Set.of(anwesend.getId()), MONTAG, MITTWOCH));
+        assertEquals(0, erfassungsTagesIndex.pruefen().abweichungen());
+    }
+
+    @Test
+    public void testDauerDerAbfragen() {
+        // Arrange: ein Schuljahr mit wechselnden Status
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend), dto(max, krank)), MONTAG);
+        TageBitmap[] jahre = new TageBitmap[1000];
+        int start = Math.toIntExact(LocalDate.of(2024, 9, 1).toEpochDay());
+        for (int i = 0; i < jahre.length; i++) {
+            jahre[i] = new TageBitmap();
+            for (int tag = 0; tag < 365; tag++) {
+                if ((tag + i) % 7 < 5 && (tag * 31 + i) % 13 == 0) {
+                    jahre[i].setzen(start + tag);
+                }
+            }
+        }
+        for (int i = 0; i < 20_000; i++) {
+            erfassungsTagesIndex.studentenOhneErfassung(gruppe.getId(), MONTAG);
+            jahre[i % jahre.length].anzahl(start + 30, start + 300);
+        }
+
+        // Act
+        int wiederholungen = 100_000;
+        long beginn = System.nanoTime();
+        for (int i = 0; i < wiederholungen; i++) {
+            erfassungsTagesIndex.studentenOhneErfassung(gruppe.getId(), MONTAG);
+        }
+        long ohneErfassungNs = (System.nanoTime() - beginn) / wiederholungen;
+        beginn = System.nanoTime();
+        for (int i = 0; i < wiederholungen; i++) {
+            erfassungsTagesIndex.anzahlInGruppe(gruppe.getId(), Set.of(krank.getId()), MONTAG, MITTWOCH);
+        }
+        long anzahlNs = (System.nanoTime() - beginn) / wiederholungen;
+        long summe = 0;
+        beginn = System.nanoTime();
+        for (int i = 0; i < wiederholungen; i++) {
+            summe += jahre[i % jahre.length].kopie().oder(jahre[(i + 1) % jahre.length]).anzahl(start + 30, start + 300);
+        }
+        long oderNs = (System.nanoTime() - beginn) / wiederholungen;
+
+        // Assert
+        logger.info("Tagesindex: nicht erfasste Studenten {} ns, Fehltage der Gruppe {} ns, "
+                + "Vereinigung und Zählen eines Jahres {} ns (Prüfsumme {}), {} Byte je Jahr",
+                ohneErfassungNs, anzahlNs, oderNs, summe, jahre[0].speicherBytes());
+        assertTrue(summe > 0);
+        assertTrue(ohneErfassungNs < 1_000_000, "Abfrage dauerte " + ohneErfassungNs + " ns");
+        assertTrue(jahre[0].speicherBytes() <= 16 + 16 + 8 * 7);
+    }
+
+    private static List<Integer> ids(List<RosterEintrag> eintraege) {
+        return eintraege.stream().map(RosterEintrag::studentenId).toList();
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        return dto;
+    }
+
+    /**
+     * Macht den Studenten zum Mitglied "seit jeher", damit er auch an markierten Tagen vor heute als anwesend gilt.
+     */
+    private static Studenten seitJeher(Studenten student) {
+        student.setGruppeSeit(null);
+        return student;
+    }
+}
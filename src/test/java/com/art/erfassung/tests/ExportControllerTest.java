@@ -0,0 +1,180 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests für den Export der Erfassungen unter "/admin/export".
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class ExportControllerTest {
+
+    private static final String ADMIN = ErfassungApiControllerTest.basic("admin", "admin123");
+
+    private static final LocalDate MONTAG = LocalDate.of(2025, 5, 5);
+    private static final LocalDate DIENSTAG = LocalDate.of(2025, 5, 6);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppeA;
+    private Gruppe gruppeB;
+    private Studenten anna;
+    private Studenten max;
+    private Studenten lena;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppeA = gruppeRepository.save(new Gruppe("Export Gruppe A"));
+        gruppeB = gruppeRepository.save(new Gruppe("Export Gruppe B"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        referenzdatenRegistry.neuLaden();
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppeA));
+        max = studentenRepository.save(new Studenten("Mustermann", "Max", gruppeA));
+        lena = studentenRepository.save(new Studenten("Beispiel", "Lena", gruppeB));
+
+        Erfassung verspaetet = new Erfassung(anna, MONTAG, anwesend, null);
+        verspaetet.setAnkunftszeit(LocalTime.of(8, 20));
+        verspaetet.setVerspaetungMinuten(20);
+        erfassungRepository.save(verspaetet);
+        erfassungRepository.save(new Erfassung(max, MONTAG, krank, "=Attest; \"liegt vor\""));
+        erfassungRepository.save(new Erfassung(lena, MONTAG, anwesend, null));
+        erfassungRepository.save(new Erfassung(anna, DIENSTAG, anwesend, null));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max, lena));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.deleteAll(List.of(gruppeA, gruppeB));
+        referenzdatenRegistry.neuLaden();
+    }
+
+    @Test
+    public void testCsv_ZeilenSortiertUndMaskiert() throws Exception {
+        // Act
+        byte[] inhalt = mockMvc.perform(get("/admin/export")
+                        .param("von", "2025-05-05")
+                        .param("bis", "2025-05-05")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"erfassungen_2025-05-05_2025-05-05.csv\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert: nur Montag, nach Gruppe und Name sortiert; der Kommentar ist gegen Formeln geschützt
+        String[] zeilen = new String(inhalt, StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(4, zeilen.length);
+        assertEquals("\uFEFFDatum;Gruppe;Studenten-ID;Name;Vorname;Status;Ankunftszeit;Verspätung (Minuten);Kommentar",
+                zeilen[0]);
+        assertEquals("2025-05-05;Export Gruppe A;" + anna.getId() + ";Musterfrau;Anna;Anwesend;08:20;20;", zeilen[1]);
+        assertEquals("2025-05-05;Export Gruppe A;" + max.getId() + ";Mustermann;Max;Krank;;;\"'=Attest; \"\"liegt vor\"\"\"",
+                zeilen[2]);
+        assertEquals("2025-05-05;Export Gruppe B;" + lena.getId() + ";Beispiel;Lena;Anwesend;;;", zeilen[3]);
+    }
+
+    @Test
+    public void testXlsx_GruppeUndZeitraum(@TempDir Path verzeichnis) throws Exception {
+        // Act
+        byte[] inhalt = mockMvc.perform(get("/admin/export")
+                        .param("von", "2025-05-01")
+                        .param("bis", "2025-05-31")
+                        .param("gruppeId", gruppeA.getId().toString())
+                        .param("format", "xlsx")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE,
+                        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"erfassungen_2025-05-01_2025-05-31_gruppe" + gruppeA.getId() + ".xlsx\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert: eine gültige Arbeitsmappe mit den drei Erfassungen der Gruppe A
+        // Die Einträge werden gestreamt geschrieben; ihre Größen stehen erst im zentralen Verzeichnis am Ende
+        Path datei = verzeichnis.resolve("export.xlsx");
+        Files.write(datei, inhalt);
+        String blatt;
+        try (ZipFile zip = new ZipFile(datei.toFile())) {
+            ZipEntry eintrag = zip.getEntry("xl/worksheets/sheet1.xml");
+            assertNotNull(eintrag);
+            blatt = new String(zip.getInputStream(eintrag).readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertEquals(4, blatt.split("<row ").length - 1);
+        assertTrue(blatt.contains("Musterfrau"));
+        assertTrue(blatt.contains("Mustermann"));
+        assertFalse(blatt.contains("Beispiel"));
+    }
+
+    @Test
+    public void testUngueltigerZeitraum_400() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/admin/export")
+                        .param("von", "2025-05-06")
+                        .param("bis", "2025-05-05")
+                        .header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/admin/export")
+                        .param("von", "2025-05-05")
+                        .param("bis", "2025-05-05")
+                        .header(HttpHeaders.AUTHORIZATION, ErfassungApiControllerTest.LEHRKRAFT))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -2,7 +2,9 @@ package com.art.erfassung.tests;
 
 import com.art.erfassung.model.Gruppe;
 import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
 import com.art.erfassung.service.GruppeService;
+import com.art.erfassung.service.ReferenzdatenRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -11,7 +13,6 @@ import org.mockito.MockitoAnnotations;
 import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,12 +25,15 @@ public class GruppeServiceTest {
     @Mock
     private GruppeRepository gruppeRepository;
 
+    @Mock
+    private StatusRepository statusRepository;
+
     private GruppeService gruppeService;
 
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        gruppeService = new GruppeService(gruppeRepository);
+        gruppeService = new GruppeService(new ReferenzdatenRegistry(statusRepository, gruppeRepository));
     }
 
     @Test
@@ -58,26 +62,30 @@ public class GruppeServiceTest {
         Gruppe expectedGruppe = new Gruppe("Test Gruppe");
         expectedGruppe.setId(id);
         
-        when(gruppeRepository.findById(id)).thenReturn(Optional.of(expectedGruppe));
+        when(gruppeRepository.findAll()).thenReturn(List.of(expectedGruppe));
 
         // Act
         Gruppe actualGruppe = gruppeService.findOrThrow(id);
+        Gruppe zweiterAufruf = gruppeService.findOrThrow(id);
 
         // Assert
         assertEquals(expectedGruppe, actualGruppe);
-        verify(gruppeRepository, times(1)).findById(id);
+        assertSame(actualGruppe, zweiterAufruf);
+        // Die Gruppen werden nur einmal geladen und danach aus dem Speicher gelesen
+        verify(gruppeRepository, times(1)).findAll();
     }
 
     @Test
     public void testFindOrThrow_NonExistingId() {
         // Arrange
         Integer id = 999;
-        when(gruppeRepository.findById(id)).thenReturn(Optional.empty());
+        when(gruppeRepository.findAll()).thenReturn(List.of());
 
         // Act & Assert
         assertThrows(NoSuchElementException.class, () -> {
             gruppeService.findOrThrow(id);
         });
-        verify(gruppeRepository, times(1)).findById(id);
+        // Erstes Laden und ein erneuter Versuch für die fehlende ID
+        verify(gruppeRepository, times(2)).findAll();
     }
 }
\ No newline at end of file
@@ -0,0 +1,280 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungListeDTO;
+import com.art.erfassung.dto.ErfassungTageswert;
+import com.art.erfassung.dto.GruppenMonat;
+import com.art.erfassung.dto.MonatsKodierung;
+import com.art.erfassung.dto.MonatsMatrix;
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.mapper.MonatsMatrixMapper;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test und Benchmark für die bitweise Kodierung eines Monats in {@link MonatsKodierung} und {@link GruppenMonat}.
+ * <p>
+ * Vergleicht Speicherbedarf und Aufbauzeit des kodierten Monats mit den bisher geladenen Listen von
+ * {@link Erfassung} Entitäten, die je Erfassung auf Student und Status verweisen.
+ * </p>
+ */
+public class GruppenMonatBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(GruppenMonatBenchmarkTest.class);
+
+    private static final YearMonth MONAT = YearMonth.of(2024, 1);
+    private static final long MESSUMFANG = 32L * 1024 * 1024;
+    private static final int DURCHLAEUFE = 200;
+
+    private final MonatsMatrixMapper mapper = new MonatsMatrixMapper();
+
+    private final Status anwesend = status(1, "Anwesend");
+    private final Status entschuldigt = status(2, "Entschuldigt");
+    private final Status krank = status(4, "Krank");
+
+    @Test
+    public void testKodierung_SetzenUndLesenAllerTage() {
+        // Arrange
+        long[] monate = new long[2 * MonatsKodierung.LONGS_JE_MONAT];
+
+        // Act: zweiter Monat im Array, jeder Tag mit eigenem Code, jeder dritte verspätet
+        for (int tag = 1; tag <= 31; tag++) {
+            MonatsKodierung.setzen(monate, MonatsKodierung.LONGS_JE_MONAT, tag,
+                    MonatsKodierung.tag(tag % 8, tag % 3 == 0));
+        }
+        MonatsKodierung.setzen(monate, MonatsKodierung.LONGS_JE_MONAT, 16, MonatsKodierung.tag(7, false));
+
+        // Assert
+        assertEquals(0L, monate[0]);
+        assertEquals(0L, monate[1]);
+        for (int tag = 1; tag <= 31; tag++) {
+            int wert = MonatsKodierung.lesen(monate, MonatsKodierung.LONGS_JE_MONAT, tag);
+            assertEquals(tag == 16 ? 7 : tag % 8, MonatsKodierung.statusCode(wert), "Tag " + tag);
+            assertEquals(tag != 16 && tag % 3 == 0, MonatsKodierung.verspaetet(wert), "Tag " + tag);
+        }
+        assertThrows(IllegalArgumentException.class, () -> MonatsKodierung.tag(8, false));
+    }
+
+    @Test
+    public void testGruppenMonat_EntsprichtMatrixUndStatusAnzahlen() {
+        // Arrange
+        List<Studenten> studenten = studenten(3);
+        List<Erfassung> erfassungen = erfassungen(studenten);
+        erfassungen.add(new Erfassung(studenten.get(0), LocalDate.of(2024, 2, 1), krank, null));
+
+        // Act
+        GruppenMonat gruppenMonat = GruppenMonat.kodieren(MONAT, tageswerte(erfassungen)).orElseThrow();
+
+        // Assert: gleiche Matrix wie aus der Liste, gleiche Zählerstände wie aus den Entitäten
+        MonatsMatrix erwartet = mapper.toMatrix(roster(studenten), listeDTOs(erfassungen), MONAT);
+        MonatsMatrix matrix = mapper.toMatrix(roster(studenten), gruppenMonat);
+        for (int i = 0; i < studenten.size(); i++) {
+            assertArrayEquals(erwartet.getZeilen().get(i).getStatusIds(), matrix.getZeilen().get(i).getStatusIds());
+            assertEquals(statusAnzahlen(studenten.get(i), erfassungen),
+                    statusAnzahlen(gruppenMonat.statusAnzahlen(gruppenMonat.zeile(studenten.get(i).getId()))));
+        }
+        assertEquals("status-krank", matrix.klasse(krank.getId()));
+        assertTrue(gruppenMonat.verspaetet(gruppenMonat.zeile(studenten.get(0).getId()), 4));
+        assertEquals(-1, gruppenMonat.zeile(99));
+        assertEquals(List.of(), gruppenMonat.statusAnzahlen(-1));
+    }
+
+    @Test
+    public void testGruppenMonat_MehrAlsSiebenStatusNichtKodierbar() {
+        // Arrange
+        List<ErfassungTageswert> werte = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            werte.add(new ErfassungTageswert(1, MONAT.atDay(i), i, "Status " + i, null));
+        }
+
+        // Act & Assert
+        assertTrue(GruppenMonat.kodieren(MONAT, werte.subList(0, 7)).isPresent());
+        assertTrue(GruppenMonat.kodieren(MONAT, werte).isEmpty());
+    }
+
+    @Test
+    public void testBenchmark_KodierterMonatGegenEntitaetslisten() {
+        for (int anzahl : new int[]{10, 30, 100}) {
+            List<Studenten> studenten = studenten(anzahl);
+            List<ErfassungTageswert> werte = tageswerte(erfassungen(studenten));
+            Map<Integer, Studenten> studentById = new HashMap<>();
+            studenten.forEach(s -> studentById.put(s.getId(), s));
+            Map<Integer, Status> statusById = Map.of(anwesend.getId(), anwesend, entschuldigt.getId(), entschuldigt,
+                    krank.getId(), krank);
+
+            // Speicherbedarf: viele gleichzeitig gehaltene Kopien, Differenz des belegten Heaps
+            long speicherEntitaeten = belegterSpeicher(() -> entitaeten(werte, studentById, statusById));
+            long speicherKodiert = belegterSpeicher(() -> GruppenMonat.kodieren(MONAT, werte).orElseThrow());
+
+            // Aufwärmen, damit beide Varianten kompiliert gemessen werden
+            for (int i = 0; i < DURCHLAEUFE; i++) {
+                entitaeten(werte, studentById, statusById);
+                GruppenMonat.kodieren(MONAT, werte);
+            }
+            long startEntitaeten = System.nanoTime();
+            for (int i = 0; i < DURCHLAEUFE; i++) {
+                entitaeten(werte, studentById, statusById);
+            }
+            long dauerEntitaeten = System.nanoTime() - startEntitaeten;
+
+            long startKodiert = System.nanoTime();
+            for (int i = 0; i < DURCHLAEUFE; i++) {
+                GruppenMonat.kodieren(MONAT, werte);
+            }
+            long dauerKodiert = System.nanoTime() - startKodiert;
+
+            logger.info("{} Studenten, {} Erfassungen: Entitäten {} Bytes, {} µs/Aufbau; kodiert {} Bytes, {} µs/Aufbau",
+                    anzahl, werte.size(), speicherEntitaeten, dauerEntitaeten / DURCHLAEUFE / 1_000,
+                    speicherKodiert, dauerKodiert / DURCHLAEUFE / 1_000);
+            assertTrue(speicherKodiert < speicherEntitaeten,
+                    "kodiert " + speicherKodiert + " Bytes, Entitäten " + speicherEntitaeten + " Bytes");
+        }
+    }
+
+    /**
+     * Baut die Entitätsliste so auf, wie sie das Laden über {@code findByStudenten_GruppeIdAndDatumBetween}
+     * liefert: je Erfassung ein Objekt, Student und Status innerhalb der Liste gemeinsam genutzt.
+     */
+    private static List<Erfassung> entitaeten(List<ErfassungTageswert> werte, Map<Integer, Studenten> studentById,
+                                              Map<Integer, Status> statusById) {
+        List<Erfassung> erfassungen = new ArrayList<>(werte.size());
+        for (ErfassungTageswert wert : werte) {
+            Erfassung erfassung = new Erfassung(studentById.get(wert.studentenId()), wert.datum(),
+                    statusById.get(wert.statusId()), null);
+            erfassung.setVerspaetungMinuten(wert.verspaetungMinuten());
+            erfassungen.add(erfassung);
+        }
+        return erfassungen;
+    }
+
+    /**
+     * Misst den belegten Heap je Kopie. Die Anzahl der gleichzeitig gehaltenen Kopien richtet sich nach den
+     * beim ersten Aufbau allokierten Bytes, sodass insgesamt etwa {@value #MESSUMFANG} Bytes entstehen und
+     * Schwankungen des Heaps das Ergebnis nicht verfälschen.
+     */
+    private static long belegterSpeicher(Supplier<Object> aufbau) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allokiertVorher = threads.getCurrentThreadAllocatedBytes();
+        aufbau.get();
+        long allokiert = Math.max(1, threads.getCurrentThreadAllocatedBytes() - allokiertVorher);
+        Object[] kopien = new Object[(int) Math.min(20_000, Math.max(10, MESSUMFANG / allokiert))];
+
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long vorher = runtime.totalMemory() - runtime.freeMemory();
+        for (int i = 0; i < kopien.length; i++) {
+            kopien[i] = aufbau.get();
+        }
+        System.gc();
+        long nachher = runtime.totalMemory() - runtime.freeMemory();
+        assertNotNull(kopien[kopien.length - 1]);
+        return Math.max(0, (nachher - vorher) / kopien.length);
+    }
+
+    private static List<ErfassungTageswert> tageswerte(List<Erfassung> erfassungen) {
+        return erfassungen.stream()
+                .map(e -> new ErfassungTageswert(e.getStudenten().getId(), e.getDatum(), e.getStatus().getId(),
+                        e.getStatus().getBezeichnung(), e.getVerspaetungMinuten()))
+                .toList();
+    }
+
+    private static List<ErfassungListeDTO> listeDTOs(List<Erfassung> erfassungen) {
+        return erfassungen.stream()
+                .map(e -> new ErfassungListeDTO(null, e.getStudenten().getId(), null, e.getDatum(),
+                        e.getStatus().getId(), e.getStatus().getBezeichnung(), null))
+                .toList();
+    }
+
+    /**
+     * Zählt die Erfassungen eines Studenten im Monat je Status als "Bezeichnung:Anzahl:Verspätungen:Minuten".
+     */
+    private static Map<String, String> statusAnzahlen(Studenten student, List<Erfassung> erfassungen) {
+        Map<String, long[]> summen = new HashMap<>();
+        for (Erfassung erfassung : erfassungen) {
+            if (erfassung.getStudenten() != student || !YearMonth.from(erfassung.getDatum()).equals(MONAT)) {
+                continue;
+            }
+            long[] summe = summen.computeIfAbsent(erfassung.getStatus().getBezeichnung(), b -> new long[3]);
+            int minuten = erfassung.getVerspaetungMinuten() != null ? erfassung.getVerspaetungMinuten() : 0;
+            summe[0]++;
+            summe[1] += minuten > 0 ? 1 : 0;
+            summe[2] += minuten;
+        }
+        Map<String, String> ergebnis = new HashMap<>();
+        summen.forEach((bezeichnung, s) -> ergebnis.put(bezeichnung, s[0] + ":" + s[1] + ":" + s[2]));
+        return ergebnis;
+    }
+
+    private static Map<String, String> statusAnzahlen(List<StatusAnzahl> statusAnzahlen) {
+        Map<String, String> ergebnis = new HashMap<>();
+        for (StatusAnzahl s : statusAnzahlen) {
+            ergebnis.put(s.bezeichnung(), s.anzahl() + ":" + s.verspaetungen() + ":" + s.verspaetungMinuten());
+        }
+        return ergebnis;
+    }
+
+    private static List<Studenten> studenten(int anzahl) {
+        Gruppe gruppe = new Gruppe("Gruppe");
+        gruppe.setId(1);
+        List<Studenten> studenten = new ArrayList<>();
+        for (int i = 0; i < anzahl; i++) {
+            Studenten student = new Studenten("Name" + i, "Vorname" + i, gruppe);
+            student.setId(i + 1);
+            studenten.add(student);
+        }
+        return studenten;
+    }
+
+    private static List<RosterEintrag> roster(List<Studenten> studenten) {
+        return studenten.stream()
+                .map(s -> new RosterEintrag(s.getId(), s.getGruppe().getId(), s.getVorname() + " " + s.getName()))
+                .toList();
+    }
+
+    /**
+     * Erfassungen an allen Werktagen: überwiegend anwesend, teils krank oder entschuldigt, jede fünfte
+     * Anwesenheit mit Verspätung.
+     */
+    private List<Erfassung> erfassungen(List<Studenten> studenten) {
+        List<Erfassung> erfassungen = new ArrayList<>();
+        for (int tag = 1; tag <= MONAT.lengthOfMonth(); tag++) {
+            LocalDate datum = MONAT.atDay(tag);
+            if (datum.getDayOfWeek().getValue() > 5) {
+                continue;
+            }
+            for (Studenten student : studenten) {
+                int wert = student.getId() + tag;
+                Status status = wert % 7 == 0 ? krank : wert % 11 == 0 ? entschuldigt : anwesend;
+                Erfassung erfassung = new Erfassung(student, datum, status, null);
+                if (status == anwesend && wert % 5 == 0) {
+                    erfassung.setVerspaetungMinuten(wert % 30 + 1);
+                }
+                erfassungen.add(erfassung);
+            }
+        }
+        return erfassungen;
+    }
+
+    private static Status status(int id, String bezeichnung) {
+        Status status = new Status(bezeichnung);
+        status.setId(id);
+        return status;
+    }
+}
@@ -0,0 +1,146 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.StatistikService;
+import com.art.erfassung.service.StatistikService.StatistikErgebnis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark für {@link StatistikService#berechneGruppenstatistik(Integer, LocalDate, LocalDate)}.
+ * <p>
+ * Vergleicht die Gruppenstatistik mit N Aufrufen der Einzelstatistik: Die Ergebnisse müssen übereinstimmen,
+ * die Anzahl der Statements der Gruppenstatistik muss unabhängig von der Gruppengröße bleiben.
+ * </p>
+ */
+@DataJpaTest(properties = SqlZaehler.PROPERTY)
+@ActiveProfiles("test")
+@Import({StatistikService.class, AnwesenheitZaehlerService.class})
+public class GruppenStatistikBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(GruppenStatistikBenchmarkTest.class);
+
+    private static final int STUDENTEN = 30;
+    private static final int TAGE = 200;
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatistikService statistikService;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    private Gruppe gruppe;
+    private final List<Studenten> studenten = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        gruppe = entityManager.persist(new Gruppe("Gruppe A"));
+        Gruppe andereGruppe = entityManager.persist(new Gruppe("Gruppe B"));
+        Status anwesend = entityManager.persist(new Status("Anwesend"));
+        Status entschuldigt = entityManager.persist(new Status("Entschuldigt"));
+        Status krank = entityManager.persist(new Status("Krank"));
+        Studenten fremd = entityManager.persist(new Studenten("Fremd", "Fritz", andereGruppe));
+        entityManager.persist(new Erfassung(fremd, START, anwesend, null));
+        for (int i = 0; i < STUDENTEN; i++) {
+            Studenten student = entityManager.persist(new Studenten("Student" + i, "Vorname" + i, gruppe));
+            studenten.add(student);
+            for (int tag = 0; tag < TAGE; tag++) {
+                Status status = (tag + i) % 7 == 0 ? krank : (tag * i) % 11 == 1 ? entschuldigt : anwesend;
+                Erfassung erfassung = new Erfassung(student, START.plusDays(tag), status, null);
+                if (status == anwesend && (tag + i) % 5 == 0) {
+                    erfassung.setVerspaetungMinuten(i + 1);
+                }
+                entityManager.persist(erfassung);
+            }
+        }
+        entityManager.flush();
+        anwesenheitZaehlerService.neuAufbauen();
+        entityManager.clear();
+    }
+
+    @Test
+    public void testGruppenstatistikEntsprichtEinzelstatistikMitKonstantenStatements() {
+        // Act: N Aufrufe der Einzelstatistik
+        SqlZaehler.zuruecksetzen();
+        long start = System.nanoTime();
+        List<StatistikErgebnis> einzeln = new ArrayList<>();
+        for (Studenten student : studenten) {
+            einzeln.add(statistikService.berechneStudentenstatistik(student.getId()));
+        }
+        long dauerEinzeln = System.nanoTime() - start;
+        int statementsEinzeln = SqlZaehler.statements();
+        entityManager.clear();
+
+        // Act: eine Gruppenstatistik
+        SqlZaehler.zuruecksetzen();
+        start = System.nanoTime();
+        List<StatistikErgebnis> gruppenweit = statistikService.berechneGruppenstatistik(gruppe.getId(), null, null);
+        long dauerGruppe = System.nanoTime() - start;
+        int statementsGruppe = SqlZaehler.statements();
+        logger.info("Statistik für {} Studenten: einzeln {} Statements in {} ms, gruppenweit {} Statements in {} ms",
+                STUDENTEN, statementsEinzeln, dauerEinzeln / 1_000_000, statementsGruppe, dauerGruppe / 1_000_000);
+
+        // Assert
+        assertEquals(2 * STUDENTEN, statementsEinzeln);
+        assertEquals(2, statementsGruppe);
+        assertEquals(STUDENTEN, gruppenweit.size());
+        for (StatistikErgebnis erwartet : einzeln) {
+            StatistikErgebnis tatsaechlich = gruppenweit.stream()
+                    .filter(e -> e.student().getId() == erwartet.student().getId())
+                    .findFirst().orElseThrow();
+            assertEquals(erwartet.gesamtAnwesenheit(), tatsaechlich.gesamtAnwesenheit(), 0.0001);
+            assertEquals(erwartet.entschuldigt(), tatsaechlich.entschuldigt());
+            assertEquals(erwartet.krank(), tatsaechlich.krank());
+            assertEquals(erwartet.verspaetungen(), tatsaechlich.verspaetungen());
+            assertEquals(erwartet.verspaetungMinuten(), tatsaechlich.verspaetungMinuten());
+        }
+        for (int i = 1; i < gruppenweit.size(); i++) {
+            assertTrue(gruppenweit.get(i - 1).gesamtAnwesenheit() >= gruppenweit.get(i).gesamtAnwesenheit());
+        }
+    }
+
+    @Test
+    public void testGruppenstatistikImZeitraum() {
+        // Arrange
+        LocalDate von = START.plusDays(10);
+        LocalDate bis = START.plusDays(39);
+        SqlZaehler.zuruecksetzen();
+
+        // Act
+        List<StatistikErgebnis> ergebnisse = statistikService.berechneGruppenstatistik(gruppe.getId(), von, bis);
+
+        // Assert
+        assertEquals(2, SqlZaehler.statements());
+        assertEquals(STUDENTEN, ergebnisse.size());
+        for (StatistikErgebnis ergebnis : ergebnisse) {
+            long gezaehlt = ergebnis.entschuldigt() + ergebnis.unentschuldigt() + ergebnis.krank();
+            assertTrue(gezaehlt <= 30);
+            assertTrue(ergebnis.gesamtAnwesenheit() > 0.0);
+        }
+        StatistikErgebnis ohneBis = statistikService.berechneGruppenstatistik(gruppe.getId(), von, null).get(0);
+        assertTrue(ohneBis.krank() >= ergebnisse.stream()
+                .filter(e -> e.student().getId() == ohneBis.student().getId())
+                .findFirst().orElseThrow().krank());
+    }
+}
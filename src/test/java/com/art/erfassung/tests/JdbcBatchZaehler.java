@@ -0,0 +1,104 @@
+package com.art.erfassung.tests;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestComponent;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Umhüllt die {@link DataSource} in Tests und zählt die per {@code executeBatch()} gesendeten JDBC-Batches.
+ * <p>
+ * Die Batches werden nach der Tabelle des Insert-, Update- oder Delete-Statements gruppiert,
+ * sodass Tests gezielt die Batches einer Tabelle prüfen können.
+ * </p>
+ */
+@TestComponent
+public class JdbcBatchZaehler implements BeanPostProcessor {
+
+    private final Map<String, AtomicInteger> batches = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                Object result = method.invoke(target, args);
+                if (result instanceof Connection connection) {
+                    return verbindung(connection);
+                }
+                return result;
+            });
+        }
+        return bean;
+    }
+
+    /**
+     * Liefert die Anzahl der seit dem letzten Zurücksetzen gesendeten Batches für eine Tabelle.
+     *
+     * @param tabelle der Tabellenname, z. B. {@code erfassung}
+     * @return die Anzahl der ausgeführten Batches
+     */
+    public int batches(String tabelle) {
+        AtomicInteger anzahl = batches.get(tabelle.toLowerCase(Locale.ROOT));
+        return anzahl == null ? 0 : anzahl.get();
+    }
+
+    public void zuruecksetzen() {
+        batches.clear();
+    }
+
+    private Connection verbindung(Connection connection) {
+        return proxy(Connection.class, connection, (target, method, args) -> {
+            Object result = method.invoke(target, args);
+            if (result instanceof PreparedStatement statement && args != null && args[0] instanceof String sql) {
+                return anweisung(statement, tabelleAus(sql));
+            }
+            return result;
+        });
+    }
+
+    private PreparedStatement anweisung(PreparedStatement statement, String tabelle) {
+        return proxy(PreparedStatement.class, statement, (target, method, args) -> {
+            if ("executeBatch".equals(method.getName()) && tabelle != null) {
+                batches.computeIfAbsent(tabelle, key -> new AtomicInteger()).incrementAndGet();
+            }
+            return method.invoke(target, args);
+        });
+    }
+
+    private static String tabelleAus(String sql) {
+        String[] teile = sql.trim().toLowerCase(Locale.ROOT).split("\\s+");
+        if (teile.length > 2 && (teile[0].equals("insert") || teile[0].equals("delete"))) {
+            return teile[2];
+        }
+        if (teile.length > 1 && teile[0].equals("update")) {
+            return teile[1];
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> typ, T target, Handler<T> handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            try {
+                return handler.invoke(target, method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(JdbcBatchZaehler.class.getClassLoader(), new Class<?>[]{typ}, invocationHandler);
+    }
+
+    @FunctionalInterface
+    private interface Handler<T> {
+        Object invoke(T target, java.lang.reflect.Method method, Object[] args) throws Throwable;
+    }
+}
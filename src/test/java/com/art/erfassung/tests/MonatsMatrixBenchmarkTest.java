@@ -0,0 +1,164 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungListeDTO;
+import com.art.erfassung.dto.MonatsMatrix;
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.mapper.ErfassungListeMapper;
+import com.art.erfassung.mapper.MonatsMatrixMapper;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test und Benchmark für {@link MonatsMatrixMapper}.
+ * <p>
+ * Vergleicht den Aufbau der Monatsmatrix mit dem bisherigen Vorgehen des Templates, das für jeden
+ * Studenten und jeden Tag alle Erfassungen des Monats durchlaufen hat.
+ * </p>
+ */
+public class MonatsMatrixBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonatsMatrixBenchmarkTest.class);
+
+    private static final YearMonth MONAT = YearMonth.of(2024, 1);
+    private static final int DURCHLAEUFE = 200;
+
+    private final MonatsMatrixMapper mapper = new MonatsMatrixMapper();
+    private final ErfassungListeMapper listeMapper = new ErfassungListeMapper();
+
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        anwesend = status(1, "Anwesend");
+        krank = status(4, "Krankmeldung");
+    }
+
+    @Test
+    public void testToMatrix_SortiertErfassungenEin() {
+        // Arrange
+        List<Studenten> studenten = studenten(2);
+        List<Erfassung> erfassungen = List.of(
+                new Erfassung(studenten.get(0), MONAT.atDay(1), anwesend, null),
+                new Erfassung(studenten.get(1), MONAT.atDay(31), krank, null),
+                new Erfassung(studenten.get(1), LocalDate.of(2024, 2, 1), anwesend, null));
+
+        // Act
+        MonatsMatrix matrix = mapper.toMatrix(roster(studenten), listeMapper.toDTOList(erfassungen), MONAT);
+
+        // Assert
+        assertEquals(31, matrix.getTageImMonat());
+        assertEquals(2, matrix.getZeilen().size());
+        assertEquals("Vorname0 Name0", matrix.getZeilen().get(0).getStudentenName());
+        assertEquals(1, matrix.getZeilen().get(0).getStatusIds()[0]);
+        assertEquals(4, matrix.getZeilen().get(1).getStatusIds()[30]);
+        assertEquals(MonatsMatrix.KEIN_EINTRAG, matrix.getZeilen().get(1).getStatusIds()[0]);
+        assertEquals("status-anwesend", matrix.klasse(1));
+        assertEquals("status-krank", matrix.klasse(4));
+        assertEquals("", matrix.klasse(MonatsMatrix.KEIN_EINTRAG));
+    }
+
+    @Test
+    public void testBenchmark_MatrixGegenVerschachtelteSchleifen() {
+        for (int anzahl : new int[]{10, 30, 100}) {
+            List<Studenten> studenten = studenten(anzahl);
+            List<Erfassung> erfassungen = erfassungen(studenten);
+            List<ErfassungListeDTO> dtos = listeMapper.toDTOList(erfassungen);
+            List<RosterEintrag> roster = roster(studenten);
+
+            long[] vergleiche = new long[1];
+            int[][] erwartet = verschachtelt(studenten, erfassungen, vergleiche);
+            MonatsMatrix matrix = mapper.toMatrix(roster, dtos, MONAT);
+            for (int i = 0; i < anzahl; i++) {
+                assertArrayEquals(erwartet[i], matrix.getZeilen().get(i).getStatusIds());
+            }
+
+            long startVerschachtelt = System.nanoTime();
+            for (int i = 0; i < DURCHLAEUFE; i++) {
+                verschachtelt(studenten, erfassungen, new long[1]);
+            }
+            long dauerVerschachtelt = System.nanoTime() - startVerschachtelt;
+
+            long startMatrix = System.nanoTime();
+            for (int i = 0; i < DURCHLAEUFE; i++) {
+                mapper.toMatrix(roster, dtos, MONAT);
+            }
+            long dauerMatrix = System.nanoTime() - startMatrix;
+
+            logger.info("{} Studenten, {} Erfassungen: Template-Schleifen {} Vergleiche, {} µs/Aufbau; Matrix {} µs/Aufbau",
+                    anzahl, erfassungen.size(), vergleiche[0],
+                    dauerVerschachtelt / DURCHLAEUFE / 1_000, dauerMatrix / DURCHLAEUFE / 1_000);
+            assertEquals((long) anzahl * MONAT.lengthOfMonth() * erfassungen.size(), vergleiche[0]);
+        }
+    }
+
+    /**
+     * Bildet die bisherige Template-Logik nach: für jeden Studenten und Tag werden alle Erfassungen geprüft.
+     */
+    private int[][] verschachtelt(List<Studenten> studenten, List<Erfassung> erfassungen, long[] vergleiche) {
+        int[][] ergebnis = new int[studenten.size()][MONAT.lengthOfMonth()];
+        for (int s = 0; s < studenten.size(); s++) {
+            for (int tag = 1; tag <= MONAT.lengthOfMonth(); tag++) {
+                for (Erfassung erfassung : erfassungen) {
+                    vergleiche[0]++;
+                    if (erfassung.getStudenten().getId() == studenten.get(s).getId()
+                            && erfassung.getDatum().getDayOfMonth() == tag) {
+                        ergebnis[s][tag - 1] = erfassung.getStatus().getId();
+                    }
+                }
+            }
+        }
+        return ergebnis;
+    }
+
+    private List<Studenten> studenten(int anzahl) {
+        Gruppe gruppe = new Gruppe("Gruppe");
+        gruppe.setId(1);
+        List<Studenten> studenten = new ArrayList<>();
+        for (int i = 0; i < anzahl; i++) {
+            Studenten student = new Studenten("Name" + i, "Vorname" + i, gruppe);
+            student.setId(i + 1);
+            studenten.add(student);
+        }
+        return studenten;
+    }
+
+    private static List<RosterEintrag> roster(List<Studenten> studenten) {
+        return studenten.stream()
+                .map(s -> new RosterEintrag(s.getId(), s.getGruppe().getId(), s.getVorname() + " " + s.getName()))
+                .toList();
+    }
+
+    private List<Erfassung> erfassungen(List<Studenten> studenten) {
+        List<Erfassung> erfassungen = new ArrayList<>();
+        for (int tag = 1; tag <= MONAT.lengthOfMonth(); tag++) {
+            LocalDate datum = MONAT.atDay(tag);
+            if (datum.getDayOfWeek().getValue() > 5) {
+                continue;
+            }
+            for (Studenten student : studenten) {
+                erfassungen.add(new Erfassung(student, datum, (student.getId() + tag) % 7 == 0 ? krank : anwesend, null));
+            }
+        }
+        return erfassungen;
+    }
+
+    private static Status status(int id, String bezeichnung) {
+        Status status = new Status(bezeichnung);
+        status.setId(id);
+        return status;
+    }
+}
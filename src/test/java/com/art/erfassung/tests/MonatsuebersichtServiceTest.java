@@ -0,0 +1,170 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.config.CacheConfig;
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.GruppenMonat;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.MonatsuebersichtService;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.StatistikService;
+import com.art.erfassung.service.StatistikService.StatistikErgebnis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für den {@link MonatsuebersichtService}: Zwischenspeichern der kodierten Monate, Verwerfen nach dem
+ * Commit von Erfassungen und nach Änderungen an Studenten sowie die Statistik aus einem kodierten Monat.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class MonatsuebersichtServiceTest {
+
+    private static final YearMonth MAERZ = YearMonth.of(2025, 3);
+    private static final YearMonth APRIL = YearMonth.of(2025, 4);
+
+    @Autowired
+    private MonatsuebersichtService monatsuebersichtService;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private StatistikService statistikService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Studenten neu;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        cacheManager.getCache(CacheConfig.MONATSUEBERSICHT).clear();
+        gruppe = gruppeRepository.save(new Gruppe("Monat Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        referenzdatenRegistry.neuLaden();
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppe));
+        max = studentenRepository.save(new Studenten("Mustermann", "Max", gruppe));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(neu != null ? List.of(anna, max, neu) : List.of(anna, max));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.delete(gruppe);
+        referenzdatenRegistry.neuLaden();
+    }
+
+    @Test
+    public void testMonatWirdZwischengespeichertUndNachCommitVerworfen() {
+        // Arrange
+        erfassen(MAERZ.atDay(3), dto(anna, anwesend, "08:20"), dto(max, krank, null));
+        erfassen(APRIL.atDay(1), dto(anna, anwesend, null), dto(max, anwesend, null));
+        GruppenMonat maerz = monatsuebersichtService.gruppenMonat(gruppe.getId(), MAERZ).orElseThrow();
+        GruppenMonat april = monatsuebersichtService.gruppenMonat(gruppe.getId(), APRIL).orElseThrow();
+
+        // Act & Assert: wiederholte Abfrage aus dem Cache
+        assertSame(maerz, monatsuebersichtService.gruppenMonat(gruppe.getId(), MAERZ).orElseThrow());
+        assertEquals(krank.getId(), maerz.statusId(maerz.zeile(max.getId()), 3));
+
+        // Act: Korrektur im März verwirft nur den März
+        erfassen(MAERZ.atDay(3), dto(max, anwesend, null));
+
+        // Assert
+        GruppenMonat maerzNeu = monatsuebersichtService.gruppenMonat(gruppe.getId(), MAERZ).orElseThrow();
+        assertNotSame(maerz, maerzNeu);
+        assertEquals(anwesend.getId(), maerzNeu.statusId(maerzNeu.zeile(max.getId()), 3));
+        assertSame(april, monatsuebersichtService.gruppenMonat(gruppe.getId(), APRIL).orElseThrow());
+
+        // Act: ein neuer Student verwirft alle Monate
+        neu = studentenRepository.save(new Studenten("Neu", "Nina", gruppe));
+
+        // Assert
+        assertNotSame(april, monatsuebersichtService.gruppenMonat(gruppe.getId(), APRIL).orElseThrow());
+    }
+
+    @Test
+    public void testStatistikAusMonatEntsprichtStatistikImZeitraum() {
+        // Arrange
+        erfassen(MAERZ.atDay(3), dto(anna, anwesend, "08:20"), dto(max, krank, null));
+        erfassen(MAERZ.atDay(4), dto(anna, anwesend, null), dto(max, anwesend, "08:05"));
+        erfassen(MAERZ.atDay(5), dto(anna, krank, null));
+        erfassen(APRIL.atDay(1), dto(anna, krank, null), dto(max, krank, null));
+        GruppenMonat maerz = monatsuebersichtService.gruppenMonat(gruppe.getId(), MAERZ).orElseThrow();
+
+        // Act
+        List<StatistikErgebnis> ausMonat = statistikService.berechneGruppenstatistik(gruppe.getId(), maerz);
+        List<StatistikErgebnis> imZeitraum = statistikService.berechneGruppenstatistik(gruppe.getId(),
+                MAERZ.atDay(1), MAERZ.atEndOfMonth());
+
+        // Assert
+        assertEquals(imZeitraum.size(), ausMonat.size());
+        for (int i = 0; i < imZeitraum.size(); i++) {
+            StatistikErgebnis erwartet = imZeitraum.get(i);
+            StatistikErgebnis tatsaechlich = ausMonat.get(i);
+            assertEquals(erwartet.student().getId(), tatsaechlich.student().getId());
+            assertEquals(erwartet.gesamtAnwesenheit(), tatsaechlich.gesamtAnwesenheit(), 0.0001);
+            assertEquals(erwartet.krank(), tatsaechlich.krank());
+            assertEquals(erwartet.verspaetungen(), tatsaechlich.verspaetungen());
+            assertEquals(erwartet.verspaetungMinuten(), tatsaechlich.verspaetungMinuten());
+        }
+        assertEquals(1, ausMonat.stream().filter(e -> e.student().getId() == anna.getId())
+                .findFirst().orElseThrow().verspaetungen());
+    }
+
+    private void erfassen(LocalDate datum, ErfassungDTO... dtos) {
+        erfassungService.erfassenAnwesenheiten(List.of(dtos), datum);
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status, String ankunftszeit) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        dto.setAnkunftszeit(ankunftszeit);
+        return dto;
+    }
+}
@@ -0,0 +1,86 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for {@link ReferenzdatenRegistry}.
+ */
+public class ReferenzdatenRegistryTest {
+
+    @Mock
+    private StatusRepository statusRepository;
+
+    @Mock
+    private GruppeRepository gruppeRepository;
+
+    private ReferenzdatenRegistry registry;
+
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        registry = new ReferenzdatenRegistry(statusRepository, gruppeRepository);
+
+        anwesend = new Status("Anwesend");
+        anwesend.setId(1);
+        krank = new Status("Krankmeldung");
+        krank.setId(4);
+        Gruppe gruppe = new Gruppe("Gruppe 1");
+        gruppe.setId(1);
+        when(statusRepository.findAll()).thenReturn(List.of(krank, anwesend));
+        when(gruppeRepository.findAll()).thenReturn(List.of(gruppe));
+    }
+
+    @Test
+    public void testAlleStatus_SortiertUndNurEinmalGeladen() {
+        // Act
+        List<Status> ersterAufruf = registry.alleStatus();
+        List<Status> zweiterAufruf = registry.alleStatus();
+
+        // Assert
+        assertEquals(List.of(anwesend, krank), ersterAufruf);
+        assertEquals(ersterAufruf, zweiterAufruf);
+        verify(statusRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void testAlsVeraltetMarkieren_LaedtBeimNaechstenZugriffNeu() {
+        // Arrange
+        registry.neuLaden();
+        Status neu = new Status("Beurlaubt");
+        neu.setId(5);
+        when(statusRepository.findAll()).thenReturn(List.of(anwesend, krank, neu));
+
+        // Act
+        registry.alsVeraltetMarkieren();
+        List<Status> alleStatus = registry.alleStatus();
+
+        // Assert
+        assertEquals(3, alleStatus.size());
+        verify(statusRepository, times(2)).findAll();
+    }
+
+    @Test
+    public void testStatusReferenz_UnbekannteIdOhneReferenz() {
+        // Act & Assert
+        assertThrows(NoSuchElementException.class, () -> registry.statusReferenz(99));
+        verify(statusRepository, never()).getReferenceById(anyInt());
+    }
+}
@@ -0,0 +1,118 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.RosterEintrag;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.RosterCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für {@link RosterCache}.
+ * <p>
+ * Läuft ohne umschließende Testtransaktion, damit jede Änderung festgeschrieben wird und der Cache wie im
+ * Betrieb erst nach dem Commit verworfen wird.
+ * </p>
+ */
+@DataJpaTest(properties = SqlZaehler.PROPERTY)
+@ActiveProfiles("test")
+@Import({RosterCache.class, ReferenzdatenRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RosterCacheTest {
+
+    @Autowired
+    private RosterCache rosterCache;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    private Gruppe gruppeA;
+    private Gruppe gruppeB;
+    private Studenten anna;
+
+    @BeforeEach
+    public void setup() {
+        gruppeA = gruppeRepository.save(new Gruppe("Gruppe A"));
+        gruppeB = gruppeRepository.save(new Gruppe("Gruppe B"));
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppeA));
+        studentenRepository.save(new Studenten("Mustermann", "Max", gruppeA));
+        referenzdatenRegistry.neuLaden();
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        studentenRepository.deleteAll();
+        gruppeRepository.deleteAll();
+    }
+
+    @Test
+    public void testVorwaermen_LesenOhneAbfrage() {
+        // Arrange
+        rosterCache.vorwaermen();
+        SqlZaehler.zuruecksetzen();
+
+        // Act
+        List<RosterEintrag> rosterA = rosterCache.roster(gruppeA.getId());
+        List<RosterEintrag> rosterB = rosterCache.roster(gruppeB.getId());
+
+        // Assert
+        assertEquals(List.of("Anna Musterfrau", "Max Mustermann"),
+                rosterA.stream().map(RosterEintrag::anzeigeName).toList());
+        assertTrue(rosterB.isEmpty());
+        assertEquals(0, SqlZaehler.statements());
+    }
+
+    @Test
+    public void testStudentVerschieben_VerwirftBeideGruppen() {
+        // Arrange
+        rosterCache.vorwaermen();
+        Studenten student = studentenRepository.findById(anna.getId()).orElseThrow();
+        student.setGruppe(gruppeB);
+
+        // Act
+        studentenRepository.save(student);
+
+        // Assert
+        assertEquals(List.of("Max Mustermann"),
+                rosterCache.roster(gruppeA.getId()).stream().map(RosterEintrag::anzeigeName).toList());
+        assertEquals(List.of(anna.getId()),
+                rosterCache.roster(gruppeB.getId()).stream().map(RosterEintrag::studentenId).toList());
+    }
+
+    @Test
+    public void testStudentAnlegen_LaedtNurBetroffeneGruppeNeu() {
+        // Arrange
+        rosterCache.vorwaermen();
+        studentenRepository.save(new Studenten("Neu", "Nina", gruppeB));
+        SqlZaehler.zuruecksetzen();
+
+        // Act
+        List<RosterEintrag> rosterA = rosterCache.roster(gruppeA.getId());
+        List<RosterEintrag> rosterB = rosterCache.roster(gruppeB.getId());
+
+        // Assert
+        assertEquals(2, rosterA.size());
+        assertEquals(List.of("Nina Neu"), rosterB.stream().map(RosterEintrag::anzeigeName).toList());
+        assertEquals(1, SqlZaehler.selects());
+    }
+}
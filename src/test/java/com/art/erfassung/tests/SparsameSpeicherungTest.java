@@ -0,0 +1,262 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.ErfassungExportZeile;
+import com.art.erfassung.dto.ErfassungListeDTO;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.SparsameSpeicherungService;
+import com.art.erfassung.service.SparsameSpeicherungService.UmstellungErgebnis;
+import com.art.erfassung.service.StatistikService;
+import com.art.erfassung.service.StatistikService.StatistikErgebnis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für die sparsame Speicherung ("erfassung.speicherung.sparsam"), in der nur Abweichungen als Erfassung
+ * gespeichert werden, und für die Umstellung vorhandener Erfassungen über den {@link SparsameSpeicherungService}.
+ */
+@DataJpaTest(properties = "erfassung.speicherung.sparsam=true")
+@ActiveProfiles("test")
+@Import({ErfassungService.class, GruppenSperren.class, ReferenzdatenRegistry.class, AnwesenheitZaehlerService.class,
+        StatistikService.class, SparsameSpeicherungService.class})
+public class SparsameSpeicherungTest {
+
+    private static final LocalDate MONTAG = LocalDate.of(2025, 3, 3);
+    private static final LocalDate DIENSTAG = LocalDate.of(2025, 3, 4);
+    private static final LocalDate MITTWOCH = LocalDate.of(2025, 3, 5);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private StatistikService statistikService;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    @Autowired
+    private SparsameSpeicherungService sparsameSpeicherungService;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private ErfassungsTagRepository erfassungsTagRepository;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Studenten lea;
+    private Status anwesend;
+    private Status krank;
+    private Status entschuldigt;
+
+    @BeforeEach
+    public void setup() {
+        gruppe = entityManager.persist(new Gruppe("Gruppe A"));
+        anwesend = entityManager.persist(new Status(Status.ANWESEND));
+        krank = entityManager.persist(new Status("Krank"));
+        entschuldigt = entityManager.persist(new Status("Entschuldigt"));
+        anna = entityManager.persist(seitJeher(new Studenten("Musterfrau", "Anna", gruppe)));
+        max = entityManager.persist(seitJeher(new Studenten("Mustermann", "Max", gruppe)));
+        lea = entityManager.persist(seitJeher(new Studenten("Beispiel", "Lea", gruppe)));
+        entityManager.flush();
+        referenzdatenRegistry.neuLaden();
+    }
+
+    @Test
+    public void testSparsamGespeichert_NurAbweichungenMitGleicherListeUndStatistik() {
+        // Act: Montag mit Abweichungen, Dienstag alle anwesend, danach Korrekturen in beide Richtungen
+        erfassungService.erfassenAnwesenheiten(List.of(
+                dto(anna, anwesend, null, null),
+                dto(max, krank, null, "Attest"),
+                dto(lea, anwesend, "08:15", null)), MONTAG);
+        erfassungService.erfassenAnwesenheiten(List.of(
+                dto(anna, anwesend, null, null),
+                dto(max, anwesend, null, null),
+                dto(lea, anwesend, null, null)), DIENSTAG);
+        erfassungService.erfassenAnwesenheiten(List.of(dto(max, entschuldigt, null, null)), DIENSTAG);
+        erfassungService.erfassenAnwesenheiten(List.of(dto(max, anwesend, null, null)), MONTAG);
+        // Ein Check-in markiert den Tag nicht; die übrigen Studenten bleiben ohne Erfassung.
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, "07:55", null)), MITTWOCH, false);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert: gespeichert sind nur Leas Verspätung, Max' Entschuldigung und Annas Ankunft
+        assertEquals(3, erfassungRepository.count());
+        assertEquals(2, erfassungsTagRepository.count());
+        List<ErfassungListeDTO> liste = erfassungService.findListeByGruppeUndMonat(gruppe.getId(),
+                MONTAG.withDayOfMonth(1), MONTAG.withDayOfMonth(31));
+        assertEquals(Set.of(
+                eintrag(anna, MONTAG, Status.ANWESEND), eintrag(max, MONTAG, Status.ANWESEND),
+                eintrag(lea, MONTAG, Status.ANWESEND),
+                eintrag(anna, DIENSTAG, Status.ANWESEND), eintrag(max, DIENSTAG, "Entschuldigt"),
+                eintrag(lea, DIENSTAG, Status.ANWESEND),
+                eintrag(anna, MITTWOCH, Status.ANWESEND)), eintraege(liste));
+
+        StatistikErgebnis maxStatistik = statistik(max, statistikService.berechneGruppenstatistik(
+                gruppe.getId(), MONTAG, MITTWOCH));
+        assertEquals(50.0, maxStatistik.gesamtAnwesenheit(), 0.0001);
+        assertEquals(1, maxStatistik.entschuldigt());
+        assertEquals(0, maxStatistik.krank());
+        StatistikErgebnis leaStatistik = statistik(lea, statistikService.berechneGruppenstatistik(
+                gruppe.getId(), MONTAG, MITTWOCH));
+        assertEquals(100.0, leaStatistik.gesamtAnwesenheit(), 0.0001);
+        assertEquals(1, leaStatistik.verspaetungen());
+        assertEquals(15, leaStatistik.verspaetungMinuten());
+
+        // Die fortgeschriebenen Zähler entsprechen den im Zeitraum gezählten Erfassungen und dem Neuaufbau.
+        for (Studenten student : List.of(anna, max, lea)) {
+            assertStatistikGleich(statistik(student, statistikService.berechneGruppenstatistik(
+                    gruppe.getId(), MONTAG, MITTWOCH)), statistikService.berechneStudentenstatistik(student.getId()));
+        }
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+    }
+
+    @Test
+    public void testUmstellung_EntferntNurVollstaendigErfassteTageOhneAbweichung() {
+        // Arrange: vollständig gespeicherte Erfassungen; am Mittwoch fehlt Lea
+        for (LocalDate tag : List.of(MONTAG, DIENSTAG)) {
+            entityManager.persist(new Erfassung(anna, tag, anwesend, null));
+            entityManager.persist(new Erfassung(max, tag, tag.equals(MONTAG) ? krank : anwesend, null));
+            entityManager.persist(new Erfassung(lea, tag, anwesend, tag.equals(DIENSTAG) ? "Bus" : null));
+        }
+        entityManager.persist(new Erfassung(anna, MITTWOCH, anwesend, null));
+        entityManager.persist(new Erfassung(max, MITTWOCH, anwesend, null));
+        entityManager.flush();
+        anwesenheitZaehlerService.neuAufbauen();
+        Set<String> listeVorher = eintraege(erfassungService.findListeByGruppeUndMonat(gruppe.getId(),
+                MONTAG, MITTWOCH));
+        List<StatistikErgebnis> statistikVorher = statistikService.berechneGruppenstatistik(gruppe.getId(),
+                MONTAG, MITTWOCH);
+
+        // Act
+        UmstellungErgebnis ergebnis = sparsameSpeicherungService.umstellen();
+        entityManager.clear();
+
+        // Assert: Montag und Dienstag markiert; Anna (2x), Max (Di) und Lea (Mo) entfernt
+        assertEquals(1, ergebnis.gruppen());
+        assertEquals(2, ergebnis.tageMarkiert());
+        assertEquals(8, ergebnis.erfassungenVorher());
+        assertEquals(4, ergebnis.entfernt());
+        assertEquals(50.0, ergebnis.anteilEntferntProzent(), 0.0001);
+        assertEquals(4, erfassungRepository.count());
+        assertEquals(listeVorher, eintraege(erfassungService.findListeByGruppeUndMonat(gruppe.getId(),
+                MONTAG, MITTWOCH)));
+        List<StatistikErgebnis> statistikNachher = statistikService.berechneGruppenstatistik(gruppe.getId(),
+                MONTAG, MITTWOCH);
+        for (Studenten student : List.of(anna, max, lea)) {
+            assertStatistikGleich(statistik(student, statistikVorher), statistik(student, statistikNachher));
+        }
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+        try (Stream<ErfassungExportZeile> export = erfassungRepository.streamExport(MONTAG, MITTWOCH, null)) {
+            assertEquals(8, export.count());
+        }
+
+        // Eine zweite Umstellung findet nichts mehr.
+        assertEquals(0, sparsameSpeicherungService.umstellen().tageMarkiert());
+    }
+
+    @Test
+    public void testSpaeterHinzugekommenerStudent_GiltNurAbBeginnDerZugehoerigkeitAlsAnwesend() {
+        // Arrange: Montag vollständig anwesend, danach kommt Tom zum Dienstag in die Gruppe
+        erfassungService.erfassenAnwesenheiten(List.of(
+                dto(anna, anwesend, null, null),
+                dto(max, anwesend, null, null),
+                dto(lea, anwesend, null, null)), MONTAG);
+        Studenten tom = new Studenten("Neu", "Tom", gruppe);
+        tom.setGruppeSeit(DIENSTAG);
+        tom = entityManager.persist(tom);
+        entityManager.flush();
+
+        // Act: Dienstag wird nur mit Max' Krankmeldung abgegeben
+        erfassungService.erfassenAnwesenheiten(List.of(dto(max, krank, null, null)), DIENSTAG);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert: Tom fehlt am Montag in Liste, Statistik und Zählern und gilt erst am Dienstag als anwesend
+        List<ErfassungListeDTO> liste = erfassungService.findListeByGruppeUndMonat(gruppe.getId(),
+                MONTAG, DIENSTAG);
+        assertFalse(eintraege(liste).contains(eintrag(tom, MONTAG, Status.ANWESEND)));
+        assertTrue(eintraege(liste).contains(eintrag(tom, DIENSTAG, Status.ANWESEND)));
+        StatistikErgebnis tomStatistik = statistik(tom, statistikService.berechneGruppenstatistik(
+                gruppe.getId(), MONTAG, DIENSTAG));
+        assertStatistikGleich(tomStatistik, statistikService.berechneStudentenstatistik(tom.getId()));
+        assertEquals(0, anwesenheitZaehlerService.neuAufbauen().abweichungen());
+        try (Stream<ErfassungExportZeile> export = erfassungRepository.streamExport(MONTAG, DIENSTAG, null)) {
+            assertEquals(7, export.count());
+        }
+
+        // Eine Umstellung markiert den Montag nicht erneut und löscht nichts.
+        assertEquals(0, sparsameSpeicherungService.umstellen().entfernt());
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status, String ankunftszeit, String kommentar) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        dto.setAnkunftszeit(ankunftszeit);
+        dto.setKommentar(kommentar);
+        return dto;
+    }
+
+    private static String eintrag(Studenten student, LocalDate datum, String status) {
+        return student.getId() + "|" + datum + "|" + status;
+    }
+
+    private static Set<String> eintraege(List<ErfassungListeDTO> liste) {
+        return liste.stream()
+                .map(dto -> dto.getStudentenId() + "|" + dto.getDatum() + "|" + dto.getStatusBezeichnung()
+                        + (dto.getKommentar() != null ? "|" + dto.getKommentar() : ""))
+                .collect(Collectors.toSet());
+    }
+
+    private static StatistikErgebnis statistik(Studenten student, List<StatistikErgebnis> ergebnisse) {
+        return ergebnisse.stream().filter(e -> e.student().getId() == student.getId()).findFirst().orElseThrow();
+    }
+
+    private static void assertStatistikGleich(StatistikErgebnis erwartet, StatistikErgebnis tatsaechlich) {
+        assertEquals(erwartet.gesamtAnwesenheit(), tatsaechlich.gesamtAnwesenheit(), 0.0001);
+        assertEquals(erwartet.entschuldigt(), tatsaechlich.entschuldigt());
+        assertEquals(erwartet.unentschuldigt(), tatsaechlich.unentschuldigt());
+        assertEquals(erwartet.krank(), tatsaechlich.krank());
+        assertEquals(erwartet.verspaetungen(), tatsaechlich.verspaetungen());
+        assertEquals(erwartet.verspaetungMinuten(), tatsaechlich.verspaetungMinuten());
+    }
+
+    /**
+     * Macht den Studenten zum Mitglied "seit jeher", damit er auch an markierten Tagen vor heute als anwesend gilt.
+     */
+    private static Studenten seitJeher(Studenten student) {
+        student.setGruppeSeit(null);
+        return student;
+    }
+}
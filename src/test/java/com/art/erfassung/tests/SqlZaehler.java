@@ -0,0 +1,54 @@
+package com.art.erfassung.tests;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Zählt die von Hibernate vorbereiteten SQL-Statements für Tests.
+ * <p>
+ * Wird über die Eigenschaft {@code spring.jpa.properties.hibernate.session_factory.statement_inspector}
+ * registriert. Die Zähler sind statisch, da Hibernate den Inspector selbst instanziiert.
+ * </p>
+ */
+public class SqlZaehler implements StatementInspector {
+
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.art.erfassung.tests.SqlZaehler";
+
+    private static final AtomicInteger SELECTS = new AtomicInteger();
+    private static final AtomicInteger SEQUENZEN = new AtomicInteger();
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.incrementAndGet();
+        String normalisiert = sql.stripLeading().toLowerCase(Locale.ROOT);
+        if (normalisiert.contains("next value for") || normalisiert.contains("nextval")) {
+            // Sequenzabrufe des Pooled-Optimizers werden getrennt gezählt (einer je 50 neue IDs).
+            SEQUENZEN.incrementAndGet();
+        } else if (normalisiert.startsWith("select")) {
+            SELECTS.incrementAndGet();
+        }
+        return sql;
+    }
+
+    public static void zuruecksetzen() {
+        SELECTS.set(0);
+        SEQUENZEN.set(0);
+        STATEMENTS.set(0);
+    }
+
+    public static int selects() {
+        return SELECTS.get();
+    }
+
+    public static int sequenzen() {
+        return SEQUENZEN.get();
+    }
+
+    public static int statements() {
+        return STATEMENTS.get();
+    }
+}
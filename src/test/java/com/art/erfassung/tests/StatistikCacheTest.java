@@ -0,0 +1,152 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.config.CacheConfig;
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.StatistikService;
+import com.art.erfassung.service.StatistikService.StatistikErgebnis;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für den Cache der Studentenstatistik und seine Invalidierung nach dem Commit von Erfassungen.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class StatistikCacheTest {
+
+    @Autowired
+    private StatistikService statistikService;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        cacheManager.getCache(CacheConfig.STUDENTENSTATISTIK).clear();
+        gruppe = gruppeRepository.save(new Gruppe("Cache Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppe));
+        max = studentenRepository.save(new Studenten("Mustermann", "Max", gruppe));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.delete(gruppe);
+    }
+
+    @Test
+    public void testStatistikWirdZwischengespeichertUndNachCommitGezieltVerworfen() {
+        // Arrange
+        erfassen(anna, anwesend);
+        erfassen(max, anwesend);
+        StatistikErgebnis annaVorher = statistikService.berechneStudentenstatistik(anna.getId());
+        statistikService.berechneStudentenstatistik(max.getId());
+        double treffer = cacheZaehler("hit");
+
+        // Act: wiederholte Abfrage wird aus dem Cache bedient
+        StatistikErgebnis annaErneut = statistikService.berechneStudentenstatistik(anna.getId());
+
+        // Assert
+        assertSame(annaVorher, annaErneut);
+        assertEquals(treffer + 1, cacheZaehler("hit"));
+
+        // Act: Statuswechsel für Anna verwirft nur Annas Eintrag
+        erfassen(anna, krank);
+
+        // Assert
+        assertNull(cacheManager.getCache(CacheConfig.STUDENTENSTATISTIK).get(anna.getId()));
+        assertNotNull(cacheManager.getCache(CacheConfig.STUDENTENSTATISTIK).get(max.getId()));
+        StatistikErgebnis annaNachher = statistikService.berechneStudentenstatistik(anna.getId());
+        assertEquals(1, annaNachher.krank());
+        assertEquals(0.0, annaNachher.gesamtAnwesenheit());
+    }
+
+    @Test
+    public void testRollbackVerwirftCacheNicht() {
+        // Arrange
+        erfassen(anna, anwesend);
+        StatistikErgebnis vorher = statistikService.berechneStudentenstatistik(anna.getId());
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            erfassungService.erfassenAnwesenheiten(List.of(dto(anna, krank)));
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertSame(vorher, statistikService.berechneStudentenstatistik(anna.getId()));
+    }
+
+    private void erfassen(Studenten student, Status status) {
+        erfassungService.erfassenAnwesenheiten(List.of(dto(student, status)));
+    }
+
+    private double cacheZaehler(String ergebnis) {
+        return meterRegistry.get("cache.gets")
+                .tag("name", CacheConfig.STUDENTENSTATISTIK)
+                .tag("result", ergebnis)
+                .functionCounter().count();
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        return dto;
+    }
+}
@@ -0,0 +1,99 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.service.AnwesenheitZaehlerService;
+import com.art.erfassung.service.StatistikService;
+import com.art.erfassung.service.StatistikService.StatistikErgebnis;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für den StatistikService, der die Statistik eines Studenten aus den Anwesenheitszählern liest.
+ */
+@DataJpaTest(properties = SqlZaehler.PROPERTY)
+@ActiveProfiles("test")
+@Import({StatistikService.class, AnwesenheitZaehlerService.class})
+public class StatistikServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private StatistikService statistikService;
+
+    @Autowired
+    private AnwesenheitZaehlerService anwesenheitZaehlerService;
+
+    @Test
+    public void testBerechneStudentenstatistik_AggregiertUnabhaengigVonDerHistorie() {
+        // Arrange
+        Gruppe gruppe = entityManager.persist(new Gruppe("Gruppe A"));
+        Status anwesend = entityManager.persist(new Status("Anwesend"));
+        Status entschuldigt = entityManager.persist(new Status("Entschuldigt"));
+        Status unentschuldigt = entityManager.persist(new Status("Unentschuldigt"));
+        Status krank = entityManager.persist(new Status("Krank"));
+        Studenten student = entityManager.persist(new Studenten("Mustermann", "Max", gruppe));
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < 1000; i++) {
+            Status status = switch (i % 10) {
+                case 0 -> entschuldigt;
+                case 1 -> unentschuldigt;
+                case 2 -> krank;
+                default -> anwesend;
+            };
+            Erfassung erfassung = new Erfassung(student, start.plusDays(i), status, null);
+            if (i % 50 == 3) {
+                erfassung.setVerspaetungMinuten(10);
+            }
+            entityManager.persist(erfassung);
+        }
+        entityManager.flush();
+        anwesenheitZaehlerService.neuAufbauen();
+        entityManager.clear();
+        SqlZaehler.zuruecksetzen();
+
+        // Act
+        StatistikErgebnis ergebnis = statistikService.berechneStudentenstatistik(student.getId());
+
+        // Assert
+        assertEquals(2, SqlZaehler.statements());
+        assertEquals("Max", ergebnis.student().getVorname());
+        assertEquals("Gruppe A", ergebnis.student().getGruppe().getBezeichnung());
+        assertEquals(70.0, ergebnis.gesamtAnwesenheit(), 0.001);
+        assertEquals(100, ergebnis.entschuldigt());
+        assertEquals(100, ergebnis.unentschuldigt());
+        assertEquals(100, ergebnis.krank());
+        assertEquals(20, ergebnis.verspaetungen());
+        assertEquals(200, ergebnis.verspaetungMinuten());
+        assertEquals(10.0, ergebnis.verspaetungMinutenDurchschnitt(), 0.001);
+    }
+
+    @Test
+    public void testBerechneStudentenstatistik_OhneErfassungen() {
+        // Arrange
+        Gruppe gruppe = entityManager.persist(new Gruppe("Gruppe A"));
+        Studenten student = entityManager.persist(new Studenten("Mustermann", "Max", gruppe));
+        entityManager.flush();
+        SqlZaehler.zuruecksetzen();
+
+        // Act
+        StatistikErgebnis ergebnis = statistikService.berechneStudentenstatistik(student.getId());
+
+        // Assert
+        assertEquals(1, SqlZaehler.statements());
+        assertNull(ergebnis.student());
+        assertEquals(0.0, ergebnis.gesamtAnwesenheit());
+        assertEquals(0, ergebnis.verspaetungen());
+    }
+}
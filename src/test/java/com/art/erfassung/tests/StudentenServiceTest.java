@@ -3,6 +3,7 @@ package com.art.erfassung.tests;
 import com.art.erfassung.model.Gruppe;
 import com.art.erfassung.model.Studenten;
 import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.RosterCache;
 import com.art.erfassung.service.StudentenService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -25,6 +26,9 @@ public class StudentenServiceTest {
     @Mock
     private StudentenRepository studentenRepository;
 
+    @Mock
+    private RosterCache rosterCache;
+
     private StudentenService studentenService;
 
     private Gruppe testGruppe;
@@ -33,7 +37,7 @@ public class StudentenServiceTest {
     @BeforeEach
     public void setup() {
         MockitoAnnotations.openMocks(this);
-        studentenService = new StudentenService(studentenRepository);
+        studentenService = new StudentenService(studentenRepository, rosterCache);
 
         // Setup test data
         testGruppe = new Gruppe("Test Gruppe");
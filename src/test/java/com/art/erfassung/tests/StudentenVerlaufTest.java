@@ -0,0 +1,376 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.controller.GruppeController;
+import com.art.erfassung.controller.StudentenController;
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.dto.StatistikDTO;
+import com.art.erfassung.dto.StatistikZeitraum;
+import com.art.erfassung.dto.StatusAnzahl;
+import com.art.erfassung.dto.StudentStatusAnzahl;
+import com.art.erfassung.dto.StudentenVerlauf;
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.ErfassungsTag;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.ErfassungsTagRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.StatistikService;
+import com.art.erfassung.service.StatistikService.StatistikErgebnis;
+import com.art.erfassung.service.StudentenVerlaufIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.ui.ExtendedModelMap;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+/**
+ * Tests für die Präfixsummen je Student: Vergleich beliebiger Zeiträume mit einer vollständigen Zählung,
+ * Fortschreiben beim Speichern sowie Übereinstimmung mit den Zählungen der Datenbank und den Anwesenheitszählern.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+public class StudentenVerlaufTest {
+
+    private static final String ADMIN = ErfassungApiControllerTest.basic("admin", "admin123");
+
+    private static final LocalDate MONTAG = LocalDate.of(2025, 3, 3);
+    private static final LocalDate DIENSTAG = LocalDate.of(2025, 3, 4);
+    private static final LocalDate MITTWOCH = LocalDate.of(2025, 3, 5);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private GruppeController gruppeController;
+
+    @Autowired
+    private StudentenController studentenController;
+
+    @Autowired
+    private StudentenVerlaufIndex studentenVerlaufIndex;
+
+    @Autowired
+    private StatistikService statistikService;
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private ErfassungsTagRepository erfassungsTagRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppe = gruppeRepository.save(new Gruppe("Verlauf Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        referenzdatenRegistry.neuLaden();
+        anna = studentenRepository.save(seitJeher(new Studenten("Musterfrau", "Anna", gruppe)));
+        max = studentenRepository.save(seitJeher(new Studenten("Mustermann", "Max", gruppe)));
+        studentenVerlaufIndex.neuLaden();
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        erfassungsTagRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.delete(gruppe);
+        referenzdatenRegistry.neuLaden();
+        studentenVerlaufIndex.neuLaden();
+    }
+
+    @Test
+    public void testZeitraeumeEntsprechenVollstaendigerZaehlung() {
+        // Arrange: zwei Jahre zufälliger Erfassungen mit doppelten Tagen, vier Status und Verspätungen
+        Random random = new Random(42);
+        int erster = Math.toIntExact(LocalDate.of(2023, 8, 1).toEpochDay());
+        int anzahl = 400;
+        int[] tage = new int[anzahl];
+        int[] statusIds = new int[anzahl];
+        int[] minuten = new int[anzahl];
+        TreeMap<Integer, int[]> erwartet = new TreeMap<>();
+        for (int i = 0; i < anzahl; i++) {
+            tage[i] = erster + random.nextInt(730);
+            statusIds[i] = 10 + random.nextInt(4);
+            minuten[i] = statusIds[i] == 10 && random.nextInt(5) == 0 ? 1 + random.nextInt(30) : 0;
+            erwartet.put(tage[i], new int[]{statusIds[i], minuten[i]});
+        }
+        StudentenVerlauf verlauf = StudentenVerlauf.aufbauen(tage, statusIds, minuten, anzahl, id -> "Status " + id);
+
+        // Act & Assert
+        assertEquals(erwartet.size(), verlauf.tage());
+        pruefeZufaelligeZeitraeume(verlauf, erwartet, random, erster);
+
+        // Arrange: Änderungen an vorhandenen und neuen Tagen, darunter ein neuer Status
+        int neu = 50;
+        int[] neueTage = new int[neu];
+        int[] neueStatusIds = new int[neu];
+        int[] neueMinuten = new int[neu];
+        for (int i = 0; i < neu; i++) {
+            neueTage[i] = erster + random.nextInt(800);
+            neueStatusIds[i] = 10 + random.nextInt(5);
+            neueMinuten[i] = neueStatusIds[i] == 10 ? random.nextInt(20) : 0;
+            erwartet.put(neueTage[i], new int[]{neueStatusIds[i], neueMinuten[i]});
+        }
+
+        // Act
+        StudentenVerlauf geaendert = verlauf.mitTagen(neueTage, neueStatusIds, neueMinuten, neu, id -> "Status " + id);
+
+        // Assert
+        assertEquals(erwartet.size(), geaendert.tage());
+        pruefeZufaelligeZeitraeume(geaendert, erwartet, random, erster);
+        assertTrue(StudentenVerlauf.LEER.statusAnzahlen(null, null).isEmpty());
+    }
+
+    @Test
+    public void testIndexWirdBeimSpeichernFortgeschriebenUndEntsprichtDerDatenbank() {
+        // Arrange: Anna montags 10 Minuten zu spät, Max montags krank, Mittwoch nur markiert
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, "08:10"), dto(max, krank, null)), MONTAG);
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, krank, null), dto(max, anwesend, null)), DIENSTAG);
+        // Korrektur am Dienstag, Anna war doch anwesend
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, "08:05")), DIENSTAG);
+
+        // Act & Assert: fortgeschrieben
+        assertEquals(Map.of("Anwesend", new StatusAnzahl("Anwesend", 2, 2, 15)),
+                nachBezeichnung(studentenVerlaufIndex.statusAnzahlen(anna.getId(), null, null)));
+        assertEquals(Map.of("Anwesend", new StatusAnzahl("Anwesend", 1, 1, 5)),
+                nachBezeichnung(studentenVerlaufIndex.statusAnzahlen(anna.getId(), DIENSTAG, null)));
+        assertEquals(Map.of("Krank", new StatusAnzahl("Krank", 1, 0, 0)),
+                nachBezeichnung(studentenVerlaufIndex.statusAnzahlen(max.getId(), null, MONTAG)));
+        assertTrue(studentenVerlaufIndex.statusAnzahlen(max.getId(), MITTWOCH, null).isEmpty());
+        assertEquals(nachBezeichnung(zaehlerRepository.findStandByStudentId(max.getId())),
+                nachBezeichnung(studentenVerlaufIndex.statusAnzahlen(max.getId(), null, null)));
+
+        // Arrange: an der Anwendung vorbei gespeichert, ohne Ereignis
+        erfassungRepository.save(new Erfassung(max, MITTWOCH, krank, null));
+        erfassungsTagRepository.save(new ErfassungsTag(gruppe.getId(), MITTWOCH));
+
+        // Act
+        StudentenVerlaufIndex.LadeErgebnis ergebnis = studentenVerlaufIndex.neuLaden();
+
+        // Assert: jeder Zeitraum entspricht der Zählung in der Datenbank, Anna zählt am Mittwoch als anwesend
+        assertTrue(ergebnis.tage() >= 6);
+        for (LocalDate von = MONTAG.minusDays(1); !von.isAfter(MITTWOCH.plusDays(1)); von = von.plusDays(1)) {
+            for (LocalDate bis = von; !bis.isAfter(MITTWOCH.plusDays(1)); bis = bis.plusDays(1)) {
+                Map<Integer, List<StatusAnzahl>> datenbank = new HashMap<>();
+                for (StudentStatusAnzahl zeile : erfassungRepository.zaehleNachStudentUndStatus(gruppe.getId(), von, bis)) {
+                    datenbank.computeIfAbsent(zeile.studentenId(), id -> new ArrayList<>()).add(zeile.toStatusAnzahl());
+                }
+                for (Studenten student : List.of(anna, max)) {
+                    assertEquals(nachBezeichnung(datenbank.getOrDefault(student.getId(), List.of())),
+                            nachBezeichnung(studentenVerlaufIndex.statusAnzahlen(student.getId(), von, bis)),
+                            student.getVorname() + " " + von + " bis " + bis);
+                }
+            }
+        }
+        assertEquals(new StatusAnzahl("Anwesend", 3, 2, 15),
+                nachBezeichnung(studentenVerlaufIndex.statusAnzahlen(anna.getId(), null, null)).get("Anwesend"));
+    }
+
+    @Test
+    public void testStudentenstatistikAusPraefixsummenUndNeuaufbauUeberWartung() throws Exception {
+        // Arrange
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, "08:10"), dto(max, krank, null)), MONTAG);
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, krank, null), dto(max, anwesend, null)), DIENSTAG);
+
+        // Act
+        List<StatistikErgebnis> ausDatenbank = statistikService.berechneGruppenstatistik(gruppe.getId(), DIENSTAG, null);
+        List<StatistikErgebnis> ausPraefixsummen = ausDatenbank.stream()
+                .map(e -> statistikService.berechneStudentenstatistik(e.student(),
+                        studentenVerlaufIndex.statusAnzahlen(e.student().getId(), DIENSTAG, null)))
+                .toList();
+        StatistikErgebnis annaMontag = statistikService.berechneStudentenstatistik(anna.getId(),
+                studentenVerlaufIndex.statusAnzahlen(anna.getId(), null, MONTAG));
+
+        // Assert
+        assertEquals(ausDatenbank.stream().map(StudentenVerlaufTest::werte).toList(),
+                ausPraefixsummen.stream().map(StudentenVerlaufTest::werte).toList());
+        assertEquals(100.0, annaMontag.gesamtAnwesenheit());
+        assertEquals(10, annaMontag.verspaetungMinuten());
+        mockMvc.perform(post("/admin/wartung/verlauf").header(HttpHeaders.AUTHORIZATION, ADMIN))
+                .andExpect(redirectedUrl("/admin/wartung"));
+    }
+
+    @Test
+    public void testGruppenstatistik_ZaehltZeitraeumeInDerDatenbank() throws Exception {
+        // Arrange: eine Erfassung, die wie auf einer anderen Instanz ohne Ereignis gespeichert wurde
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, null), dto(max, anwesend, null)), MONTAG);
+        erfassungRepository.save(new Erfassung(anna, DIENSTAG, krank, null));
+
+        // Act
+        ExtendedModelMap model = new ExtendedModelMap();
+        gruppeController.showGruppenstatistik(gruppe.getId(), MONTAG, DIENSTAG, model);
+        @SuppressWarnings("unchecked")
+        List<StatistikDTO> statistiken = (List<StatistikDTO>) model.get("statistiken");
+
+        // Assert: die Präfixsummen kennen die Krankmeldung nicht, die Gruppenstatistik schon
+        assertTrue(studentenVerlaufIndex.statusAnzahlen(anna.getId(), DIENSTAG, DIENSTAG).isEmpty());
+        StatistikDTO annaStatistik = statistiken.stream()
+                .filter(s -> s.getStudent().getId().equals(anna.getId())).findFirst().orElseThrow();
+        assertEquals(1, annaStatistik.getKrank());
+        assertEquals(50.0, annaStatistik.getGesamtAnwesenheit(), 0.0001);
+    }
+
+    @Test
+    public void testGruppenstatistik_VerlinktStudentenNurFuerAdministratoren() {
+        // Arrange
+        ExtendedModelMap lehrkraft = new ExtendedModelMap();
+        ExtendedModelMap administrator = new ExtendedModelMap();
+
+        // Act
+        try {
+            SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("teacher", null,
+                    "ROLE_TEACHER"));
+            gruppeController.showGruppenstatistik(gruppe.getId(), null, null, lehrkraft);
+            SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", null,
+                    "ROLE_ADMIN"));
+            gruppeController.showGruppenstatistik(gruppe.getId(), null, null, administrator);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+
+        // Assert: "/studenten/*" ist Administratoren vorbehalten
+        assertEquals(false, lehrkraft.get("isAdmin"));
+        assertEquals(true, administrator.get("isAdmin"));
+    }
+
+    @Test
+    public void testStudentenstatistik_UeberschriftUndZeitraeumeAusDemselbenStand() {
+        // Arrange: eine Erfassung, die wie auf einer anderen Instanz ohne Ereignis gespeichert wurde
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend, "08:10")), MONTAG);
+        erfassungRepository.save(new Erfassung(anna, DIENSTAG, krank, null));
+
+        // Act
+        ExtendedModelMap model = new ExtendedModelMap();
+        String view = studentenController.getStatistik(anna.getId(), null, null, model);
+        ExtendedModelMap modelMitZeitraum = new ExtendedModelMap();
+        studentenController.getStatistik(anna.getId(), DIENSTAG, DIENSTAG, modelMitZeitraum);
+
+        // Assert: Überschrift und "Gesamt" enthalten die Krankmeldung und stimmen überein
+        assertEquals("statistik", view);
+        StatistikDTO statistik = (StatistikDTO) model.get("statistik");
+        @SuppressWarnings("unchecked")
+        StatistikZeitraum gesamt = ((List<StatistikZeitraum>) model.get("zeitraeume")).get(0);
+        assertEquals("Gesamt", gesamt.bezeichnung());
+        assertEquals(1, statistik.getKrank());
+        assertEquals(50.0, statistik.getGesamtAnwesenheit(), 0.0001);
+        assertEquals(10, statistik.getVerspaetungMinuten());
+        assertEquals(List.of(statistik.getGesamtAnwesenheit(), statistik.getKrank(), statistik.getVerspaetungMinuten()),
+                List.of(gesamt.statistik().getGesamtAnwesenheit(), gesamt.statistik().getKrank(),
+                        gesamt.statistik().getVerspaetungMinuten()));
+        assertEquals(1, ((StatistikDTO) modelMitZeitraum.get("statistik")).getKrank());
+        assertEquals(0.0, ((StatistikDTO) modelMitZeitraum.get("statistik")).getGesamtAnwesenheit(), 0.0001);
+        assertEquals("redirect:/anwesenheit", studentenController.getStatistik(max.getId(), null, null,
+                new ExtendedModelMap()));
+    }
+
+    /**
+     * Vergleicht zufällige Zeiträume, darunter offene und leere, mit einer Zählung über alle Tage.
+     */
+    private static void pruefeZufaelligeZeitraeume(StudentenVerlauf verlauf, TreeMap<Integer, int[]> erwartet,
+                                                   Random random, int erster) {
+        for (int i = 0; i < 1_000; i++) {
+            Integer von = random.nextInt(10) == 0 ? null : erster - 5 + random.nextInt(810);
+            Integer bis = random.nextInt(10) == 0 ? null : erster - 5 + random.nextInt(810);
+            Map<String, StatusAnzahl> vollstaendig = new HashMap<>();
+            for (Map.Entry<Integer, int[]> tag : erwartet.entrySet()) {
+                if ((von == null || tag.getKey() >= von) && (bis == null || tag.getKey() <= bis)) {
+                    int[] wert = tag.getValue();
+                    vollstaendig.merge("Status " + wert[0], new StatusAnzahl("Status " + wert[0], 1,
+                            wert[1] > 0 ? 1 : 0, wert[1]), StudentenVerlaufTest::summe);
+                }
+            }
+            List<StatusAnzahl> ergebnis = verlauf.statusAnzahlen(von == null ? null : LocalDate.ofEpochDay(von),
+                    bis == null ? null : LocalDate.ofEpochDay(bis));
+            assertEquals(vollstaendig, nachBezeichnung(ergebnis), "Zeitraum " + von + " bis " + bis);
+            assertEquals(vollstaendig.size(), ergebnis.size());
+        }
+    }
+
+    private static Map<String, StatusAnzahl> nachBezeichnung(List<StatusAnzahl> statusAnzahlen) {
+        Map<String, StatusAnzahl> ergebnis = new HashMap<>();
+        for (StatusAnzahl statusAnzahl : statusAnzahlen) {
+            ergebnis.merge(statusAnzahl.bezeichnung(), statusAnzahl, StudentenVerlaufTest::summe);
+        }
+        return ergebnis;
+    }
+
+    private static StatusAnzahl summe(StatusAnzahl a, StatusAnzahl b) {
+        return new StatusAnzahl(a.bezeichnung(), a.anzahl() + b.anzahl(), a.verspaetungen() + b.verspaetungen(),
+                a.verspaetungMinuten() + b.verspaetungMinuten());
+    }
+
+    private static List<Object> werte(StatistikErgebnis ergebnis) {
+        return List.of(ergebnis.student().getId(), ergebnis.gesamtAnwesenheit(), ergebnis.entschuldigt(),
+                ergebnis.unentschuldigt(), ergebnis.krank(), ergebnis.verspaetungen(), ergebnis.verspaetungMinuten());
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status, String ankunftszeit) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        dto.setAnkunftszeit(ankunftszeit);
+        return dto;
+    }
+
+    /**
+     * Macht den Studenten zum Mitglied "seit jeher", damit er auch an markierten Tagen vor heute als anwesend gilt.
+     */
+    private static Studenten seitJeher(Studenten student) {
+        student.setGruppeSeit(null);
+        return student;
+    }
+}
@@ -0,0 +1,99 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.model.Erfassung;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.VerspaetungNachtragService;
+import com.art.erfassung.service.VerspaetungNachtragService.NachtragErgebnis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for {@link VerspaetungNachtragService}.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({VerspaetungNachtragService.class, ErfassungService.class, GruppenSperren.class, ReferenzdatenRegistry.class})
+public class VerspaetungNachtragServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private VerspaetungNachtragService nachtragService;
+
+    private Studenten student;
+    private Status status;
+
+    @BeforeEach
+    public void setup() {
+        Gruppe gruppe = entityManager.persist(new Gruppe("Test Gruppe"));
+        student = entityManager.persist(new Studenten("Mustermann", "Max", gruppe));
+        status = entityManager.persist(new Status("Anwesend"));
+    }
+
+    @Test
+    public void testNachtragen_UebertraegtKommentarInSpalten() {
+        // Arrange
+        Erfassung nurVerspaetung = erfassung(1, "Verspätung: 15 Minuten");
+        Erfassung mitKommentar = erfassung(2, "Bus verpasst | Verspätung: 45 Minuten");
+        Erfassung ohneVerspaetung = erfassung(3, "Alles gut");
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        NachtragErgebnis ergebnis = nachtragService.nachtragen();
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert
+        assertEquals(2, ergebnis.geprueft());
+        assertEquals(2, ergebnis.uebernommen());
+
+        Erfassung erste = entityManager.find(Erfassung.class, nurVerspaetung.getId());
+        assertEquals(15, erste.getVerspaetungMinuten());
+        assertEquals(LocalTime.of(8, 15), erste.getAnkunftszeit());
+        assertNull(erste.getKommentar());
+
+        Erfassung zweite = entityManager.find(Erfassung.class, mitKommentar.getId());
+        assertEquals(45, zweite.getVerspaetungMinuten());
+        assertEquals("Bus verpasst", zweite.getKommentar());
+
+        Erfassung dritte = entityManager.find(Erfassung.class, ohneVerspaetung.getId());
+        assertNull(dritte.getVerspaetungMinuten());
+        assertEquals("Alles gut", dritte.getKommentar());
+    }
+
+    @Test
+    public void testNachtragen_IstWiederholbar() {
+        // Arrange
+        erfassung(1, "Verspätung: 5 Minuten");
+        entityManager.flush();
+        nachtragService.nachtragen();
+        entityManager.flush();
+
+        // Act
+        NachtragErgebnis ergebnis = nachtragService.nachtragen();
+
+        // Assert
+        assertEquals(0, ergebnis.geprueft());
+    }
+
+    private Erfassung erfassung(int tag, String kommentar) {
+        return entityManager.persist(new Erfassung(student, LocalDate.of(2024, 1, tag), status, kommentar));
+    }
+}
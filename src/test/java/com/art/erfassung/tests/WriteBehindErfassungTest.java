@@ -0,0 +1,354 @@
+package com.art.erfassung.tests;
+
+import com.art.erfassung.dto.ErfassungDTO;
+import com.art.erfassung.model.Gruppe;
+import com.art.erfassung.model.Status;
+import com.art.erfassung.model.Studenten;
+import com.art.erfassung.repository.AnwesenheitZaehlerRepository;
+import com.art.erfassung.repository.ErfassungRepository;
+import com.art.erfassung.repository.GruppeRepository;
+import com.art.erfassung.repository.StatusRepository;
+import com.art.erfassung.repository.StudentenRepository;
+import com.art.erfassung.service.ErfassungJournal;
+import com.art.erfassung.service.ErfassungService;
+import com.art.erfassung.service.GruppenSperren;
+import com.art.erfassung.service.ReferenzdatenRegistry;
+import com.art.erfassung.service.RosterCache;
+import com.art.erfassung.service.WriteBehindErfassung;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests für {@link WriteBehindErfassung}.
+ * <p>
+ * Der Modus ist in der Testkonfiguration nicht aktiv; die Tests erzeugen eigene Instanzen mit einem
+ * temporären Journalverzeichnis aus den Beans des Anwendungskontexts.
+ * </p>
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class WriteBehindErfassungTest {
+
+    @Autowired
+    private ErfassungService erfassungService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private GruppenSperren gruppenSperren;
+
+    @Autowired
+    private ReferenzdatenRegistry referenzdatenRegistry;
+
+    @Autowired
+    private RosterCache rosterCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private GruppeRepository gruppeRepository;
+
+    @Autowired
+    private StudentenRepository studentenRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private ErfassungRepository erfassungRepository;
+
+    @Autowired
+    private AnwesenheitZaehlerRepository zaehlerRepository;
+
+    @TempDir
+    Path verzeichnis;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Gruppe gruppe;
+    private Studenten anna;
+    private Studenten max;
+    private Status anwesend;
+    private Status krank;
+
+    @BeforeEach
+    public void setup() {
+        gruppe = gruppeRepository.save(new Gruppe("Journal Gruppe"));
+        anwesend = statusRepository.save(new Status("Anwesend"));
+        krank = statusRepository.save(new Status("Krank"));
+        anna = studentenRepository.save(new Studenten("Musterfrau", "Anna", gruppe));
+        max = studentenRepository.save(new Studenten("Mustermann", "Max", gruppe));
+    }
+
+    @AfterEach
+    public void aufraeumen() {
+        zaehlerRepository.deleteAll();
+        erfassungRepository.deleteAll();
+        studentenRepository.deleteAll(List.of(anna, max));
+        statusRepository.deleteAll(List.of(anwesend, krank));
+        gruppeRepository.delete(gruppe);
+    }
+
+    @Test
+    public void testEinreichungenWerdenGesammeltGespeichert() throws Exception {
+        // Arrange
+        WriteBehindErfassung writeBehind = writeBehind();
+        writeBehind.start();
+
+        // Act
+        writeBehind.einreichen(gruppe.getId(), List.of(dto(anna, anwesend), dto(max, anwesend)));
+        writeBehind.einreichen(gruppe.getId(), List.of(dto(anna, krank)));
+        boolean gespeichert = writeBehind.warteAufSpeicherung(Duration.ofSeconds(10));
+        writeBehind.stop();
+
+        // Assert
+        assertTrue(gespeichert);
+        assertEquals(Map.of(anna.getId(), "Krank", max.getId(), "Anwesend"), statusNachStudent());
+        assertEquals(0.0, meterRegistry.get("erfassung.journal.rueckstand").gauge().value());
+        assertTrue(meterRegistry.get("erfassung.journal.batch.groesse").summary().count() >= 1);
+    }
+
+    @Test
+    public void testHerunterfahrenLeertWarteschlange() {
+        // Arrange
+        WriteBehindErfassung writeBehind = writeBehind();
+        writeBehind.start();
+
+        // Act
+        writeBehind.einreichen(gruppe.getId(), List.of(dto(anna, anwesend), dto(max, krank)));
+        writeBehind.stop();
+
+        // Assert
+        assertEquals(Map.of(anna.getId(), "Anwesend", max.getId(), "Krank"), statusNachStudent());
+    }
+
+    @Test
+    public void testOffeneEintraegeWerdenBeimStartNachgespielt() throws Exception {
+        // Arrange: Einreichung, die vor einem Absturz nur im Journal angekommen ist
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            journal.anhaengen(LocalDate.now(), gruppe.getId(), List.of(dto(anna, krank)));
+        }
+        WriteBehindErfassung writeBehind = writeBehind();
+
+        // Act
+        writeBehind.start();
+        writeBehind.stop();
+
+        // Assert
+        assertEquals(Map.of(anna.getId(), "Krank"), statusNachStudent());
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            assertTrue(journal.offeneEintraegeUebernehmen().isEmpty());
+        }
+    }
+
+    @Test
+    public void testFremderStudentWirdOhneJournaleintragAbgelehnt() throws Exception {
+        // Arrange
+        Gruppe andere = gruppeRepository.save(new Gruppe("Andere Gruppe"));
+        WriteBehindErfassung writeBehind = writeBehind();
+        writeBehind.start();
+
+        try {
+            // Act & Assert
+            assertThrows(NoSuchElementException.class,
+                    () -> writeBehind.einreichen(andere.getId(), List.of(dto(anna, anwesend))));
+        } finally {
+            writeBehind.stop();
+            gruppeRepository.delete(andere);
+        }
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            assertEquals(0, journal.getLetzteSequenz());
+        }
+    }
+
+    @Test
+    public void testInfrastrukturfehlerWerdenWiederholtStattVerworfen() throws Exception {
+        // Arrange: die Datenbank ist für drei Versuche nicht erreichbar
+        StoerenderTransaktionsmanager manager = new StoerenderTransaktionsmanager();
+        for (int i = 0; i < 3; i++) {
+            manager.fehler.add(new DataAccessResourceFailureException("Verbindung verloren"));
+        }
+        WriteBehindErfassung writeBehind = writeBehind(manager);
+        writeBehind.start();
+
+        // Act
+        writeBehind.einreichen(gruppe.getId(), List.of(dto(anna, krank)));
+        boolean gespeichert = writeBehind.warteAufSpeicherung(Duration.ofSeconds(10));
+        writeBehind.stop();
+
+        // Assert
+        assertTrue(gespeichert);
+        assertEquals(Map.of(anna.getId(), "Krank"), statusNachStudent());
+        assertEquals(3.0, meterRegistry.get("erfassung.journal.wiederholungen").counter().count());
+        assertEquals(List.of(TransactionDefinition.ISOLATION_READ_COMMITTED), manager.isolationsstufen);
+        assertEquals(0.0, meterRegistry.get("erfassung.journal.verworfen").counter().count());
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            assertTrue(journal.offeneEintraegeUebernehmen().isEmpty());
+            assertTrue(journal.verworfeneEintraege().isEmpty());
+        }
+    }
+
+    @Test
+    public void testInhaltlicherFehlerWirdVerworfenUndAbgelegt() throws Exception {
+        // Arrange: zwei offene Einreichungen; der Group Commit und die erste Einreichung scheitern inhaltlich
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            journal.anhaengen(LocalDate.now(), gruppe.getId(), List.of(dto(anna, krank)));
+            journal.anhaengen(LocalDate.now(), gruppe.getId(), List.of(dto(max, krank)));
+        }
+        StoerenderTransaktionsmanager manager = new StoerenderTransaktionsmanager();
+        manager.fehler.add(new DataIntegrityViolationException("Group Commit"));
+        manager.fehler.add(new DataIntegrityViolationException("Einreichung 1"));
+        WriteBehindErfassung writeBehind = writeBehind(manager);
+
+        // Act
+        writeBehind.start();
+        writeBehind.stop();
+
+        // Assert
+        assertEquals(Map.of(max.getId(), "Krank"), statusNachStudent());
+        assertEquals(1.0, meterRegistry.get("erfassung.journal.verworfen").counter().count());
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            assertTrue(journal.offeneEintraegeUebernehmen().isEmpty());
+            List<ErfassungJournal.Verworfen> verworfen = journal.verworfeneEintraege();
+            assertEquals(1, verworfen.size());
+            assertEquals(1, verworfen.get(0).eintrag().sequenz());
+            assertEquals(anna.getId(), verworfen.get(0).eintrag().eintraege().get(0).getStudentenId());
+            assertTrue(verworfen.get(0).grund().contains("Einreichung 1"));
+        }
+    }
+
+    @Test
+    public void testHerunterfahrenWaehrendStoerungBehaeltEinreichungenImJournal() throws Exception {
+        // Arrange: die Datenbank ist dauerhaft nicht erreichbar
+        StoerenderTransaktionsmanager manager = new StoerenderTransaktionsmanager();
+        manager.dauerhaft = new CannotAcquireLockException("Sperre nicht erhalten");
+        WriteBehindErfassung writeBehind = writeBehind(manager);
+        writeBehind.start();
+        writeBehind.einreichen(gruppe.getId(), List.of(dto(anna, krank)));
+
+        // Act
+        writeBehind.stop();
+
+        // Assert: nichts verworfen, die Einreichung bleibt offen und wird beim nächsten Start gespeichert
+        assertTrue(statusNachStudent().isEmpty());
+        assertEquals(0.0, meterRegistry.get("erfassung.journal.verworfen").counter().count());
+        try (ErfassungJournal journal = new ErfassungJournal(verzeichnis, objectMapper)) {
+            assertEquals(1, journal.offeneEintraegeUebernehmen().size());
+            assertTrue(journal.verworfeneEintraege().isEmpty());
+        }
+        WriteBehindErfassung neustart = writeBehind();
+        neustart.start();
+        neustart.stop();
+        assertEquals(Map.of(anna.getId(), "Krank"), statusNachStudent());
+    }
+
+    @Test
+    public void testVeralteteVersionGewinntAlsLetzteEinreichung() throws Exception {
+        // Arrange: Anna ist bereits gespeichert; das Formular wurde vor dieser Erfassung geladen
+        erfassungService.erfassenAnwesenheiten(List.of(dto(anna, anwesend)), LocalDate.now());
+        WriteBehindErfassung writeBehind = writeBehind();
+        writeBehind.start();
+        ErfassungDTO veraltet = dto(anna, krank);
+        veraltet.setVersion(ErfassungDTO.KEINE_ERFASSUNG);
+
+        // Act
+        writeBehind.einreichen(gruppe.getId(), List.of(veraltet));
+        boolean gespeichert = writeBehind.warteAufSpeicherung(Duration.ofSeconds(10));
+        writeBehind.stop();
+
+        // Assert: ohne Konfliktprüfung gespeichert statt verworfen
+        assertTrue(gespeichert);
+        assertEquals(Map.of(anna.getId(), "Krank"), statusNachStudent());
+        assertEquals(0.0, meterRegistry.get("erfassung.journal.verworfen").counter().count());
+    }
+
+    private WriteBehindErfassung writeBehind() {
+        return writeBehind(transactionManager);
+    }
+
+    private WriteBehindErfassung writeBehind(PlatformTransactionManager manager) {
+        return new WriteBehindErfassung(erfassungService, manager, gruppenSperren, referenzdatenRegistry,
+                rosterCache, objectMapper, meterRegistry, verzeichnis.toString(), 100, 50, 500, 50);
+    }
+
+    private Map<Integer, String> statusNachStudent() {
+        return transactionTemplate.execute(status -> erfassungRepository.findAll().stream()
+                .collect(Collectors.toMap(e -> e.getStudenten().getId(), e -> e.getStatus().getBezeichnung())));
+    }
+
+    private static ErfassungDTO dto(Studenten student, Status status) {
+        ErfassungDTO dto = new ErfassungDTO();
+        dto.setStudentenId(student.getId());
+        dto.setStatusId(status.getId());
+        return dto;
+    }
+
+    /**
+     * Transaktionsmanager, der beim Beginn einer Transaktion vorgegebene Fehler wirft.
+     */
+    private class StoerenderTransaktionsmanager implements PlatformTransactionManager {
+
+        // Der Reihe nach geworfene Fehler, je Transaktion einer
+        final Deque<RuntimeException> fehler = new ConcurrentLinkedDeque<>();
+        // Bei jeder Transaktion geworfener Fehler, falls gesetzt
+        volatile RuntimeException dauerhaft;
+        // Isolationsstufen der begonnenen Transaktionen
+        final List<Integer> isolationsstufen = new CopyOnWriteArrayList<>();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            if (dauerhaft != null) {
+                throw dauerhaft;
+            }
+            RuntimeException naechster = fehler.poll();
+            if (naechster != null) {
+                throw naechster;
+            }
+            isolationsstufen.add(definition.getIsolationLevel());
+            return transactionManager.getTransaction(definition);
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            transactionManager.commit(status);
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            transactionManager.rollback(status);
+        }
+    }
+}